@@ -26,6 +26,7 @@ import lineage2.gameserver.model.actor.instances.player.Friend;
 import lineage2.gameserver.network.serverpackets.ShowBoard;
 import lineage2.gameserver.scripts.ScriptFile;
 
+import org.napile.primitive.maps.IntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -322,11 +323,11 @@ public final class ManageFriends implements ScriptFile, ICommunityBoardHandler
 	private static String getBlockList(Player player)
 	{
 		StringBuilder blockList = new StringBuilder("");
-		Map<Integer, String> bl = player.getBlockListMap();
+		IntObjectMap<String> bl = player.getBlockListMap();
 		
-		for (Integer objectId : bl.keySet())
+		for (IntObjectMap.Entry<String> e : bl.entrySet())
 		{
-			blockList.append(bl.get(objectId)).append("&nbsp; <a action=\"bypass _friendblockdelete_").append(objectId).append("\">Delete</a>&nbsp;&nbsp;");
+			blockList.append(e.getValue()).append("&nbsp; <a action=\"bypass _friendblockdelete_").append(e.getKey()).append("\">Delete</a>&nbsp;&nbsp;");
 		}
 		
 		return blockList.toString();
@@ -0,0 +1,138 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.commons.math.random;
+
+import lineage2.commons.util.Rnd;
+
+/**
+ * Walker alias table, picks one of a fixed set of weighted outcomes in constant time.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class AliasTable
+{
+	private final double[] _probability;
+	private final int[] _alias;
+	private final double[] _weights;
+	
+	/**
+	 * Constructor for AliasTable.
+	 * @param weights double[] non negative weights, at least one of them positive
+	 */
+	public AliasTable(double[] weights)
+	{
+		final int size = weights.length;
+		double total = 0;
+		
+		for (double weight : weights)
+		{
+			if (weight < 0)
+			{
+				throw new IllegalArgumentException("Negative weight " + weight);
+			}
+			
+			total += weight;
+		}
+		
+		if (total <= 0)
+		{
+			throw new IllegalArgumentException("No positive weight");
+		}
+		
+		_probability = new double[size];
+		_alias = new int[size];
+		_weights = new double[size];
+		final double[] scaled = new double[size];
+		final int[] small = new int[size];
+		final int[] large = new int[size];
+		int smallCount = 0;
+		int largeCount = 0;
+		
+		for (int i = 0; i < size; i++)
+		{
+			_weights[i] = weights[i] / total;
+			scaled[i] = _weights[i] * size;
+			
+			if (scaled[i] < 1)
+			{
+				small[smallCount++] = i;
+			}
+			else
+			{
+				large[largeCount++] = i;
+			}
+		}
+		
+		while ((smallCount > 0) && (largeCount > 0))
+		{
+			final int less = small[--smallCount];
+			final int more = large[--largeCount];
+			_probability[less] = scaled[less];
+			_alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1;
+			
+			if (scaled[more] < 1)
+			{
+				small[smallCount++] = more;
+			}
+			else
+			{
+				large[largeCount++] = more;
+			}
+		}
+		
+		// whatever is left over only differs from 1 by rounding
+		while (largeCount > 0)
+		{
+			final int i = large[--largeCount];
+			_probability[i] = 1;
+			_alias[i] = i;
+		}
+		
+		while (smallCount > 0)
+		{
+			final int i = small[--smallCount];
+			_probability[i] = 1;
+			_alias[i] = i;
+		}
+	}
+	
+	/**
+	 * Method next.
+	 * @return int index of the picked outcome
+	 */
+	public int next()
+	{
+		final int i = Rnd.get(_probability.length);
+		return Rnd.nextDouble() < _probability[i] ? i : _alias[i];
+	}
+	
+	/**
+	 * Method getProbability.
+	 * @param index int
+	 * @return double probability of the outcome
+	 */
+	public double getProbability(int index)
+	{
+		return _weights[index];
+	}
+	
+	/**
+	 * Method size.
+	 * @return int number of outcomes
+	 */
+	public int size()
+	{
+		return _weights.length;
+	}
+}
@@ -0,0 +1,174 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.commons.math.random;
+
+import lineage2.commons.util.Rnd;
+
+/**
+ * Number of successes out of n independent trials with the same chance, drawn without running the trials.<br>
+ * Small means are drawn by inversion, large ones by the transformed rejection method of Hormann (BTRS), both exact.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public final class BinomialDistribution
+{
+	private static final int LOG_FACTORIAL_TABLE_SIZE = 128;
+	private static final double[] LOG_FACTORIAL = new double[LOG_FACTORIAL_TABLE_SIZE];
+	private static final double HALF_LOG_2_PI = 0.5 * Math.log(2 * Math.PI);
+	static
+	{
+		for (int i = 1; i < LOG_FACTORIAL_TABLE_SIZE; i++)
+		{
+			LOG_FACTORIAL[i] = LOG_FACTORIAL[i - 1] + Math.log(i);
+		}
+	}
+	
+	/**
+	 * Constructor for BinomialDistribution.
+	 */
+	private BinomialDistribution()
+	{
+	}
+	
+	/**
+	 * Method next.
+	 * @param n long number of trials
+	 * @param p double chance of each trial
+	 * @return long number of successful trials
+	 */
+	public static long next(long n, double p)
+	{
+		if ((n <= 0) || (p <= 0))
+		{
+			return 0;
+		}
+		
+		if (p >= 1)
+		{
+			return n;
+		}
+		
+		if (p > 0.5)
+		{
+			return n - next(n, 1 - p);
+		}
+		
+		if ((n * p) < 10)
+		{
+			return inversion(n, p);
+		}
+		
+		return transformedRejection(n, p);
+	}
+	
+	/**
+	 * Walks the cumulative distribution from 0, in about n * p + 1 steps.
+	 * @param n long
+	 * @param p double at most 0.5
+	 * @return long
+	 */
+	private static long inversion(long n, double p)
+	{
+		final double q = 1 - p;
+		final double s = p / q;
+		final double a = (n + 1) * s;
+		
+		for (;;)
+		{
+			double r = Math.pow(q, n);
+			double u = Rnd.nextDouble();
+			long k = 0;
+			
+			while (u > r)
+			{
+				u -= r;
+				k++;
+				
+				if (k > n)
+				{
+					break;
+				}
+				
+				r *= (a / k) - s;
+			}
+			
+			// k above n only happens through rounding, draw again
+			if (k <= n)
+			{
+				return k;
+			}
+		}
+	}
+	
+	/**
+	 * Method transformedRejection.
+	 * @param n long
+	 * @param p double at most 0.5, with n * p at least 10
+	 * @return long
+	 */
+	private static long transformedRejection(long n, double p)
+	{
+		final double q = 1 - p;
+		final double spq = Math.sqrt(n * p * q);
+		final double b = 1.15 + (2.53 * spq);
+		final double a = -0.0873 + (0.0248 * b) + (0.01 * p);
+		final double c = (n * p) + 0.5;
+		final double vr = 0.92 - (4.2 / b);
+		final double alpha = (2.83 + (5.1 / b)) * spq;
+		final double lpq = Math.log(p / q);
+		final long m = (long) Math.floor((n + 1) * p);
+		final double h = logFactorial(m) + logFactorial(n - m);
+		
+		for (;;)
+		{
+			final double u = Rnd.nextDouble() - 0.5;
+			double v = Rnd.nextDouble();
+			final double us = 0.5 - Math.abs(u);
+			final long k = (long) Math.floor((((2 * a) / us) + b) * u + c);
+			
+			if ((k < 0) || (k > n))
+			{
+				continue;
+			}
+			
+			if ((us >= 0.07) && (v <= vr))
+			{
+				return k;
+			}
+			
+			v = Math.log((v * alpha) / ((a / (us * us)) + b));
+			
+			if (v <= ((h - logFactorial(k) - logFactorial(n - k)) + ((k - m) * lpq)))
+			{
+				return k;
+			}
+		}
+	}
+	
+	/**
+	 * Method logFactorial.
+	 * @param k long
+	 * @return double natural logarithm of k!
+	 */
+	private static double logFactorial(long k)
+	{
+		if (k < LOG_FACTORIAL_TABLE_SIZE)
+		{
+			return LOG_FACTORIAL[(int) k];
+		}
+		
+		// Stirling series, the error is far below double precision from here on
+		final double x = k;
+		return ((((x + 0.5) * Math.log(x)) - x) + HALF_LOG_2_PI + (1 / (12 * x))) - (1 / (360 * x * x * x));
+	}
+}
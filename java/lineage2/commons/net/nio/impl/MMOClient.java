@@ -70,6 +70,15 @@ public abstract class MMOClient<T extends MMOConnection>
 		this.isAuthed = isAuthed;
 	}
 	
+	/**
+	 * Method isRateLimited.
+	 * @return boolean true if incoming packets go through the rate limiter of the selector
+	 */
+	public boolean isRateLimited()
+	{
+		return false;
+	}
+	
 	/**
 	 * Method closeNow.
 	 * @param error boolean
@@ -16,10 +16,11 @@ import java.io.IOException;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.CancelledKeyException;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SelectionKey;
-import java.nio.channels.WritableByteChannel;
 import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -35,12 +36,20 @@ public class MMOConnection<T extends MMOClient>
 	private final SelectorThread<T> _selectorThread;
 	private final SelectionKey _selectionKey;
 	private final Socket _socket;
-	private final WritableByteChannel _writableByteChannel;
+	private final GatheringByteChannel _writableByteChannel;
 	private final ReadableByteChannel _readableByteChannel;
 	private final Queue<SendablePacket<T>> _sendQueue;
 	private final Queue<ReceivablePacket<T>> _recvQueue;
 	private T _client;
-	private ByteBuffer _readBuffer, _primaryWriteBuffer, _secondaryWriteBuffer;
+	private ByteBuffer _readBuffer;
+	private final Deque<ByteBuffer> _pendingWriteBuffers = new ArrayDeque<>();
+	private int _pendingWriteBytes;
+	private int _tailReadPosition;
+	private int _tailWriteStart;
+	private int _sendBudget;
+	private long[] _rateBuckets;
+	private ByteBuffer[] _deferredPackets;
+	private int _deferredCount;
 	private boolean _pendingClose;
 	private long _pendingCloseTime;
 	private boolean _closed;
@@ -61,7 +70,8 @@ public class MMOConnection<T extends MMOClient>
 		_writableByteChannel = socket.getChannel();
 		_readableByteChannel = socket.getChannel();
 		_sendQueue = new ArrayDeque<>();
-		_recvQueue = new MMOExecutableQueue<>(selectorThread.getExecutor());
+		_recvQueue = new MMOExecutableQueue<>(selectorThread.getExecutor(), SelectorThread.getSelectorStats());
+		_sendBudget = selectorThread.getConfig().WRITE_BUFFER_SIZE;
 	}
 	
 	/**
@@ -284,9 +294,9 @@ public class MMOConnection<T extends MMOClient>
 	
 	/**
 	 * Method getWritableChannel.
-	 * @return WritableByteChannel
+	 * @return GatheringByteChannel
 	 */
-	public WritableByteChannel getWritableChannel()
+	public GatheringByteChannel getWritableChannel()
 	{
 		return _writableByteChannel;
 	}
@@ -309,6 +319,15 @@ public class MMOConnection<T extends MMOClient>
 		return _sendQueue;
 	}
 	
+	/**
+	 * Method getRecvQueueSize.
+	 * @return int received packets waiting for execution
+	 */
+	public int getRecvQueueSize()
+	{
+		return _recvQueue.size();
+	}
+	
 	/**
 	 * Method getRecvQueue.
 	 * @return Queue<ReceivablePacket<T>>
@@ -319,62 +338,181 @@ public class MMOConnection<T extends MMOClient>
 	}
 	
 	/**
-	 * Method createWriteBuffer.
-	 * @param buf ByteBuffer
+	 * Method hasPendingWriteBuffer.
+	 * @return boolean
+	 */
+	protected boolean hasPendingWriteBuffer()
+	{
+		return _pendingWriteBytes > 0;
+	}
+	
+	/**
+	 * Encoded bytes not yet accepted by the socket, in send order. Each buffer is ready for reading.
+	 * @return Deque<ByteBuffer>
+	 */
+	Deque<ByteBuffer> getPendingWriteBuffers()
+	{
+		return _pendingWriteBuffers;
+	}
+	
+	/**
+	 * Method getPendingWriteBytes.
+	 * @return int
 	 */
-	protected void createWriteBuffer(ByteBuffer buf)
+	int getPendingWriteBytes()
 	{
-		if (_primaryWriteBuffer == null)
+		return _pendingWriteBytes;
+	}
+	
+	/**
+	 * Opens the last pending buffer for writing right after its encoded bytes, taking a new pooled buffer when less than minFree bytes are left in it.
+	 * @param minFree int
+	 * @return ByteBuffer
+	 */
+	ByteBuffer beginWriteBuffer(int minFree)
+	{
+		ByteBuffer tail = _pendingWriteBuffers.peekLast();
+		
+		if ((tail == null) || ((tail.capacity() - tail.limit()) < minFree))
 		{
-			_primaryWriteBuffer = _selectorThread.getPooledBuffer();
-			_primaryWriteBuffer.put(buf);
+			tail = _selectorThread.getDirectBuffer();
+			tail.limit(0);
+			_pendingWriteBuffers.addLast(tail);
+		}
+		
+		_tailReadPosition = tail.position();
+		_tailWriteStart = tail.limit();
+		tail.position(_tailWriteStart);
+		tail.limit(tail.capacity());
+		return tail;
+	}
+	
+	/**
+	 * Closes the buffer opened by beginWriteBuffer, the bytes written up to its position become pending.
+	 */
+	void endWriteBuffer()
+	{
+		final ByteBuffer tail = _pendingWriteBuffers.peekLast();
+		final int end = tail.position();
+		_pendingWriteBytes += end - _tailWriteStart;
+		tail.limit(end);
+		tail.position(_tailReadPosition);
+	}
+	
+	/**
+	 * Drops the bytes the socket accepted and adapts the send budget: it grows while the socket takes everything and shrinks to what the socket took when it does not.
+	 * @param written long
+	 */
+	void onWritten(long written)
+	{
+		final boolean drained = written == _pendingWriteBytes;
+		_pendingWriteBytes -= (int) written;
+		ByteBuffer head;
+		
+		while (((head = _pendingWriteBuffers.peekFirst()) != null) && !head.hasRemaining())
+		{
+			_selectorThread.recycleDirectBuffer(_pendingWriteBuffers.pollFirst());
+		}
+		
+		final SelectorConfig sc = _selectorThread.getConfig();
+		
+		if (drained)
+		{
+			_sendBudget = Math.min(_sendBudget * 2, sc.MAX_SEND_BYTES_PER_PASS);
 		}
 		else
 		{
-			ByteBuffer temp = _selectorThread.getPooledBuffer();
-			temp.put(buf);
-			int remaining = temp.remaining();
-			_primaryWriteBuffer.flip();
-			int limit = _primaryWriteBuffer.limit();
-			
-			if (remaining >= _primaryWriteBuffer.remaining())
-			{
-				temp.put(_primaryWriteBuffer);
-				_selectorThread.recycleBuffer(_primaryWriteBuffer);
-				_primaryWriteBuffer = temp;
-			}
-			else
-			{
-				_primaryWriteBuffer.limit(remaining);
-				temp.put(_primaryWriteBuffer);
-				_primaryWriteBuffer.limit(limit);
-				_primaryWriteBuffer.compact();
-				_secondaryWriteBuffer = _primaryWriteBuffer;
-				_primaryWriteBuffer = temp;
-			}
+			_sendBudget = Math.max((int) written, sc.PACKET_SIZE);
 		}
 	}
 	
 	/**
-	 * Method hasPendingWriteBuffer.
-	 * @return boolean
+	 * Method getSendBudget.
+	 * @return int bytes to encode ahead of the socket in one pass
 	 */
-	protected boolean hasPendingWriteBuffer()
+	int getSendBudget()
+	{
+		return _sendBudget;
+	}
+	
+	/**
+	 * Method getRateBuckets.
+	 * @param rules int
+	 * @return long[] token bucket state of the connection
+	 */
+	long[] getRateBuckets(int rules)
+	{
+		if (_rateBuckets == null)
+		{
+			_rateBuckets = new long[rules * 2];
+		}
+		
+		return _rateBuckets;
+	}
+	
+	/**
+	 * Keeps a copy of a packet over budget, replacing the one already kept for the same rule.
+	 * @param rule int
+	 * @param rules int
+	 * @param buf ByteBuffer decrypted packet, the position is left unchanged
+	 */
+	void deferPacket(int rule, int rules, ByteBuffer buf)
+	{
+		if (_deferredPackets == null)
+		{
+			_deferredPackets = new ByteBuffer[rules];
+		}
+		
+		clearDeferredPacket(rule);
+		ByteBuffer copy = _deferredPackets[rule];
+		
+		if ((copy == null) || (copy.capacity() < buf.remaining()))
+		{
+			copy = ByteBuffer.allocate(Math.max(buf.remaining(), 64)).order(_selectorThread.getConfig().BYTE_ORDER);
+			_deferredPackets[rule] = copy;
+		}
+		
+		copy.clear();
+		copy.put(buf.duplicate());
+		copy.flip();
+		_deferredCount++;
+	}
+	
+	/**
+	 * Method getDeferredPacket.
+	 * @param rule int
+	 * @return ByteBuffer kept packet or null
+	 */
+	ByteBuffer getDeferredPacket(int rule)
 	{
-		return _primaryWriteBuffer != null;
+		if ((_deferredPackets == null) || (_deferredPackets[rule] == null) || !_deferredPackets[rule].hasRemaining())
+		{
+			return null;
+		}
+		
+		return _deferredPackets[rule];
 	}
 	
 	/**
-	 * Method movePendingWriteBufferTo.
-	 * @param dest ByteBuffer
+	 * Forgets the packet kept for the rule, a newer one of the same rule was handled.
+	 * @param rule int
 	 */
-	protected void movePendingWriteBufferTo(ByteBuffer dest)
+	void clearDeferredPacket(int rule)
 	{
-		_primaryWriteBuffer.flip();
-		dest.put(_primaryWriteBuffer);
-		_selectorThread.recycleBuffer(_primaryWriteBuffer);
-		_primaryWriteBuffer = _secondaryWriteBuffer;
-		_secondaryWriteBuffer = null;
+		if ((_deferredPackets != null) && (_deferredPackets[rule] != null) && _deferredPackets[rule].hasRemaining())
+		{
+			_deferredPackets[rule].limit(0);
+			_deferredCount--;
+		}
+	}
+	
+	/**
+	 * Method hasDeferredPackets.
+	 * @return boolean
+	 */
+	boolean hasDeferredPackets()
+	{
+		return _deferredCount > 0;
 	}
 	
 	/**
@@ -495,18 +633,17 @@ public class MMOConnection<T extends MMOClient>
 	 */
 	protected void releaseBuffers()
 	{
-		if (_primaryWriteBuffer != null)
+		ByteBuffer buf;
+		
+		while ((buf = _pendingWriteBuffers.pollFirst()) != null)
 		{
-			_selectorThread.recycleBuffer(_primaryWriteBuffer);
-			_primaryWriteBuffer = null;
-			
-			if (_secondaryWriteBuffer != null)
-			{
-				_selectorThread.recycleBuffer(_secondaryWriteBuffer);
-				_secondaryWriteBuffer = null;
-			}
+			_selectorThread.recycleDirectBuffer(buf);
 		}
 		
+		_pendingWriteBytes = 0;
+		_deferredPackets = null;
+		_deferredCount = 0;
+		
 		if (_readBuffer != null)
 		{
 			_selectorThread.recycleBuffer(_readBuffer);
@@ -30,16 +30,19 @@ class MMOExecutableQueue<T extends MMOClient> implements Queue<ReceivablePacket<
 	private static final int QUEUED = 1;
 	private static final int RUNNING = 2;
 	private final IMMOExecutor<T> _executor;
-	private final Queue<ReceivablePacket<T>> _queue;
+	private final SelectorStats _stats;
+	private final ArrayDeque<ReceivablePacket<T>> _queue;
 	private final AtomicInteger _state = new AtomicInteger(NONE);
 	
 	/**
 	 * Constructor for MMOExecutableQueue.
 	 * @param executor IMMOExecutor<T>
+	 * @param stats SelectorStats
 	 */
-	MMOExecutableQueue(IMMOExecutor<T> executor)
+	MMOExecutableQueue(IMMOExecutor<T> executor, SelectorStats stats)
 	{
 		_executor = executor;
+		_stats = stats;
 		_queue = new ArrayDeque<>();
 	}
 	
@@ -81,7 +84,10 @@ class MMOExecutableQueue<T extends MMOClient> implements Queue<ReceivablePacket<
 	@Override
 	public int size()
 	{
-		return _queue.size();
+		synchronized (_queue)
+		{
+			return _queue.size();
+		}
 	}
 	
 	/**
@@ -219,12 +225,30 @@ class MMOExecutableQueue<T extends MMOClient> implements Queue<ReceivablePacket<
 	@Override
 	public boolean add(ReceivablePacket<T> e)
 	{
+		final int key = e.getCoalesceKey();
+		
 		synchronized (_queue)
 		{
+			// latest wins: a waiting packet with the same key is obsolete, the new one keeps its place in arrival order
+			if ((key != 0) && !_queue.isEmpty())
+			{
+				for (Iterator<ReceivablePacket<T>> it = _queue.iterator(); it.hasNext();)
+				{
+					if (it.next().getCoalesceKey() == key)
+					{
+						it.remove();
+						_stats.increaseSupersededPackets();
+						break;
+					}
+				}
+			}
+			
 			if (!_queue.add(e))
 			{
 				return false;
 			}
+			
+			_stats.updateRecvQueueSize(_queue.size());
 		}
 		
 		if (_state.getAndSet(QUEUED) == NONE)
@@ -0,0 +1,246 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.commons.net.nio.impl;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Token bucket admission of incoming packets, one bucket per connection and opcode rule.<br>
+ * Rules are read from a list like <code>0F:10:5:C;56:10:5;D0.84:20:10</code>: opcode, an optional extended opcode after a dot, the burst size, the refill rate per second and an optional C flag. A packet over budget is dropped, or for C rules kept as the latest pending one of its opcode and handled once the bucket refills.<br>
+ * Buckets are only touched by the selector thread owning the connection.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class PacketRateLimiter
+{
+	private static final Logger _log = LoggerFactory.getLogger(PacketRateLimiter.class);
+	private static final long TOKEN = 1000L;
+	private final int[] _keys;
+	private final int[] _rules;
+	private final boolean[] _extended = new boolean[256];
+	private final int[] _burst;
+	private final int[] _perSecond;
+	private final boolean[] _coalesce;
+	private final String[] _names;
+	private final AtomicLong[] _dropped;
+	private final AtomicLong[] _coalesced;
+	
+	/**
+	 * Constructor for PacketRateLimiter.
+	 * @param rules String
+	 */
+	public PacketRateLimiter(String rules)
+	{
+		final List<int[]> parsed = new ArrayList<>();
+		final List<String> names = new ArrayList<>();
+		
+		for (String rule : rules.split(";"))
+		{
+			rule = rule.trim();
+			
+			if (rule.isEmpty())
+			{
+				continue;
+			}
+			
+			try
+			{
+				final String[] parts = rule.split(":");
+				final String[] opcode = parts[0].trim().split("\\.");
+				final int id = Integer.parseInt(opcode[0], 16) & 0xff;
+				final int key = opcode.length > 1 ? (1 << 24) | (id << 16) | (Integer.parseInt(opcode[1], 16) & 0xffff) : id;
+				final int burst = Integer.parseInt(parts[1].trim());
+				final int perSecond = Integer.parseInt(parts[2].trim());
+				final boolean coalesce = (parts.length > 3) && parts[3].trim().equalsIgnoreCase("C");
+				
+				if ((burst < 1) || (perSecond < 1))
+				{
+					throw new IllegalArgumentException("burst and rate must be positive");
+				}
+				
+				if (opcode.length > 1)
+				{
+					_extended[id] = true;
+				}
+				
+				parsed.add(new int[]
+				{
+					key,
+					burst,
+					perSecond,
+					coalesce ? 1 : 0
+				});
+				names.add(parts[0].trim().toUpperCase());
+			}
+			catch (RuntimeException e)
+			{
+				_log.warn("PacketRateLimiter: skipped invalid rule '" + rule + "': " + e.getMessage());
+			}
+		}
+		
+		final int size = parsed.size();
+		_keys = new int[size];
+		_rules = new int[size];
+		_burst = new int[size];
+		_perSecond = new int[size];
+		_coalesce = new boolean[size];
+		_names = names.toArray(new String[size]);
+		_dropped = new AtomicLong[size];
+		_coalesced = new AtomicLong[size];
+		
+		for (int i = 0; i < size; i++)
+		{
+			final int[] rule = parsed.get(i);
+			_keys[i] = rule[0];
+			_burst[i] = rule[1];
+			_perSecond[i] = rule[2];
+			_coalesce[i] = rule[3] == 1;
+			_dropped[i] = new AtomicLong();
+			_coalesced[i] = new AtomicLong();
+		}
+		
+		// sorted keys for lookup, _rules maps a sorted position back to the rule
+		final long[] order = new long[size];
+		
+		for (int i = 0; i < size; i++)
+		{
+			order[i] = ((long) _keys[i] << 32) | i;
+		}
+		
+		Arrays.sort(order);
+		
+		for (int i = 0; i < size; i++)
+		{
+			_keys[i] = (int) (order[i] >> 32);
+			_rules[i] = (int) order[i];
+		}
+	}
+	
+	/**
+	 * Method size.
+	 * @return int number of rules
+	 */
+	public int size()
+	{
+		return _burst.length;
+	}
+	
+	/**
+	 * Finds the rule of a decrypted packet without moving the buffer position.
+	 * @param buf ByteBuffer positioned at the opcode
+	 * @return int rule index or -1 if the packet is not limited
+	 */
+	public int getRule(ByteBuffer buf)
+	{
+		if (!buf.hasRemaining())
+		{
+			return -1;
+		}
+		
+		final int pos = buf.position();
+		final int id = buf.get(pos) & 0xff;
+		int index = Arrays.binarySearch(_keys, id);
+		
+		if ((index < 0) && _extended[id] && (buf.remaining() >= 3))
+		{
+			index = Arrays.binarySearch(_keys, (1 << 24) | (id << 16) | (buf.getShort(pos + 1) & 0xffff));
+		}
+		
+		return index < 0 ? -1 : _rules[index];
+	}
+	
+	/**
+	 * Takes one token from the bucket of the rule.
+	 * @param buckets long[] state of the connection, token count in thousandths and last refill time per rule
+	 * @param rule int
+	 * @param now long
+	 * @return boolean false if the bucket is empty
+	 */
+	public boolean tryAcquire(long[] buckets, int rule, long now)
+	{
+		final int i = rule * 2;
+		final long max = _burst[rule] * TOKEN;
+		long tokens;
+		
+		if (buckets[i + 1] == 0)
+		{
+			tokens = max;
+		}
+		else
+		{
+			tokens = Math.min(buckets[i] + (Math.max(now - buckets[i + 1], 0) * _perSecond[rule]), max);
+		}
+		
+		buckets[i + 1] = now;
+		
+		if (tokens >= TOKEN)
+		{
+			buckets[i] = tokens - TOKEN;
+			return true;
+		}
+		
+		buckets[i] = tokens;
+		return false;
+	}
+	
+	/**
+	 * Method isCoalesced.
+	 * @param rule int
+	 * @return boolean true if the latest packet over budget is kept instead of dropped
+	 */
+	public boolean isCoalesced(int rule)
+	{
+		return _coalesce[rule];
+	}
+	
+	/**
+	 * Method onDropped.
+	 * @param rule int
+	 */
+	void onDropped(int rule)
+	{
+		_dropped[rule].incrementAndGet();
+	}
+	
+	/**
+	 * Method onCoalesced.
+	 * @param rule int
+	 */
+	void onCoalesced(int rule)
+	{
+		_coalesced[rule].incrementAndGet();
+	}
+	
+	/**
+	 * Method getStats.
+	 * @return CharSequence
+	 */
+	public CharSequence getStats()
+	{
+		final StringBuilder list = new StringBuilder();
+		
+		for (int i = 0; i < _names.length; i++)
+		{
+			list.append(_names[i]).append(": dropped ").append(_dropped[i].get()).append(", coalesced ").append(_coalesced[i].get()).append('\n');
+		}
+		
+		return list;
+	}
+}
@@ -63,6 +63,15 @@ public abstract class ReceivablePacket<T extends MMOClient> extends lineage2.com
 		return _client;
 	}
 	
+	/**
+	 * Packets with the same non zero key are superseded by the newest one while they wait for execution, packets with key 0 always run in arrival order.
+	 * @return int coalesce key
+	 */
+	public int getCoalesceKey()
+	{
+		return 0;
+	}
+	
 	/**
 	 * Method read.
 	 * @return boolean
@@ -29,6 +29,11 @@ class SelectorStats
 	private final AtomicLong _outgoingPacketsTotal = new AtomicLong();
 	private final AtomicLong _bytesMaxPerRead = new AtomicLong();
 	private final AtomicLong _bytesMaxPerWrite = new AtomicLong();
+	private final AtomicLong _writeCallsTotal = new AtomicLong();
+	private final AtomicLong _droppedPacketsTotal = new AtomicLong();
+	private final AtomicLong _coalescedPacketsTotal = new AtomicLong();
+	private final AtomicLong _supersededPacketsTotal = new AtomicLong();
+	private final AtomicLong _recvQueueMaxSize = new AtomicLong();
 	
 	/**
 	 * Method increaseOpenedConnections.
@@ -79,6 +84,47 @@ class SelectorStats
 		_outgoingBytesTotal.addAndGet(size);
 	}
 	
+	/**
+	 * Method increaseWriteCalls.
+	 */
+	void increaseWriteCalls()
+	{
+		_writeCallsTotal.incrementAndGet();
+	}
+	
+	/**
+	 * Method increaseDroppedPackets.
+	 */
+	void increaseDroppedPackets()
+	{
+		_droppedPacketsTotal.incrementAndGet();
+	}
+	
+	/**
+	 * Method increaseCoalescedPackets.
+	 */
+	void increaseCoalescedPackets()
+	{
+		_coalescedPacketsTotal.incrementAndGet();
+	}
+	
+	/**
+	 * Method increaseSupersededPackets.
+	 */
+	void increaseSupersededPackets()
+	{
+		_supersededPacketsTotal.incrementAndGet();
+	}
+	
+	/**
+	 * Method updateRecvQueueSize.
+	 * @param size int
+	 */
+	void updateRecvQueueSize(int size)
+	{
+		_recvQueueMaxSize.accumulateAndGet(size, Math::max);
+	}
+	
 	/**
 	 * Method increaseIncomingPacketsCount.
 	 */
@@ -175,4 +221,59 @@ class SelectorStats
 	{
 		return _bytesMaxPerWrite.get();
 	}
+	
+	/**
+	 * Method getWriteCallsTotal.
+	 * @return long
+	 */
+	public long getWriteCallsTotal()
+	{
+		return _writeCallsTotal.get();
+	}
+	
+	/**
+	 * Method getBytesPerWrite.
+	 * @return long average bytes handed over per socket write
+	 */
+	public long getBytesPerWrite()
+	{
+		final long calls = _writeCallsTotal.get();
+		return calls == 0 ? 0 : _outgoingBytesTotal.get() / calls;
+	}
+	
+	/**
+	 * Method getDroppedPacketsTotal.
+	 * @return long packets shed by the rate limiter
+	 */
+	public long getDroppedPacketsTotal()
+	{
+		return _droppedPacketsTotal.get();
+	}
+	
+	/**
+	 * Method getCoalescedPacketsTotal.
+	 * @return long packets kept over budget by the rate limiter, replaced by newer ones or handled later
+	 */
+	public long getCoalescedPacketsTotal()
+	{
+		return _coalescedPacketsTotal.get();
+	}
+	
+	/**
+	 * Method getSupersededPacketsTotal.
+	 * @return long received packets replaced in the execution queue by a newer one with the same coalesce key
+	 */
+	public long getSupersededPacketsTotal()
+	{
+		return _supersededPacketsTotal.get();
+	}
+	
+	/**
+	 * Method getMaxRecvQueueSize.
+	 * @return long
+	 */
+	public long getMaxRecvQueueSize()
+	{
+		return _recvQueueMaxSize.get();
+	}
 }
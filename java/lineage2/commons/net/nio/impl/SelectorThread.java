@@ -23,6 +23,8 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
@@ -57,14 +59,20 @@ public class SelectorThread<T extends MMOClient> extends Thread
 	private final SelectorConfig _sc;
 	private final int HELPER_BUFFER_SIZE;
 	// MAIN BUFFERS
-	private final ByteBuffer DIRECT_WRITE_BUFFER;
-	private final ByteBuffer WRITE_BUFFER, READ_BUFFER;
+	private final ByteBuffer READ_BUFFER;
+	// Pending direct buffer of the connection being encoded, packets are written and encrypted in place
+	private ByteBuffer WRITE_BUFFER;
 	private T WRITE_CLIENT;
+	private ByteBuffer[] _gatherBuffers = new ByteBuffer[4];
 	// ByteBuffers General Purpose Pool
 	private final Queue<ByteBuffer> _bufferPool;
+	// Direct ByteBuffers holding encoded packets until the socket takes them
+	private final Queue<ByteBuffer> _directBufferPool;
 	private final List<MMOConnection<T>> _connections;
 	private static final List<SelectorThread> ALL_SELECTORS = new ArrayList<>();
 	private static final SelectorStats stats = new SelectorStats();
+	// largest packet the 16 bit size header can carry, header included
+	private static final int MAX_ENCODED_PACKET_SIZE = 0x10000;
 	
 	/**
 	 * Constructor for SelectorThread.
@@ -87,9 +95,8 @@ public class SelectorThread<T extends MMOClient> extends Thread
 		_clientFactory = clientFactory;
 		_executor = executor;
 		_bufferPool = new ArrayDeque<>(_sc.HELPER_BUFFER_COUNT);
+		_directBufferPool = new ArrayDeque<>(_sc.HELPER_BUFFER_COUNT);
 		_connections = new CopyOnWriteArrayList<>();
-		DIRECT_WRITE_BUFFER = ByteBuffer.wrap(new byte[_sc.WRITE_BUFFER_SIZE]).order(_sc.BYTE_ORDER);
-		WRITE_BUFFER = ByteBuffer.wrap(new byte[_sc.WRITE_BUFFER_SIZE]).order(_sc.BYTE_ORDER);
 		READ_BUFFER = ByteBuffer.wrap(new byte[_sc.READ_BUFFER_SIZE]).order(_sc.BYTE_ORDER);
 		HELPER_BUFFER_SIZE = Math.max(_sc.READ_BUFFER_SIZE, _sc.WRITE_BUFFER_SIZE);
 		
@@ -141,6 +148,33 @@ public class SelectorThread<T extends MMOClient> extends Thread
 		}
 	}
 	
+	/**
+	 * Method getDirectBuffer.
+	 * @return ByteBuffer
+	 */
+	ByteBuffer getDirectBuffer()
+	{
+		if (_directBufferPool.isEmpty())
+		{
+			return ByteBuffer.allocateDirect(Math.max(_sc.WRITE_BUFFER_SIZE, MAX_ENCODED_PACKET_SIZE)).order(_sc.BYTE_ORDER);
+		}
+		
+		return _directBufferPool.poll();
+	}
+	
+	/**
+	 * Method recycleDirectBuffer.
+	 * @param buf ByteBuffer
+	 */
+	void recycleDirectBuffer(ByteBuffer buf)
+	{
+		if (_directBufferPool.size() < _sc.HELPER_BUFFER_COUNT)
+		{
+			buf.clear();
+			_directBufferPool.add(buf);
+		}
+	}
+	
 	/**
 	 * Method freeBuffer.
 	 * @param buf ByteBuffer
@@ -208,6 +242,11 @@ public class SelectorThread<T extends MMOClient> extends Thread
 							con.enableWriteInterest();
 						}
 					}
+					
+					if (con.hasDeferredPackets())
+					{
+						replayDeferredPackets(con, currentMillis);
+					}
 				}
 				
 				totalKeys = getSelector().selectNow();
@@ -505,19 +544,10 @@ public class SelectorThread<T extends MMOClient> extends Thread
 			// apply limit
 			int limit = buf.limit();
 			buf.limit(pos + dataSize);
-			ReceivablePacket<T> rp = handler.handlePacket(buf, client);
 			
-			if (rp != null)
+			if (admitPacket(buf, client, con))
 			{
-				rp.setByteBuffer(buf);
-				rp.setClient(client);
-				
-				if (rp.read())
-				{
-					con.recvPacket(rp);
-				}
-				
-				rp.setByteBuffer(null);
+				handlePacket(handler, buf, client, con);
 			}
 			
 			buf.limit(limit);
@@ -527,41 +557,154 @@ public class SelectorThread<T extends MMOClient> extends Thread
 	}
 	
 	/**
-	 * Method writePacket.
+	 * Method handlePacket.
+	 * @param handler IPacketHandler<T>
+	 * @param buf ByteBuffer decrypted packet
+	 * @param client T
+	 * @param con MMOConnection<T>
+	 */
+	private void handlePacket(IPacketHandler<T> handler, ByteBuffer buf, T client, MMOConnection<T> con)
+	{
+		ReceivablePacket<T> rp = handler.handlePacket(buf, client);
+		
+		if (rp != null)
+		{
+			rp.setByteBuffer(buf);
+			rp.setClient(client);
+			
+			if (rp.read())
+			{
+				con.recvPacket(rp);
+			}
+			
+			rp.setByteBuffer(null);
+		}
+	}
+	
+	/**
+	 * Checks the packet against the rate limits before any packet object is created.
+	 * @param buf ByteBuffer decrypted packet
+	 * @param client T
+	 * @param con MMOConnection<T>
+	 * @return boolean false if the packet was dropped or kept for later
+	 */
+	private boolean admitPacket(ByteBuffer buf, T client, MMOConnection<T> con)
+	{
+		final PacketRateLimiter limiter = _sc.RATE_LIMITER;
+		
+		if ((limiter == null) || !client.isRateLimited())
+		{
+			return true;
+		}
+		
+		final int rule = limiter.getRule(buf);
+		
+		if (rule < 0)
+		{
+			return true;
+		}
+		
+		if (limiter.tryAcquire(con.getRateBuckets(limiter.size()), rule, System.currentTimeMillis()))
+		{
+			// a newer packet of the rule makes the kept one obsolete
+			con.clearDeferredPacket(rule);
+			return true;
+		}
+		
+		if (limiter.isCoalesced(rule))
+		{
+			con.deferPacket(rule, limiter.size(), buf);
+			limiter.onCoalesced(rule);
+			stats.increaseCoalescedPackets();
+		}
+		else
+		{
+			limiter.onDropped(rule);
+			stats.increaseDroppedPackets();
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Handles the packets kept over budget whose bucket has refilled.
+	 * @param con MMOConnection<T>
+	 * @param now long
+	 */
+	private void replayDeferredPackets(MMOConnection<T> con, long now)
+	{
+		final PacketRateLimiter limiter = _sc.RATE_LIMITER;
+		final T client = con.getClient();
+		
+		for (int rule = 0; rule < limiter.size(); rule++)
+		{
+			final ByteBuffer buf = con.getDeferredPacket(rule);
+			
+			if (buf == null)
+			{
+				continue;
+			}
+			
+			if (con.isClosed() || !client.isRateLimited())
+			{
+				con.clearDeferredPacket(rule);
+				continue;
+			}
+			
+			if (limiter.tryAcquire(con.getRateBuckets(limiter.size()), rule, now))
+			{
+				handlePacket(getPacketHandler(), buf.duplicate().order(_sc.BYTE_ORDER), client, con);
+				con.clearDeferredPacket(rule);
+			}
+		}
+	}
+	
+	/**
+	 * Encodes queued packets up to the send budget of the connection and hands all pending bytes to the socket in one gathering write.
 	 * @param key SelectionKey
 	 */
 	private void writePacket(SelectionKey key)
 	{
 		MMOConnection<T> con = (MMOConnection<T>) key.attachment();
-		prepareWriteBuffer(con);
-		DIRECT_WRITE_BUFFER.flip();
-		int size = DIRECT_WRITE_BUFFER.remaining();
-		int result = -1;
+		encodePackets(con);
+		
+		if (!con.hasPendingWriteBuffer())
+		{
+			disableWriteInterest(key, con);
+			return;
+		}
+		
+		Deque<ByteBuffer> pending = con.getPendingWriteBuffers();
+		int count = pending.size();
+		_gatherBuffers = pending.toArray(_gatherBuffers);
+		long result = -1;
 		
 		try
 		{
-			result = con.getWritableChannel().write(DIRECT_WRITE_BUFFER);
+			result = con.getWritableChannel().write(_gatherBuffers, 0, count);
 		}
 		catch (IOException e)
 		{
 			// error handling goes on the if bellow
 		}
 		
+		Arrays.fill(_gatherBuffers, 0, count, null);
+		
 		// check if no error happened
 		if (result >= 0)
 		{
-			stats.increaseOutgoingBytes(result);
-			
-			// check if we written everything
-			if (result != size)
-			{
-				con.createWriteBuffer(DIRECT_WRITE_BUFFER);
-			}
+			stats.increaseOutgoingBytes((int) result);
+			stats.increaseWriteCalls();
+			con.onWritten(result);
 			
 			if (!con.getSendQueue().isEmpty() || con.hasPendingWriteBuffer())
 			{
 				con.scheduleWriteInterest();
 			}
+			else
+			{
+				disableWriteInterest(key, con);
+			}
 		}
 		else
 		{
@@ -570,6 +713,22 @@ public class SelectorThread<T extends MMOClient> extends Thread
 		}
 	}
 	
+	/**
+	 * Stops write selection once everything is sent, a later sendPacket schedules it again.
+	 * @param key SelectionKey
+	 * @param con MMOConnection<T>
+	 */
+	private void disableWriteInterest(SelectionKey key, MMOConnection<T> con)
+	{
+		synchronized (con)
+		{
+			if (con.getSendQueue().isEmpty())
+			{
+				key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			}
+		}
+	}
+	
 	/**
 	 * Method getWriteClient.
 	 * @return T
@@ -589,60 +748,47 @@ public class SelectorThread<T extends MMOClient> extends Thread
 	}
 	
 	/**
-	 * Method prepareWriteBuffer.
+	 * Encodes and encrypts queued packets back to back directly into the pending direct buffers until the send budget is used.<br>
+	 * Every packet starts in a buffer with room for the largest size its header can carry.
 	 * @param con MMOConnection<T>
 	 */
-	private void prepareWriteBuffer(MMOConnection<T> con)
+	private void encodePackets(MMOConnection<T> con)
 	{
 		WRITE_CLIENT = con.getClient();
-		DIRECT_WRITE_BUFFER.clear();
+		Queue<SendablePacket<T>> sendQueue = con.getSendQueue();
+		SendablePacket<T> sp;
 		
-		if (con.hasPendingWriteBuffer())
+		while (con.getPendingWriteBytes() < con.getSendBudget())
 		{
-			con.movePendingWriteBufferTo(DIRECT_WRITE_BUFFER);
-		}
-		
-		if (DIRECT_WRITE_BUFFER.hasRemaining() && !con.hasPendingWriteBuffer())
-		{
-			int i;
-			Queue<SendablePacket<T>> sendQueue = con.getSendQueue();
-			SendablePacket<T> sp;
-			
-			for (i = 0; i < _sc.MAX_SEND_PER_PASS; i++)
+			synchronized (con)
 			{
-				synchronized (con)
+				if ((sp = sendQueue.poll()) == null)
 				{
-					if ((sp = sendQueue.poll()) == null)
-					{
-						break;
-					}
-				}
-				
-				try
-				{
-					stats.increaseOutgoingPacketsCount();
-					putPacketIntoWriteBuffer(sp, true);
-					WRITE_BUFFER.flip();
-					
-					if (DIRECT_WRITE_BUFFER.remaining() >= WRITE_BUFFER.limit())
-					{
-						DIRECT_WRITE_BUFFER.put(WRITE_BUFFER);
-					}
-					else
-					{
-						con.createWriteBuffer(WRITE_BUFFER);
-						break;
-					}
-				}
-				catch (Exception e)
-				{
-					_log.error("Error in " + getName(), e);
 					break;
 				}
 			}
+			
+			WRITE_BUFFER = con.beginWriteBuffer(MAX_ENCODED_PACKET_SIZE);
+			final int start = WRITE_BUFFER.position();
+			
+			try
+			{
+				stats.increaseOutgoingPacketsCount();
+				putPacketIntoWriteBuffer(sp, true);
+			}
+			catch (Exception e)
+			{
+				WRITE_BUFFER.position(start);
+				_log.error("Error in " + getName(), e);
+				break;
+			}
+			finally
+			{
+				con.endWriteBuffer();
+			}
 		}
 		
-		WRITE_BUFFER.clear();
+		WRITE_BUFFER = null;
 		WRITE_CLIENT = null;
 	}
 	
@@ -653,7 +799,6 @@ public class SelectorThread<T extends MMOClient> extends Thread
 	 */
 	private final void putPacketIntoWriteBuffer(SendablePacket<T> sp, boolean encrypt)
 	{
-		WRITE_BUFFER.clear();
 		// reserve space for the size
 		int headerPos = WRITE_BUFFER.position();
 		WRITE_BUFFER.position(headerPos + _sc.HEADER_SIZE);
@@ -835,6 +980,15 @@ public class SelectorThread<T extends MMOClient> extends Thread
 		}
 	}
 	
+	/**
+	 * Method getSelectorStats.
+	 * @return SelectorStats
+	 */
+	static SelectorStats getSelectorStats()
+	{
+		return stats;
+	}
+	
 	/**
 	 * Method getStats.
 	 * @return CharSequence
@@ -853,6 +1007,23 @@ public class SelectorThread<T extends MMOClient> extends Thread
 		list.append("getOutgoingPacketsTotal:  ").append(stats.getOutgoingPacketsTotal()).append('\n');
 		list.append("getMaxBytesPerRead: ..... ").append(stats.getMaxBytesPerRead()).append('\n');
 		list.append("getMaxBytesPerWrite: .... ").append(stats.getMaxBytesPerWrite()).append('\n');
+		list.append("getWriteCallsTotal: ..... ").append(stats.getWriteCallsTotal()).append('\n');
+		list.append("getBytesPerWrite: ....... ").append(stats.getBytesPerWrite()).append('\n');
+		list.append("getDroppedPackets: ...... ").append(stats.getDroppedPacketsTotal()).append('\n');
+		list.append("getCoalescedPackets: .... ").append(stats.getCoalescedPacketsTotal()).append('\n');
+		list.append("getSupersededPackets: ... ").append(stats.getSupersededPacketsTotal()).append('\n');
+		list.append("getMaxRecvQueueSize: .... ").append(stats.getMaxRecvQueueSize()).append('\n');
+		
+		for (SelectorThread<?> selector : ALL_SELECTORS)
+		{
+			if (selector._sc.RATE_LIMITER != null)
+			{
+				list.append("=================================================\n");
+				list.append(selector._sc.RATE_LIMITER.getStats());
+				break;
+			}
+		}
+		
 		list.append("=================================================\n");
 		return list;
 	}
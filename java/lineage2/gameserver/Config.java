@@ -30,12 +30,14 @@ import java.util.regex.Pattern;
 import javax.xml.parsers.DocumentBuilderFactory;
 
 import lineage2.commons.configuration.ExProperties;
+import lineage2.commons.net.nio.impl.PacketRateLimiter;
 import lineage2.commons.net.nio.impl.SelectorConfig;
 import lineage2.gameserver.data.htm.HtmCache;
 import lineage2.gameserver.model.actor.instances.player.Bonus;
 import lineage2.gameserver.model.base.Experience;
 import lineage2.gameserver.model.base.PlayerAccess;
 import lineage2.gameserver.network.loginservercon.ServerType;
+import lineage2.gameserver.utils.AbuseWordFilter;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.BooleanUtils;
@@ -86,7 +88,13 @@ public class Config
 	public static String DATABASE_LOGIN;
 	public static String DATABASE_PASSWORD;
 	public static boolean AUTOSAVE;
+	public static long QUEST_STATE_FLUSH_INTERVAL;
+	public static boolean NPC_RECYCLING;
+	public static int[] REFLECTION_POOL_ZONES;
+	public static int REFLECTION_POOL_SIZE;
 	public static int EFFECT_TASK_MANAGER_COUNT;
+	public static int MOVE_TASK_MANAGER_COUNT;
+	public static long MOVE_TASK_TICK;
 	public static int MAXIMUM_ONLINE_USERS;
 	public static boolean DONTLOADSPAWN;
 	public static boolean DONTLOADQUEST;
@@ -111,7 +119,7 @@ public class Config
 	public static boolean ABUSEWORD_REPLACE;
 	public static String ABUSEWORD_REPLACE_STRING;
 	public static int ABUSEWORD_BANTIME;
-	private static Pattern[] ABUSEWORD_LIST = {};
+	private static AbuseWordFilter ABUSEWORD_FILTER = AbuseWordFilter.EMPTY;
 	public static boolean BANCHAT_ANNOUNCE;
 	public static boolean BANCHAT_ANNOUNCE_FOR_ALL_WORLD;
 	public static boolean BANCHAT_ANNOUNCE_NICK;
@@ -151,7 +159,7 @@ public class Config
 	// public static int THREAD_P_MOVE;
 	// public static int NPC_AI_MAX_THREAD;
 	// public static int PLAYER_AI_MAX_THREAD;
-	// public static int THREAD_P_PATHFIND;
+	public static int THREAD_P_PATHFIND;
 	static boolean ENABLE_RUNNABLE_STATS;
 	public static boolean L2_TOP_MANAGER_ENABLED;
 	public static int L2_TOP_MANAGER_INTERVAL;
@@ -198,6 +206,8 @@ public class Config
 	public static boolean GLOBAL_TRADE_CHAT;
 	public static int CHAT_RANGE;
 	public static int SHOUT_OFFSET;
+	public static int CHAT_DELIVERY_TICK;
+	public static int LARGE_CREST_CACHE_SIZE;
 	public static boolean PREMIUM_HEROCHAT;
 	public static boolean EVERYONE_HAS_ADMIN_RIGHTS;
 	public static int DEFAULT_ACCESS_FOR_EVERYONE;
@@ -327,6 +337,7 @@ public class Config
 	public static int SERVICES_OFFLINE_TRADE_PRICE_ITEM;
 	public static long SERVICES_OFFLINE_TRADE_SECONDS_TO_KICK;
 	public static boolean SERVICES_OFFLINE_TRADE_RESTORE_AFTER_RESTART;
+	public static boolean SERVICES_OFFLINE_TRADE_HIBERNATE;
 	public static boolean SERVICES_GIRAN_HARBOR_ENABLED;
 	public static boolean SERVICES_PARNASSUS_ENABLED;
 	public static boolean SERVICES_PARNASSUS_NOTAX;
@@ -840,7 +851,9 @@ public class Config
 	public static boolean PATH_CLEAN;
 	public static int PATHFIND_MAX_Z_DIFF;
 	public static long PATHFIND_MAX_TIME;
-	public static String PATHFIND_BUFFERS;
+	public static int PATHFIND_QUEUE_SIZE;
+	public static long PATHFIND_QUEUE_TIMEOUT;
+	public static int GEO_LOS_CACHE_SIZE;
 	public static boolean DEBUG;
 	public static int GAME_POINT_ITEM_ID;
 	public static int WEAR_DELAY;
@@ -911,10 +924,12 @@ public class Config
 		CLAN_NAME_TEMPLATE = serverSettings.getProperty("ClanNameTemplate", "[A-Za-z0-9\u0410-\u042f\u0430-\u044f]{3,16}");
 		CLAN_TITLE_TEMPLATE = serverSettings.getProperty("ClanTitleTemplate", "[A-Za-z0-9\u0410-\u042f\u0430-\u044f \\p{Punct}]{1,16}");
 		ALLY_NAME_TEMPLATE = serverSettings.getProperty("AllyNameTemplate", "[A-Za-z0-9\u0410-\u042f\u0430-\u044f]{3,16}");
+		LARGE_CREST_CACHE_SIZE = serverSettings.getProperty("LargeCrestCacheSize", 500);
 		GLOBAL_SHOUT = serverSettings.getProperty("GlobalShout", false);
 		GLOBAL_TRADE_CHAT = serverSettings.getProperty("GlobalTradeChat", false);
 		CHAT_RANGE = serverSettings.getProperty("ChatRange", 1250);
 		SHOUT_OFFSET = serverSettings.getProperty("ShoutOffset", 0);
+		CHAT_DELIVERY_TICK = serverSettings.getProperty("ChatDeliveryTick", 100);
 		PREMIUM_HEROCHAT = serverSettings.getProperty("PremiumHeroChat", true);
 		LOG_CHAT = serverSettings.getProperty("LogChat", false);
 		AUTODESTROY_ITEM_AFTER = serverSettings.getProperty("AutoDestroyDroppedItemAfter", 0);
@@ -944,6 +959,10 @@ public class Config
 		SERVER_SIDE_NPC_NAME = serverSettings.getProperty("ServerSideNpcName", false);
 		SERVER_SIDE_NPC_TITLE = serverSettings.getProperty("ServerSideNpcTitle", false);
 		AUTOSAVE = serverSettings.getProperty("Autosave", true);
+		QUEST_STATE_FLUSH_INTERVAL = serverSettings.getProperty("QuestStateFlushInterval", 30000L);
+		NPC_RECYCLING = serverSettings.getProperty("NpcRecycling", false);
+		REFLECTION_POOL_ZONES = serverSettings.getProperty("ReflectionPoolZones", new int[0]);
+		REFLECTION_POOL_SIZE = serverSettings.getProperty("ReflectionPoolSize", 2);
 		MAXIMUM_ONLINE_USERS = serverSettings.getProperty("MaximumOnlineUsers", 3000);
 		DATABASE_DRIVER = serverSettings.getProperty("Driver", "com.mysql.jdbc.Driver");
 		DATABASE_MAX_CONNECTIONS = serverSettings.getProperty("MaximumDbConnections", 10);
@@ -953,19 +972,23 @@ public class Config
 		DATABASE_LOGIN = serverSettings.getProperty("Login", "root");
 		DATABASE_PASSWORD = serverSettings.getProperty("Password", "");
 		EFFECT_TASK_MANAGER_COUNT = serverSettings.getProperty("EffectTaskManagers", 2);
+		MOVE_TASK_MANAGER_COUNT = serverSettings.getProperty("MoveTaskManagers", 2);
+		MOVE_TASK_TICK = serverSettings.getProperty("MoveTaskTick", 50L);
 		SCHEDULED_THREAD_POOL_SIZE = serverSettings.getProperty("ScheduledThreadPoolSize", NCPUS * 4);
 		EXECUTOR_THREAD_POOL_SIZE = serverSettings.getProperty("ExecutorThreadPoolSize", NCPUS * 2);
 		// THREAD_P_MOVE = serverSettings.getProperty("ThreadPoolSizeMove", 25);
-		// THREAD_P_PATHFIND = serverSettings.getProperty("ThreadPoolSizePathfind", 10);
+		THREAD_P_PATHFIND = serverSettings.getProperty("ThreadPoolSizePathfind", NCPUS);
 		// NPC_AI_MAX_THREAD = serverSettings.getProperty("NpcAiMaxThread", 10);
 		// PLAYER_AI_MAX_THREAD = serverSettings.getProperty("PlayerAiMaxThread", 20);
 		ENABLE_RUNNABLE_STATS = serverSettings.getProperty("EnableRunnableStats", false);
 		SELECTOR_CONFIG.SLEEP_TIME = serverSettings.getProperty("SelectorSleepTime", 10L);
 		SELECTOR_CONFIG.INTEREST_DELAY = serverSettings.getProperty("InterestDelay", 30L);
-		SELECTOR_CONFIG.MAX_SEND_PER_PASS = serverSettings.getProperty("MaxSendPerPass", 32);
+		SELECTOR_CONFIG.MAX_SEND_BYTES_PER_PASS = serverSettings.getProperty("MaxSendBytesPerPass", 524288);
 		SELECTOR_CONFIG.READ_BUFFER_SIZE = serverSettings.getProperty("ReadBufferSize", 65536);
 		SELECTOR_CONFIG.WRITE_BUFFER_SIZE = serverSettings.getProperty("WriteBufferSize", 131072);
 		SELECTOR_CONFIG.HELPER_BUFFER_COUNT = serverSettings.getProperty("BufferPoolSize", 64);
+		String packetRateLimits = serverSettings.getProperty("PacketRateLimits", "0F:20:10:C;01:20:10;1F:20:10;39:20:10;56:20:10");
+		SELECTOR_CONFIG.RATE_LIMITER = packetRateLimits.trim().isEmpty() ? null : new PacketRateLimiter(packetRateLimits);
 		CHAT_MESSAGE_MAX_LEN = serverSettings.getProperty("ChatMessageLimit", 1000);
 		ABUSEWORD_BANCHAT = serverSettings.getProperty("ABUSEWORD_BANCHAT", false);
 		int counter = 0;
@@ -1843,6 +1866,7 @@ public class Config
 		SERVICES_OFFLINE_TRADE_PRICE = servicesSettings.getProperty("OfflineTradePrice", 0);
 		SERVICES_OFFLINE_TRADE_SECONDS_TO_KICK = servicesSettings.getProperty("OfflineTradeDaysToKick", 14) * 86400L;
 		SERVICES_OFFLINE_TRADE_RESTORE_AFTER_RESTART = servicesSettings.getProperty("OfflineRestoreAfterRestart", true);
+		SERVICES_OFFLINE_TRADE_HIBERNATE = servicesSettings.getProperty("OfflineRestoreHibernated", true);
 		SERVICES_NO_TRADE_ONLY_OFFLINE = servicesSettings.getProperty("NoTradeOnlyOffline", false);
 		SERVICES_TRADE_TAX = servicesSettings.getProperty("TradeTax", 0.0);
 		SERVICES_OFFSHORE_TRADE_TAX = servicesSettings.getProperty("OffshoreTradeTax", 0.0);
@@ -1987,7 +2011,9 @@ public class Config
 		MAX_Z_DIFF = geodataSettings.getProperty("MaxZDiff", 64);
 		MIN_LAYER_HEIGHT = geodataSettings.getProperty("MinLayerHeight", 64);
 		PATHFIND_MAX_TIME = geodataSettings.getProperty("PathFindMaxTime", 10000000);
-		PATHFIND_BUFFERS = geodataSettings.getProperty("PathFindBuffers", "8x96;8x128;8x160;8x192;4x224;4x256;4x288;2x320;2x384;2x352;1x512");
+		PATHFIND_QUEUE_SIZE = geodataSettings.getProperty("PathFindQueueSize", 2048);
+		PATHFIND_QUEUE_TIMEOUT = geodataSettings.getProperty("PathFindQueueTimeout", 1000L);
+		GEO_LOS_CACHE_SIZE = geodataSettings.getProperty("LosCacheSize", 16384);
 	}
 	
 	/**
@@ -2145,7 +2171,7 @@ public class Config
 	 */
 	public static void abuseLoad()
 	{
-		List<Pattern> tmp = new ArrayList<>();
+		List<String> tmp = new ArrayList<>();
 		LineNumberReader lnr = null;
 		
 		try
@@ -2159,15 +2185,15 @@ public class Config
 				
 				if (st.hasMoreTokens())
 				{
-					tmp.add(Pattern.compile(".*" + st.nextToken() + ".*", Pattern.DOTALL | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+					tmp.add(st.nextToken());
 				}
 			}
 			
-			ABUSEWORD_LIST = tmp.toArray(new Pattern[tmp.size()]);
+			ABUSEWORD_FILTER = new AbuseWordFilter(tmp);
 			tmp.clear();
 			if (DEBUG)
 			{
-				_log.info("Abuse: Loaded " + ABUSEWORD_LIST.length + " abuse words.");
+				_log.info("Abuse: Loaded " + ABUSEWORD_FILTER.size() + " abuse words.");
 			}
 		}
 		catch (IOException e1)
@@ -2400,14 +2426,6 @@ public class Config
 	 */
 	public static boolean containsAbuseWord(String s)
 	{
-		for (Pattern pattern : ABUSEWORD_LIST)
-		{
-			if (pattern.matcher(s).matches())
-			{
-				return true;
-			}
-		}
-		
-		return false;
+		return ABUSEWORD_FILTER.matches(s);
 	}
 }
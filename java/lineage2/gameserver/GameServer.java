@@ -50,6 +50,7 @@ import lineage2.gameserver.instancemanager.ParnassusManager;
 import lineage2.gameserver.instancemanager.PetitionManager;
 import lineage2.gameserver.instancemanager.PlayerMessageStack;
 import lineage2.gameserver.instancemanager.RaidBossSpawnManager;
+import lineage2.gameserver.instancemanager.ReflectionPool;
 import lineage2.gameserver.instancemanager.SMSWayToPay;
 import lineage2.gameserver.instancemanager.SoDManager;
 import lineage2.gameserver.instancemanager.SoHManager;
@@ -208,6 +209,7 @@ public class GameServer
 		StaticObjectHolder.getInstance().spawnAll();
 		RaidBossSpawnManager.getInstance();
 		Scripts.getInstance().init();
+		ReflectionPool.getInstance().init();
 		L2TopManager.getInstance();
 		MMOTopManager.getInstance();
 		SMSWayToPay.getInstance();
@@ -18,6 +18,7 @@ import java.util.TimerTask;
 import lineage2.commons.net.nio.impl.SelectorThread;
 import lineage2.commons.time.cron.SchedulingPattern;
 import lineage2.commons.time.cron.SchedulingPattern.InvalidPatternException;
+import lineage2.gameserver.dao.CharacterQuestDAO;
 import lineage2.gameserver.database.DatabaseFactory;
 import lineage2.gameserver.instancemanager.CoupleManager;
 import lineage2.gameserver.instancemanager.CursedWeaponsManager;
@@ -90,7 +91,7 @@ public class Shutdown extends Thread
 				case 120:
 				case 60:
 					Announcements.getInstance().announceToAll("The server will be coming down in " + String.valueOf(shutdownCounter / 60) + " minute(s).");
-					
+				
 				case 30:
 				case 20:
 				case 10:
@@ -268,11 +269,22 @@ public class Shutdown extends Thread
 	 */
 	private void saveData()
 	{
+		try
+		{
+			CharacterQuestDAO.getInstance().flush();
+			System.out.println("CharacterQuestDAO: Data saved.");
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+		}
+		
 		if (Config.ENABLE_OLYMPIAD)
 		{
 			try
 			{
 				OlympiadDatabase.save();
+				OlympiadDatabase.flush();
 				System.out.println("Olympiad: Data saved.");
 			}
 			catch (Exception e)
@@ -16,20 +16,26 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Types;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import lineage2.commons.dbutils.DbUtils;
+import lineage2.gameserver.Config;
 import lineage2.gameserver.database.DatabaseFactory;
+import lineage2.gameserver.network.serverpackets.AllianceCrest;
+import lineage2.gameserver.network.serverpackets.ExPledgeCrestLarge;
+import lineage2.gameserver.network.serverpackets.L2GameServerPacket;
+import lineage2.gameserver.network.serverpackets.PledgeCrest;
 
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.napile.primitive.maps.IntObjectMap;
+import org.napile.primitive.maps.impl.CHashIntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
-
 /**
+ * Crests are kept in concurrent maps together with the packets that send them, built once and serialized for the first recipient only. A changed crest gets a new id, so it never reaches a client through an old packet.<br>
+ * Large crests are kept for the most recently requested clans only, the others are read again from the database when asked for.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
@@ -49,15 +55,46 @@ public class CrestCache
 		return _instance;
 	}
 	
-	private final TIntIntHashMap _pledgeCrestId = new TIntIntHashMap();
-	private final TIntIntHashMap _pledgeCrestLargeId = new TIntIntHashMap();
-	private final TIntIntHashMap _allyCrestId = new TIntIntHashMap();
-	private final TIntObjectHashMap<byte[]> _pledgeCrest = new TIntObjectHashMap<>();
-	private final TIntObjectHashMap<byte[]> _pledgeCrestLarge = new TIntObjectHashMap<>();
-	private final TIntObjectHashMap<byte[]> _allyCrest = new TIntObjectHashMap<>();
-	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
-	private final Lock readLock = lock.readLock();
-	private final Lock writeLock = lock.writeLock();
+	private static final int LARGE_CREST_PART_SIZE = 14336;
+	private static final int LARGE_CREST_PARTS = 4;
+	private static final int LARGE_CREST_LAST_PART_SIZE = 8320;
+	
+	/**
+	 * @author Mobius
+	 */
+	private static class Crest
+	{
+		final byte[] data;
+		final L2GameServerPacket[] packets;
+		
+		/**
+		 * Constructor for Crest.
+		 * @param data byte[]
+		 * @param packets L2GameServerPacket[]
+		 */
+		Crest(byte[] data, L2GameServerPacket... packets)
+		{
+			this.data = data;
+			this.packets = packets;
+		}
+	}
+	
+	private final IntObjectMap<Integer> _pledgeCrestId = new CHashIntObjectMap<>();
+	private final IntObjectMap<Integer> _pledgeCrestLargeId = new CHashIntObjectMap<>();
+	private final IntObjectMap<Integer> _pledgeCrestLargeOwner = new CHashIntObjectMap<>();
+	private final IntObjectMap<Integer> _allyCrestId = new CHashIntObjectMap<>();
+	private final IntObjectMap<Crest> _pledgeCrest = new CHashIntObjectMap<>();
+	private final IntObjectMap<Crest> _allyCrest = new CHashIntObjectMap<>();
+	private final Map<Integer, Crest> _pledgeCrestLarge = new LinkedHashMap<Integer, Crest>(16, 0.75f, true)
+	{
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Crest> eldest)
+		{
+			return size() > Config.LARGE_CREST_CACHE_SIZE;
+		}
+	};
 	public byte[] crestLargeTmp = null;
 	
 	/**
@@ -93,7 +130,7 @@ public class CrestCache
 				crest = rset.getBytes("crest");
 				crestId = getCrestId(pledgeId, crest);
 				_pledgeCrestId.put(pledgeId, crestId);
-				_pledgeCrest.put(crestId, crest);
+				_pledgeCrest.put(crestId, new Crest(crest, new PledgeCrest(crestId, crest)));
 			}
 			
 			DbUtils.close(statement, rset);
@@ -106,8 +143,7 @@ public class CrestCache
 				pledgeId = rset.getInt("clan_id");
 				crest = rset.getBytes("largecrest");
 				crestId = getCrestId(pledgeId, crest);
-				_pledgeCrestLargeId.put(pledgeId, crestId);
-				get_pledgeCrestLarge().put(crestId, crest);
+				putPledgeCrestLarge(pledgeId, crestId, crest);
 			}
 			
 			DbUtils.close(statement, rset);
@@ -121,7 +157,7 @@ public class CrestCache
 				crest = rset.getBytes("crest");
 				crestId = getCrestId(pledgeId, crest);
 				_allyCrestId.put(pledgeId, crestId);
-				_allyCrest.put(crestId, crest);
+				_allyCrest.put(crestId, new Crest(crest, new AllianceCrest(crestId, crest)));
 			}
 		}
 		catch (Exception e)
@@ -147,68 +183,194 @@ public class CrestCache
 	}
 	
 	/**
-	 * Method getPledgeCrest.
+	 * Method createLargeCrest.
 	 * @param crestId int
-	 * @return byte[]
+	 * @param crest byte[]
+	 * @return Crest with the split packets, or without packets if the crest does not have the size the client expects
 	 */
-	public byte[] getPledgeCrest(int crestId)
+	private static Crest createLargeCrest(int crestId, byte[] crest)
 	{
-		byte[] crest = null;
-		readLock.lock();
-		
-		try
+		if (crest.length < ((LARGE_CREST_PART_SIZE * LARGE_CREST_PARTS) + LARGE_CREST_LAST_PART_SIZE))
 		{
-			crest = _pledgeCrest.get(crestId);
+			return new Crest(crest);
 		}
-		finally
+		
+		final L2GameServerPacket[] packets = new L2GameServerPacket[LARGE_CREST_PARTS + 1];
+		
+		for (int i = 0; i <= LARGE_CREST_PARTS; i++)
 		{
-			readLock.unlock();
+			final byte[] part = new byte[i < LARGE_CREST_PARTS ? LARGE_CREST_PART_SIZE : LARGE_CREST_LAST_PART_SIZE];
+			System.arraycopy(crest, LARGE_CREST_PART_SIZE * i, part, 0, part.length);
+			packets[i] = new ExPledgeCrestLarge(crestId, part, i);
 		}
-		return crest;
+		
+		return new Crest(crest, packets);
 	}
 	
 	/**
-	 * Method getPledgeCrestLarge.
+	 * Method putPledgeCrestLarge.
+	 * @param pledgeId int
 	 * @param crestId int
-	 * @return byte[]
+	 * @param crest byte[]
 	 */
-	public byte[] getPledgeCrestLarge(int crestId)
+	private void putPledgeCrestLarge(int pledgeId, int crestId, byte[] crest)
 	{
-		byte[] crest = null;
-		readLock.lock();
+		final Integer oldCrestId = _pledgeCrestLargeId.put(pledgeId, crestId);
 		
-		try
+		if ((oldCrestId != null) && (oldCrestId != crestId))
 		{
-			crest = get_pledgeCrestLarge().get(crestId);
+			_pledgeCrestLargeOwner.remove(oldCrestId);
 		}
-		finally
+		
+		_pledgeCrestLargeOwner.put(crestId, pledgeId);
+		final Crest created = createLargeCrest(crestId, crest);
+		
+		synchronized (_pledgeCrestLarge)
 		{
-			readLock.unlock();
+			if (oldCrestId != null)
+			{
+				_pledgeCrestLarge.remove(oldCrestId);
+			}
+			
+			_pledgeCrestLarge.put(crestId, created);
 		}
-		return crest;
 	}
 	
 	/**
-	 * Method getAllyCrest.
+	 * Returns the large crest, reading it from the database if it was dropped from memory.
 	 * @param crestId int
-	 * @return byte[]
+	 * @return Crest
 	 */
-	public byte[] getAllyCrest(int crestId)
+	private Crest getLargeCrest(int crestId)
 	{
-		byte[] crest = null;
-		readLock.lock();
+		synchronized (_pledgeCrestLarge)
+		{
+			final Crest crest = _pledgeCrestLarge.get(crestId);
+			
+			if (crest != null)
+			{
+				return crest;
+			}
+		}
+		
+		final Integer pledgeId = _pledgeCrestLargeOwner.get(crestId);
+		
+		if (pledgeId == null)
+		{
+			return null;
+		}
+		
+		byte[] data = null;
+		Connection con = null;
+		PreparedStatement statement = null;
+		ResultSet rset = null;
 		
 		try
 		{
-			crest = _allyCrest.get(crestId);
+			con = DatabaseFactory.getInstance().getConnection();
+			statement = con.prepareStatement("SELECT largecrest FROM clan_data WHERE clan_id=?");
+			statement.setInt(1, pledgeId);
+			rset = statement.executeQuery();
+			
+			if (rset.next())
+			{
+				data = rset.getBytes("largecrest");
+			}
+		}
+		catch (Exception e)
+		{
+			_log.error("", e);
 		}
 		finally
 		{
-			readLock.unlock();
+			DbUtils.closeQuietly(con, statement, rset);
 		}
+		
+		if ((data == null) || (getCrestId(pledgeId, data) != crestId))
+		{
+			return null;
+		}
+		
+		final Crest crest = createLargeCrest(crestId, data);
+		
+		synchronized (_pledgeCrestLarge)
+		{
+			// the crest may have been replaced while it was read
+			if (_pledgeCrestLargeOwner.containsKey(crestId))
+			{
+				_pledgeCrestLarge.put(crestId, crest);
+			}
+		}
+		
 		return crest;
 	}
 	
+	/**
+	 * Method getPledgeCrest.
+	 * @param crestId int
+	 * @return byte[]
+	 */
+	public byte[] getPledgeCrest(int crestId)
+	{
+		final Crest crest = _pledgeCrest.get(crestId);
+		return crest == null ? null : crest.data;
+	}
+	
+	/**
+	 * Method getPledgeCrestPacket.
+	 * @param crestId int
+	 * @return L2GameServerPacket shared by every recipient
+	 */
+	public L2GameServerPacket getPledgeCrestPacket(int crestId)
+	{
+		final Crest crest = _pledgeCrest.get(crestId);
+		return crest == null ? null : crest.packets[0];
+	}
+	
+	/**
+	 * Method getPledgeCrestLarge.
+	 * @param crestId int
+	 * @return byte[]
+	 */
+	public byte[] getPledgeCrestLarge(int crestId)
+	{
+		final Crest crest = getLargeCrest(crestId);
+		return crest == null ? null : crest.data;
+	}
+	
+	/**
+	 * Method getPledgeCrestLargePackets.
+	 * @param crestId int
+	 * @return L2GameServerPacket[] parts of the crest shared by every recipient, empty if the crest cannot be split
+	 */
+	public L2GameServerPacket[] getPledgeCrestLargePackets(int crestId)
+	{
+		final Crest crest = getLargeCrest(crestId);
+		return crest == null ? null : crest.packets;
+	}
+	
+	/**
+	 * Method getAllyCrest.
+	 * @param crestId int
+	 * @return byte[]
+	 */
+	public byte[] getAllyCrest(int crestId)
+	{
+		final Crest crest = _allyCrest.get(crestId);
+		return crest == null ? null : crest.data;
+	}
+	
+	/**
+	 * Method getAllyCrestPacket.
+	 * @param crestId int
+	 * @return L2GameServerPacket shared by every recipient
+	 */
+	public L2GameServerPacket getAllyCrestPacket(int crestId)
+	{
+		final Crest crest = _allyCrest.get(crestId);
+		return crest == null ? null : crest.packets[0];
+	}
+	
 	/**
 	 * Method getPledgeCrestId.
 	 * @param pledgeId int
@@ -216,18 +378,8 @@ public class CrestCache
 	 */
 	public int getPledgeCrestId(int pledgeId)
 	{
-		int crestId = 0;
-		readLock.lock();
-		
-		try
-		{
-			crestId = _pledgeCrestId.get(pledgeId);
-		}
-		finally
-		{
-			readLock.unlock();
-		}
-		return crestId;
+		final Integer crestId = _pledgeCrestId.get(pledgeId);
+		return crestId == null ? 0 : crestId;
 	}
 	
 	/**
@@ -237,18 +389,8 @@ public class CrestCache
 	 */
 	public int getPledgeCrestLargeId(int pledgeId)
 	{
-		int crestId = 0;
-		readLock.lock();
-		
-		try
-		{
-			crestId = _pledgeCrestLargeId.get(pledgeId);
-		}
-		finally
-		{
-			readLock.unlock();
-		}
-		return crestId;
+		final Integer crestId = _pledgeCrestLargeId.get(pledgeId);
+		return crestId == null ? 0 : crestId;
 	}
 	
 	/**
@@ -258,18 +400,8 @@ public class CrestCache
 	 */
 	public int getAllyCrestId(int pledgeId)
 	{
-		int crestId = 0;
-		readLock.lock();
-		
-		try
-		{
-			crestId = _allyCrestId.get(pledgeId);
-		}
-		finally
-		{
-			readLock.unlock();
-		}
-		return crestId;
+		final Integer crestId = _allyCrestId.get(pledgeId);
+		return crestId == null ? 0 : crestId;
 	}
 	
 	/**
@@ -278,16 +410,13 @@ public class CrestCache
 	 */
 	public void removePledgeCrest(int pledgeId)
 	{
-		writeLock.lock();
+		final Integer crestId = _pledgeCrestId.remove(pledgeId);
 		
-		try
-		{
-			_pledgeCrest.remove(_pledgeCrestId.remove(pledgeId));
-		}
-		finally
+		if (crestId != null)
 		{
-			writeLock.unlock();
+			_pledgeCrest.remove(crestId);
 		}
+		
 		Connection con = null;
 		PreparedStatement statement = null;
 		
@@ -315,16 +444,18 @@ public class CrestCache
 	 */
 	public void removePledgeCrestLarge(int pledgeId)
 	{
-		writeLock.lock();
+		final Integer crestId = _pledgeCrestLargeId.remove(pledgeId);
 		
-		try
-		{
-			get_pledgeCrestLarge().remove(_pledgeCrestLargeId.remove(pledgeId));
-		}
-		finally
+		if (crestId != null)
 		{
-			writeLock.unlock();
+			_pledgeCrestLargeOwner.remove(crestId);
+			
+			synchronized (_pledgeCrestLarge)
+			{
+				_pledgeCrestLarge.remove(crestId);
+			}
 		}
+		
 		Connection con = null;
 		PreparedStatement statement = null;
 		
@@ -352,16 +483,13 @@ public class CrestCache
 	 */
 	public void removeAllyCrest(int pledgeId)
 	{
-		writeLock.lock();
+		final Integer crestId = _allyCrestId.remove(pledgeId);
 		
-		try
+		if (crestId != null)
 		{
-			_allyCrest.remove(_allyCrestId.remove(pledgeId));
-		}
-		finally
-		{
-			writeLock.unlock();
+			_allyCrest.remove(crestId);
 		}
+		
 		Connection con = null;
 		PreparedStatement statement = null;
 		
@@ -392,17 +520,14 @@ public class CrestCache
 	public int savePledgeCrest(int pledgeId, byte[] crest)
 	{
 		int crestId = getCrestId(pledgeId, crest);
-		writeLock.lock();
+		_pledgeCrest.put(crestId, new Crest(crest, new PledgeCrest(crestId, crest)));
+		final Integer oldCrestId = _pledgeCrestId.put(pledgeId, crestId);
 		
-		try
-		{
-			_pledgeCrestId.put(pledgeId, crestId);
-			_pledgeCrest.put(crestId, crest);
-		}
-		finally
+		if ((oldCrestId != null) && (oldCrestId != crestId))
 		{
-			writeLock.unlock();
+			_pledgeCrest.remove(oldCrestId);
 		}
+		
 		Connection con = null;
 		PreparedStatement statement = null;
 		
@@ -434,17 +559,7 @@ public class CrestCache
 	public int savePledgeCrestLarge(int pledgeId, byte[] crest)
 	{
 		int crestId = getCrestId(pledgeId, crest);
-		writeLock.lock();
-		
-		try
-		{
-			_pledgeCrestLargeId.put(pledgeId, crestId);
-			get_pledgeCrestLarge().put(crestId, crest);
-		}
-		finally
-		{
-			writeLock.unlock();
-		}
+		putPledgeCrestLarge(pledgeId, crestId, crest);
 		Connection con = null;
 		PreparedStatement statement = null;
 		
@@ -476,17 +591,14 @@ public class CrestCache
 	public int saveAllyCrest(int pledgeId, byte[] crest)
 	{
 		int crestId = getCrestId(pledgeId, crest);
-		writeLock.lock();
+		_allyCrest.put(crestId, new Crest(crest, new AllianceCrest(crestId, crest)));
+		final Integer oldCrestId = _allyCrestId.put(pledgeId, crestId);
 		
-		try
+		if ((oldCrestId != null) && (oldCrestId != crestId))
 		{
-			_allyCrestId.put(pledgeId, crestId);
-			_allyCrest.put(crestId, crest);
-		}
-		finally
-		{
-			writeLock.unlock();
+			_allyCrest.remove(oldCrestId);
 		}
+		
 		Connection con = null;
 		PreparedStatement statement = null;
 		
@@ -508,9 +620,4 @@ public class CrestCache
 		}
 		return crestId;
 	}
-	
-	private TIntObjectHashMap<byte[]> get_pledgeCrestLarge()
-	{
-		return _pledgeCrestLarge;
-	}
 }
@@ -0,0 +1,360 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import lineage2.commons.dbutils.DbUtils;
+import lineage2.commons.threading.RunnableImpl;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.ThreadPoolManager;
+import lineage2.gameserver.database.DatabaseFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quest variables are written behind: changes are kept per character and stored in JDBC batches every QuestStateFlushInterval, on logout and on shutdown.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class CharacterQuestDAO
+{
+	private static final Logger _log = LoggerFactory.getLogger(CharacterQuestDAO.class);
+	private static final CharacterQuestDAO _instance = new CharacterQuestDAO();
+	private static final String REPLACE_SQL_QUERY = "REPLACE INTO character_quests (char_id,name,var,value) VALUES (?,?,?,?)";
+	private static final String DELETE_VAR_SQL_QUERY = "DELETE FROM character_quests WHERE char_id=? AND name=? AND var=?";
+	private static final String DELETE_QUEST_SQL_QUERY = "DELETE FROM character_quests WHERE char_id=? AND name=?";
+	private final Map<Integer, PendingQuests> _pending = new LinkedHashMap<>();
+	private final Object _flushLock = new Object();
+	
+	/**
+	 * Changes of one character not stored yet.
+	 */
+	private static class PendingQuests
+	{
+		/**
+		 * Quests deleted as a whole, stored before the variables.
+		 */
+		final Set<String> deleted = new HashSet<>();
+		/**
+		 * Variables by quest name, a null value deletes the variable.
+		 */
+		final Map<String, Map<String, String>> vars = new HashMap<>();
+		
+		/**
+		 * Constructor for PendingQuests.
+		 */
+		PendingQuests()
+		{
+		}
+		
+		/**
+		 * Method setVar.
+		 * @param quest String
+		 * @param var String
+		 * @param value String
+		 */
+		void setVar(String quest, String var, String value)
+		{
+			Map<String, String> questVars = vars.get(quest);
+			
+			if (questVars == null)
+			{
+				vars.put(quest, questVars = new HashMap<>());
+			}
+			
+			questVars.put(var, value);
+		}
+		
+		/**
+		 * Keeps the changes of an older failed flush that were not overwritten since.
+		 * @param older PendingQuests
+		 */
+		void mergeOlder(PendingQuests older)
+		{
+			for (Map.Entry<String, Map<String, String>> quest : older.vars.entrySet())
+			{
+				if (deleted.contains(quest.getKey()))
+				{
+					continue;
+				}
+				
+				for (Map.Entry<String, String> var : quest.getValue().entrySet())
+				{
+					final Map<String, String> questVars = vars.get(quest.getKey());
+					
+					if ((questVars == null) || !questVars.containsKey(var.getKey()))
+					{
+						setVar(quest.getKey(), var.getKey(), var.getValue());
+					}
+				}
+			}
+			
+			deleted.addAll(older.deleted);
+		}
+	}
+	
+	/**
+	 * Constructor for CharacterQuestDAO.
+	 */
+	private CharacterQuestDAO()
+	{
+		if (Config.QUEST_STATE_FLUSH_INTERVAL > 0)
+		{
+			ThreadPoolManager.getInstance().scheduleAtFixedRate(new RunnableImpl()
+			{
+				@Override
+				public void runImpl()
+				{
+					flush();
+				}
+			}, Config.QUEST_STATE_FLUSH_INTERVAL, Config.QUEST_STATE_FLUSH_INTERVAL);
+		}
+	}
+	
+	/**
+	 * Method getInstance.
+	 * @return CharacterQuestDAO
+	 */
+	public static CharacterQuestDAO getInstance()
+	{
+		return _instance;
+	}
+	
+	/**
+	 * Method setVar.
+	 * @param charId int
+	 * @param quest String
+	 * @param var String
+	 * @param value String
+	 */
+	public void setVar(int charId, String quest, String var, String value)
+	{
+		synchronized (_pending)
+		{
+			getPending(charId).setVar(quest, var, value);
+		}
+		
+		onChange(charId);
+	}
+	
+	/**
+	 * Method deleteVar.
+	 * @param charId int
+	 * @param quest String
+	 * @param var String
+	 */
+	public void deleteVar(int charId, String quest, String var)
+	{
+		synchronized (_pending)
+		{
+			getPending(charId).setVar(quest, var, null);
+		}
+		
+		onChange(charId);
+	}
+	
+	/**
+	 * Method deleteQuest.
+	 * @param charId int
+	 * @param quest String
+	 */
+	public void deleteQuest(int charId, String quest)
+	{
+		synchronized (_pending)
+		{
+			final PendingQuests pending = getPending(charId);
+			pending.vars.remove(quest);
+			pending.deleted.add(quest);
+		}
+		
+		onChange(charId);
+	}
+	
+	/**
+	 * Stores the changes of every character.
+	 */
+	public void flush()
+	{
+		synchronized (_flushLock)
+		{
+			final Map<Integer, PendingQuests> changes;
+			
+			synchronized (_pending)
+			{
+				if (_pending.isEmpty())
+				{
+					return;
+				}
+				
+				changes = new LinkedHashMap<>(_pending);
+				_pending.clear();
+			}
+			
+			store(changes);
+		}
+	}
+	
+	/**
+	 * Stores the changes of one character, on logout and before its quests are read.
+	 * @param charId int
+	 */
+	public void flush(int charId)
+	{
+		synchronized (_flushLock)
+		{
+			final PendingQuests pending;
+			
+			synchronized (_pending)
+			{
+				pending = _pending.remove(charId);
+			}
+			
+			if (pending != null)
+			{
+				store(Collections.singletonMap(charId, pending));
+			}
+		}
+	}
+	
+	/**
+	 * Method getPending.
+	 * @param charId int
+	 * @return PendingQuests
+	 */
+	private PendingQuests getPending(int charId)
+	{
+		PendingQuests pending = _pending.get(charId);
+		
+		if (pending == null)
+		{
+			_pending.put(charId, pending = new PendingQuests());
+		}
+		
+		return pending;
+	}
+	
+	/**
+	 * Writes through when write behind is disabled.
+	 * @param charId int
+	 */
+	private void onChange(int charId)
+	{
+		if (Config.QUEST_STATE_FLUSH_INTERVAL <= 0)
+		{
+			flush(charId);
+		}
+	}
+	
+	/**
+	 * Stores the changes in one batch per statement, on failure they are queued again unless overwritten meanwhile.
+	 * @param changes Map<Integer,PendingQuests>
+	 */
+	private void store(Map<Integer, PendingQuests> changes)
+	{
+		Connection con = null;
+		PreparedStatement deleteQuest = null;
+		PreparedStatement deleteVar = null;
+		PreparedStatement replace = null;
+		
+		try
+		{
+			con = DatabaseFactory.getInstance().getConnection();
+			deleteQuest = con.prepareStatement(DELETE_QUEST_SQL_QUERY);
+			deleteVar = con.prepareStatement(DELETE_VAR_SQL_QUERY);
+			replace = con.prepareStatement(REPLACE_SQL_QUERY);
+			int deletedQuests = 0;
+			int deletedVars = 0;
+			int replacedVars = 0;
+			
+			for (Map.Entry<Integer, PendingQuests> e : changes.entrySet())
+			{
+				final int charId = e.getKey();
+				
+				for (String quest : e.getValue().deleted)
+				{
+					deleteQuest.setInt(1, charId);
+					deleteQuest.setString(2, quest);
+					deleteQuest.addBatch();
+					deletedQuests++;
+				}
+				
+				for (Map.Entry<String, Map<String, String>> quest : e.getValue().vars.entrySet())
+				{
+					for (Map.Entry<String, String> var : quest.getValue().entrySet())
+					{
+						if (var.getValue() == null)
+						{
+							deleteVar.setInt(1, charId);
+							deleteVar.setString(2, quest.getKey());
+							deleteVar.setString(3, var.getKey());
+							deleteVar.addBatch();
+							deletedVars++;
+						}
+						else
+						{
+							replace.setInt(1, charId);
+							replace.setString(2, quest.getKey());
+							replace.setString(3, var.getKey());
+							replace.setString(4, var.getValue());
+							replace.addBatch();
+							replacedVars++;
+						}
+					}
+				}
+			}
+			
+			// whole quest deletes go first, a quest started again afterwards keeps its new variables
+			if (deletedQuests > 0)
+			{
+				deleteQuest.executeBatch();
+			}
+			
+			if (deletedVars > 0)
+			{
+				deleteVar.executeBatch();
+			}
+			
+			if (replacedVars > 0)
+			{
+				replace.executeBatch();
+			}
+		}
+		catch (Exception e)
+		{
+			_log.error("CharacterQuestDAO: store(): " + changes.size() + " characters", e);
+			
+			synchronized (_pending)
+			{
+				for (Map.Entry<Integer, PendingQuests> change : changes.entrySet())
+				{
+					getPending(change.getKey()).mergeOlder(change.getValue());
+				}
+			}
+		}
+		finally
+		{
+			DbUtils.closeQuietly(replace);
+			DbUtils.closeQuietly(deleteVar);
+			DbUtils.closeQuietly(con, deleteQuest);
+		}
+	}
+}
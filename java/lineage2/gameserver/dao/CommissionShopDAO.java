@@ -15,17 +15,14 @@ package lineage2.gameserver.dao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.util.ArrayDeque;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
 
 import lineage2.commons.dbutils.DbUtils;
 import lineage2.gameserver.database.DatabaseFactory;
 import lineage2.gameserver.instancemanager.commission.CommissionItemContainer;
 import lineage2.gameserver.instancemanager.commission.CommissionItemInfo;
-import lineage2.gameserver.instancemanager.commission.CommissionShopManager;
-import lineage2.gameserver.model.Player;
 import lineage2.gameserver.model.items.ItemInstance;
 import lineage2.gameserver.templates.item.ExItemType;
 
@@ -33,6 +30,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Write-through persistence of the commission shop, all lookups are served by the in-memory CommissionItemIndex.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
@@ -40,11 +38,8 @@ public class CommissionShopDAO
 {
 	private static final Logger _log = LoggerFactory.getLogger(CommissionShopDAO.class);
 	private static final String INSERT_SQL_QUERY = "INSERT INTO commission_shop(obj_id, seller_id, item_name, price, item_type, sale_days, sale_end_time, seller_name) VALUES (?,?,?,?,?,?,?,?)";
-	private static final String SELECT_PLAYER_REGISTERED_ITEMS_SQL_QUERY = "SELECT auction_id, price, item_type, sale_days, sale_end_time, seller_name, obj_id  FROM commission_shop WHERE seller_id=?";
-	private static final String SELECT_REGISTERED_ITEMS = "SELECT auction_id, price, item_name, item_type, sale_days, sale_end_time, seller_name, obj_id  FROM commission_shop WHERE item_type IN(?) ORDER BY auction_id";
-	private static final String SELECT_COMMISSION_ITEM_INFO = "SELECT price, sale_days, sale_end_time, seller_name, obj_id  FROM commission_shop WHERE auction_id=? AND item_type=?";
+	private static final String SELECT_ALL_ITEMS = "SELECT auction_id, obj_id, seller_id, item_name, price, item_type, sale_days, sale_end_time, seller_name FROM commission_shop ORDER BY auction_id";
 	private static final String DELETE_COMMISSION_ITEM = "DELETE FROM commission_shop WHERE auction_id=?";
-	private static final String SELECT_EXPIRED_ITEMS = "SELECT auction_id, price, sale_days, seller_name, item_type, obj_id, sale_end_time  FROM commission_shop WHERE sale_end_time <= ?";
 	private static final CommissionShopDAO ourInstance = new CommissionShopDAO();
 	
 	/**
@@ -66,16 +61,18 @@ public class CommissionShopDAO
 	 * @param sale_days int
 	 * @param sale_end_time long
 	 * @param player_name String
+	 * @return long auction id of the new item, -1 if it could not be stored
 	 */
-	public void saveNewItem(int objectId, int seller_id, String item_name, long price, String exItemType, int sale_days, long sale_end_time, String player_name)
+	public long saveNewItem(int objectId, int seller_id, String item_name, long price, String exItemType, int sale_days, long sale_end_time, String player_name)
 	{
 		Connection con = null;
 		PreparedStatement statement = null;
+		ResultSet rset = null;
 		
 		try
 		{
 			con = DatabaseFactory.getInstance().getConnection();
-			statement = con.prepareStatement(INSERT_SQL_QUERY);
+			statement = con.prepareStatement(INSERT_SQL_QUERY, Statement.RETURN_GENERATED_KEYS);
 			statement.setInt(1, objectId);
 			statement.setInt(2, seller_id);
 			statement.setString(3, item_name);
@@ -85,110 +82,43 @@ public class CommissionShopDAO
 			statement.setLong(7, sale_end_time);
 			statement.setString(8, player_name);
 			statement.execute();
-		}
-		catch (Exception e)
-		{
-			_log.info("CommissionShopDAO.saveNewItem: " + e, e);
-		}
-		finally
-		{
-			DbUtils.closeQuietly(con, statement);
-		}
-	}
-	
-	/**
-	 * Method getRegisteredItemsFor.
-	 * @param player Player
-	 * @return List<CommissionItemInfo>
-	 */
-	public List<CommissionItemInfo> getRegisteredItemsFor(Player player)
-	{
-		List<CommissionItemInfo> items = new ArrayList<>(10);
-		Connection con = null;
-		PreparedStatement statement = null;
-		ResultSet rset = null;
-		CommissionItemContainer container = CommissionShopManager.getInstance().getContainer();
-		container.readLock();
-		
-		try
-		{
-			con = DatabaseFactory.getInstance().getConnection();
-			statement = con.prepareStatement(SELECT_PLAYER_REGISTERED_ITEMS_SQL_QUERY);
-			statement.setInt(1, player.getObjectId());
-			rset = statement.executeQuery();
+			rset = statement.getGeneratedKeys();
 			
-			while (rset.next())
+			if (rset.next())
 			{
-				int objectId = rset.getInt("obj_id");
-				ItemInstance item;
-				
-				if ((item = container.getItemByObjectId(objectId)) == null)
-				{
-					continue;
-				}
-				
-				CommissionItemInfo itemInfo = new CommissionItemInfo(item);
-				itemInfo.setAuctionId(rset.getLong("auction_id"));
-				itemInfo.setRegisteredPrice(rset.getLong("price"));
-				itemInfo.setExItemType(ExItemType.valueOf(rset.getString("item_type")));
-				itemInfo.setSaleDays(rset.getInt("sale_days"));
-				itemInfo.setSaleEndTime(rset.getLong("sale_end_time"));
-				itemInfo.setSellerName(rset.getString("seller_name"));
-				items.add(itemInfo);
+				return rset.getLong(1);
 			}
 		}
 		catch (Exception e)
 		{
-			_log.info("CommissionShopDAO.getRegisteredItemsFor: " + e, e);
+			_log.info("CommissionShopDAO.saveNewItem: " + e, e);
 		}
 		finally
 		{
-			container.readUnlock();
 			DbUtils.closeQuietly(con, statement, rset);
 		}
-		return items;
+		return -1;
 	}
 	
 	/**
-	 * Method getRegisteredItems.
-	 * @param types ExItemType[]
-	 * @param rareType int
-	 * @param grade int
-	 * @param searchName String
-	 * @return Queue<List<CommissionItemInfo>>
+	 * Loads the registered items whose item is still held by the container.
+	 * @param container CommissionItemContainer
+	 * @return List<CommissionItemInfo>
 	 */
-	public Queue<List<CommissionItemInfo>> getRegisteredItems(ExItemType[] types, int rareType, int grade, String searchName)
+	public List<CommissionItemInfo> restore(CommissionItemContainer container)
 	{
-		Queue<List<CommissionItemInfo>> items = new ArrayDeque<>();
+		List<CommissionItemInfo> items = new ArrayList<>();
 		Connection con = null;
 		PreparedStatement statement = null;
 		ResultSet rset = null;
-		String type = "";
-		
-		for (int i = 0; i < types.length; i++)
-		{
-			type += types[i].name();
-			
-			if ((i + 1) < types.length)
-			{
-				type += ",";
-			}
-		}
-		
-		CommissionItemContainer container = CommissionShopManager.getInstance().getContainer();
-		container.readLock();
 		
 		try
 		{
 			con = DatabaseFactory.getInstance().getConnection();
-			statement = con.prepareStatement(SELECT_REGISTERED_ITEMS);
-			statement.setString(1, type);
+			statement = con.prepareStatement(SELECT_ALL_ITEMS);
 			rset = statement.executeQuery();
-			int i = 0;
-			List<CommissionItemInfo> list = new ArrayList<>(120);
-			items.add(list);
 			
-			while (rset.next() && (i <= 999))
+			while (rset.next())
 			{
 				int objectId = rset.getInt("obj_id");
 				ItemInstance item;
@@ -198,102 +128,29 @@ public class CommissionShopDAO
 					continue;
 				}
 				
-				if (((rareType == 1) && !item.getTemplate().isBlessed()) || ((rareType == 0) && item.getTemplate().isBlessed()))
-				{
-					continue;
-				}
-				
-				if ((grade > -1) && (item.getTemplate().getItemGrade().ordinal() != grade))
-				{
-					continue;
-				}
-				
-				if (!searchName.isEmpty() && !rset.getString("item_name").toLowerCase().contains(searchName.toLowerCase()))
-				{
-					continue;
-				}
-				
 				CommissionItemInfo itemInfo = new CommissionItemInfo(item);
 				itemInfo.setAuctionId(rset.getLong("auction_id"));
+				itemInfo.setSellerId(rset.getInt("seller_id"));
+				itemInfo.setItemName(rset.getString("item_name"));
 				itemInfo.setRegisteredPrice(rset.getLong("price"));
 				itemInfo.setExItemType(ExItemType.valueOf(rset.getString("item_type")));
 				itemInfo.setSaleDays(rset.getInt("sale_days"));
 				itemInfo.setSaleEndTime(rset.getLong("sale_end_time"));
 				itemInfo.setSellerName(rset.getString("seller_name"));
-				list.add(itemInfo);
-				
-				if ((i != 0) && ((i % 120) == 0))
-				{
-					list = new ArrayList<>(120);
-					items.add(list);
-				}
-				
-				i++;
+				items.add(itemInfo);
 			}
 		}
 		catch (Exception e)
 		{
-			_log.info("CommissionShopDAO.getRegisteredItems: " + e, e);
+			_log.info("CommissionShopDAO.restore: " + e, e);
 		}
 		finally
 		{
-			container.readUnlock();
 			DbUtils.closeQuietly(con, statement, rset);
 		}
 		return items;
 	}
 	
-	/**
-	 * Method getCommissionItemInfo.
-	 * @param auctionId long
-	 * @param exItemType ExItemType
-	 * @return CommissionItemInfo
-	 */
-	public CommissionItemInfo getCommissionItemInfo(long auctionId, ExItemType exItemType)
-	{
-		CommissionItemInfo itemInfo = null;
-		ResultSet rset = null;
-		CommissionItemContainer container = CommissionShopManager.getInstance().getContainer();
-		container.readLock();
-		
-		try (Connection con = DatabaseFactory.getInstance().getConnection();
-			PreparedStatement statement = con.prepareStatement(SELECT_COMMISSION_ITEM_INFO);)
-		{
-			statement.setLong(1, auctionId);
-			statement.setString(2, exItemType.name());
-			rset = statement.executeQuery();
-			
-			while (rset.next())
-			{
-				int objectId = rset.getInt("obj_id");
-				ItemInstance item;
-				
-				if ((item = container.getItemByObjectId(objectId)) == null)
-				{
-					return null;
-				}
-				
-				itemInfo = new CommissionItemInfo(item);
-				itemInfo.setAuctionId(auctionId);
-				itemInfo.setRegisteredPrice(rset.getLong("price"));
-				itemInfo.setExItemType(exItemType);
-				itemInfo.setSaleDays(rset.getInt("sale_days"));
-				itemInfo.setSaleEndTime(rset.getLong("sale_end_time"));
-				itemInfo.setSellerName(rset.getString("seller_name"));
-			}
-		}
-		catch (Exception e)
-		{
-			_log.info("CommissionShopDAO.getCommissionItemInfo(long,int): " + e, e);
-		}
-		finally
-		{
-			container.readUnlock();
-			DbUtils.closeQuietly(rset);
-		}
-		return itemInfo;
-	}
-	
 	/**
 	 * Method removeItem.
 	 * @param auctionId long
@@ -322,57 +179,4 @@ public class CommissionShopDAO
 		}
 		return true;
 	}
-	
-	/**
-	 * Method removeExpiredItems.
-	 * @param expireTime long
-	 * @return List<CommissionItemInfo>
-	 */
-	public List<CommissionItemInfo> removeExpiredItems(long expireTime)
-	{
-		List<CommissionItemInfo> list = new ArrayList<>();
-		Connection con = null;
-		PreparedStatement statement = null;
-		ResultSet rset = null;
-		CommissionItemContainer container = CommissionShopManager.getInstance().getContainer();
-		container.writeLock();
-		
-		try
-		{
-			con = DatabaseFactory.getInstance().getConnection();
-			statement = con.prepareStatement(SELECT_EXPIRED_ITEMS);
-			statement.setLong(1, expireTime);
-			rset = statement.executeQuery();
-			
-			while (rset.next())
-			{
-				int objectId = rset.getInt("obj_id");
-				ItemInstance item;
-				
-				if ((item = container.getItemByObjectId(objectId)) == null)
-				{
-					continue;
-				}
-				
-				CommissionItemInfo itemInfo = new CommissionItemInfo(item);
-				itemInfo.setAuctionId(rset.getLong("auction_id"));
-				itemInfo.setRegisteredPrice(rset.getLong("price"));
-				itemInfo.setExItemType(ExItemType.valueOf(rset.getString("item_type")));
-				itemInfo.setSaleDays(rset.getInt("sale_days"));
-				itemInfo.setSaleEndTime(rset.getLong("sale_end_time"));
-				itemInfo.setSellerName(rset.getString("seller_name"));
-				list.add(itemInfo);
-			}
-		}
-		catch (Exception e)
-		{
-			_log.info("CommissionShopDAO.removeExpiredItems(long): " + e, e);
-		}
-		finally
-		{
-			container.writeUnlock();
-			DbUtils.closeQuietly(con, statement, rset);
-		}
-		return list;
-	}
 }
@@ -12,6 +12,13 @@
  */
 package lineage2.gameserver.dao;
 
+import static lineage2.gameserver.model.base.Element.EARTH;
+import static lineage2.gameserver.model.base.Element.FIRE;
+import static lineage2.gameserver.model.base.Element.HOLY;
+import static lineage2.gameserver.model.base.Element.UNHOLY;
+import static lineage2.gameserver.model.base.Element.WATER;
+import static lineage2.gameserver.model.base.Element.WIND;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -168,12 +175,12 @@ public class ItemsDAO implements JdbcDAO<Integer, ItemInstance>
 			item.setLifeTime(rset.getInt(10));
 			item.setCustomFlags(rset.getInt(11));
 			item.setAugmentationId(rset.getInt(12));
-			item.getAttributes().setFire(rset.getInt(13));
-			item.getAttributes().setWater(rset.getInt(14));
-			item.getAttributes().setWind(rset.getInt(15));
-			item.getAttributes().setEarth(rset.getInt(16));
-			item.getAttributes().setHoly(rset.getInt(17));
-			item.getAttributes().setUnholy(rset.getInt(18));
+			item.setAttributeElement(FIRE, rset.getInt(13));
+			item.setAttributeElement(WATER, rset.getInt(14));
+			item.setAttributeElement(WIND, rset.getInt(15));
+			item.setAttributeElement(EARTH, rset.getInt(16));
+			item.setAttributeElement(HOLY, rset.getInt(17));
+			item.setAttributeElement(UNHOLY, rset.getInt(18));
 			item.setAgathionEnergy(rset.getInt(19));
 			item.setVisualId(rset.getInt(20));
 		}
@@ -201,12 +208,12 @@ public class ItemsDAO implements JdbcDAO<Integer, ItemInstance>
 		statement.setInt(10, item.getLifeTime());
 		statement.setInt(11, item.getCustomFlags());
 		statement.setInt(12, item.getAugmentationId());
-		statement.setInt(13, item.getAttributes().getFire());
-		statement.setInt(14, item.getAttributes().getWater());
-		statement.setInt(15, item.getAttributes().getWind());
-		statement.setInt(16, item.getAttributes().getEarth());
-		statement.setInt(17, item.getAttributes().getHoly());
-		statement.setInt(18, item.getAttributes().getUnholy());
+		statement.setInt(13, item.getAttributeElementValue(FIRE, false));
+		statement.setInt(14, item.getAttributeElementValue(WATER, false));
+		statement.setInt(15, item.getAttributeElementValue(WIND, false));
+		statement.setInt(16, item.getAttributeElementValue(EARTH, false));
+		statement.setInt(17, item.getAttributeElementValue(HOLY, false));
+		statement.setInt(18, item.getAttributeElementValue(UNHOLY, false));
 		statement.setInt(19, item.getAgathionEnergy());
 		statement.setInt(20, item.getVisualId());
 	}
@@ -290,12 +297,12 @@ public class ItemsDAO implements JdbcDAO<Integer, ItemInstance>
 		statement.setInt(9, item.getLifeTime());
 		statement.setInt(10, item.getCustomFlags());
 		statement.setInt(11, item.getAugmentationId());
-		statement.setInt(12, item.getAttributes().getFire());
-		statement.setInt(13, item.getAttributes().getWater());
-		statement.setInt(14, item.getAttributes().getWind());
-		statement.setInt(15, item.getAttributes().getEarth());
-		statement.setInt(16, item.getAttributes().getHoly());
-		statement.setInt(17, item.getAttributes().getUnholy());
+		statement.setInt(12, item.getAttributeElementValue(FIRE, false));
+		statement.setInt(13, item.getAttributeElementValue(WATER, false));
+		statement.setInt(14, item.getAttributeElementValue(WIND, false));
+		statement.setInt(15, item.getAttributeElementValue(EARTH, false));
+		statement.setInt(16, item.getAttributeElementValue(HOLY, false));
+		statement.setInt(17, item.getAttributeElementValue(UNHOLY, false));
 		statement.setInt(18, item.getAgathionEnergy());
 		statement.setInt(19, item.getVisualId());
 	}
@@ -15,8 +15,16 @@ package lineage2.gameserver.dao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import lineage2.commons.dbutils.DbUtils;
+import lineage2.commons.threading.RunnableImpl;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.ThreadPoolManager;
 import lineage2.gameserver.database.DatabaseFactory;
 import lineage2.gameserver.model.entity.olympiad.Olympiad;
 import lineage2.gameserver.templates.StatsSet;
@@ -25,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Noble rows are written behind: changed rows are queued with the values they had when queued and stored in one JDBC batch on a pool thread.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
@@ -32,6 +41,18 @@ public class OlympiadNobleDAO
 {
 	private static final Logger _log = LoggerFactory.getLogger(OlympiadNobleDAO.class);
 	private static final OlympiadNobleDAO _instance = new OlympiadNobleDAO();
+	private static final String[] STORED_FIELDS =
+	{
+		Olympiad.CLASS_ID,
+		Olympiad.POINTS,
+		Olympiad.POINTS_PAST,
+		Olympiad.POINTS_PAST_STATIC,
+		Olympiad.COMP_DONE,
+		Olympiad.COMP_WIN,
+		Olympiad.COMP_LOOSE,
+		Olympiad.GAME_CLASSES_COUNT,
+		Olympiad.GAME_NOCLASSES_COUNT
+	};
 	/**
 	 * characters ON characters.obj_Id = olympiad_nobles.char_id"")
 	 */
@@ -40,14 +61,13 @@ public class OlympiadNobleDAO
 	 * (?,?,?,?,?,?,?,?,?,?)"")
 	 */
 	private static final String REPLACE_SQL_QUERY = "REPLACE INTO `olympiad_nobles` (`char_id`, `class_id`, `olympiad_points`, `olympiad_points_past`, `olympiad_points_past_static`, `competitions_done`, `competitions_win`, `competitions_loose`, game_classes_count, game_noclasses_count) VALUES (?,?,?,?,?,?,?,?,?,?)";
-	/**
-	 * DESC, `competitions_done` DESC"")
-	 */
-	public static final String OLYMPIAD_GET_HEROS = "SELECT `char_id`, characters.char_name AS char_name FROM `olympiad_nobles` LEFT JOIN characters ON char_id=characters.obj_Id WHERE `class_id` = ? AND `competitions_done` >= ? AND `competitions_win` > 0 ORDER BY `olympiad_points` DESC, `competitions_win` DESC, `competitions_done` DESC";
 	public static final String GET_EACH_CLASS_LEADER = "SELECT characters.char_name AS char_name FROM `olympiad_nobles` LEFT JOIN characters ON char_id=characters.obj_Id WHERE `class_id` = ? AND `olympiad_points_past_static` != 0 ORDER BY `olympiad_points_past_static` DESC LIMIT 10";
-	public static final String GET_ALL_CLASSIFIED_NOBLESS = "SELECT `char_id` FROM `olympiad_nobles` ORDER BY olympiad_points_past_static DESC";
 	public static final String OLYMPIAD_CALCULATE_LAST_PERIOD = "UPDATE `olympiad_nobles` SET `olympiad_points_past` = `olympiad_points`, `olympiad_points_past_static` = `olympiad_points` WHERE `competitions_done` >= ?";
 	public static final String OLYMPIAD_CLEANUP_NOBLES = "UPDATE `olympiad_nobles` SET `olympiad_points` = ?, `competitions_done` = 0, `competitions_win` = 0, `competitions_loose` = 0, game_classes_count=0, game_noclasses_count=0";
+	private final Map<Integer, int[]> _stored = new ConcurrentHashMap<>();
+	private final Map<Integer, int[]> _pending = new LinkedHashMap<>();
+	private final AtomicBoolean _flushScheduled = new AtomicBoolean();
+	private final Object _flushLock = new Object();
 	
 	/**
 	 * Method getInstance.
@@ -89,6 +109,7 @@ public class OlympiadNobleDAO
 				statDat.set(Olympiad.GAME_CLASSES_COUNT, rset.getInt(Olympiad.GAME_CLASSES_COUNT));
 				statDat.set(Olympiad.GAME_NOCLASSES_COUNT, rset.getInt(Olympiad.GAME_NOCLASSES_COUNT));
 				Olympiad._nobles.put(charId, statDat);
+				_stored.put(charId, getRow(statDat));
 			}
 		}
 		catch (Exception e)
@@ -102,38 +123,207 @@ public class OlympiadNobleDAO
 	}
 	
 	/**
-	 * Method replace.
+	 * Queues the row of a noble if it differs from the stored one.
 	 * @param nobleId int
+	 * @return boolean true if the row was queued
 	 */
-	public void replace(int nobleId)
+	public boolean queue(int nobleId)
 	{
-		Connection con = null;
-		PreparedStatement statement = null;
+		final StatsSet nobleInfo = Olympiad._nobles.get(nobleId);
 		
-		try
+		if (nobleInfo == null)
 		{
-			con = DatabaseFactory.getInstance().getConnection();
-			StatsSet nobleInfo = Olympiad._nobles.get(nobleId);
-			statement = con.prepareStatement(REPLACE_SQL_QUERY);
-			statement.setInt(1, nobleId);
-			statement.setInt(2, nobleInfo.getInteger(Olympiad.CLASS_ID));
-			statement.setInt(3, nobleInfo.getInteger(Olympiad.POINTS));
-			statement.setInt(4, nobleInfo.getInteger(Olympiad.POINTS_PAST));
-			statement.setInt(5, nobleInfo.getInteger(Olympiad.POINTS_PAST_STATIC));
-			statement.setInt(6, nobleInfo.getInteger(Olympiad.COMP_DONE));
-			statement.setInt(7, nobleInfo.getInteger(Olympiad.COMP_WIN));
-			statement.setInt(8, nobleInfo.getInteger(Olympiad.COMP_LOOSE));
-			statement.setInt(9, nobleInfo.getInteger(Olympiad.GAME_CLASSES_COUNT));
-			statement.setInt(10, nobleInfo.getInteger(Olympiad.GAME_NOCLASSES_COUNT));
-			statement.execute();
+			return false;
 		}
-		catch (Exception e)
+		
+		synchronized (_pending)
 		{
-			_log.error("OlympiadNobleDAO: replace(int): " + nobleId, e);
+			// read under the lock, so a row is either taken before cleanupNobles() resets the nobles or after
+			final int[] row = getRow(nobleInfo);
+			final int[] queued = _pending.get(nobleId);
+			
+			if (Arrays.equals(row, queued != null ? queued : _stored.get(nobleId)))
+			{
+				return false;
+			}
+			
+			_pending.put(nobleId, row);
 		}
-		finally
+		
+		return true;
+	}
+	
+	/**
+	 * Ends the period: stores the queued rows, then moves the points to the past period and resets the current ones in the database and in memory.<br>
+	 * No flush can run in between, and rows queued before the reset are dropped, so no row with points of the ended period is stored over the reset.
+	 */
+	public void cleanupNobles()
+	{
+		synchronized (_flushLock)
 		{
-			DbUtils.closeQuietly(con, statement);
+			flush();
+			Connection con = null;
+			PreparedStatement statement = null;
+			
+			try
+			{
+				con = DatabaseFactory.getInstance().getConnection();
+				statement = con.prepareStatement(OLYMPIAD_CALCULATE_LAST_PERIOD);
+				statement.setInt(1, Config.OLYMPIAD_BATTLES_FOR_REWARD);
+				statement.execute();
+				DbUtils.close(statement);
+				statement = con.prepareStatement(OLYMPIAD_CLEANUP_NOBLES);
+				statement.setInt(1, Config.OLYMPIAD_POINTS_DEFAULT);
+				statement.execute();
+			}
+			catch (Exception e)
+			{
+				_log.error("Olympiad System: Couldn't calculate last period!", e);
+			}
+			finally
+			{
+				DbUtils.closeQuietly(con, statement);
+			}
+			
+			synchronized (_pending)
+			{
+				for (StatsSet nobleInfo : Olympiad._nobles.values())
+				{
+					int points = nobleInfo.getInteger(Olympiad.POINTS);
+					int compDone = nobleInfo.getInteger(Olympiad.COMP_DONE);
+					nobleInfo.set(Olympiad.POINTS, Config.OLYMPIAD_POINTS_DEFAULT);
+					
+					if (compDone >= Config.OLYMPIAD_BATTLES_FOR_REWARD)
+					{
+						nobleInfo.set(Olympiad.POINTS_PAST, points);
+						nobleInfo.set(Olympiad.POINTS_PAST_STATIC, points);
+					}
+					else
+					{
+						nobleInfo.set(Olympiad.POINTS_PAST, 0);
+						nobleInfo.set(Olympiad.POINTS_PAST_STATIC, 0);
+					}
+					
+					nobleInfo.set(Olympiad.COMP_DONE, 0);
+					nobleInfo.set(Olympiad.COMP_WIN, 0);
+					nobleInfo.set(Olympiad.COMP_LOOSE, 0);
+					nobleInfo.set(Olympiad.GAME_CLASSES_COUNT, 0);
+					nobleInfo.set(Olympiad.GAME_NOCLASSES_COUNT, 0);
+				}
+				
+				_pending.clear();
+			}
+			
+			// the stored rows do not know the reset, the next save writes every noble
+			_stored.clear();
 		}
 	}
+	
+	/**
+	 * Stores the queued rows on a pool thread.
+	 */
+	public void scheduleFlush()
+	{
+		if (ThreadPoolManager.getInstance().isShutdown())
+		{
+			flush();
+			return;
+		}
+		
+		if (_flushScheduled.compareAndSet(false, true))
+		{
+			ThreadPoolManager.getInstance().execute(new RunnableImpl()
+			{
+				@Override
+				public void runImpl()
+				{
+					_flushScheduled.set(false);
+					flush();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Stores the queued rows in one batch, rows that fail stay queued unless a newer value was queued meanwhile.
+	 */
+	public void flush()
+	{
+		synchronized (_flushLock)
+		{
+			final Map<Integer, int[]> rows;
+			
+			synchronized (_pending)
+			{
+				if (_pending.isEmpty())
+				{
+					return;
+				}
+				
+				rows = new LinkedHashMap<>(_pending);
+				_pending.clear();
+			}
+			
+			Connection con = null;
+			PreparedStatement statement = null;
+			
+			try
+			{
+				con = DatabaseFactory.getInstance().getConnection();
+				statement = con.prepareStatement(REPLACE_SQL_QUERY);
+				
+				for (Map.Entry<Integer, int[]> e : rows.entrySet())
+				{
+					final int[] row = e.getValue();
+					statement.setInt(1, e.getKey());
+					
+					for (int i = 0; i < row.length; i++)
+					{
+						statement.setInt(i + 2, row[i]);
+					}
+					
+					statement.addBatch();
+				}
+				
+				statement.executeBatch();
+				_stored.putAll(rows);
+			}
+			catch (Exception e)
+			{
+				_log.error("OlympiadNobleDAO: flush(): " + rows.size() + " nobles", e);
+				
+				synchronized (_pending)
+				{
+					for (Map.Entry<Integer, int[]> row : rows.entrySet())
+					{
+						if (!_pending.containsKey(row.getKey()))
+						{
+							_pending.put(row.getKey(), row.getValue());
+						}
+					}
+				}
+			}
+			finally
+			{
+				DbUtils.closeQuietly(con, statement);
+			}
+		}
+	}
+	
+	/**
+	 * Method getRow.
+	 * @param nobleInfo StatsSet
+	 * @return int[] stored column values in REPLACE_SQL_QUERY order
+	 */
+	private static int[] getRow(StatsSet nobleInfo)
+	{
+		final int[] row = new int[STORED_FIELDS.length];
+		
+		for (int i = 0; i < row.length; i++)
+		{
+			row[i] = nobleInfo.getInteger(STORED_FIELDS[i]);
+		}
+		
+		return row;
+	}
 }
@@ -145,7 +145,7 @@ public class HtmCache
 	{
 		String content = FileUtils.readFileToString(f, "UTF-8");
 		String path = f.getAbsolutePath().substring(rootPath.length()).replace("\\", "/");
-		_cache[Language.ENGLISH.ordinal()].put(new Element(path.toLowerCase(), Strings.bbParse(content)));
+		_cache[Language.ENGLISH.ordinal()].put(new Element(path.toLowerCase(), HtmTemplate.compile(Strings.bbParse(content))));
 	}
 	
 	/**
@@ -156,14 +156,8 @@ public class HtmCache
 	 */
 	public String getNotNull(String fileName, Player player)
 	{
-		String cache = getCache(fileName);
-		
-		if (StringUtils.isEmpty(cache))
-		{
-			cache = "Dialog not found: " + fileName;
-		}
-		
-		return cache;
+		HtmTemplate template = getTemplate(fileName, player);
+		return template == null ? "Dialog not found: " + fileName : template.getHtml();
 	}
 	
 	/**
@@ -174,29 +168,41 @@ public class HtmCache
 	 */
 	public String getNullable(String fileName, Player player)
 	{
-		String cache = getCache(fileName);
+		HtmTemplate template = getTemplate(fileName, player);
+		return template == null ? null : template.getHtml();
+	}
+	
+	/**
+	 * Method getTemplate.
+	 * @param fileName String
+	 * @param player Player
+	 * @return HtmTemplate compiled document or null if the file is missing or empty
+	 */
+	public HtmTemplate getTemplate(String fileName, Player player)
+	{
+		HtmTemplate template = getCache(fileName);
 		
-		if (StringUtils.isEmpty(cache))
+		if ((template == null) || StringUtils.isEmpty(template.getHtml()))
 		{
 			return null;
 		}
 		
-		return cache;
+		return template;
 	}
 	
 	/**
 	 * Method getCache.
 	 * @param file String
-	 * @return String
+	 * @return HtmTemplate
 	 */
-	private String getCache(String file)
+	private HtmTemplate getCache(String file)
 	{
 		if (file == null)
 		{
 			return null;
 		}
 		
-		String cache = get(file.toLowerCase());
+		HtmTemplate cache = get(file.toLowerCase());
 		
 		if (cache == null)
 		{
@@ -221,19 +227,18 @@ public class HtmCache
 	/**
 	 * Method loadDisabled.
 	 * @param file String
-	 * @return String
+	 * @return HtmTemplate
 	 */
-	private String loadDisabled(String file)
+	private HtmTemplate loadDisabled(String file)
 	{
-		String cache = null;
+		HtmTemplate cache = null;
 		File f = new File(Config.DATAPACK_ROOT, "data/html/" + file);
 		
 		if (f.exists())
 		{
 			try
 			{
-				cache = FileUtils.readFileToString(f, "UTF-8");
-				cache = Strings.bbParse(cache);
+				cache = HtmTemplate.compile(Strings.bbParse(FileUtils.readFileToString(f, "UTF-8")));
 			}
 			catch (IOException e)
 			{
@@ -247,19 +252,18 @@ public class HtmCache
 	/**
 	 * Method loadLazy.
 	 * @param file String
-	 * @return String
+	 * @return HtmTemplate
 	 */
-	private String loadLazy(String file)
+	private HtmTemplate loadLazy(String file)
 	{
-		String cache = null;
+		HtmTemplate cache = null;
 		File f = new File(Config.DATAPACK_ROOT, "data/html/" + file);
 		
 		if (f.exists())
 		{
 			try
 			{
-				cache = FileUtils.readFileToString(f, "UTF-8");
-				cache = Strings.bbParse(cache);
+				cache = HtmTemplate.compile(Strings.bbParse(FileUtils.readFileToString(f, "UTF-8")));
 				_cache[Language.ENGLISH.ordinal()].put(new Element(file, cache));
 			}
 			catch (IOException e)
@@ -274,12 +278,12 @@ public class HtmCache
 	/**
 	 * Method get.
 	 * @param f String
-	 * @return String
+	 * @return HtmTemplate
 	 */
-	private String get(String f)
+	private HtmTemplate get(String f)
 	{
 		final Element element = _cache[Language.ENGLISH.ordinal()].get(f);
-		return element == null ? null : (String) element.getObjectValue();
+		return element == null ? null : (HtmTemplate) element.getObjectValue();
 	}
 	
 	/**
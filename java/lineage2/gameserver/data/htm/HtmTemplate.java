@@ -0,0 +1,294 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.data.htm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Html document split once into literal text and %name% placeholder slots.<br>
+ * Rendering fills the slots in a single pass and gives the same result as applying each replacement with String.replace followed by the %objectId% and %playername% substitutions.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public final class HtmTemplate
+{
+	public static final String OBJECT_ID = "%objectId%";
+	public static final String PLAYER_NAME = "%playername%";
+	private final String _html;
+	private final String[] _parts;
+	private final boolean _slotSafe;
+	private final boolean _document;
+	
+	/**
+	 * Constructor for HtmTemplate.
+	 * @param html String
+	 * @param parts String[] literal text at even and slot tokens at odd indexes
+	 * @param slotSafe boolean
+	 */
+	private HtmTemplate(String html, String[] parts, boolean slotSafe)
+	{
+		_html = html;
+		_parts = parts;
+		_slotSafe = slotSafe;
+		_document = html.contains("<html>");
+	}
+	
+	/**
+	 * Method compile.
+	 * @param html String
+	 * @return HtmTemplate
+	 */
+	public static HtmTemplate compile(String html)
+	{
+		final List<String> parts = new ArrayList<>();
+		final int length = html.length();
+		boolean slotSafe = true;
+		int last = 0;
+		int start = html.indexOf('%');
+		
+		while (start >= 0)
+		{
+			int end = start + 1;
+			
+			while ((end < length) && isNameChar(html.charAt(end)))
+			{
+				end++;
+			}
+			
+			if ((end == (start + 1)) || (end == length) || (html.charAt(end) != '%'))
+			{
+				start = html.indexOf('%', start + 1);
+				continue;
+			}
+			
+			// A name run touching another '%' could turn into a new placeholder once a slot is filled.
+			int before = start - 1;
+			
+			while ((before >= 0) && isNameChar(html.charAt(before)))
+			{
+				before--;
+			}
+			
+			int after = end + 1;
+			
+			while ((after < length) && isNameChar(html.charAt(after)))
+			{
+				after++;
+			}
+			
+			if (((before >= 0) && (html.charAt(before) == '%')) || ((after < length) && (html.charAt(after) == '%')))
+			{
+				slotSafe = false;
+			}
+			
+			parts.add(html.substring(last, start));
+			parts.add(html.substring(start, end + 1));
+			last = end + 1;
+			start = html.indexOf('%', last);
+		}
+		
+		parts.add(html.substring(last));
+		return new HtmTemplate(html, parts.toArray(new String[parts.size()]), slotSafe);
+	}
+	
+	/**
+	 * Method getHtml.
+	 * @return String
+	 */
+	public String getHtml()
+	{
+		return _html;
+	}
+	
+	/**
+	 * Method isDocument.
+	 * @return boolean true if the text already has its own html tag
+	 */
+	public boolean isDocument()
+	{
+		return _document;
+	}
+	
+	/**
+	 * Fills the slots in a single pass.
+	 * @param out StringBuilder
+	 * @param replaces List<String> pattern and value pairs
+	 * @param objectId String
+	 * @param playerName String
+	 * @return boolean false if the replacements cannot be expressed as slot values and nothing was written
+	 */
+	public boolean render(StringBuilder out, List<String> replaces, String objectId, String playerName)
+	{
+		if (!_slotSafe)
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < replaces.size(); i += 2)
+		{
+			final String pattern = replaces.get(i);
+			
+			if (!isSlot(pattern) || pattern.equals(OBJECT_ID) || pattern.equals(PLAYER_NAME) || !isPlainValue(replaces.get(i + 1)))
+			{
+				return false;
+			}
+		}
+		
+		out.append(_parts[0]);
+		
+		for (int i = 1; i < _parts.length; i += 2)
+		{
+			final String slot = _parts[i];
+			final String value = getValue(replaces, slot);
+			
+			if (value != null)
+			{
+				appendValue(out, value, objectId, playerName);
+			}
+			else if (slot.equals(OBJECT_ID))
+			{
+				out.append(objectId);
+			}
+			else if (slot.equals(PLAYER_NAME))
+			{
+				out.append(playerName);
+			}
+			else
+			{
+				out.append(slot);
+			}
+			
+			out.append(_parts[i + 1]);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method getValue.
+	 * @param replaces List<String>
+	 * @param slot String
+	 * @return String value of the first replacement for the slot
+	 */
+	private static String getValue(List<String> replaces, String slot)
+	{
+		for (int i = 0; i < replaces.size(); i += 2)
+		{
+			if (replaces.get(i).equals(slot))
+			{
+				return replaces.get(i + 1);
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Method appendValue.
+	 * @param out StringBuilder
+	 * @param value String
+	 * @param objectId String
+	 * @param playerName String
+	 */
+	private static void appendValue(StringBuilder out, String value, String objectId, String playerName)
+	{
+		int last = 0;
+		int start = value.indexOf('%');
+		
+		while (start >= 0)
+		{
+			out.append(value, last, start);
+			
+			if (value.startsWith(OBJECT_ID, start))
+			{
+				out.append(objectId);
+				last = start + OBJECT_ID.length();
+			}
+			else
+			{
+				out.append(playerName);
+				last = start + PLAYER_NAME.length();
+			}
+			
+			start = value.indexOf('%', last);
+		}
+		
+		out.append(value, last, value.length());
+	}
+	
+	/**
+	 * Method isPlainValue.
+	 * @param value String
+	 * @return boolean true if every '%' of the value belongs to an %objectId% or %playername% placeholder
+	 */
+	private static boolean isPlainValue(String value)
+	{
+		int start = value.indexOf('%');
+		
+		while (start >= 0)
+		{
+			if (value.startsWith(OBJECT_ID, start))
+			{
+				start += OBJECT_ID.length();
+			}
+			else if (value.startsWith(PLAYER_NAME, start))
+			{
+				start += PLAYER_NAME.length();
+			}
+			else
+			{
+				return false;
+			}
+			
+			start = value.indexOf('%', start);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method isSlot.
+	 * @param pattern String
+	 * @return boolean true for a %name% placeholder
+	 */
+	private static boolean isSlot(String pattern)
+	{
+		final int last = pattern.length() - 1;
+		
+		if ((last < 2) || (pattern.charAt(0) != '%') || (pattern.charAt(last) != '%'))
+		{
+			return false;
+		}
+		
+		for (int i = 1; i < last; i++)
+		{
+			if (!isNameChar(pattern.charAt(i)))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method isNameChar.
+	 * @param c char
+	 * @return boolean
+	 */
+	private static boolean isNameChar(char c)
+	{
+		return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_');
+	}
+}
@@ -22,6 +22,7 @@ import lineage2.gameserver.Config;
 import lineage2.gameserver.model.Player;
 import lineage2.gameserver.model.base.MultiSellEntry;
 import lineage2.gameserver.model.base.MultiSellIngredient;
+import lineage2.gameserver.model.items.ItemAttributes;
 import lineage2.gameserver.model.items.ItemInstance;
 import lineage2.gameserver.network.serverpackets.MultiSellList;
 import lineage2.gameserver.templates.item.ItemTemplate;
@@ -810,7 +811,7 @@ public class MultiSellHolder
 									if (enchant && (template != null) && template.canBeEnchanted())
 									{
 										p.setItemEnchant(item.getEnchantLevel());
-										p.setItemAttributes(item.getAttributes().clone());
+										p.setItemAttributes(item.hasAttributes() ? item.getAttributes().clone() : new ItemAttributes());
 										p.setAugmentationId(item.getAugmentationId());
 									}
 									possibleEntry.addProduct(p);
@@ -820,7 +821,7 @@ public class MultiSellHolder
 									if (enchant && (ig.getItemId() > 0) && ItemHolder.getInstance().getTemplate(ig.getItemId()).canBeEnchanted())
 									{
 										ig.setItemEnchant(item.getEnchantLevel());
-										ig.setItemAttributes(item.getAttributes().clone());
+										ig.setItemAttributes(item.hasAttributes() ? item.getAttributes().clone() : new ItemAttributes());
 										ig.setAugmentationId(item.getAugmentationId());
 									}
 									possibleEntry.addIngredient(ig);
@@ -29,7 +29,6 @@ import java.util.regex.Pattern;
 
 import lineage2.commons.geometry.Shape;
 import lineage2.gameserver.Config;
-import lineage2.gameserver.geodata.GeoOptimizer.BlockLink;
 import lineage2.gameserver.model.GameObject;
 import lineage2.gameserver.model.World;
 import lineage2.gameserver.utils.Location;
@@ -298,9 +297,39 @@ public class GeoEngine
 		int my = (y - World.MAP_MIN_Y) >> 4;
 		int tmx = (tx - World.MAP_MIN_X) >> 4;
 		int tmy = (ty - World.MAP_MIN_Y) >> 4;
+		return LosCache.canSee(mx, my, z, tmx, tmy, tz, air, geoIndex);
+	}
+	
+	/**
+	 * Method canSeeCells.
+	 * @param mx int
+	 * @param my int
+	 * @param z int
+	 * @param tmx int
+	 * @param tmy int
+	 * @param tz int
+	 * @param air boolean
+	 * @param geoIndex int
+	 * @return boolean
+	 */
+	static boolean canSeeCells(int mx, int my, int z, int tmx, int tmy, int tz, boolean air, int geoIndex)
+	{
 		return canSee(mx, my, z, tmx, tmy, tz, air, geoIndex).equals(tmx, tmy, tz) && canSee(tmx, tmy, tz, mx, my, z, air, geoIndex).equals(mx, my, z);
 	}
 	
+	/**
+	 * Method getStats.
+	 * @return CharSequence pathfinding and line of sight cache
+	 */
+	public static CharSequence getStats()
+	{
+		final StringBuilder list = new StringBuilder();
+		list.append(PathFindBuffers.getStats());
+		list.append(LosCache.getStats());
+		list.append(PathFindService.getInstance().getStats());
+		return list;
+	}
+	
 	/**
 	 * Method canMoveWithCollision.
 	 * @param x int
@@ -1826,6 +1855,37 @@ public class GeoEngine
 		return region[regIndex][getBlockIndex(blockX, blockY)];
 	}
 	
+	/**
+	 * Method getGeoBlockForWrite.
+	 * @param geoX int
+	 * @param geoY int
+	 * @param geoIndex int
+	 * @return byte[] own copy of a block shared by compacting
+	 */
+	private static byte[] getGeoBlockForWrite(int geoX, int geoY, int geoIndex)
+	{
+		byte[] block = getGeoBlockFromGeoCoords(geoX, geoY, geoIndex);
+		
+		if ((block == null) || !GeoOptimizer.isShared(block))
+		{
+			return block;
+		}
+		
+		// only the main geodata is compacted
+		byte[][] blocks = geodata[geoX >> 11][geoY >> 11][0];
+		int blockIndex = getBlockIndex(getBlock(geoX), getBlock(geoY));
+		
+		synchronized (blocks)
+		{
+			if (blocks[blockIndex] == block)
+			{
+				blocks[blockIndex] = block.clone();
+			}
+			
+			return blocks[blockIndex];
+		}
+	}
+	
 	/**
 	 * Method load.
 	 */
@@ -2122,7 +2182,9 @@ public class GeoEngine
 			
 			LoadGeodata(rx, ry, regIndex);
 		}
-		return 0x0f000000 | (ix << 16) | (iy << 8) | regIndex;
+		int geoIndex = 0x0f000000 | (ix << 16) | (iy << 8) | regIndex;
+		LosCache.invalidateRegion(ix, iy, geoIndex);
+		return geoIndex;
 	}
 	
 	/**
@@ -2178,7 +2240,7 @@ public class GeoEngine
 			{
 				int geoX = minX + gX;
 				int geoY = minY + gY;
-				byte[] block = getGeoBlockFromGeoCoords(geoX, geoY, geoIndex);
+				byte[] block = getGeoBlockForWrite(geoX, geoY, geoIndex);
 				
 				if (block == null)
 				{
@@ -2288,6 +2350,8 @@ public class GeoEngine
 				}
 			}
 		}
+		
+		LosCache.invalidate(minX, minY, (minX + around.length) - 1, (minY + around[0].length) - 1, geoIndex);
 	}
 	
 	/**
@@ -2406,7 +2470,7 @@ public class GeoEngine
 			{
 				int geoX = minX + gX;
 				int geoY = minY + gY;
-				byte[] block = getGeoBlockFromGeoCoords(geoX, geoY, geoIndex);
+				byte[] block = getGeoBlockForWrite(geoX, geoY, geoIndex);
 				
 				if (block == null)
 				{
@@ -2548,6 +2612,8 @@ public class GeoEngine
 				}
 			}
 		}
+		
+		LosCache.invalidate(minX, minY, maxX, maxY, geoIndex);
 	}
 	
 	/**
@@ -2555,81 +2621,19 @@ public class GeoEngine
 	 */
 	private static void compact()
 	{
-		long total = 0, optimized = 0;
-		BlockLink[] links;
-		byte[][][] link_region;
+		List<GeoOptimizer.Region> regions = new ArrayList<>();
 		
 		for (int mapX = 0; mapX < World.WORLD_SIZE_X; mapX++)
 		{
 			for (int mapY = 0; mapY < World.WORLD_SIZE_Y; mapY++)
 			{
-				if (geodata[mapX][mapY] == null)
+				if ((geodata[mapX][mapY][0] != null) && (rawgeo[mapX][mapY] != null))
 				{
-					continue;
-				}
-				
-				total += BLOCKS_IN_MAP;
-				links = GeoOptimizer.loadBlockMatches("geodata/matches/" + (mapX + Config.GEO_X_FIRST) + "_" + (mapY + Config.GEO_Y_FIRST) + ".matches");
-				
-				if (links == null)
-				{
-					continue;
-				}
-				
-				for (int i = 0; i < links.length; i++)
-				{
-					link_region = geodata[links[i].linkMapX][links[i].linkMapY];
-					
-					if (link_region == null)
-					{
-						continue;
-					}
-					
-					link_region[links[i].linkBlockIndex][0] = geodata[mapX][mapY][links[i].blockIndex][0];
-					optimized++;
+					regions.add(new GeoOptimizer.Region(mapX, mapY, geodata[mapX][mapY][0], rawgeo[mapX][mapY].duplicate()));
 				}
 			}
 		}
 		
-		_log.info(String.format("GeoEngine: - Compacted %d of %d blocks...", optimized, total));
-	}
-	
-	/**
-	 * Method equalsData.
-	 * @param a1 byte[]
-	 * @param a2 byte[]
-	 * @return boolean
-	 */
-	private static boolean equalsData(byte[] a1, byte[] a2)
-	{
-		if (a1.length != a2.length)
-		{
-			return false;
-		}
-		
-		for (int i = 0; i < a1.length; i++)
-		{
-			if (a1[i] != a2[i])
-			{
-				return false;
-			}
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Method compareGeoBlocks.
-	 * @param mapX1 int
-	 * @param mapY1 int
-	 * @param blockIndex1 int
-	 * @param mapX2 int
-	 * @param mapY2 int
-	 * @param blockIndex2 int
-	 * @return boolean
-	 */
-	static boolean compareGeoBlocks(int mapX1, int mapY1, int blockIndex1, int mapX2, int mapY2, int blockIndex2)
-	{
-		return equalsData(geodata[mapX1][mapY1][blockIndex1][0], geodata[mapX2][mapY2][blockIndex2][0]);
+		GeoOptimizer.compact(regions.toArray(new GeoOptimizer.Region[regions.size()]));
 	}
 }
@@ -18,365 +18,336 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.zip.CRC32;
 
-import lineage2.commons.threading.RunnableImpl;
 import lineage2.gameserver.Config;
-import lineage2.gameserver.model.World;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Shares one array between identical geodata blocks of the main geodata.<br>
+ * Matches are searched as a fork-join job over all loaded regions and saved with the hashes of the source files to a single file, which later boots map and apply directly as long as no source file changed.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
 class GeoOptimizer
 {
 	static final Logger log = LoggerFactory.getLogger(GeoOptimizer.class);
-	static int[][][] checkSums;
-	private static final byte version = 1;
+	private static final byte version = 2;
+	private static final String fileName = "geodata/compact.links";
+	/**
+	 * Ranges of regions, or of sorted blocks, smaller than this are not split any further.
+	 */
+	private static final int SPLIT_REGIONS = 2;
+	private static final int SPLIT_BLOCKS = 1 << 14;
+	/**
+	 * Blocks used by more than one place, copied before a collision changes them.
+	 */
+	private static final Set<byte[]> sharedBlocks = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<byte[], Boolean>()));
 	
 	/**
-	 * @author Mobius
+	 * A loaded region of the main geodata and the hash of its source file.
 	 */
-	static class GeoBlocksMatchFinder extends RunnableImpl
+	static class Region
 	{
-		private final int geoX, geoY, rx, ry, maxScanRegions;
-		private final String fileName;
+		final int ix, iy;
+		final byte[][] blocks;
+		final ByteBuffer raw;
+		int size, crc;
 		
 		/**
-		 * Constructor for GeoBlocksMatchFinder.
-		 * @param _geoX int
-		 * @param _geoY int
-		 * @param _maxScanRegions int
+		 * Constructor for Region.
+		 * @param _ix int
+		 * @param _iy int
+		 * @param _blocks byte[][]
+		 * @param _raw ByteBuffer
 		 */
-		GeoBlocksMatchFinder(int _geoX, int _geoY, int _maxScanRegions)
+		Region(int _ix, int _iy, byte[][] _blocks, ByteBuffer _raw)
 		{
-			super();
-			geoX = _geoX;
-			geoY = _geoY;
-			rx = geoX + Config.GEO_X_FIRST;
-			ry = geoY + Config.GEO_Y_FIRST;
-			maxScanRegions = _maxScanRegions;
-			fileName = "geodata/matches/" + rx + "_" + ry + ".matches";
+			ix = _ix;
+			iy = _iy;
+			blocks = _blocks;
+			raw = _raw;
 		}
+	}
+	
+	/**
+	 * Hashes the source files of a range of regions.
+	 */
+	static class SourceHashTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final Region[] regions;
+		private final int from, to;
 		
 		/**
-		 * Method exists.
-		 * @return boolean
+		 * Constructor for SourceHashTask.
+		 * @param _regions Region[]
+		 * @param _from int
+		 * @param _to int
 		 */
-		private boolean exists()
+		SourceHashTask(Region[] _regions, int _from, int _to)
 		{
-			return new File(Config.DATAPACK_ROOT, fileName).exists();
+			regions = _regions;
+			from = _from;
+			to = _to;
 		}
 		
 		/**
-		 * Method saveToFile.
-		 * @param links BlockLink[]
+		 * Method compute.
 		 */
-		private void saveToFile(BlockLink[] links)
+		@Override
+		protected void compute()
 		{
-			log.info("Saving matches to: " + fileName);
-			File f = new File(Config.DATAPACK_ROOT, fileName);
-			
-			if (f.exists())
+			if ((to - from) > SPLIT_REGIONS)
 			{
-				f.delete();
+				final int middle = (from + to) >>> 1;
+				invokeAll(new SourceHashTask(regions, from, middle), new SourceHashTask(regions, middle, to));
+				return;
 			}
 			
-			try (RandomAccessFile raf = new RandomAccessFile(f, "rw");
-				FileChannel wChannel = raf.getChannel())
-			{
-				ByteBuffer buffer = wChannel.map(FileChannel.MapMode.READ_WRITE, 0, (links.length * 6) + 1);
-				buffer.order(ByteOrder.LITTLE_ENDIAN);
-				buffer.put(version);
-				
-				for (BlockLink link : links)
-				{
-					buffer.putShort((short) link.blockIndex);
-					buffer.put(link.linkMapX);
-					buffer.put(link.linkMapY);
-					buffer.putShort((short) link.linkBlockIndex);
-				}
-			}
-			catch (Exception e)
+			final CRC32 crc32 = new CRC32();
+			
+			for (int i = from; i < to; i++)
 			{
-				log.error("", e);
+				final Region region = regions[i];
+				region.raw.clear();
+				region.size = region.raw.remaining();
+				crc32.update(region.raw);
+				region.crc = (int) crc32.getValue();
+				crc32.reset();
 			}
 		}
+	}
+	
+	/**
+	 * Fills the keys of the blocks of a range of regions, the checksum of a block in the high and its id in the low half.
+	 */
+	static class CheckSumTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final Region[] regions;
+		private final long[] keys;
+		private final int from, to;
 		
 		/**
-		 * Method calcMatches.
-		 * @param curr_checkSums int[]
-		 * @param mapX int
-		 * @param mapY int
-		 * @param putlinks List<BlockLink>
-		 * @param notready boolean[]
+		 * Constructor for CheckSumTask.
+		 * @param _regions Region[]
+		 * @param _keys long[]
+		 * @param _from int
+		 * @param _to int
 		 */
-		private void calcMatches(int[] curr_checkSums, int mapX, int mapY, List<BlockLink> putlinks, boolean[] notready)
+		CheckSumTask(Region[] _regions, long[] _keys, int _from, int _to)
 		{
-			int[] next_checkSums = checkSums[mapX][mapY];
-			
-			if (next_checkSums == null)
-			{
-				return;
-			}
-			
-			int startIdx2;
-			
-			for (int blockIdx = 0; blockIdx < GeoEngine.BLOCKS_IN_MAP; blockIdx++)
-			{
-				if (notready[blockIdx])
-				{
-					startIdx2 = next_checkSums == curr_checkSums ? blockIdx + 1 : 0;
-					
-					for (int blockIdx2 = startIdx2; blockIdx2 < GeoEngine.BLOCKS_IN_MAP; blockIdx2++)
-					{
-						if (curr_checkSums[blockIdx] == next_checkSums[blockIdx2])
-						{
-							if (GeoEngine.compareGeoBlocks(geoX, geoY, blockIdx, mapX, mapY, blockIdx2))
-							{
-								putlinks.add(new BlockLink(blockIdx, (byte) mapX, (byte) mapY, blockIdx2));
-								notready[blockIdx] = false;
-								break;
-							}
-						}
-					}
-				}
-			}
+			regions = _regions;
+			keys = _keys;
+			from = _from;
+			to = _to;
 		}
 		
 		/**
-		 * Method gen.
-		 * @return BlockLink[]
+		 * Method compute.
 		 */
-		private BlockLink[] gen()
+		@Override
+		protected void compute()
 		{
-			log.info("Searching matches for " + rx + "_" + ry);
-			long started = System.currentTimeMillis();
-			boolean[] notready = new boolean[GeoEngine.BLOCKS_IN_MAP];
-			
-			for (int i = 0; i < GeoEngine.BLOCKS_IN_MAP; i++)
+			if ((to - from) > SPLIT_REGIONS)
 			{
-				notready[i] = true;
+				final int middle = (from + to) >>> 1;
+				invokeAll(new CheckSumTask(regions, keys, from, middle), new CheckSumTask(regions, keys, middle, to));
+				return;
 			}
 			
-			List<BlockLink> links = new ArrayList<>();
-			int[] _checkSums = checkSums[geoX][geoY];
-			int n = 0;
+			final CRC32 crc32 = new CRC32();
 			
-			for (int mapX = geoX; mapX < World.WORLD_SIZE_X; mapX++)
+			for (int i = from; i < to; i++)
 			{
-				int startgeoY = mapX == geoX ? geoY : 0;
+				final byte[][] blocks = regions[i].blocks;
+				final int offset = i * GeoEngine.BLOCKS_IN_MAP;
 				
-				for (int mapY = startgeoY; mapY < World.WORLD_SIZE_Y; mapY++)
+				for (int blockIdx = 0; blockIdx < GeoEngine.BLOCKS_IN_MAP; blockIdx++)
 				{
-					calcMatches(_checkSums, mapX, mapY, links, notready);
-					n++;
-					
-					if ((maxScanRegions > 0) && (maxScanRegions == n))
-					{
-						return links.toArray(new BlockLink[links.size()]);
-					}
+					crc32.update(blocks[blockIdx]);
+					keys[offset + blockIdx] = (crc32.getValue() << 32) | (offset + blockIdx);
+					crc32.reset();
 				}
 			}
-			
-			started = System.currentTimeMillis() - started;
-			log.info("Founded " + links.size() + " matches for " + rx + "_" + ry + " in " + (started / 1000f) + "s");
-			return links.toArray(new BlockLink[links.size()]);
-		}
-		
-		/**
-		 * Method runImpl.
-		 */
-		@Override
-		public void runImpl()
-		{
-			if (!exists())
-			{
-				BlockLink[] links = gen();
-				saveToFile(links);
-			}
 		}
 	}
 	
 	/**
-	 * @author Mobius
+	 * Links every block of a range of sorted keys to the first identical block before it, a range never splits the blocks of one checksum.
 	 */
-	static class CheckSumLoader extends RunnableImpl
+	static class MatchTask extends RecursiveAction
 	{
-		private final int geoX, geoY, rx, ry;
-		private final byte[][][] region;
-		private final String fileName;
+		private static final long serialVersionUID = 1L;
+		private final Region[] regions;
+		private final long[] keys;
+		private final int[] links;
+		private final int from, to;
 		
 		/**
-		 * Constructor for CheckSumLoader.
-		 * @param _geoX int
-		 * @param _geoY int
-		 * @param _region byte[][][]
+		 * Constructor for MatchTask.
+		 * @param _regions Region[]
+		 * @param _keys long[]
+		 * @param _links int[]
+		 * @param _from int
+		 * @param _to int
 		 */
-		CheckSumLoader(int _geoX, int _geoY, byte[][][] _region)
+		MatchTask(Region[] _regions, long[] _keys, int[] _links, int _from, int _to)
 		{
-			super();
-			geoX = _geoX;
-			geoY = _geoY;
-			rx = geoX + Config.GEO_X_FIRST;
-			ry = _geoY + Config.GEO_Y_FIRST;
-			region = _region;
-			fileName = "geodata/checksum/" + rx + "_" + ry + ".crc";
+			regions = _regions;
+			keys = _keys;
+			links = _links;
+			from = _from;
+			to = _to;
 		}
 		
 		/**
-		 * Method loadFromFile.
-		 * @return boolean
+		 * Method compute.
 		 */
-		private boolean loadFromFile()
+		@Override
+		protected void compute()
 		{
-			File GeoCrc = new File(Config.DATAPACK_ROOT, fileName);
-			
-			if (!GeoCrc.exists())
-			{
-				return false;
-			}
-			
-			try (RandomAccessFile raf = new RandomAccessFile(GeoCrc, "r");
-				FileChannel roChannel = raf.getChannel();)
+			if ((to - from) > SPLIT_BLOCKS)
 			{
-				if (roChannel.size() != (GeoEngine.BLOCKS_IN_MAP * 4))
+				int middle = (from + to) >>> 1;
+				
+				while ((middle < to) && ((keys[middle] >>> 32) == (keys[middle - 1] >>> 32)))
 				{
-					return false;
+					middle++;
 				}
 				
-				ByteBuffer buffer = roChannel.map(FileChannel.MapMode.READ_ONLY, 0, roChannel.size());
-				buffer.order(ByteOrder.LITTLE_ENDIAN);
-				int[] _checkSums = new int[GeoEngine.BLOCKS_IN_MAP];
-				
-				for (int i = 0; i < GeoEngine.BLOCKS_IN_MAP; i++)
+				if (middle < to)
 				{
-					_checkSums[i] = buffer.getInt();
+					invokeAll(new MatchTask(regions, keys, links, from, middle), new MatchTask(regions, keys, links, middle, to));
+					return;
 				}
-				
-				checkSums[geoX][geoY] = _checkSums;
-				return true;
-			}
-			catch (Exception e)
-			{
-				log.error("", e);
-				return false;
 			}
-		}
-		
-		/**
-		 * Method saveToFile.
-		 */
-		private void saveToFile()
-		{
-			log.info("Saving checksums to: " + fileName);
-			File f = new File(Config.DATAPACK_ROOT, fileName);
 			
-			if (f.exists())
-			{
-				f.delete();
-			}
+			final List<byte[]> distinct = new ArrayList<>();
+			final List<Integer> distinctIds = new ArrayList<>();
 			
-			try (RandomAccessFile raf = new RandomAccessFile(f, "rw");
-				FileChannel wChannel = raf.getChannel())
+			for (int i = from; i < to; i++)
 			{
-				ByteBuffer buffer = wChannel.map(FileChannel.MapMode.READ_WRITE, 0, GeoEngine.BLOCKS_IN_MAP * 4);
-				buffer.order(ByteOrder.LITTLE_ENDIAN);
-				int[] _checkSums = checkSums[geoX][geoY];
+				if ((i == from) || ((keys[i] >>> 32) != (keys[i - 1] >>> 32)))
+				{
+					distinct.clear();
+					distinctIds.clear();
+				}
+				
+				final int id = (int) keys[i];
+				final byte[] block = getBlock(regions, id);
+				links[i] = -1;
 				
-				for (int i = 0; i < GeoEngine.BLOCKS_IN_MAP; i++)
+				for (int j = 0; j < distinct.size(); j++)
 				{
-					buffer.putInt(_checkSums[i]);
+					if (Arrays.equals(distinct.get(j), block))
+					{
+						links[i] = distinctIds.get(j);
+						break;
+					}
+				}
+				
+				if (links[i] == -1)
+				{
+					distinct.add(block);
+					distinctIds.add(id);
 				}
 			}
-			catch (Exception e)
-			{
-				log.error("", e);
-			}
+		}
+	}
+	
+	/**
+	 * Method getBlock.
+	 * @param regions Region[]
+	 * @param id int
+	 * @return byte[]
+	 */
+	static byte[] getBlock(Region[] regions, int id)
+	{
+		return regions[id / GeoEngine.BLOCKS_IN_MAP].blocks[id % GeoEngine.BLOCKS_IN_MAP];
+	}
+	
+	/**
+	 * Method isShared.
+	 * @param block byte[]
+	 * @return boolean true if the block array is used by more than one place
+	 */
+	static boolean isShared(byte[] block)
+	{
+		return !sharedBlocks.isEmpty() && sharedBlocks.contains(block);
+	}
+	
+	/**
+	 * Compacts the main geodata of all loaded regions.
+	 * @param regions Region[] ordered by ix and iy
+	 */
+	static void compact(Region[] regions)
+	{
+		if (regions.length == 0)
+		{
+			return;
 		}
 		
-		/**
-		 * Method gen.
-		 */
-		private void gen()
+		final long started = System.currentTimeMillis();
+		final ForkJoinPool pool = new ForkJoinPool();
+		
+		try
 		{
-			log.info("Generating checksums for " + rx + "_" + ry);
-			int[] _checkSums = new int[GeoEngine.BLOCKS_IN_MAP];
-			CRC32 crc32 = new CRC32();
+			pool.invoke(new SourceHashTask(regions, 0, regions.length));
+			boolean cached = true;
+			ByteBuffer links = loadLinks(regions);
 			
-			for (int i = 0; i < GeoEngine.BLOCKS_IN_MAP; i++)
+			if (links == null)
 			{
-				crc32.update(region[i][0]);
-				_checkSums[i] = (int) (crc32.getValue() ^ 0xFFFFFFFF);
-				crc32.reset();
+				cached = false;
+				log.info("GeoOptimizer: Searching matches of " + regions.length + " regions...");
+				final long[] keys = new long[regions.length * GeoEngine.BLOCKS_IN_MAP];
+				pool.invoke(new CheckSumTask(regions, keys, 0, regions.length));
+				// the ids of one checksum stay in ascending order, so the first of them is never linked
+				Arrays.parallelSort(keys);
+				final int[] matches = new int[keys.length];
+				pool.invoke(new MatchTask(regions, keys, matches, 0, keys.length));
+				links = saveLinks(regions, keys, matches);
 			}
 			
-			checkSums[geoX][geoY] = _checkSums;
-		}
-		
-		/**
-		 * Method runImpl.
-		 */
-		@Override
-		public void runImpl()
-		{
-			if (!loadFromFile())
+			final int count = links.getInt();
+			
+			for (int i = 0; i < count; i++)
 			{
-				gen();
-				saveToFile();
+				final int id = links.getInt();
+				final byte[] block = getBlock(regions, links.getInt());
+				sharedBlocks.add(block);
+				regions[id / GeoEngine.BLOCKS_IN_MAP].blocks[id % GeoEngine.BLOCKS_IN_MAP] = block;
 			}
+			
+			log.info(String.format("GeoEngine: - Compacted %d of %d blocks in %.1fs%s...", count, regions.length * GeoEngine.BLOCKS_IN_MAP, (System.currentTimeMillis() - started) / 1000f, cached ? " from " + fileName : ""));
 		}
-	}
-	
-	/**
-	 * @author Mobius
-	 */
-	static class BlockLink
-	{
-		final int blockIndex, linkBlockIndex;
-		final byte linkMapX, linkMapY;
-		
-		/**
-		 * Constructor for BlockLink.
-		 * @param _blockIndex short
-		 * @param _linkMapX byte
-		 * @param _linkMapY byte
-		 * @param _linkBlockIndex short
-		 */
-		BlockLink(short _blockIndex, byte _linkMapX, byte _linkMapY, short _linkBlockIndex)
+		catch (Exception e)
 		{
-			blockIndex = _blockIndex & 0xFFFF;
-			linkMapX = _linkMapX;
-			linkMapY = _linkMapY;
-			linkBlockIndex = _linkBlockIndex & 0xFFFF;
+			log.error("GeoOptimizer: could not compact geodata", e);
 		}
-		
-		/**
-		 * Constructor for BlockLink.
-		 * @param _blockIndex int
-		 * @param _linkMapX byte
-		 * @param _linkMapY byte
-		 * @param _linkBlockIndex int
-		 */
-		BlockLink(int _blockIndex, byte _linkMapX, byte _linkMapY, int _linkBlockIndex)
+		finally
 		{
-			blockIndex = _blockIndex & 0xFFFF;
-			linkMapX = _linkMapX;
-			linkMapY = _linkMapY;
-			linkBlockIndex = _linkBlockIndex & 0xFFFF;
+			pool.shutdown();
 		}
 	}
 	
 	/**
-	 * Method loadBlockMatches.
-	 * @param fileName String
-	 * @return BlockLink[]
+	 * Maps the saved links.
+	 * @param regions Region[]
+	 * @return ByteBuffer positioned at the link count, or null if the file is missing or saved for other source files
 	 */
-	static BlockLink[] loadBlockMatches(String fileName)
+	private static ByteBuffer loadLinks(Region[] regions)
 	{
 		File f = new File(Config.DATAPACK_ROOT, fileName);
 		
@@ -388,23 +359,35 @@ class GeoOptimizer
 		try (RandomAccessFile raf = new RandomAccessFile(f, "r");
 			FileChannel roChannel = raf.getChannel())
 		{
-			int count = (int) ((roChannel.size() - 1) / 6);
+			final long headerSize = 1 + 4 + (regions.length * 10) + 4;
+			
+			if (roChannel.size() < headerSize)
+			{
+				return null;
+			}
+			
 			ByteBuffer buffer = roChannel.map(FileChannel.MapMode.READ_ONLY, 0, roChannel.size());
 			buffer.order(ByteOrder.LITTLE_ENDIAN);
 			
-			if (buffer.get() != version)
+			if ((buffer.get() != version) || (buffer.getInt() != regions.length))
 			{
 				return null;
 			}
 			
-			BlockLink[] links = new BlockLink[count];
+			for (Region region : regions)
+			{
+				if ((buffer.get() != region.ix) || (buffer.get() != region.iy) || (buffer.getInt() != region.size) || (buffer.getInt() != region.crc))
+				{
+					return null;
+				}
+			}
 			
-			for (int i = 0; i < links.length; i++)
+			if (roChannel.size() != (headerSize + (buffer.getInt(buffer.position()) * 8L)))
 			{
-				links[i] = new BlockLink(buffer.getShort(), buffer.get(), buffer.get(), buffer.getShort());
+				return null;
 			}
 			
-			return links;
+			return buffer;
 		}
 		catch (Exception e)
 		{
@@ -412,4 +395,66 @@ class GeoOptimizer
 			return null;
 		}
 	}
+	
+	/**
+	 * Saves the links of all linked blocks with the hashes of the source files.
+	 * @param regions Region[]
+	 * @param keys long[] sorted
+	 * @param matches int[] id of the block a key is linked to or -1
+	 * @return ByteBuffer positioned at the link count
+	 * @throws Exception
+	 */
+	private static ByteBuffer saveLinks(Region[] regions, long[] keys, int[] matches) throws Exception
+	{
+		int count = 0;
+		
+		for (int match : matches)
+		{
+			if (match != -1)
+			{
+				count++;
+			}
+		}
+		
+		log.info("Saving " + count + " matches to: " + fileName);
+		File f = new File(Config.DATAPACK_ROOT, fileName);
+		
+		if (f.exists())
+		{
+			f.delete();
+		}
+		
+		final int headerSize = 1 + 4 + (regions.length * 10);
+		
+		try (RandomAccessFile raf = new RandomAccessFile(f, "rw");
+			FileChannel wChannel = raf.getChannel())
+		{
+			ByteBuffer buffer = wChannel.map(FileChannel.MapMode.READ_WRITE, 0, headerSize + 4 + (count * 8L));
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			buffer.put(version);
+			buffer.putInt(regions.length);
+			
+			for (Region region : regions)
+			{
+				buffer.put((byte) region.ix);
+				buffer.put((byte) region.iy);
+				buffer.putInt(region.size);
+				buffer.putInt(region.crc);
+			}
+			
+			buffer.putInt(count);
+			
+			for (int i = 0; i < matches.length; i++)
+			{
+				if (matches[i] != -1)
+				{
+					buffer.putInt((int) keys[i]);
+					buffer.putInt(matches[i]);
+				}
+			}
+			
+			buffer.position(headerSize);
+			return buffer;
+		}
+	}
 }
@@ -0,0 +1,265 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.geodata;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lineage2.gameserver.Config;
+
+/**
+ * Bounded cache of line of sight results, keyed by geoIndex and the geodata cells and heights of both ends.<br>
+ * Every sector of 128x128 cells has a generation that applying or removing a collision in it increases. A result is only used while the generations of the sectors its line crosses are unchanged.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+final class LosCache
+{
+	private static final int SECTOR_SHIFT = 7;
+	private static final int REGION_SECTORS_SHIFT = 11 - SECTOR_SHIFT;
+	private static final int GENERATION_STRIPES = 1 << 14;
+	private static final AtomicIntegerArray _generations = new AtomicIntegerArray(GENERATION_STRIPES);
+	private static final Entry[] _entries;
+	private static final int _mask;
+	private static final LongAdder _hits = new LongAdder();
+	private static final LongAdder _misses = new LongAdder();
+	private static final LongAdder _uncached = new LongAdder();
+	static
+	{
+		int size = 0;
+		
+		if (Config.GEO_LOS_CACHE_SIZE > 0)
+		{
+			size = Integer.highestOneBit(Config.GEO_LOS_CACHE_SIZE);
+			
+			if (size < Config.GEO_LOS_CACHE_SIZE)
+			{
+				size <<= 1;
+			}
+		}
+		
+		_entries = new Entry[size];
+		_mask = size - 1;
+	}
+	
+	/**
+	 * One cached result, never changed once published.
+	 */
+	private static final class Entry
+	{
+		final int geoIndex;
+		final int x, y, z, tx, ty, tz;
+		final boolean air;
+		final int generation;
+		final boolean result;
+		
+		/**
+		 * Constructor for Entry.
+		 * @param geoIndex int
+		 * @param x int
+		 * @param y int
+		 * @param z int
+		 * @param tx int
+		 * @param ty int
+		 * @param tz int
+		 * @param air boolean
+		 * @param generation int
+		 * @param result boolean
+		 */
+		Entry(int geoIndex, int x, int y, int z, int tx, int ty, int tz, boolean air, int generation, boolean result)
+		{
+			this.geoIndex = geoIndex;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.tx = tx;
+			this.ty = ty;
+			this.tz = tz;
+			this.air = air;
+			this.generation = generation;
+			this.result = result;
+		}
+		
+		/**
+		 * Method matches.
+		 * @param geoIndex int
+		 * @param x int
+		 * @param y int
+		 * @param z int
+		 * @param tx int
+		 * @param ty int
+		 * @param tz int
+		 * @param air boolean
+		 * @return boolean
+		 */
+		boolean matches(int geoIndex, int x, int y, int z, int tx, int ty, int tz, boolean air)
+		{
+			return (this.x == x) && (this.y == y) && (this.tx == tx) && (this.ty == ty) && (this.z == z) && (this.tz == tz) && (this.geoIndex == geoIndex) && (this.air == air);
+		}
+	}
+	
+	/**
+	 * Constructor for LosCache.
+	 */
+	private LosCache()
+	{
+	}
+	
+	/**
+	 * Method canSee.
+	 * @param x int geodata cell
+	 * @param y int geodata cell
+	 * @param z int
+	 * @param tx int geodata cell
+	 * @param ty int geodata cell
+	 * @param tz int
+	 * @param air boolean
+	 * @param geoIndex int
+	 * @return boolean
+	 */
+	static boolean canSee(int x, int y, int z, int tx, int ty, int tz, boolean air, int geoIndex)
+	{
+		if (_entries.length == 0)
+		{
+			return GeoEngine.canSeeCells(x, y, z, tx, ty, tz, air, geoIndex);
+		}
+		
+		// the check runs both ways, so both ends are stored in one order
+		if ((x > tx) || ((x == tx) && ((y > ty) || ((y == ty) && (z > tz)))))
+		{
+			int swap = x;
+			x = tx;
+			tx = swap;
+			swap = y;
+			y = ty;
+			ty = swap;
+			swap = z;
+			z = tz;
+			tz = swap;
+		}
+		
+		final int sx = x >> SECTOR_SHIFT;
+		final int tsx = tx >> SECTOR_SHIFT;
+		final int sy = Math.min(y, ty) >> SECTOR_SHIFT;
+		final int tsy = Math.max(y, ty) >> SECTOR_SHIFT;
+		
+		// longer lines are rare and would depend on too many sectors
+		if (((tsx - sx) > 1) || ((tsy - sy) > 1))
+		{
+			_uncached.increment();
+			return GeoEngine.canSeeCells(x, y, z, tx, ty, tz, air, geoIndex);
+		}
+		
+		int generation = 0;
+		
+		for (int i = sx; i <= tsx; i++)
+		{
+			for (int j = sy; j <= tsy; j++)
+			{
+				generation += _generations.get(stripe(geoIndex, i, j));
+			}
+		}
+		
+		int hash = geoIndex;
+		hash = (31 * hash) + x;
+		hash = (31 * hash) + y;
+		hash = (31 * hash) + z;
+		hash = (31 * hash) + tx;
+		hash = (31 * hash) + ty;
+		hash = (31 * hash) + tz;
+		hash ^= hash >>> 16;
+		final int index = hash & _mask;
+		final Entry entry = _entries[index];
+		
+		if ((entry != null) && (entry.generation == generation) && entry.matches(geoIndex, x, y, z, tx, ty, tz, air))
+		{
+			_hits.increment();
+			return entry.result;
+		}
+		
+		_misses.increment();
+		final boolean result = GeoEngine.canSeeCells(x, y, z, tx, ty, tz, air, geoIndex);
+		_entries[index] = new Entry(geoIndex, x, y, z, tx, ty, tz, air, generation, result);
+		return result;
+	}
+	
+	/**
+	 * Drops the results of lines crossing the given cells, to be called once the geodata there changed.
+	 * @param minX int geodata cell
+	 * @param minY int geodata cell
+	 * @param maxX int geodata cell
+	 * @param maxY int geodata cell
+	 * @param geoIndex int
+	 */
+	static void invalidate(int minX, int minY, int maxX, int maxY, int geoIndex)
+	{
+		if (_entries.length == 0)
+		{
+			return;
+		}
+		
+		for (int i = minX >> SECTOR_SHIFT; i <= (maxX >> SECTOR_SHIFT); i++)
+		{
+			for (int j = minY >> SECTOR_SHIFT; j <= (maxY >> SECTOR_SHIFT); j++)
+			{
+				_generations.incrementAndGet(stripe(geoIndex, i, j));
+			}
+		}
+	}
+	
+	/**
+	 * Drops the results of a whole region, to be called once it is loaded again under the same geoIndex.
+	 * @param ix int region
+	 * @param iy int region
+	 * @param geoIndex int
+	 */
+	static void invalidateRegion(int ix, int iy, int geoIndex)
+	{
+		invalidate(ix << 11, iy << 11, ((ix + 1) << 11) - 1, ((iy + 1) << 11) - 1, geoIndex);
+	}
+	
+	/**
+	 * Method stripe.
+	 * @param geoIndex int
+	 * @param sx int sector
+	 * @param sy int sector
+	 * @return int generation counter of the sector
+	 */
+	private static int stripe(int geoIndex, int sx, int sy)
+	{
+		// outside of its own region a reflection reads the main geodata
+		if (((geoIndex & 0x0f000000) != 0x0f000000) || ((sx >> REGION_SECTORS_SHIFT) != ((geoIndex & 0x00ff0000) >> 16)) || ((sy >> REGION_SECTORS_SHIFT) != ((geoIndex & 0x0000ff00) >> 8)))
+		{
+			geoIndex = 0;
+		}
+		
+		int hash = (((geoIndex * 31) + sx) * 31) + sy;
+		hash ^= hash >>> 16;
+		return hash & (GENERATION_STRIPES - 1);
+	}
+	
+	/**
+	 * Method getStats.
+	 * @return CharSequence
+	 */
+	static CharSequence getStats()
+	{
+		final StringBuilder list = new StringBuilder();
+		final long hits = _hits.sum();
+		final long misses = _misses.sum();
+		list.append("LOS cache size: ").append(_entries.length).append('\n');
+		list.append("LOS cache hits: ").append(hits).append(", misses: ").append(misses).append(", uncached: ").append(_uncached.sum()).append('\n');
+		list.append("LOS cache hit rate: ").append(String.format("%.2f%%", (hits + misses) == 0 ? 0. : (hits * 100.) / (hits + misses))).append('\n');
+		return list;
+	}
+}
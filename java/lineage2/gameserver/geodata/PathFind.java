@@ -20,10 +20,10 @@ import static lineage2.gameserver.geodata.GeoEngine.SOUTH;
 import static lineage2.gameserver.geodata.GeoEngine.WEST;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import lineage2.gameserver.Config;
-import lineage2.gameserver.geodata.PathFindBuffers.GeoNode;
 import lineage2.gameserver.geodata.PathFindBuffers.PathFindBuffer;
 import lineage2.gameserver.model.GameObject;
 import lineage2.gameserver.utils.Location;
@@ -39,7 +39,6 @@ class PathFind
 	private List<Location> path;
 	private final short[] hNSWE = new short[2];
 	private final Location startPoint, endPoint;
-	private GeoNode startNode, endNode, currentNode;
 	
 	/**
 	 * Constructor for PathFind.
@@ -81,16 +80,21 @@ class PathFind
 		{
 			buff.offsetX = startPoint.getX() - (buff.mapSize / 2);
 			buff.offsetY = startPoint.getY() - (buff.mapSize / 2);
-			buff.totalUses++;
+			buff.stats.totalUses.increment();
 			
 			if (obj.isPlayable())
 			{
-				buff.playableUses++;
+				buff.stats.playableUses.increment();
 			}
 			
-			findPath();
-			buff.free();
-			PathFindBuffers.recycle(buff);
+			try
+			{
+				findPath();
+			}
+			finally
+			{
+				PathFindBuffers.recycle(buff);
+			}
 		}
 	}
 	
@@ -100,45 +104,39 @@ class PathFind
 	 */
 	private List<Location> findPath()
 	{
-		startNode = buff.nodes[startPoint.getX() - buff.offsetX][startPoint.getY() - buff.offsetY].set(startPoint.getX(), startPoint.getY(), (short) startPoint.getZ());
+		int startNode = buff.index(startPoint.getX(), startPoint.getY());
 		GeoEngine.NgetHeightAndNSWE(startPoint.getX(), startPoint.getY(), (short) startPoint.getZ(), hNSWE, geoIndex);
-		startNode.setZ(hNSWE[0]);
-		startNode.nswe = hNSWE[1];
-		startNode.costFromStart = 0f;
-		startNode.state = GeoNode.OPENED;
-		startNode.parent = null;
-		endNode = buff.nodes[endPoint.getX() - buff.offsetX][endPoint.getY() - buff.offsetY].set(endPoint.getX(), endPoint.getY(), (short) endPoint.getZ());
-		startNode.costToEnd = pathCostEstimate(startNode);
-		startNode.totalCost = startNode.costFromStart + startNode.costToEnd;
-		buff.open.add(startNode);
+		buff.set(startNode, hNSWE[0], hNSWE[1]);
+		buff.costToEnd[startNode] = pathCostEstimate(startPoint.getX(), startPoint.getY(), hNSWE[0]);
+		buff.open(startNode);
 		long nanos = System.nanoTime();
 		long searhTime = 0;
 		int itr = 0;
+		int currentNode;
 		
-		while (((searhTime = System.nanoTime() - nanos) < Config.PATHFIND_MAX_TIME) && ((currentNode = buff.open.poll()) != null))
+		while (((searhTime = System.nanoTime() - nanos) < Config.PATHFIND_MAX_TIME) && ((currentNode = buff.poll()) != -1))
 		{
 			itr++;
 			
-			if ((currentNode.getX() == endPoint.getX()) && (currentNode.getY() == endPoint.getY()) && (Math.abs(currentNode.getZ() - endPoint.getZ()) < 64))
+			if ((buff.getX(currentNode) == endPoint.getX()) && (buff.getY(currentNode) == endPoint.getY()) && (Math.abs(buff.z[currentNode] - endPoint.getZ()) < 64))
 			{
 				path = tracePath(currentNode);
 				break;
 			}
 			
 			handleNode(currentNode);
-			currentNode.state = GeoNode.CLOSED;
 		}
 		
-		buff.totalTime += searhTime;
-		buff.totalItr += itr;
+		buff.stats.totalTime.add(searhTime);
+		buff.stats.totalItr.add(itr);
 		
 		if (path != null)
 		{
-			buff.successUses++;
+			buff.stats.successUses.increment();
 		}
 		else if (searhTime > Config.PATHFIND_MAX_TIME)
 		{
-			buff.overtimeUses++;
+			buff.stats.overtimeUses.increment();
 		}
 		
 		return path;
@@ -146,34 +144,34 @@ class PathFind
 	
 	/**
 	 * Method tracePath.
-	 * @param f GeoNode
+	 * @param f int node
 	 * @return List<Location>
 	 */
-	private List<Location> tracePath(GeoNode f)
+	private List<Location> tracePath(int f)
 	{
 		List<Location> locations = new ArrayList<>();
 		
 		do
 		{
-			locations.add(0, f.getLoc());
-			f = f.parent;
+			locations.add(new Location(buff.getX(f), buff.getY(f), buff.z[f]));
+			f = buff.parent[f];
 		}
-		while (f.parent != null);
+		while (buff.parent[f] != -1);
 		
+		Collections.reverse(locations);
 		return locations;
 	}
 	
 	/**
 	 * Method handleNode.
-	 * @param node GeoNode
+	 * @param node int
 	 */
-	private void handleNode(GeoNode node)
+	private void handleNode(int node)
 	{
-		int clX = node.getX();
-		int clY = node.getY();
-		short clZ = node.getZ();
-		getHeightAndNSWE(clX, clY, clZ);
-		short NSWE = hNSWE[1];
+		int clX = buff.getX(node);
+		int clY = buff.getY(node);
+		short clZ = buff.z[node];
+		short NSWE = buff.nswe[node];
 		
 		if (Config.PATHFIND_DIAGONAL)
 		{
@@ -261,55 +259,61 @@ class PathFind
 	
 	/**
 	 * Method pathCostEstimate.
-	 * @param n GeoNode
+	 * @param x int
+	 * @param y int
+	 * @param z int
 	 * @return float
 	 */
-	private float pathCostEstimate(GeoNode n)
+	private float pathCostEstimate(int x, int y, int z)
 	{
-		int diffx = endNode.getX() - n.getX();
-		int diffy = endNode.getY() - n.getY();
-		int diffz = endNode.getZ() - n.getZ();
+		int diffx = endPoint.getX() - x;
+		int diffy = endPoint.getY() - y;
+		int diffz = endPoint.getZ() - z;
 		return (float) Math.sqrt((diffx * diffx) + (diffy * diffy) + ((diffz * diffz) / 256));
 	}
 	
 	/**
 	 * Method traverseCost.
-	 * @param from GeoNode
-	 * @param n GeoNode
+	 * @param from int node
+	 * @param x int
+	 * @param y int
+	 * @param n int node
 	 * @param d boolean
 	 * @return float
 	 */
-	private float traverseCost(GeoNode from, GeoNode n, boolean d)
+	private float traverseCost(int from, int x, int y, int n, boolean d)
 	{
-		if ((n.nswe != NSWE_ALL) || (Math.abs(n.getZ() - from.getZ()) > 16))
+		short z = buff.z[n];
+		
+		if ((buff.nswe[n] != NSWE_ALL) || (Math.abs(z - buff.z[from]) > 16))
 		{
 			return 3f;
 		}
 		
-		getHeightAndNSWE(n.getX() + 1, n.getY(), n.getZ());
+		getHeightAndNSWE(x + 1, y, z);
 		
-		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(n.getZ() - hNSWE[0]) > 16))
+		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(z - hNSWE[0]) > 16))
 		{
 			return 2f;
 		}
 		
-		getHeightAndNSWE(n.getX() - 1, n.getY(), n.getZ());
+		getHeightAndNSWE(x - 1, y, z);
 		
-		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(n.getZ() - hNSWE[0]) > 16))
+		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(z - hNSWE[0]) > 16))
 		{
 			return 2f;
 		}
 		
-		getHeightAndNSWE(n.getX(), n.getY() + 1, n.getZ());
+		getHeightAndNSWE(x, y + 1, z);
 		
-		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(n.getZ() - hNSWE[0]) > 16))
+		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(z - hNSWE[0]) > 16))
 		{
 			return 2f;
 		}
 		
-		getHeightAndNSWE(n.getX(), n.getY() - 1, n.getZ());
+		getHeightAndNSWE(x, y - 1, z);
 		
-		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(n.getZ() - hNSWE[0]) > 16))
+		if ((hNSWE[1] != NSWE_ALL) || (Math.abs(z - hNSWE[0]) > 16))
 		{
 			return 2f;
 		}
@@ -321,62 +325,47 @@ class PathFind
 	 * Method handleNeighbour.
 	 * @param x int
 	 * @param y int
-	 * @param from GeoNode
+	 * @param from int node
 	 * @param d boolean
 	 */
-	private void handleNeighbour(int x, int y, GeoNode from, boolean d)
+	private void handleNeighbour(int x, int y, int from, boolean d)
 	{
-		int nX = x - buff.offsetX, nY = y - buff.offsetY;
+		int n = buff.index(x, y);
 		
-		if ((nX >= buff.mapSize) || (nX < 0) || (nY >= buff.mapSize) || (nY < 0))
+		if (n == -1)
 		{
 			return;
 		}
 		
-		GeoNode n = buff.nodes[nX][nY];
-		float newCost;
+		short fromZ = buff.z[from];
 		
-		if (!n.isSet())
+		if (!buff.isSet(n))
 		{
-			n = n.set(x, y, from.getZ());
-			GeoEngine.NgetHeightAndNSWE(x, y, from.getZ(), hNSWE, geoIndex);
-			n.setZ(hNSWE[0]);
-			n.nswe = hNSWE[1];
+			GeoEngine.NgetHeightAndNSWE(x, y, fromZ, hNSWE, geoIndex);
+			buff.set(n, hNSWE[0], hNSWE[1]);
 		}
 		
-		int height = Math.abs(n.getZ() - from.getZ());
+		int height = Math.abs(buff.z[n] - fromZ);
 		
-		if ((height > Config.PATHFIND_MAX_Z_DIFF) || (n.nswe == NSWE_NONE))
+		if ((height > Config.PATHFIND_MAX_Z_DIFF) || (buff.nswe[n] == NSWE_NONE))
 		{
 			return;
 		}
 		
-		newCost = from.costFromStart + traverseCost(from, n, d);
+		float newCost = buff.costFromStart[from] + traverseCost(from, x, y, n, d);
 		
-		if ((n.state == GeoNode.OPENED) || (n.state == GeoNode.CLOSED))
+		if (buff.state[n] == PathFindBuffer.NONE)
 		{
-			if (n.costFromStart <= newCost)
-			{
-				return;
-			}
+			buff.costToEnd[n] = pathCostEstimate(x, y, buff.z[n]);
 		}
-		
-		if (n.state == GeoNode.NONE)
-		{
-			n.costToEnd = pathCostEstimate(n);
-		}
-		
-		n.parent = from;
-		n.costFromStart = newCost;
-		n.totalCost = n.costFromStart + n.costToEnd;
-		
-		if (n.state == GeoNode.OPENED)
+		else if (buff.costFromStart[n] <= newCost)
 		{
 			return;
 		}
 		
-		n.state = GeoNode.OPENED;
-		buff.open.add(n);
+		buff.parent[n] = from;
+		buff.costFromStart[n] = newCost;
+		buff.open(n);
 	}
 	
 	/**
@@ -387,27 +376,23 @@ class PathFind
 	 */
 	private void getHeightAndNSWE(int x, int y, short z)
 	{
-		int nX = x - buff.offsetX, nY = y - buff.offsetY;
+		int n = buff.index(x, y);
 		
-		if ((nX >= buff.mapSize) || (nX < 0) || (nY >= buff.mapSize) || (nY < 0))
+		if (n == -1)
 		{
 			hNSWE[1] = NSWE_NONE;
 			return;
 		}
 		
-		GeoNode n = buff.nodes[nX][nY];
-		
-		if (!n.isSet())
+		if (!buff.isSet(n))
 		{
-			n = n.set(x, y, z);
 			GeoEngine.NgetHeightAndNSWE(x, y, z, hNSWE, geoIndex);
-			n.setZ(hNSWE[0]);
-			n.nswe = hNSWE[1];
+			buff.set(n, hNSWE[0], hNSWE[1]);
 		}
 		else
 		{
-			hNSWE[0] = n.getZ();
-			hNSWE[1] = n.nswe;
+			hNSWE[0] = buff.z[n];
+			hNSWE[1] = buff.nswe[n];
 		}
 	}
 	
@@ -12,19 +12,14 @@
  */
 package lineage2.gameserver.geodata;
 
+import java.lang.ref.SoftReference;
 import java.util.Arrays;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
-
-import lineage2.gameserver.Config;
-import lineage2.gameserver.utils.Location;
-import gnu.trove.iterator.TIntIntIterator;
-import gnu.trove.map.hash.TIntIntHashMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
+ * Every thread searching a path keeps its own buffer, so searches on different threads never wait for each other.<br>
+ * A buffer grows to the largest map size its thread needed so far and is only softly held, so the memory of rarely used large buffers can be reclaimed.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
@@ -33,115 +28,21 @@ class PathFindBuffers
 	private final static int MIN_MAP_SIZE = 1 << 6;
 	private final static int STEP_MAP_SIZE = 1 << 5;
 	private final static int MAX_MAP_SIZE = 1 << 9;
-	private static final TIntObjectHashMap<PathFindBuffer[]> buffers = new TIntObjectHashMap<>();
-	private static int[] sizes = new int[0];
-	private static final Lock lock = new ReentrantLock();
+	private static final ThreadLocal<SoftReference<PathFindBuffer>> buffers = new ThreadLocal<>();
+	private static final AtomicInteger created = new AtomicInteger();
+	private static final SizeStats[] stats = new SizeStats[(MAX_MAP_SIZE / STEP_MAP_SIZE) + 1];
 	static
 	{
-		TIntIntHashMap config = new TIntIntHashMap();
-		String[] k;
-		
-		for (String e : Config.PATHFIND_BUFFERS.split(";"))
-		{
-			if (!e.isEmpty() && ((k = e.split("x")).length == 2))
-			{
-				config.put(Integer.valueOf(k[1]), Integer.valueOf(k[0]));
-			}
-		}
-		
-		TIntIntIterator itr = config.iterator();
-		
-		while (itr.hasNext())
+		for (int i = 0; i < stats.length; i++)
 		{
-			itr.advance();
-			int size = itr.key();
-			int count = itr.value();
-			PathFindBuffer[] buff = new PathFindBuffer[count];
-			
-			for (int i = 0; i < count; i++)
-			{
-				buff[i] = new PathFindBuffer(size);
-			}
-			
-			buffers.put(size, buff);
-		}
-		
-		sizes = config.keys();
-		Arrays.sort(sizes);
-	}
-	
-	/**
-	 * Method create.
-	 * @param mapSize int
-	 * @return PathFindBuffer
-	 */
-	private static PathFindBuffer create(int mapSize)
-	{
-		lock.lock();
-		
-		try
-		{
-			PathFindBuffer buffer;
-			PathFindBuffer[] buff = buffers.get(mapSize);
-			
-			if (buff != null)
-			{
-				buff = lineage2.commons.lang.ArrayUtils.add(buff, buffer = new PathFindBuffer(mapSize));
-			}
-			else
-			{
-				buff = new PathFindBuffer[]
-				{
-					buffer = new PathFindBuffer(mapSize)
-				};
-				sizes = org.apache.commons.lang3.ArrayUtils.add(sizes, mapSize);
-				Arrays.sort(sizes);
-			}
-			
-			buffers.put(mapSize, buff);
-			buffer.inUse = true;
-			return buffer;
-		}
-		finally
-		{
-			lock.unlock();
-		}
-	}
-	
-	/**
-	 * Method get.
-	 * @param mapSize int
-	 * @return PathFindBuffer
-	 */
-	private static PathFindBuffer get(int mapSize)
-	{
-		lock.lock();
-		
-		try
-		{
-			PathFindBuffer[] buff = buffers.get(mapSize);
-			
-			for (PathFindBuffer buffer : buff)
-			{
-				if (!buffer.inUse)
-				{
-					buffer.inUse = true;
-					return buffer;
-				}
-			}
-			
-			return null;
-		}
-		finally
-		{
-			lock.unlock();
+			stats[i] = new SizeStats();
 		}
 	}
 	
 	/**
 	 * Method alloc.
 	 * @param mapSize int
-	 * @return PathFindBuffer
+	 * @return PathFindBuffer or null if the map is too large
 	 */
 	static PathFindBuffer alloc(int mapSize)
 	{
@@ -157,31 +58,31 @@ class PathFindBuffers
 			mapSize = MIN_MAP_SIZE;
 		}
 		
-		PathFindBuffer buffer = null;
+		mapSize = ((mapSize + STEP_MAP_SIZE) - 1) & -STEP_MAP_SIZE;
 		
-		for (int size : sizes)
+		if (mapSize > MAX_MAP_SIZE)
 		{
-			if (size >= mapSize)
-			{
-				mapSize = size;
-				buffer = get(mapSize);
-				break;
-			}
+			return null;
 		}
 		
-		if (buffer == null)
+		final SoftReference<PathFindBuffer> ref = buffers.get();
+		PathFindBuffer buffer = ref == null ? null : ref.get();
+		
+		if ((buffer == null) || (buffer.capacity < mapSize))
 		{
-			for (int size = MIN_MAP_SIZE; size < MAX_MAP_SIZE; size += STEP_MAP_SIZE)
-			{
-				if (size >= mapSize)
-				{
-					mapSize = size;
-					buffer = create(mapSize);
-					break;
-				}
-			}
+			buffer = new PathFindBuffer(mapSize);
+			buffers.set(new SoftReference<>(buffer));
+			created.incrementAndGet();
+		}
+		else if (buffer.inUse)
+		{
+			// a search started while another one of the same thread runs, should not happen
+			buffer = new PathFindBuffer(mapSize);
 		}
 		
+		buffer.reset(mapSize);
+		buffer.stats = stats[mapSize / STEP_MAP_SIZE];
+		buffer.inUse = true;
 		return buffer;
 	}
 	
@@ -191,222 +92,303 @@ class PathFindBuffers
 	 */
 	static void recycle(PathFindBuffer buffer)
 	{
-		lock.lock();
-		
-		try
-		{
-			buffer.inUse = false;
-		}
-		finally
-		{
-			lock.unlock();
-		}
+		buffer.inUse = false;
 	}
 	
 	/**
-	 * @author Mobius
+	 * Method getStats.
+	 * @return CharSequence
 	 */
-	static class PathFindBuffer
+	static CharSequence getStats()
 	{
-		final int mapSize;
-		final GeoNode[][] nodes;
-		final Queue<GeoNode> open;
-		int offsetX, offsetY;
-		boolean inUse;
-		long totalUses;
-		long successUses;
-		long overtimeUses;
-		long playableUses;
-		long totalTime;
-		long totalItr;
+		final StringBuilder list = new StringBuilder();
+		list.append("PathFind buffers created: ").append(created.get()).append('\n');
 		
-		/**
-		 * Constructor for PathFindBuffer.
-		 * @param mapSize int
-		 */
-		PathFindBuffer(int mapSize)
+		for (int i = 0; i < stats.length; i++)
 		{
-			open = new PriorityQueue<>(mapSize);
-			this.mapSize = mapSize;
-			nodes = new GeoNode[mapSize][mapSize];
+			final SizeStats s = stats[i];
+			final long totalUses = s.totalUses.sum();
 			
-			for (int i = 0; i < nodes.length; i++)
+			if (totalUses == 0)
 			{
-				for (int j = 0; j < nodes[i].length; j++)
-				{
-					nodes[i][j] = new GeoNode();
-				}
+				continue;
 			}
-		}
-		
-		/**
-		 * Method free.
-		 */
-		void free()
-		{
-			open.clear();
 			
-			for (GeoNode[] node : nodes)
-			{
-				for (GeoNode element : node)
-				{
-					element.free();
-				}
-			}
+			final int size = i * STEP_MAP_SIZE;
+			list.append("PathFind map ").append(size).append('x').append(size);
+			list.append(", uses: ").append(totalUses).append(", success: ").append(s.successUses.sum()).append(", overtime: ").append(s.overtimeUses.sum()).append(", playable: ").append(s.playableUses.sum());
+			list.append(", avg time: ").append(s.totalTime.sum() / totalUses / 1000L).append(" us, avg itr: ").append(s.totalItr.sum() / totalUses).append('\n');
 		}
+		
+		return list;
 	}
 	
 	/**
+	 * Searches of one map size.
+	 */
+	static class SizeStats
+	{
+		final LongAdder totalUses = new LongAdder();
+		final LongAdder successUses = new LongAdder();
+		final LongAdder overtimeUses = new LongAdder();
+		final LongAdder playableUses = new LongAdder();
+		final LongAdder totalTime = new LongAdder();
+		final LongAdder totalItr = new LongAdder();
+	}
+	
+	/**
+	 * Nodes of a search kept in parallel arrays, a node is the index nx * mapSize + ny of its cell in the map.<br>
+	 * A node only counts as set when its stamp is the one of the current search, so nothing has to be cleared between searches.
 	 * @author Mobius
 	 */
-	static class GeoNode implements Comparable<GeoNode>
+	static class PathFindBuffer
 	{
-		final static int NONE = 0;
-		final static int OPENED = 1;
-		final static int CLOSED = -1;
-		int x, y;
-		short z, nswe;
-		float totalCost, costFromStart, costToEnd;
-		int state;
-		GeoNode parent;
-		
+		final static byte NONE = 0;
+		final static byte OPENED = 1;
+		final static byte CLOSED = -1;
+		final int capacity;
+		final int[] stamp;
+		final short[] z;
+		final short[] nswe;
+		final float[] costFromStart;
+		final float[] costToEnd;
+		final byte[] state;
+		final int[] parent;
 		/**
-		 * Constructor for GeoNode.
+		 * Position of an opened node in the heap.
 		 */
-		public GeoNode()
-		{
-			nswe = -1;
-		}
+		final int[] heapIndex;
+		/**
+		 * Binary min heap of the opened nodes by total cost.
+		 */
+		final int[] heap;
+		int heapSize;
+		int mapSize;
+		int offsetX, offsetY;
+		int search;
+		boolean inUse;
+		SizeStats stats;
 		
 		/**
-		 * Method set.
-		 * @param x int
-		 * @param y int
-		 * @param z short
-		 * @return GeoNode
+		 * Constructor for PathFindBuffer.
+		 * @param capacity int largest map size
 		 */
-		GeoNode set(int x, int y, short z)
+		PathFindBuffer(int capacity)
 		{
-			setX(x);
-			setY(y);
-			setZ(z);
-			return this;
+			this.capacity = capacity;
+			final int nodes = capacity * capacity;
+			stamp = new int[nodes];
+			z = new short[nodes];
+			nswe = new short[nodes];
+			costFromStart = new float[nodes];
+			costToEnd = new float[nodes];
+			state = new byte[nodes];
+			parent = new int[nodes];
+			heapIndex = new int[nodes];
+			heap = new int[nodes];
 		}
 		
 		/**
-		 * Method getX.
-		 * @return x int
+		 * Method reset.
+		 * @param mapSize int
 		 */
-		int getX()
+		void reset(int mapSize)
 		{
-			return x;
+			this.mapSize = mapSize;
+			heapSize = 0;
+			
+			if (++search == 0)
+			{
+				Arrays.fill(stamp, 0);
+				search = 1;
+			}
 		}
 		
 		/**
-		 * Method getY.
-		 * @return y int
+		 * Method index.
+		 * @param x int
+		 * @param y int
+		 * @return int node or -1 if outside of the map
 		 */
-		int getY()
+		int index(int x, int y)
 		{
-			return y;
+			int nX = x - offsetX, nY = y - offsetY;
+			
+			if ((nX >= mapSize) || (nX < 0) || (nY >= mapSize) || (nY < 0))
+			{
+				return -1;
+			}
+			
+			return (nX * mapSize) + nY;
 		}
 		
 		/**
-		 * Method getZ.
-		 * @return z short
+		 * Method getX.
+		 * @param node int
+		 * @return int
 		 */
-		short getZ()
+		int getX(int node)
 		{
-			return z;
+			return offsetX + (node / mapSize);
 		}
 		
 		/**
-		 * Method setX.
-		 * @param newX int
+		 * Method getY.
+		 * @param node int
+		 * @return int
 		 */
-		void setX(int newX)
+		int getY(int node)
 		{
-			x = newX;
+			return offsetY + (node % mapSize);
 		}
 		
 		/**
-		 * Method setY.
-		 * @param newY int
+		 * Method isSet.
+		 * @param node int
+		 * @return boolean
 		 */
-		void setY(int newY)
+		boolean isSet(int node)
 		{
-			y = newY;
+			return stamp[node] == search;
 		}
 		
 		/**
-		 * Method setZ.
-		 * @param newZ short
+		 * Method set.
+		 * @param node int
+		 * @param height short
+		 * @param NSWE short
 		 */
-		void setZ(short newZ)
+		void set(int node, short height, short NSWE)
 		{
-			z = newZ;
+			stamp[node] = search;
+			z[node] = height;
+			nswe[node] = NSWE;
+			costFromStart[node] = 0f;
+			costToEnd[node] = 0f;
+			state[node] = NONE;
+			parent[node] = -1;
 		}
 		
 		/**
-		 * Method isSet.
-		 * @return boolean
+		 * Method totalCost.
+		 * @param node int
+		 * @return float
 		 */
-		public boolean isSet()
+		private float totalCost(int node)
 		{
-			return nswe != -1;
+			return costFromStart[node] + costToEnd[node];
 		}
 		
 		/**
-		 * Method free.
+		 * Opens a node, or moves an opened one up after its cost went down.
+		 * @param node int
 		 */
-		void free()
+		void open(int node)
 		{
-			nswe = -1;
-			costFromStart = 0f;
-			totalCost = 0f;
-			costToEnd = 0f;
-			parent = null;
-			state = NONE;
+			if (state[node] != OPENED)
+			{
+				state[node] = OPENED;
+				heapIndex[node] = heapSize;
+				heap[heapSize++] = node;
+			}
+			
+			siftUp(heapIndex[node]);
 		}
 		
 		/**
-		 * Method getLoc.
-		 * @return Location
+		 * Method poll.
+		 * @return int opened node of the lowest total cost, closed from now on, or -1
 		 */
-		public Location getLoc()
+		int poll()
 		{
-			return new Location(x, y, z);
+			if (heapSize == 0)
+			{
+				return -1;
+			}
+			
+			final int node = heap[0];
+			final int last = heap[--heapSize];
+			state[node] = CLOSED;
+			
+			if (heapSize > 0)
+			{
+				heap[0] = last;
+				heapIndex[last] = 0;
+				siftDown(0);
+			}
+			
+			return node;
 		}
 		
 		/**
-		 * Method toString.
-		 * @return String
+		 * Method siftUp.
+		 * @param pos int
 		 */
-		@Override
-		public String toString()
+		private void siftUp(int pos)
 		{
-			return "[" + x + "," + y + "," + z + "] f: " + totalCost;
+			final int node = heap[pos];
+			final float cost = totalCost(node);
+			
+			while (pos > 0)
+			{
+				final int parentPos = (pos - 1) >>> 1;
+				final int parentNode = heap[parentPos];
+				
+				if (totalCost(parentNode) <= cost)
+				{
+					break;
+				}
+				
+				heap[pos] = parentNode;
+				heapIndex[parentNode] = pos;
+				pos = parentPos;
+			}
+			
+			heap[pos] = node;
+			heapIndex[node] = pos;
 		}
 		
 		/**
-		 * Method compareTo.
-		 * @param o GeoNode
-		 * @return int
+		 * Method siftDown.
+		 * @param pos int
 		 */
-		@Override
-		public int compareTo(GeoNode o)
+		private void siftDown(int pos)
 		{
-			if (totalCost > o.totalCost)
-			{
-				return 1;
-			}
+			final int node = heap[pos];
+			final float cost = totalCost(node);
+			final int half = heapSize >>> 1;
 			
-			if (totalCost < o.totalCost)
+			while (pos < half)
 			{
-				return -1;
+				int child = (pos << 1) + 1;
+				int childNode = heap[child];
+				float childCost = totalCost(childNode);
+				final int right = child + 1;
+				
+				if (right < heapSize)
+				{
+					final float rightCost = totalCost(heap[right]);
+					
+					if (rightCost < childCost)
+					{
+						child = right;
+						childNode = heap[right];
+						childCost = rightCost;
+					}
+				}
+				
+				if (cost <= childCost)
+				{
+					break;
+				}
+				
+				heap[pos] = childNode;
+				heapIndex[childNode] = pos;
+				pos = child;
 			}
 			
-			return 0;
+			heap[pos] = node;
+			heapIndex[node] = pos;
 		}
 	}
 }
@@ -0,0 +1,375 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.geodata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import lineage2.commons.threading.PriorityThreadFactory;
+import lineage2.commons.threading.RunnableImpl;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.model.GameObject;
+import lineage2.gameserver.model.World;
+import lineage2.gameserver.utils.Location;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Searches move paths on its own bounded pool of ThreadPoolSizePathfind threads, so the threads handling packets and AI never wait for A*.<br>
+ * Requests from the same cell to the same cell share one search, the callback of every requester gets its own copy of the result.
+ * Only the start cell and the target cell are compared, so creatures chasing one target from different cells still search one path each.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class PathFindService
+{
+	private static final Logger _log = LoggerFactory.getLogger(PathFindService.class);
+	private static final PathFindService _instance = new PathFindService();
+	private final ThreadPoolExecutor _executor;
+	private final ConcurrentHashMap<Key, Request> _requests = new ConcurrentHashMap<>();
+	private final LongAdder _submitted = new LongAdder();
+	private final LongAdder _shared = new LongAdder();
+	private final LongAdder _rejected = new LongAdder();
+	private final LongAdder _timedOut = new LongAdder();
+	private final LongAdder _found = new LongAdder();
+	private final LongAdder _notFound = new LongAdder();
+	private final LongAdder _waitTime = new LongAdder();
+	
+	/**
+	 * Receives the result of a path request.
+	 */
+	public interface PathCallback
+	{
+		/**
+		 * Method onPath, called on a pathfinding thread.
+		 * @param path List<List<Location>> same as GeoMove.findMovePath, empty if no path was found in time
+		 */
+		void onPath(List<List<Location>> path);
+	}
+	
+	/**
+	 * Geodata cells of both ends of a request.
+	 */
+	private static final class Key
+	{
+		private final int geoIndex;
+		private final int x, y, z, tx, ty, tz;
+		
+		/**
+		 * Constructor for Key.
+		 * @param geoIndex int
+		 * @param x int
+		 * @param y int
+		 * @param z int
+		 * @param tx int
+		 * @param ty int
+		 * @param tz int
+		 */
+		Key(int geoIndex, int x, int y, int z, int tx, int ty, int tz)
+		{
+			this.geoIndex = geoIndex;
+			this.x = (x - World.MAP_MIN_X) >> 4;
+			this.y = (y - World.MAP_MIN_Y) >> 4;
+			this.z = z >> 4;
+			this.tx = (tx - World.MAP_MIN_X) >> 4;
+			this.ty = (ty - World.MAP_MIN_Y) >> 4;
+			this.tz = tz >> 4;
+		}
+		
+		/**
+		 * Method hashCode.
+		 * @return int
+		 */
+		@Override
+		public int hashCode()
+		{
+			int hash = geoIndex;
+			hash = (31 * hash) + x;
+			hash = (31 * hash) + y;
+			hash = (31 * hash) + z;
+			hash = (31 * hash) + tx;
+			hash = (31 * hash) + ty;
+			return (31 * hash) + tz;
+		}
+		
+		/**
+		 * Method equals.
+		 * @param o Object
+		 * @return boolean
+		 */
+		@Override
+		public boolean equals(Object o)
+		{
+			if (!(o instanceof Key))
+			{
+				return false;
+			}
+			
+			final Key k = (Key) o;
+			return (x == k.x) && (y == k.y) && (tx == k.tx) && (ty == k.ty) && (z == k.z) && (tz == k.tz) && (geoIndex == k.geoIndex);
+		}
+	}
+	
+	/**
+	 * One search and everyone waiting for it.
+	 */
+	private final class Request extends RunnableImpl
+	{
+		private final Key _key;
+		private final int _x, _y, _z;
+		private final Location _target;
+		private final GameObject _obj;
+		private final int _geoIndex;
+		private final long _created = System.currentTimeMillis();
+		private final List<PathCallback> _callbacks = new ArrayList<>(1);
+		private boolean _done;
+		
+		/**
+		 * Constructor for Request.
+		 * @param key Key
+		 * @param x int
+		 * @param y int
+		 * @param z int
+		 * @param target Location
+		 * @param obj GameObject
+		 * @param geoIndex int
+		 * @param callback PathCallback
+		 */
+		Request(Key key, int x, int y, int z, Location target, GameObject obj, int geoIndex, PathCallback callback)
+		{
+			_key = key;
+			_x = x;
+			_y = y;
+			_z = z;
+			_target = target;
+			_obj = obj;
+			_geoIndex = geoIndex;
+			_callbacks.add(callback);
+		}
+		
+		/**
+		 * Method join.
+		 * @param callback PathCallback
+		 * @return boolean false if the search is already over
+		 */
+		synchronized boolean join(PathCallback callback)
+		{
+			if (_done)
+			{
+				return false;
+			}
+			
+			_callbacks.add(callback);
+			return true;
+		}
+		
+		/**
+		 * Method runImpl.
+		 */
+		@Override
+		public void runImpl()
+		{
+			List<List<Location>> path = Collections.emptyList();
+			final long waited = System.currentTimeMillis() - _created;
+			_waitTime.add(waited);
+			
+			try
+			{
+				if (waited > Config.PATHFIND_QUEUE_TIMEOUT)
+				{
+					_timedOut.increment();
+				}
+				else
+				{
+					path = GeoMove.findMovePath(_x, _y, _z, _target, _obj, true, _geoIndex);
+					(path.isEmpty() ? _notFound : _found).increment();
+				}
+			}
+			finally
+			{
+				complete(this, path);
+			}
+		}
+	}
+	
+	/**
+	 * Method getInstance.
+	 * @return PathFindService
+	 */
+	public static PathFindService getInstance()
+	{
+		return _instance;
+	}
+	
+	/**
+	 * Constructor for PathFindService.
+	 */
+	private PathFindService()
+	{
+		if (Config.THREAD_P_PATHFIND > 0)
+		{
+			_executor = new ThreadPoolExecutor(Config.THREAD_P_PATHFIND, Config.THREAD_P_PATHFIND, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(Math.max(Config.PATHFIND_QUEUE_SIZE, 1)), new PriorityThreadFactory("PathFind", Thread.NORM_PRIORITY));
+		}
+		else
+		{
+			_executor = null;
+		}
+	}
+	
+	/**
+	 * Method isEnabled.
+	 * @return boolean false if paths are searched on the calling thread
+	 */
+	public boolean isEnabled()
+	{
+		return _executor != null;
+	}
+	
+	/**
+	 * Queues a path search, or joins the one already queued from the same cell to the same cell.
+	 * @param x int
+	 * @param y int
+	 * @param z int
+	 * @param target Location
+	 * @param obj GameObject
+	 * @param geoIndex int
+	 * @param callback PathCallback
+	 * @return boolean false if the queue is full, the callback is not called then
+	 */
+	public boolean findMovePath(int x, int y, int z, Location target, GameObject obj, int geoIndex, PathCallback callback)
+	{
+		final Key key = new Key(geoIndex, x, y, z, target.getX(), target.getY(), target.getZ());
+		
+		for (;;)
+		{
+			final Request current = _requests.get(key);
+			
+			if (current != null)
+			{
+				if (current.join(callback))
+				{
+					_shared.increment();
+					return true;
+				}
+				
+				// finished meanwhile, only still mapped until complete() removes it
+				_requests.remove(key, current);
+				continue;
+			}
+			
+			final Request request = new Request(key, x, y, z, target, obj, geoIndex, callback);
+			
+			if (_requests.putIfAbsent(key, request) != null)
+			{
+				continue;
+			}
+			
+			try
+			{
+				_executor.execute(request);
+			}
+			catch (RejectedExecutionException e)
+			{
+				_requests.remove(key, request);
+				_rejected.increment();
+				
+				synchronized (request)
+				{
+					request._done = true;
+				}
+				
+				// requesters that joined meanwhile still expect an answer
+				for (PathCallback waiting : request._callbacks.subList(1, request._callbacks.size()))
+				{
+					waiting.onPath(Collections.<List<Location>> emptyList());
+				}
+				
+				return false;
+			}
+			
+			_submitted.increment();
+			return true;
+		}
+	}
+	
+	/**
+	 * Hands the result to every requester.
+	 * @param request Request
+	 * @param path List<List<Location>>
+	 */
+	private void complete(Request request, List<List<Location>> path)
+	{
+		final List<PathCallback> callbacks;
+		
+		synchronized (request)
+		{
+			request._done = true;
+			callbacks = request._callbacks;
+		}
+		
+		_requests.remove(request._key, request);
+		
+		for (PathCallback callback : callbacks)
+		{
+			final List<List<Location>> copy = new ArrayList<>(path.size());
+			
+			for (List<Location> moveList : path)
+			{
+				copy.add(new ArrayList<>(moveList));
+			}
+			
+			try
+			{
+				callback.onPath(copy);
+			}
+			catch (Exception e)
+			{
+				_log.error("PathFindService: callback", e);
+			}
+		}
+	}
+	
+	/**
+	 * Method getStats.
+	 * @return CharSequence
+	 */
+	public CharSequence getStats()
+	{
+		final StringBuilder list = new StringBuilder();
+		
+		if (_executor == null)
+		{
+			return list.append("PathFind service: off\n");
+		}
+		
+		final long done = _found.sum() + _notFound.sum() + _timedOut.sum();
+		list.append("PathFind queue depth: ").append(_executor.getQueue().size()).append(", searching: ").append(_executor.getActiveCount()).append('\n');
+		list.append("PathFind requests: ").append(_submitted.sum()).append(", shared: ").append(_shared.sum()).append(", rejected: ").append(_rejected.sum()).append('\n');
+		list.append("PathFind found: ").append(_found.sum()).append(", not found: ").append(_notFound.sum()).append(", timed out in queue: ").append(_timedOut.sum());
+		
+		if (done > 0)
+		{
+			list.append(", avg wait: ").append(_waitTime.sum() / done).append(" ms");
+		}
+		
+		return list.append('\n');
+	}
+}
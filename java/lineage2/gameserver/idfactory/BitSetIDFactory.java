@@ -13,6 +13,9 @@
 package lineage2.gameserver.idfactory;
 
 import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import lineage2.commons.math.PrimeFinder;
@@ -23,15 +26,56 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Object ids are kept in a bit set, every thread takes them in blocks into a cache of its own and returns released ids in batches, so the bit set lock is taken once per block instead of once per id.<br>
+ * Released ids are never handed out again by the releasing thread directly, they go back to the bit set first like before.<br>
+ * Caches of dead threads and caches left untouched for a while are returned to the bit set by the periodic capacity check.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
 class BitSetIDFactory extends IdFactory
 {
 	private static final Logger _log = LoggerFactory.getLogger(BitSetIDFactory.class);
+	private static final int BLOCK_SIZE = 64;
+	private static final long CACHE_IDLE_TIME = 60000L;
 	private BitSet freeIds;
+	private volatile int _bitSetSize;
 	private AtomicInteger freeIdCount;
 	private AtomicInteger nextFreeId;
+	private final Queue<IdCache> _allCaches = new ConcurrentLinkedQueue<>();
+	private final ThreadLocal<IdCache> _caches = new ThreadLocal<IdCache>()
+	{
+		@Override
+		protected IdCache initialValue()
+		{
+			final IdCache cache = new IdCache(Thread.currentThread());
+			_allCaches.add(cache);
+			return cache;
+		}
+	};
+	
+	/**
+	 * Ids held by one thread. Changed only under its own monitor, the counters are volatile so size() can read them without locking.
+	 * @author Mobius
+	 */
+	private static class IdCache
+	{
+		final Thread owner;
+		final int[] ids = new int[BLOCK_SIZE];
+		volatile int idCount;
+		final int[] released = new int[BLOCK_SIZE];
+		volatile int releasedCount;
+		long lastFlush;
+		
+		/**
+		 * Constructor for IdCache.
+		 * @param owner Thread
+		 */
+		public IdCache(Thread owner)
+		{
+			this.owner = owner;
+			lastFlush = System.currentTimeMillis();
+		}
+	}
 	
 	/**
 	 * @author Mobius
@@ -48,6 +92,8 @@ class BitSetIDFactory extends IdFactory
 		@Override
 		public void runImpl()
 		{
+			flushIdleCaches();
+			
 			if (reachingBitSetCapacity())
 			{
 				increaseBitSetCapacity();
@@ -91,6 +137,7 @@ class BitSetIDFactory extends IdFactory
 			}
 			
 			nextFreeId = new AtomicInteger(freeIds.nextClearBit(0));
+			_bitSetSize = freeIds.size();
 			initialized = true;
 			_log.info("IdFactory: " + freeIds.size() + " IDs available.");
 		}
@@ -106,12 +153,22 @@ class BitSetIDFactory extends IdFactory
 	 * @param objectID int
 	 */
 	@Override
-	public synchronized void releaseId(int objectID)
+	public void releaseId(int objectID)
 	{
 		if ((objectID - FIRST_OID) > -1)
 		{
-			freeIds.clear(objectID - FIRST_OID);
-			freeIdCount.incrementAndGet();
+			final IdCache cache = _caches.get();
+			
+			synchronized (cache)
+			{
+				cache.released[cache.releasedCount++] = objectID - FIRST_OID;
+				
+				if (cache.releasedCount == BLOCK_SIZE)
+				{
+					releaseBlock(cache);
+				}
+			}
+			
 			super.releaseId(objectID);
 		}
 		else
@@ -125,49 +182,141 @@ class BitSetIDFactory extends IdFactory
 	 * @return int
 	 */
 	@Override
-	public synchronized int getNextId()
+	public int getNextId()
 	{
-		int newID = nextFreeId.get();
-		freeIds.set(newID);
-		freeIdCount.decrementAndGet();
-		int nextFree = freeIds.nextClearBit(newID);
+		final IdCache cache = _caches.get();
 		
-		if (nextFree < 0)
+		synchronized (cache)
 		{
-			nextFree = freeIds.nextClearBit(0);
+			if (cache.idCount == 0)
+			{
+				reserveBlock(cache);
+			}
+			
+			return cache.ids[--cache.idCount] + FIRST_OID;
 		}
-		
-		if (nextFree < 0)
+	}
+	
+	/**
+	 * Marks the next free ids as used and hands them to the thread cache, lowest id on top so ids are still given out in ascending order.
+	 * @param cache IdCache
+	 */
+	private synchronized void reserveBlock(IdCache cache)
+	{
+		for (int i = BLOCK_SIZE - 1; i >= 0; i--)
 		{
-			if (freeIds.size() < FREE_OBJECT_ID_SIZE)
+			int newID = nextFreeId.get();
+			freeIds.set(newID);
+			freeIdCount.decrementAndGet();
+			int nextFree = freeIds.nextClearBit(newID);
+			
+			if (nextFree < 0)
 			{
-				increaseBitSetCapacity();
+				nextFree = freeIds.nextClearBit(0);
 			}
-			else
+			
+			if (nextFree < 0)
 			{
-				throw new NullPointerException("Ran out of valid IDs.");
+				if (freeIds.size() < FREE_OBJECT_ID_SIZE)
+				{
+					increaseBitSetCapacity();
+				}
+				else
+				{
+					throw new NullPointerException("Ran out of valid IDs.");
+				}
 			}
+			
+			nextFreeId.set(nextFree);
+			cache.ids[i] = newID;
+		}
+		
+		cache.idCount = BLOCK_SIZE;
+		cache.lastFlush = System.currentTimeMillis();
+		_bitSetSize = freeIds.size();
+	}
+	
+	/**
+	 * Returns the released ids of the thread cache to the bit set.
+	 * @param cache IdCache
+	 */
+	private synchronized void releaseBlock(IdCache cache)
+	{
+		for (int i = 0; i < cache.releasedCount; i++)
+		{
+			freeIds.clear(cache.released[i]);
 		}
 		
-		nextFreeId.set(nextFree);
-		return newID + FIRST_OID;
+		freeIdCount.addAndGet(cache.releasedCount);
+		cache.releasedCount = 0;
+		cache.lastFlush = System.currentTimeMillis();
+	}
+	
+	/**
+	 * Returns the unused reserved ids and the buffered released ids of the thread cache to the bit set.
+	 * @param cache IdCache
+	 */
+	private synchronized void flushCache(IdCache cache)
+	{
+		for (int i = 0; i < cache.idCount; i++)
+		{
+			freeIds.clear(cache.ids[i]);
+		}
+		
+		freeIdCount.addAndGet(cache.idCount);
+		cache.idCount = 0;
+		releaseBlock(cache);
+	}
+	
+	/**
+	 * Flushes the caches of dead threads and of threads that did not reserve or release a block for CACHE_IDLE_TIME, and forgets the dead ones.
+	 */
+	private void flushIdleCaches()
+	{
+		final long idleSince = System.currentTimeMillis() - CACHE_IDLE_TIME;
+		
+		for (Iterator<IdCache> iterator = _allCaches.iterator(); iterator.hasNext();)
+		{
+			final IdCache cache = iterator.next();
+			final boolean dead = !cache.owner.isAlive();
+			
+			synchronized (cache)
+			{
+				if ((dead || (cache.lastFlush < idleSince)) && ((cache.idCount > 0) || (cache.releasedCount > 0)))
+				{
+					flushCache(cache);
+				}
+			}
+			
+			if (dead)
+			{
+				iterator.remove();
+			}
+		}
 	}
 	
 	/**
-	 * Method size.
+	 * Method size. Counts the ids still held in thread caches as free.
 	 * @return int
 	 */
 	@Override
-	public synchronized int size()
+	public int size()
 	{
-		return freeIdCount.get();
+		int size = freeIdCount.get();
+		
+		for (IdCache cache : _allCaches)
+		{
+			size += cache.idCount + cache.releasedCount;
+		}
+		
+		return size;
 	}
 	
 	/**
 	 * Method usedIdCount.
 	 * @return int
 	 */
-	private synchronized int usedIdCount()
+	private int usedIdCount()
 	{
 		return size() - FIRST_OID;
 	}
@@ -176,9 +325,9 @@ class BitSetIDFactory extends IdFactory
 	 * Method reachingBitSetCapacity.
 	 * @return boolean
 	 */
-	synchronized boolean reachingBitSetCapacity()
+	boolean reachingBitSetCapacity()
 	{
-		return PrimeFinder.nextPrime((usedIdCount() * 11) / 10) > freeIds.size();
+		return PrimeFinder.nextPrime((usedIdCount() * 11) / 10) > _bitSetSize;
 	}
 	
 	/**
@@ -189,5 +338,6 @@ class BitSetIDFactory extends IdFactory
 		BitSet newBitSet = new BitSet(PrimeFinder.nextPrime((usedIdCount() * 11) / 10));
 		newBitSet.or(freeIds);
 		freeIds = newBitSet;
+		_bitSetSize = freeIds.size();
 	}
 }
@@ -17,6 +17,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lineage2.commons.dbutils.DbUtils;
 import lineage2.gameserver.database.DatabaseFactory;
@@ -79,7 +80,7 @@ public abstract class IdFactory
 	}
 	
 	protected boolean initialized;
-	private long releasedCount = 0;
+	private final AtomicLong releasedCount = new AtomicLong();
 	
 	/**
 	 * Constructor for IdFactory.
@@ -181,7 +182,7 @@ public abstract class IdFactory
 	 */
 	public void releaseId(int id)
 	{
-		releasedCount++;
+		releasedCount.incrementAndGet();
 	}
 	
 	/**
@@ -190,7 +191,7 @@ public abstract class IdFactory
 	 */
 	public long getReleasedCount()
 	{
-		return releasedCount;
+		return releasedCount.get();
 	}
 	
 	/**
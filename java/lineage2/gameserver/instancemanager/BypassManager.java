@@ -13,7 +13,6 @@
 package lineage2.gameserver.instancemanager;
 
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import lineage2.gameserver.handlers.ICommunityBoardHandler;
@@ -27,8 +26,6 @@ import lineage2.gameserver.utils.Strings;
  */
 public class BypassManager
 {
-	private static final Pattern p = Pattern.compile("\"(bypass +-h +)(.+?)\"");
-	
 	/**
 	 * @author Mobius
 	 */
@@ -75,37 +72,195 @@ public class BypassManager
 	 */
 	public static String encode(String html, List<String> bypassStorage, boolean bbs)
 	{
-		Matcher m = p.matcher(html);
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder(html.length() + 64);
+		encode(html, sb, bypassStorage, bbs);
+		return sb.toString();
+	}
+	
+	/**
+	 * Replaces every "bypass -h command" attribute with its index in the bypass storage, in one pass over the text.
+	 * @param html CharSequence
+	 * @param out StringBuilder
+	 * @param bypassStorage List<String>
+	 * @param bbs boolean
+	 */
+	public static void encode(CharSequence html, StringBuilder out, List<String> bypassStorage, boolean bbs)
+	{
+		final int length = html.length();
+		int last = 0;
+		int quote = indexOf(html, '"', 0);
 		
-		while (m.find())
+		while (quote >= 0)
 		{
-			String bypass = m.group(2);
-			String code = bypass;
-			String params = "";
-			int i = bypass.indexOf(" $");
-			boolean use_params = i >= 0;
+			int codeStart = -1;
+			int codeEnd = -1;
+			int i = quote + 1;
 			
-			if (use_params)
+			if (regionMatches(html, i, "bypass"))
 			{
-				code = bypass.substring(0, i);
-				params = bypass.substring(i).replace("$", "\\$");
+				i = skipSpaces(html, i + 6);
+				
+				if ((i > (quote + 7)) && regionMatches(html, i, "-h"))
+				{
+					final int spaces = i + 2;
+					i = skipSpaces(html, spaces);
+					
+					if (i > spaces)
+					{
+						codeStart = i;
+						codeEnd = closingQuote(html, i);
+						
+						// same match the regex gets by backtracking to a single space argument
+						if ((codeEnd < 0) && ((i - spaces) > 1) && (i < length) && (html.charAt(i) == '"'))
+						{
+							codeStart = i - 1;
+							codeEnd = i;
+						}
+					}
+				}
 			}
 			
-			if (bbs)
+			if (codeEnd < 0)
 			{
-				m.appendReplacement(sb, "\"bypass -h 1" + Integer.toHexString(bypassStorage.size()) + params + "\"");
+				quote = indexOf(html, '"', quote + 1);
+				continue;
 			}
-			else
+			
+			String code = html.subSequence(codeStart, codeEnd).toString();
+			String params = "";
+			int p = code.indexOf(" $");
+			
+			if (p >= 0)
 			{
-				m.appendReplacement(sb, "\"bypass -h 0" + Integer.toHexString(bypassStorage.size()) + params + "\"");
+				params = code.substring(p);
+				code = code.substring(0, p);
 			}
 			
+			out.append(html, last, quote);
+			out.append(bbs ? "\"bypass -h 1" : "\"bypass -h 0").append(Integer.toHexString(bypassStorage.size()));
+			appendParams(out, params);
+			out.append('"');
 			bypassStorage.add(code);
+			last = codeEnd + 1;
+			quote = indexOf(html, '"', last);
 		}
 		
-		m.appendTail(sb);
-		return sb.toString();
+		out.append(html, last, length);
+	}
+	
+	/**
+	 * Appends bypass parameters the way Matcher.appendReplacement did, a backslash quotes the next character.
+	 * @param out StringBuilder
+	 * @param params String
+	 */
+	private static void appendParams(StringBuilder out, String params)
+	{
+		if (params.indexOf('\\') < 0)
+		{
+			out.append(params);
+			return;
+		}
+		
+		for (int i = 0; i < params.length(); i++)
+		{
+			char c = params.charAt(i);
+			
+			if ((c == '\\') && ((i + 1) < params.length()))
+			{
+				c = params.charAt(++i);
+			}
+			
+			out.append(c);
+		}
+	}
+	
+	/**
+	 * Method closingQuote.
+	 * @param html CharSequence
+	 * @param start int
+	 * @return int position of the first quote after at least one character on the same line, or -1
+	 */
+	private static int closingQuote(CharSequence html, int start)
+	{
+		for (int i = start; i < html.length(); i++)
+		{
+			final char c = html.charAt(i);
+			
+			if ((c == '"') && (i > start))
+			{
+				return i;
+			}
+			
+			if ((c == '\n') || (c == '\r') || (c == '\u0085') || (c == '\u2028') || (c == '\u2029'))
+			{
+				return -1;
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Method skipSpaces.
+	 * @param html CharSequence
+	 * @param start int
+	 * @return int
+	 */
+	private static int skipSpaces(CharSequence html, int start)
+	{
+		int i = start;
+		
+		while ((i < html.length()) && (html.charAt(i) == ' '))
+		{
+			i++;
+		}
+		
+		return i;
+	}
+	
+	/**
+	 * Method regionMatches.
+	 * @param html CharSequence
+	 * @param start int
+	 * @param text String
+	 * @return boolean
+	 */
+	private static boolean regionMatches(CharSequence html, int start, String text)
+	{
+		if ((start + text.length()) > html.length())
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < text.length(); i++)
+		{
+			if (html.charAt(start + i) != text.charAt(i))
+			{
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Method indexOf.
+	 * @param html CharSequence
+	 * @param c char
+	 * @param start int
+	 * @return int
+	 */
+	private static int indexOf(CharSequence html, char c, int start)
+	{
+		for (int i = start; i < html.length(); i++)
+		{
+			if (html.charAt(i) == c)
+			{
+				return i;
+			}
+		}
+		
+		return -1;
 	}
 	
 	/**
@@ -0,0 +1,370 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.instancemanager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import lineage2.commons.threading.RunnableImpl;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.ThreadPoolManager;
+import lineage2.gameserver.model.GameObjectsStorage;
+import lineage2.gameserver.model.Player;
+import lineage2.gameserver.model.World;
+import lineage2.gameserver.network.serverpackets.L2GameServerPacket;
+import lineage2.gameserver.utils.MapUtils;
+
+import org.napile.primitive.maps.CIntObjectMap;
+import org.napile.primitive.maps.impl.CHashIntObjectMap;
+
+/**
+ * Subscriber sets for the chat channels that reach beyond the visible area.<br>
+ * Players are indexed by map tile for shout and trade chat and by battlefield for battlefield chat, the index follows them on every region change. Messages are queued and delivered once per tick, one packet list per recipient.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class ChatChannelManager extends RunnableImpl
+{
+	private static final ChatChannelManager _instance = new ChatChannelManager();
+	
+	/**
+	 * Method getInstance.
+	 * @return ChatChannelManager
+	 */
+	public static ChatChannelManager getInstance()
+	{
+		return _instance;
+	}
+	
+	private final List<Set<Player>> _tiles;
+	private final CIntObjectMap<Set<Player>> _battlefields = new CHashIntObjectMap<>();
+	private final Queue<Delivery> _pending = new ConcurrentLinkedQueue<>();
+	
+	/**
+	 * @author Mobius
+	 */
+	private static class Delivery
+	{
+		final L2GameServerPacket packet;
+		final List<Player> recipients;
+		
+		/**
+		 * Constructor for Delivery.
+		 * @param packet L2GameServerPacket
+		 * @param recipients List<Player>
+		 */
+		Delivery(L2GameServerPacket packet, List<Player> recipients)
+		{
+			this.packet = packet;
+			this.recipients = recipients;
+		}
+	}
+	
+	/**
+	 * Constructor for ChatChannelManager.
+	 */
+	private ChatChannelManager()
+	{
+		_tiles = new ArrayList<>(World.WORLD_SIZE_X * World.WORLD_SIZE_Y);
+		
+		for (int i = 0; i < (World.WORLD_SIZE_X * World.WORLD_SIZE_Y); i++)
+		{
+			_tiles.add(ConcurrentHashMap.<Player> newKeySet());
+		}
+		
+		if (Config.CHAT_DELIVERY_TICK > 0)
+		{
+			ThreadPoolManager.getInstance().scheduleAtFixedRate(this, Config.CHAT_DELIVERY_TICK, Config.CHAT_DELIVERY_TICK);
+		}
+	}
+	
+	/**
+	 * Method getTile.
+	 * @param x int
+	 * @param y int
+	 * @return int index of the map tile
+	 */
+	private static int getTile(int x, int y)
+	{
+		final int tx = Math.min(Math.max(MapUtils.regionX(x) - Config.GEO_X_FIRST, 0), World.WORLD_SIZE_X - 1);
+		final int ty = Math.min(Math.max(MapUtils.regionY(y) - Config.GEO_Y_FIRST, 0), World.WORLD_SIZE_Y - 1);
+		return (tx * World.WORLD_SIZE_Y) + ty;
+	}
+	
+	/**
+	 * Moves the player to the subscriber set of the map tile it stands in.
+	 * @param player Player
+	 */
+	public void updateTile(Player player)
+	{
+		final int tile = getTile(player.getX(), player.getY());
+		final int oldTile = player.getChatTile();
+		
+		if (tile == oldTile)
+		{
+			return;
+		}
+		
+		player.setChatTile(tile);
+		_tiles.get(tile).add(player);
+		
+		if (oldTile >= 0)
+		{
+			_tiles.get(oldTile).remove(player);
+		}
+	}
+	
+	/**
+	 * Method setBattlefield.
+	 * @param player Player
+	 * @param oldId int
+	 * @param newId int
+	 */
+	public void setBattlefield(Player player, int oldId, int newId)
+	{
+		if (oldId == newId)
+		{
+			return;
+		}
+		
+		if (oldId != 0)
+		{
+			final Set<Player> subscribers = _battlefields.get(oldId);
+			
+			if (subscribers != null)
+			{
+				subscribers.remove(player);
+			}
+		}
+		
+		if (newId != 0)
+		{
+			Set<Player> subscribers = _battlefields.get(newId);
+			
+			if (subscribers == null)
+			{
+				final Set<Player> created = ConcurrentHashMap.newKeySet();
+				subscribers = _battlefields.putIfAbsent(newId, created);
+				
+				if (subscribers == null)
+				{
+					subscribers = created;
+				}
+			}
+			
+			subscribers.add(player);
+		}
+	}
+	
+	/**
+	 * Removes a player leaving the world from every channel.
+	 * @param player Player
+	 */
+	public void remove(Player player)
+	{
+		final int tile = player.getChatTile();
+		
+		if (tile >= 0)
+		{
+			_tiles.get(tile).remove(player);
+			player.setChatTile(-1);
+		}
+		
+		setBattlefield(player, player.getBattlefieldChatId(), 0);
+	}
+	
+	/**
+	 * Sends a shout or trade message to the map tiles around the speaker.
+	 * @param activeChar Player
+	 * @param packet L2GameServerPacket
+	 */
+	public void shout(Player activeChar, L2GameServerPacket packet)
+	{
+		final int rx = MapUtils.regionX(activeChar);
+		final int ry = MapUtils.regionY(activeChar);
+		final int offset = Config.SHOUT_OFFSET;
+		// players in chat range may stand in the next tiles
+		final int range = offset + 1 + (Config.CHAT_RANGE >> 15);
+		final List<Player> recipients = new ArrayList<>();
+		
+		for (int x = Math.max(rx - range, Config.GEO_X_FIRST); x <= Math.min(rx + range, Config.GEO_X_LAST); x++)
+		{
+			for (int y = Math.max(ry - range, Config.GEO_Y_FIRST); y <= Math.min(ry + range, Config.GEO_Y_LAST); y++)
+			{
+				final int tile = ((x - Config.GEO_X_FIRST) * World.WORLD_SIZE_Y) + (y - Config.GEO_Y_FIRST);
+				
+				for (Player player : _tiles.get(tile))
+				{
+					if ((player.getChatTile() != tile) || !canReceive(activeChar, player))
+					{
+						continue;
+					}
+					
+					final int tx = MapUtils.regionX(player);
+					final int ty = MapUtils.regionY(player);
+					
+					if (((tx >= (rx - offset)) && (tx <= (rx + offset)) && (ty >= (ry - offset)) && (ty <= (ry + offset))) || activeChar.isInRangeZ(player, Config.CHAT_RANGE))
+					{
+						recipients.add(player);
+					}
+				}
+			}
+		}
+		
+		deliver(packet, recipients);
+	}
+	
+	/**
+	 * Sends a shout or trade message to the whole world.
+	 * @param activeChar Player
+	 * @param packet L2GameServerPacket
+	 */
+	public void announce(Player activeChar, L2GameServerPacket packet)
+	{
+		final List<Player> recipients = new ArrayList<>();
+		
+		for (Player player : GameObjectsStorage.getAllPlayersForIterate())
+		{
+			if (canReceive(activeChar, player))
+			{
+				recipients.add(player);
+			}
+		}
+		
+		deliver(packet, recipients);
+	}
+	
+	/**
+	 * Sends a hero voice message to every player, the speaker included.
+	 * @param activeChar Player
+	 * @param packet L2GameServerPacket
+	 */
+	public void heroVoice(Player activeChar, L2GameServerPacket packet)
+	{
+		final List<Player> recipients = new ArrayList<>();
+		
+		for (Player player : GameObjectsStorage.getAllPlayersForIterate())
+		{
+			if (!player.isBlockAll() && !player.isInBlockList(activeChar))
+			{
+				recipients.add(player);
+			}
+		}
+		
+		deliver(packet, recipients);
+	}
+	
+	/**
+	 * Sends a battlefield message to the players of the speaker battlefield, the speaker included.
+	 * @param activeChar Player
+	 * @param packet L2GameServerPacket
+	 */
+	public void battlefield(Player activeChar, L2GameServerPacket packet)
+	{
+		final int battlefieldId = activeChar.getBattlefieldChatId();
+		final Set<Player> subscribers = _battlefields.get(battlefieldId);
+		
+		if (subscribers == null)
+		{
+			return;
+		}
+		
+		final List<Player> recipients = new ArrayList<>(subscribers.size());
+		
+		for (Player player : subscribers)
+		{
+			if (!player.isBlockAll() && !player.isInBlockList(activeChar) && (player.getBattlefieldChatId() == battlefieldId))
+			{
+				recipients.add(player);
+			}
+		}
+		
+		deliver(packet, recipients);
+	}
+	
+	/**
+	 * Method canReceive.
+	 * @param activeChar Player
+	 * @param player Player
+	 * @return boolean
+	 */
+	private static boolean canReceive(Player activeChar, Player player)
+	{
+		return (player != activeChar) && (activeChar.getReflection() == player.getReflection()) && !player.isBlockAll() && !player.isInBlockList(activeChar);
+	}
+	
+	/**
+	 * Method deliver.
+	 * @param packet L2GameServerPacket
+	 * @param recipients List<Player>
+	 */
+	private void deliver(L2GameServerPacket packet, List<Player> recipients)
+	{
+		if (recipients.isEmpty())
+		{
+			return;
+		}
+		
+		if (Config.CHAT_DELIVERY_TICK > 0)
+		{
+			_pending.add(new Delivery(packet, recipients));
+			return;
+		}
+		
+		for (Player player : recipients)
+		{
+			player.sendPacket(packet);
+		}
+	}
+	
+	/**
+	 * Delivers the queued messages, one packet list per recipient.
+	 */
+	@Override
+	public void runImpl()
+	{
+		if (_pending.isEmpty())
+		{
+			return;
+		}
+		
+		final Map<Player, List<L2GameServerPacket>> byRecipient = new HashMap<>();
+		Delivery delivery;
+		
+		while ((delivery = _pending.poll()) != null)
+		{
+			for (Player player : delivery.recipients)
+			{
+				List<L2GameServerPacket> packets = byRecipient.get(player);
+				
+				if (packets == null)
+				{
+					byRecipient.put(player, packets = new ArrayList<>(2));
+				}
+				
+				packets.add(delivery.packet);
+			}
+		}
+		
+		for (Map.Entry<Player, List<L2GameServerPacket>> e : byRecipient.entrySet())
+		{
+			e.getKey().sendPacket(e.getValue());
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.instancemanager;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lineage2.commons.threading.RunnableImpl;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.ThreadPoolManager;
+import lineage2.gameserver.data.xml.holder.InstantZoneHolder;
+import lineage2.gameserver.model.entity.Reflection;
+import lineage2.gameserver.templates.InstantZone;
+
+import org.napile.primitive.maps.IntObjectMap;
+import org.napile.primitive.maps.impl.HashIntObjectMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps reflections of the instant zones listed in ReflectionPoolZones built in the background, with their npcs, doors and zones in place, so entering one only starts it.<br>
+ * The own geodata of a collapsed pooled reflection is kept for the next one instead of being loaded again.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class ReflectionPool
+{
+	private static final Logger _log = LoggerFactory.getLogger(ReflectionPool.class);
+	private static final ReflectionPool _instance = new ReflectionPool();
+	private final IntObjectMap<ZonePool> _pools = new HashIntObjectMap<>();
+	
+	/**
+	 * Reflections of one instant zone.
+	 */
+	private static class ZonePool
+	{
+		final InstantZone zone;
+		final Queue<Reflection> ready = new ConcurrentLinkedQueue<>();
+		final Queue<Integer> geoIndexes = new ConcurrentLinkedQueue<>();
+		/**
+		 * Ready reflections and the ones being built.
+		 */
+		final AtomicInteger size = new AtomicInteger();
+		final AtomicInteger spareGeoIndexes = new AtomicInteger();
+		
+		/**
+		 * Constructor for ZonePool.
+		 * @param zone InstantZone
+		 */
+		ZonePool(InstantZone zone)
+		{
+			this.zone = zone;
+		}
+	}
+	
+	/**
+	 * Method getInstance.
+	 * @return ReflectionPool
+	 */
+	public static ReflectionPool getInstance()
+	{
+		return _instance;
+	}
+	
+	/**
+	 * Starts building the pooled reflections, once the instant zones, npcs and scripts are loaded.
+	 */
+	public void init()
+	{
+		if (Config.REFLECTION_POOL_SIZE <= 0)
+		{
+			return;
+		}
+		
+		for (int id : Config.REFLECTION_POOL_ZONES)
+		{
+			final InstantZone zone = InstantZoneHolder.getInstance().getInstantZone(id);
+			
+			if (zone == null)
+			{
+				_log.warn("ReflectionPool: unknown instant zone " + id);
+				continue;
+			}
+			
+			final ZonePool pool = new ZonePool(zone);
+			_pools.put(id, pool);
+			fill(pool);
+		}
+		
+		if (!_pools.isEmpty())
+		{
+			_log.info("ReflectionPool: keeping " + Config.REFLECTION_POOL_SIZE + " reflections ready for " + _pools.size() + " instant zones.");
+		}
+	}
+	
+	/**
+	 * Takes a built reflection, it still has to be started with {@link Reflection#activate()}.
+	 * @param instancedZoneId int
+	 * @return Reflection or null if none is ready
+	 */
+	public Reflection take(int instancedZoneId)
+	{
+		final ZonePool pool = _pools.get(instancedZoneId);
+		
+		if (pool == null)
+		{
+			return null;
+		}
+		
+		final Reflection r = pool.ready.poll();
+		
+		if (r != null)
+		{
+			pool.size.decrementAndGet();
+			fill(pool);
+		}
+		
+		return r;
+	}
+	
+	/**
+	 * Method isRecyclable.
+	 * @param r Reflection
+	 * @return boolean true if the own geodata of the collapsing reflection may be kept for the pool
+	 */
+	public boolean isRecyclable(Reflection r)
+	{
+		return (r.getClass() == Reflection.class) && ((r.getGeoIndex() & 0x0f000000) == 0x0f000000) && (_pools.get(r.getInstancedZoneId()) != null);
+	}
+	
+	/**
+	 * Keeps the geodata of a collapsed reflection for the next pooled one of its zone, at most ReflectionPoolSize of them.
+	 * @param r Reflection
+	 * @return boolean false if the geodata was not kept and has to be freed
+	 */
+	public boolean release(Reflection r)
+	{
+		final ZonePool pool = _pools.get(r.getInstancedZoneId());
+		
+		if ((pool == null) || (pool.spareGeoIndexes.incrementAndGet() > Config.REFLECTION_POOL_SIZE))
+		{
+			if (pool != null)
+			{
+				pool.spareGeoIndexes.decrementAndGet();
+			}
+			
+			return false;
+		}
+		
+		pool.geoIndexes.add(r.getGeoIndex());
+		return true;
+	}
+	
+	/**
+	 * Builds reflections on the thread pool until the pool is full.
+	 * @param pool ZonePool
+	 */
+	private void fill(final ZonePool pool)
+	{
+		for (;;)
+		{
+			final int size = pool.size.get();
+			
+			if (size >= Config.REFLECTION_POOL_SIZE)
+			{
+				return;
+			}
+			
+			if (!pool.size.compareAndSet(size, size + 1))
+			{
+				continue;
+			}
+			
+			ThreadPoolManager.getInstance().execute(new RunnableImpl()
+			{
+				@Override
+				public void runImpl()
+				{
+					final Integer geoIndex = pool.geoIndexes.poll();
+					
+					if (geoIndex != null)
+					{
+						pool.spareGeoIndexes.decrementAndGet();
+					}
+					
+					try
+					{
+						final Reflection r = new Reflection();
+						r.prepare(pool.zone, geoIndex == null ? -1 : geoIndex);
+						pool.ready.add(r);
+					}
+					catch (Exception e)
+					{
+						pool.size.decrementAndGet();
+						_log.error("ReflectionPool: could not build instant zone " + pool.zone.getId(), e);
+					}
+				}
+			});
+		}
+	}
+}
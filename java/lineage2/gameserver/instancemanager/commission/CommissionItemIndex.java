@@ -0,0 +1,296 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.instancemanager.commission;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lineage2.gameserver.templates.item.ExItemType;
+import lineage2.gameserver.templates.item.ItemTemplate;
+
+/**
+ * In-memory view of the registered commission items.<br>
+ * Items are bucketed by item type, grade and rarity and kept in auction id order, so a search only visits the buckets it asks for. Search results are cached until the next registration or removal.<br>
+ * Callers hold the commission container lock, read for lookups and write for changes.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class CommissionItemIndex
+{
+	private static final int MAX_RESULTS = 1000;
+	private static final int PART_SIZE = 120;
+	private static final int MAX_CACHED_SEARCHES = 1000;
+	private static final int GRADES = ItemTemplate.Grade.values().length;
+	private static final Comparator<CommissionItemInfo> AUCTION_ORDER = new Comparator<CommissionItemInfo>()
+	{
+		@Override
+		public int compare(CommissionItemInfo o1, CommissionItemInfo o2)
+		{
+			return Long.compare(o1.getAuctionId(), o2.getAuctionId());
+		}
+	};
+	private final NavigableMap<Long, CommissionItemInfo> _items = new TreeMap<>();
+	private final Map<ExItemType, NavigableMap<Long, CommissionItemInfo>[]> _buckets = new EnumMap<>(ExItemType.class);
+	private final Map<String, List<List<CommissionItemInfo>>> _searches = new ConcurrentHashMap<>();
+	
+	/**
+	 * Method add.
+	 * @param itemInfo CommissionItemInfo
+	 */
+	public void add(CommissionItemInfo itemInfo)
+	{
+		_items.put(itemInfo.getAuctionId(), itemInfo);
+		getBucket(itemInfo).put(itemInfo.getAuctionId(), itemInfo);
+		_searches.clear();
+	}
+	
+	/**
+	 * Method remove.
+	 * @param auctionId long
+	 * @return CommissionItemInfo removed item or null
+	 */
+	public CommissionItemInfo remove(long auctionId)
+	{
+		final CommissionItemInfo itemInfo = _items.remove(auctionId);
+		
+		if (itemInfo != null)
+		{
+			getBucket(itemInfo).remove(auctionId);
+			_searches.clear();
+		}
+		
+		return itemInfo;
+	}
+	
+	/**
+	 * Method get.
+	 * @param auctionId long
+	 * @param exItemType ExItemType
+	 * @return CommissionItemInfo or null if no such auction of this type is registered
+	 */
+	public CommissionItemInfo get(long auctionId, ExItemType exItemType)
+	{
+		final CommissionItemInfo itemInfo = _items.get(auctionId);
+		return (itemInfo != null) && (itemInfo.getExItemType() == exItemType) ? itemInfo : null;
+	}
+	
+	/**
+	 * Method contains.
+	 * @param auctionId long
+	 * @return boolean
+	 */
+	public boolean contains(long auctionId)
+	{
+		return _items.containsKey(auctionId);
+	}
+	
+	/**
+	 * Method getBySeller.
+	 * @param sellerId int
+	 * @return List<CommissionItemInfo>
+	 */
+	public List<CommissionItemInfo> getBySeller(int sellerId)
+	{
+		final List<CommissionItemInfo> list = new ArrayList<>(10);
+		
+		for (CommissionItemInfo itemInfo : _items.values())
+		{
+			if (itemInfo.getSellerId() == sellerId)
+			{
+				list.add(itemInfo);
+			}
+		}
+		
+		return list;
+	}
+	
+	/**
+	 * Method getExpired.
+	 * @param time long
+	 * @return List<CommissionItemInfo>
+	 */
+	public List<CommissionItemInfo> getExpired(long time)
+	{
+		final List<CommissionItemInfo> list = new ArrayList<>();
+		
+		for (CommissionItemInfo itemInfo : _items.values())
+		{
+			if (itemInfo.getSaleEndTime() <= time)
+			{
+				list.add(itemInfo);
+			}
+		}
+		
+		return list;
+	}
+	
+	/**
+	 * Searches the registered items, split into the parts sent to the client.
+	 * @param types ExItemType[]
+	 * @param rareType int 0 for common, 1 for rare, anything else for both
+	 * @param grade int grade ordinal, -1 for any
+	 * @param searchName String
+	 * @return List<List<CommissionItemInfo>> shared result, must not be modified
+	 */
+	public List<List<CommissionItemInfo>> search(ExItemType[] types, int rareType, int grade, String searchName)
+	{
+		final String name = searchName.toLowerCase();
+		final StringBuilder key = new StringBuilder();
+		
+		for (ExItemType type : types)
+		{
+			key.append(type == null ? -1 : type.ordinal()).append(',');
+		}
+		
+		key.append(rareType).append(',').append(grade).append(',').append(name);
+		final String cacheKey = key.toString();
+		List<List<CommissionItemInfo>> parts = _searches.get(cacheKey);
+		
+		if (parts == null)
+		{
+			parts = split(collect(types, rareType, grade, name));
+			
+			if (_searches.size() >= MAX_CACHED_SEARCHES)
+			{
+				_searches.clear();
+			}
+			
+			_searches.put(cacheKey, parts);
+		}
+		
+		return parts;
+	}
+	
+	/**
+	 * Method collect.
+	 * @param types ExItemType[]
+	 * @param rareType int
+	 * @param grade int
+	 * @param name String lower case search name
+	 * @return List<CommissionItemInfo> matching items in auction id order
+	 */
+	private List<CommissionItemInfo> collect(ExItemType[] types, int rareType, int grade, String name)
+	{
+		final List<CommissionItemInfo> result = new ArrayList<>();
+		int visited = 0;
+		
+		for (ExItemType type : types)
+		{
+			final NavigableMap<Long, CommissionItemInfo>[] buckets = type == null ? null : _buckets.get(type);
+			
+			if (buckets == null)
+			{
+				continue;
+			}
+			
+			for (int g = 0; g < GRADES; g++)
+			{
+				if ((grade > -1) && (g != grade))
+				{
+					continue;
+				}
+				
+				for (int rare = 0; rare < 2; rare++)
+				{
+					if (((rareType == 0) && (rare == 1)) || ((rareType == 1) && (rare == 0)))
+					{
+						continue;
+					}
+					
+					final NavigableMap<Long, CommissionItemInfo> bucket = buckets[(g * 2) + rare];
+					
+					if ((bucket == null) || bucket.isEmpty())
+					{
+						continue;
+					}
+					
+					for (CommissionItemInfo itemInfo : bucket.values())
+					{
+						if (name.isEmpty() || itemInfo.getItemNameLowerCase().contains(name))
+						{
+							result.add(itemInfo);
+						}
+					}
+					
+					visited++;
+				}
+			}
+		}
+		
+		if (visited > 1)
+		{
+			Collections.sort(result, AUCTION_ORDER);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Splits the result into parts the same way the client was always served: the first part holds 121 items, the next ones 120, at most 1000 items in total.
+	 * @param result List<CommissionItemInfo>
+	 * @return List<List<CommissionItemInfo>>
+	 */
+	private static List<List<CommissionItemInfo>> split(List<CommissionItemInfo> result)
+	{
+		final List<List<CommissionItemInfo>> parts = new ArrayList<>();
+		List<CommissionItemInfo> part = new ArrayList<>(PART_SIZE);
+		parts.add(part);
+		
+		for (int i = 0; (i < result.size()) && (i < MAX_RESULTS); i++)
+		{
+			part.add(result.get(i));
+			
+			if ((i != 0) && ((i % PART_SIZE) == 0))
+			{
+				part = new ArrayList<>(PART_SIZE);
+				parts.add(part);
+			}
+		}
+		
+		return parts;
+	}
+	
+	/**
+	 * Method getBucket.
+	 * @param itemInfo CommissionItemInfo
+	 * @return NavigableMap<Long,CommissionItemInfo>
+	 */
+	@SuppressWarnings("unchecked")
+	private NavigableMap<Long, CommissionItemInfo> getBucket(CommissionItemInfo itemInfo)
+	{
+		NavigableMap<Long, CommissionItemInfo>[] buckets = _buckets.get(itemInfo.getExItemType());
+		
+		if (buckets == null)
+		{
+			buckets = new NavigableMap[GRADES * 2];
+			_buckets.put(itemInfo.getExItemType(), buckets);
+		}
+		
+		final ItemTemplate template = itemInfo.getItem().getTemplate();
+		final int index = (template.getItemGrade().ordinal() * 2) + (template.isBlessed() ? 1 : 0);
+		
+		if (buckets[index] == null)
+		{
+			buckets[index] = new TreeMap<>();
+		}
+		
+		return buckets[index];
+	}
+}
@@ -27,6 +27,9 @@ public class CommissionItemInfo
 	private int saleDays;
 	private long saleEndTime;
 	private String sellerName;
+	private int sellerId;
+	private String itemName = "";
+	private String itemNameLowerCase = "";
 	private final ItemInstance item;
 	
 	/**
@@ -92,6 +95,33 @@ public class CommissionItemInfo
 		return sellerName;
 	}
 	
+	/**
+	 * Method getSellerId.
+	 * @return int
+	 */
+	public int getSellerId()
+	{
+		return sellerId;
+	}
+	
+	/**
+	 * Method getItemName.
+	 * @return String name the item was registered with
+	 */
+	public String getItemName()
+	{
+		return itemName;
+	}
+	
+	/**
+	 * Method getItemNameLowerCase.
+	 * @return String
+	 */
+	public String getItemNameLowerCase()
+	{
+		return itemNameLowerCase;
+	}
+	
 	/**
 	 * Method getItem.
 	 * @return ItemInstance
@@ -154,4 +184,23 @@ public class CommissionItemInfo
 	{
 		this.sellerName = sellerName;
 	}
+	
+	/**
+	 * Method setSellerId.
+	 * @param sellerId int
+	 */
+	public void setSellerId(int sellerId)
+	{
+		this.sellerId = sellerId;
+	}
+	
+	/**
+	 * Method setItemName.
+	 * @param itemName String
+	 */
+	public void setItemName(String itemName)
+	{
+		this.itemName = itemName;
+		itemNameLowerCase = itemName.toLowerCase();
+	}
 }
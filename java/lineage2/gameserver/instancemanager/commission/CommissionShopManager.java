@@ -12,10 +12,9 @@
  */
 package lineage2.gameserver.instancemanager.commission;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
 
 import lineage2.commons.math.SafeMath;
 import lineage2.gameserver.dao.CommissionShopDAO;
@@ -54,6 +53,7 @@ public class CommissionShopManager
 	private static final double REGISTRATION_FEE = 0.01;
 	private static final double SALE_FEE = 0.5;
 	private static final CommissionItemContainer container = new CommissionItemContainer();
+	private static final CommissionItemIndex index = new CommissionItemIndex();
 	private static final CommissionShopManager ourInstance = new CommissionShopManager();
 	
 	/**
@@ -88,6 +88,13 @@ public class CommissionShopManager
 	private void restore()
 	{
 		container.restore();
+		
+		for (CommissionItemInfo itemInfo : CommissionShopDAO.getInstance().restore(container))
+		{
+			index.add(itemInfo);
+		}
+		
+		_log.info("CommissionShopManager: Loaded " + container.getSize() + " registered items.");
 	}
 	
 	/**
@@ -144,7 +151,17 @@ public class CommissionShopManager
 	 */
 	public void showPlayerRegisteredItems(Player player)
 	{
-		List<CommissionItemInfo> items = CommissionShopDAO.getInstance().getRegisteredItemsFor(player);
+		List<CommissionItemInfo> items;
+		container.readLock();
+		
+		try
+		{
+			items = index.getBySeller(player.getObjectId());
+		}
+		finally
+		{
+			container.readUnlock();
+		}
 		
 		if (items.size() == 0)
 		{
@@ -199,8 +216,24 @@ public class CommissionShopManager
 			
 			ItemInstance cItem = inventory.removeItemByObjectId(objectId, count);
 			container.addItem(cItem);
-			String item_type = cItem.getTemplate().getExItemType().name();
-			CommissionShopDAO.getInstance().saveNewItem(cItem.getObjectId(), player.getObjectId(), item_name, price, item_type, sale_days, System.currentTimeMillis() + (days * 86400000), player.getName());
+			ExItemType item_type = cItem.getTemplate().getExItemType();
+			long sale_end_time = System.currentTimeMillis() + (days * 86400000);
+			long auctionId = CommissionShopDAO.getInstance().saveNewItem(cItem.getObjectId(), player.getObjectId(), item_name, price, item_type.name(), sale_days, sale_end_time, player.getName());
+			
+			if (auctionId >= 0)
+			{
+				CommissionItemInfo itemInfo = new CommissionItemInfo(cItem);
+				itemInfo.setAuctionId(auctionId);
+				itemInfo.setSellerId(player.getObjectId());
+				itemInfo.setItemName(item_name);
+				itemInfo.setRegisteredPrice(price);
+				itemInfo.setExItemType(item_type);
+				itemInfo.setSaleDays(sale_days);
+				itemInfo.setSaleEndTime(sale_end_time);
+				itemInfo.setSellerName(player.getName());
+				index.add(itemInfo);
+			}
+			
 			Log.LogItem(player, Log.CommissionItemRegister, cItem);
 		}
 		catch (ArithmeticException ae)
@@ -227,7 +260,7 @@ public class CommissionShopManager
 	 */
 	public void showItems(int listType, int category, int rareType, int grade, String searchName, Player player)
 	{
-		Queue<List<CommissionItemInfo>> list = new ArrayDeque<>();
+		List<List<CommissionItemInfo>> list = Collections.emptyList();
 		container.readLock();
 		
 		try
@@ -250,7 +283,7 @@ public class CommissionShopManager
 				return;
 			}
 			
-			list = CommissionShopDAO.getInstance().getRegisteredItems(types, rareType, grade, searchName);
+			list = index.search(types, rareType, grade, searchName);
 		}
 		catch (Exception e)
 		{
@@ -261,16 +294,40 @@ public class CommissionShopManager
 			container.readUnlock();
 		}
 		
-		if ((list.size() == 1) && list.peek().isEmpty())
+		if ((list.size() == 1) && list.get(0).isEmpty())
 		{
 			player.sendPacket(new ExResponseCommissionList(ExResponseCommissionList.EMPTY_LIST));
 			return;
 		}
 		
-		while (list.size() > 0)
+		for (int i = 0; i < list.size(); i++)
 		{
-			List<CommissionItemInfo> part = list.poll();
-			player.sendPacket(new ExResponseCommissionList(ExResponseCommissionList.ALL_ITEMS, list.size(), part));
+			player.sendPacket(new ExResponseCommissionList(ExResponseCommissionList.ALL_ITEMS, list.size() - i - 1, list.get(i)));
+		}
+	}
+	
+	/**
+	 * Method getItemInfo.
+	 * @param auctionId long
+	 * @param exItemType int
+	 * @return CommissionItemInfo or null if the auction is not registered
+	 */
+	private CommissionItemInfo getItemInfo(long auctionId, int exItemType)
+	{
+		if ((exItemType < 0) || (exItemType >= ExItemType.values().length))
+		{
+			return null;
+		}
+		
+		container.readLock();
+		
+		try
+		{
+			return index.get(auctionId, ExItemType.values()[exItemType]);
+		}
+		finally
+		{
+			container.readUnlock();
 		}
 	}
 	
@@ -287,7 +344,7 @@ public class CommissionShopManager
 			return;
 		}
 		
-		CommissionItemInfo itemInfo = CommissionShopDAO.getInstance().getCommissionItemInfo(auctionId, ExItemType.values()[exItemType]);
+		CommissionItemInfo itemInfo = getItemInfo(auctionId, exItemType);
 		
 		if (itemInfo != null)
 		{
@@ -303,7 +360,7 @@ public class CommissionShopManager
 	 */
 	public void returnBuyItem(Player player, long auctionId, int exItemType)
 	{
-		CommissionItemInfo itemInfo = CommissionShopDAO.getInstance().getCommissionItemInfo(auctionId, ExItemType.values()[exItemType]);
+		CommissionItemInfo itemInfo = getItemInfo(auctionId, exItemType);
 		
 		if (itemInfo == null)
 		{
@@ -322,11 +379,12 @@ public class CommissionShopManager
 				return;
 			}
 			
-			if (!CommissionShopDAO.getInstance().removeItem(auctionId))
+			if (!index.contains(auctionId) || !CommissionShopDAO.getInstance().removeItem(auctionId))
 			{
 				return;
 			}
 			
+			index.remove(auctionId);
 			container.removeItem(itemInfo.getItem());
 			inventory.addItem(itemInfo.getItem());
 			Log.LogItem(player, Log.CommissionItemDelete, itemInfo.getItem());
@@ -352,7 +410,7 @@ public class CommissionShopManager
 	 */
 	public void requestBuyItem(Player player, long auctionId, int exItemType)
 	{
-		CommissionItemInfo itemInfo = CommissionShopDAO.getInstance().getCommissionItemInfo(auctionId, ExItemType.values()[exItemType]);
+		CommissionItemInfo itemInfo = getItemInfo(auctionId, exItemType);
 		
 		if (itemInfo == null)
 		{
@@ -386,7 +444,7 @@ public class CommissionShopManager
 				return;
 			}
 			
-			if (!CommissionShopDAO.getInstance().removeItem(auctionId))
+			if (!index.contains(auctionId) || !CommissionShopDAO.getInstance().removeItem(auctionId))
 			{
 				player.sendPacket(ExResponseCommissionBuyItem.FAILED);
 				return;
@@ -394,6 +452,7 @@ public class CommissionShopManager
 			
 			int receiverId = itemInfo.getItem().getOwnerId();
 			inventory.reduceAdena(price);
+			index.remove(auctionId);
 			container.removeItem(itemInfo.getItem());
 			inventory.addItem(itemInfo.getItem());
 			player.sendPacket(new ExResponseCommissionBuyItem(1, itemInfo.getItem().getId(), itemInfo.getItem().getCount()));
@@ -452,10 +511,16 @@ public class CommissionShopManager
 		
 		try
 		{
-			List<CommissionItemInfo> expiredItems = CommissionShopDAO.getInstance().removeExpiredItems(System.currentTimeMillis());
+			List<CommissionItemInfo> expiredItems = index.getExpired(System.currentTimeMillis());
 			
 			for (CommissionItemInfo itemInfo : expiredItems)
 			{
+				if (!CommissionShopDAO.getInstance().removeItem(itemInfo.getAuctionId()))
+				{
+					continue;
+				}
+				
+				index.remove(itemInfo.getAuctionId());
 				Mail mail = new Mail();
 				mail.setSenderId(itemInfo.getItem().getOwnerId());
 				mail.setSenderName("CommissionBuyTitle");
@@ -47,6 +47,7 @@ import lineage2.gameserver.ai.CtrlIntention;
 import lineage2.gameserver.ai.PlayableAI.nextAction;
 import lineage2.gameserver.geodata.GeoEngine;
 import lineage2.gameserver.geodata.GeoMove;
+import lineage2.gameserver.geodata.PathFindService;
 import lineage2.gameserver.instancemanager.ReflectionManager;
 import lineage2.gameserver.model.GameObjectTasks.AltMagicUseTask;
 import lineage2.gameserver.model.GameObjectTasks.CastEndTimeTask;
@@ -108,6 +109,7 @@ import lineage2.gameserver.stats.funcs.Func;
 import lineage2.gameserver.stats.triggers.TriggerInfo;
 import lineage2.gameserver.stats.triggers.TriggerType;
 import lineage2.gameserver.taskmanager.LazyPrecisionTaskManager;
+import lineage2.gameserver.taskmanager.MoveTaskManager;
 import lineage2.gameserver.taskmanager.RegenTaskManager;
 import lineage2.gameserver.templates.CharTemplate;
 import lineage2.gameserver.templates.item.WeaponTemplate;
@@ -209,6 +211,13 @@ public abstract class Creature extends GameObject
 				
 				if (alldist <= 0)
 				{
+					if (_pathRequest != null)
+					{
+						_startMoveTime = now;
+						scheduleMoveStep(now);
+						return;
+					}
+					
 					moveNext(false);
 					return;
 				}
@@ -298,7 +307,7 @@ public abstract class Creature extends GameObject
 				
 				_previousSpeed = speed;
 				_startMoveTime = now;
-				_moveTask = ThreadPoolManager.getInstance().schedule(this, getMoveTickInterval());
+				scheduleMoveStep(now);
 			}
 			catch (Exception e)
 			{
@@ -311,6 +320,45 @@ public abstract class Creature extends GameObject
 		}
 	}
 	
+	/**
+	 * Hands a path found by the PathFindService back to the creature.
+	 */
+	private class PathRequest implements PathFindService.PathCallback
+	{
+		final int _x, _y;
+		final int _offset;
+		
+		/**
+		 * Constructor for PathRequest.
+		 * @param x int position the path is searched from
+		 * @param y int
+		 * @param offset int
+		 */
+		PathRequest(int x, int y, int offset)
+		{
+			_x = x;
+			_y = y;
+			_offset = offset;
+		}
+		
+		/**
+		 * Method onPath.
+		 * @param path List<List<Location>>
+		 */
+		@Override
+		public void onPath(final List<List<Location>> path)
+		{
+			ThreadPoolManager.getInstance().execute(new RunnableImpl()
+			{
+				@Override
+				public void runImpl()
+				{
+					onPathFound(PathRequest.this, path);
+				}
+			});
+		}
+	}
+	
 	private static final Logger _log = LoggerFactory.getLogger(Creature.class);
 	public static final double HEADINGS_IN_PI = 10430.378350470452724949566316381;
 	public static final int INTERACTION_DISTANCE = 200;
@@ -393,7 +441,8 @@ public abstract class Creature extends GameObject
 	public boolean isMoving;
 	public boolean isFollow;
 	final Lock moveLock = new ReentrantLock();
-	Future<?> _moveTask;
+	private MoveTaskManager _moveTaskManager;
+	private volatile long _nextMoveTime;
 	private MoveNextTask _moveTaskRunnable;
 	List<Location> moveList;
 	private Location destination;
@@ -405,6 +454,10 @@ public abstract class Creature extends GameObject
 	private volatile HardReference<? extends Creature> followTarget = HardReferences.emptyRef();
 	private volatile HardReference<? extends Creature> _aggressionTarget = HardReferences.emptyRef();
 	private final List<List<Location>> _targetRecorder = new ArrayList<>();
+	/**
+	 * Path search of the current movement not answered yet, guarded by moveLock.
+	 */
+	private PathRequest _pathRequest;
 	long _followTimestamp;
 	long _startMoveTime;
 	int _previousSpeed = 0;
@@ -2685,6 +2738,20 @@ public abstract class Creature extends GameObject
 		return World.getAroundCharacters(this, radius, height);
 	}
 	
+	/**
+	 * Method getAroundCharacters.
+	 * @param radius int
+	 * @param height int
+	 * @param result List<Creature> reused list the characters are added to
+	 */
+	public void getAroundCharacters(int radius, int height, List<Creature> result)
+	{
+		if (isVisible())
+		{
+			World.getAroundCharacters(this, radius, height, result);
+		}
+	}
+	
 	/**
 	 * Method getAroundNpc.
 	 * @param range int
@@ -3433,6 +3500,7 @@ public abstract class Creature extends GameObject
 	 */
 	boolean buildPathTo(int x, int y, int z, int offset, Creature follow, boolean forestalling, boolean pathFind)
 	{
+		_pathRequest = null;
 		int geoIndex = getGeoIndex();
 		Location dest;
 		
@@ -3532,6 +3600,11 @@ public abstract class Creature extends GameObject
 		
 		if (pathFind)
 		{
+			if (PathFindService.getInstance().isEnabled() && findPathAsync(dest, offset, geoIndex))
+			{
+				return true;
+			}
+			
 			List<List<Location>> targets = GeoMove.findMovePath(getX(), getY(), getZ(), dest.clone(), this, true, geoIndex);
 			
 			if (!targets.isEmpty())
@@ -3571,6 +3644,39 @@ public abstract class Creature extends GameObject
 		return false;
 	}
 	
+	/**
+	 * Queues the path search and walks the straight line towards the destination until the path is found.<br>
+	 * Without a straight line to walk, or if the queue is full, the path is searched on the calling thread, so a move that cannot start is still reported by buildPathTo.
+	 * @param dest Location
+	 * @param offset int
+	 * @param geoIndex int
+	 * @return boolean true if the search was queued
+	 */
+	private boolean findPathAsync(Location dest, int offset, int geoIndex)
+	{
+		Location straight = dest.clone();
+		applyOffset(straight, offset);
+		List<Location> interim = GeoEngine.MoveList(getX(), getY(), getZ(), straight.getX(), straight.getY(), geoIndex, false);
+		
+		if ((interim == null) || interim.isEmpty())
+		{
+			return false;
+		}
+		
+		final PathRequest request = new PathRequest(getX(), getY(), offset);
+		
+		if (!PathFindService.getInstance().findMovePath(getX(), getY(), getZ(), dest.clone(), this, geoIndex, request))
+		{
+			return false;
+		}
+		
+		_pathRequest = request;
+		moveList = interim;
+		_targetRecorder.clear();
+		_targetRecorder.add(interim);
+		return true;
+	}
+	
 	/**
 	 * Method getFollowTarget.
 	 * @return Creature
@@ -3763,6 +3869,12 @@ public abstract class Creature extends GameObject
 		
 		if (_targetRecorder.isEmpty())
 		{
+			if (_pathRequest != null)
+			{
+				waitForPath();
+				return;
+			}
+			
 			CtrlEvent ctrlEvent = isFollow ? CtrlEvent.EVT_ARRIVED_TARGET : CtrlEvent.EVT_ARRIVED;
 			stopMove(false, true);
 			ThreadPoolManager.getInstance().execute(new NotifyAITask(this, ctrlEvent));
@@ -3788,7 +3900,155 @@ public abstract class Creature extends GameObject
 			_moveTaskRunnable = new MoveNextTask();
 		}
 		
-		_moveTask = ThreadPoolManager.getInstance().schedule(_moveTaskRunnable.setDist(distance), getMoveTickInterval());
+		_moveTaskRunnable.setDist(distance);
+		scheduleMoveStep(_startMoveTime);
+	}
+	
+	/**
+	 * Keeps the creature moving in place until its path search answers.
+	 */
+	private void waitForPath()
+	{
+		if (_moveTaskRunnable == null)
+		{
+			_moveTaskRunnable = new MoveNextTask();
+		}
+		
+		_moveTaskRunnable.setDist(0);
+		_startMoveTime = _followTimestamp = System.currentTimeMillis();
+		scheduleMoveStep(_startMoveTime);
+	}
+	
+	/**
+	 * Method onPathFound.
+	 * @param request PathRequest
+	 * @param targets List<List<Location>>
+	 */
+	void onPathFound(PathRequest request, List<List<Location>> targets)
+	{
+		moveLock.lock();
+		
+		try
+		{
+			if ((_pathRequest != request) || !isMoving)
+			{
+				return;
+			}
+			
+			_pathRequest = null;
+			
+			if (!targets.isEmpty())
+			{
+				List<Location> moveList = targets.remove(targets.size() - 1);
+				applyOffset(moveList, request._offset);
+				
+				if (!moveList.isEmpty())
+				{
+					targets.add(moveList);
+				}
+			}
+			
+			if (!targets.isEmpty() && !reanchorPath(request, targets))
+			{
+				targets.clear();
+			}
+			
+			if (targets.isEmpty())
+			{
+				// no way around, a move keeps the straight line walked meanwhile, a follow gives up as without the service
+				if (isFollow)
+				{
+					stopMove();
+				}
+				
+				return;
+			}
+			
+			_targetRecorder.clear();
+			_targetRecorder.addAll(targets);
+			moveNext(true);
+		}
+		finally
+		{
+			moveLock.unlock();
+		}
+	}
+	
+	/**
+	 * Starts a path searched from where the creature was at request time at its current position, it walked on meanwhile.
+	 * @param request PathRequest
+	 * @param targets List<List<Location>> not empty
+	 * @return boolean false if the path cannot be reached from here
+	 */
+	private boolean reanchorPath(PathRequest request, List<List<Location>> targets)
+	{
+		final int geoIndex = getGeoIndex();
+		final List<Location> first = targets.get(0);
+		final Location node = first.get(first.size() - 1).clone().geo2world();
+		List<Location> head = GeoEngine.MoveList(getX(), getY(), getZ(), node.getX(), node.getY(), geoIndex, true);
+		
+		if (head != null)
+		{
+			// straight to the first node of the path
+			if (head.isEmpty())
+			{
+				targets.remove(0);
+			}
+			else
+			{
+				targets.set(0, head);
+			}
+			
+			return true;
+		}
+		
+		// back along the walked line to where the search started
+		head = GeoEngine.MoveList(getX(), getY(), getZ(), request._x, request._y, geoIndex, true);
+		
+		if (head == null)
+		{
+			return false;
+		}
+		
+		if (!head.isEmpty())
+		{
+			targets.add(0, head);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Schedules the next movement step and attaches the creature to a movement manager if it is not handled by one yet.
+	 * @param now long
+	 */
+	private void scheduleMoveStep(long now)
+	{
+		_nextMoveTime = now + getMoveTickInterval();
+		
+		if (_moveTaskManager == null)
+		{
+			_moveTaskManager = MoveTaskManager.getInstance(this);
+			_moveTaskManager.add(this);
+		}
+	}
+	
+	/**
+	 * Called by the movement manager on every pass.
+	 * @param now long
+	 * @return boolean true if a movement step was due and has been processed
+	 */
+	public boolean onMoveTick(long now)
+	{
+		final MoveNextTask task = _moveTaskRunnable;
+		
+		if (!isMoving || (task == null) || (now < _nextMoveTime))
+		{
+			return false;
+		}
+		
+		task.run();
+		return true;
 	}
 	
 	/**
@@ -3805,6 +4065,11 @@ public abstract class Creature extends GameObject
 	 */
 	private void broadcastMove()
 	{
+		if (!isBoat() && MoveTaskManager.queueBroadcast(this, new ValidateLocation(this), movePacket()))
+		{
+			return;
+		}
+		
 		validateLocation(isPlayer() ? 2 : 1);
 		broadcastPacket(movePacket());
 	}
@@ -3850,15 +4115,21 @@ public abstract class Creature extends GameObject
 			isMoving = false;
 			isFollow = false;
 			
-			if (_moveTask != null)
+			if (_moveTaskManager != null)
 			{
-				_moveTask.cancel(false);
-				_moveTask = null;
+				_moveTaskManager.remove(this);
+				_moveTaskManager = null;
 			}
 			
 			destination = null;
 			moveList = null;
 			_targetRecorder.clear();
+			_pathRequest = null;
+			
+			if (stop && !isBoat() && MoveTaskManager.queueBroadcast(this, validate ? new ValidateLocation(this) : null, stopMovePacket()))
+			{
+				return;
+			}
 			
 			if (validate)
 			{
@@ -15,7 +15,10 @@ package lineage2.gameserver.model;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -25,11 +28,15 @@ import lineage2.gameserver.skills.skillclasses.Transformation;
 import lineage2.gameserver.stats.Stats;
 import lineage2.gameserver.stats.funcs.FuncTemplate;
 import lineage2.gameserver.utils.Util;
-import gnu.trove.list.array.TIntArrayList;
 import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.set.hash.TIntHashSet;
 
+import org.napile.primitive.maps.IntObjectMap;
+import org.napile.primitive.maps.impl.CHashIntObjectMap;
+
 /**
+ * Effects are kept in insertion order in a lock-free queue, so adding or removing an effect never copies the whole list and iterating it stays safe while effects exit.<br>
+ * Lookups by skill id, effect type and stack type go through small per-key queues of the same kind, maintained under the list lock.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
@@ -44,7 +51,10 @@ public class EffectList
 	private static final int MUSIC_LIMIT = 12;
 	private static final int TRIGGER_LIMIT = 12;
 	private final Creature _actor;
-	private List<Effect> _effects;
+	private volatile Queue<Effect> _effects;
+	private IntObjectMap<Queue<Effect>> _effectsBySkillId;
+	private Map<EffectType, Queue<Effect>> _effectsByType;
+	private Map<String, Queue<Effect>> _effectsByStackType;
 	private final Lock lock = new ReentrantLock();
 	
 	/**
@@ -68,17 +78,8 @@ public class EffectList
 			return 0;
 		}
 		
-		int count = 0;
-		
-		for (Effect e : _effects)
-		{
-			if (e.getSkill().getId() == skill_id)
-			{
-				count++;
-			}
-		}
-		
-		return count;
+		Queue<Effect> list = _effectsBySkillId.get(skill_id);
+		return list == null ? 0 : list.size();
 	}
 	
 	/**
@@ -93,15 +94,7 @@ public class EffectList
 			return null;
 		}
 		
-		for (Effect e : _effects)
-		{
-			if (e.getEffectType() == et)
-			{
-				return e;
-			}
-		}
-		
-		return null;
+		return first(_effectsByType.get(et));
 	}
 	
 	/**
@@ -131,16 +124,14 @@ public class EffectList
 			return null;
 		}
 		
-		List<Effect> list = new ArrayList<>(2);
+		Queue<Effect> queue = _effectsBySkillId.get(skillId);
 		
-		for (Effect e : _effects)
+		if (queue == null)
 		{
-			if (e.getSkill().getId() == skillId)
-			{
-				list.add(e);
-			}
+			return null;
 		}
 		
+		List<Effect> list = new ArrayList<>(queue);
 		return list.isEmpty() ? null : list;
 	}
 	
@@ -157,9 +148,16 @@ public class EffectList
 			return null;
 		}
 		
-		for (Effect e : _effects)
+		Queue<Effect> list = _effectsBySkillId.get(skillId);
+		
+		if (list == null)
 		{
-			if ((e.getSkill().getId() == skillId) && (e.getEffectType() == type))
+			return null;
+		}
+		
+		for (Effect e : list)
+		{
+			if (e.getEffectType() == type)
 			{
 				return e;
 			}
@@ -180,15 +178,20 @@ public class EffectList
 			return null;
 		}
 		
-		for (Effect e : _effects)
+		if (type.equals(EffectTemplate.NO_STACK))
 		{
-			if (e.getStackType().contains(type))
+			for (Effect e : _effects)
 			{
-				return e;
+				if (e.getStackType().contains(type))
+				{
+					return e;
+				}
 			}
+			
+			return null;
 		}
 		
-		return null;
+		return first(_effectsByStackType.get(type));
 	}
 	
 	/**
@@ -203,13 +206,22 @@ public class EffectList
 			return false;
 		}
 		
-		int skillId;
-		
-		for (Effect e : _effects)
+		if (skillIds.length > _effectsBySkillId.size())
 		{
-			skillId = e.getSkill().getId();
+			for (int skillId : _effectsBySkillId.keySet().toArray())
+			{
+				if (Util.contains(skillIds, skillId))
+				{
+					return true;
+				}
+			}
 			
-			if (Util.contains(skillIds, skillId))
+			return false;
+		}
+		
+		for (int skillId : skillIds)
+		{
+			if (_effectsBySkillId.containsKey(skillId))
 			{
 				return true;
 			}
@@ -233,13 +245,17 @@ public class EffectList
 			return contain;
 		}
 		
-		for (Effect e : _effects)
+		Queue<Effect> list = _effectsBySkillId.get(skillId);
+		
+		if (list == null)
 		{
-			if (skillId == e.getSkill().getId())
-			{
-				contain = true;
-				e.exit();
-			}
+			return contain;
+		}
+		
+		for (Effect e : list)
+		{
+			contain = true;
+			e.exit();
 		}
 		
 		return contain;
@@ -308,26 +324,27 @@ public class EffectList
 		}
 		
 		int size = 0;
-		TIntArrayList skillIds = new TIntArrayList();
 		
-		for (Effect e : _effects)
+		for (Queue<Effect> list : _effectsBySkillId.values())
 		{
-			if (e.isInUse())
+			boolean counted = false;
+			
+			for (Effect e : list)
 			{
+				if (!e.isInUse())
+				{
+					continue;
+				}
+				
 				if (e.getSkill().equals(newEffect.getSkill()))
 				{
 					return;
 				}
 				
-				if (!skillIds.contains(e.getSkill().getId()))
+				if (!counted && (getSlotType(e) == slotType))
 				{
-					int subType = getSlotType(e);
-					
-					if (subType == slotType)
-					{
-						size++;
-						skillIds.add(e.getSkill().getId());
-					}
+					size++;
+					counted = true;
 				}
 			}
 		}
@@ -445,12 +462,17 @@ public class EffectList
 		{
 			if (_effects == null)
 			{
-				_effects = new CopyOnWriteArrayList<>();
+				_effectsBySkillId = new CHashIntObjectMap<>();
+				_effectsByType = new ConcurrentHashMap<>();
+				_effectsByStackType = new ConcurrentHashMap<>();
+				_effects = new ConcurrentLinkedQueue<>();
 			}
 			
 			if (effect.getStackType().contains(EffectTemplate.NO_STACK))
 			{
-				for (Effect e : _effects)
+				Queue<Effect> sameSkill = _effectsBySkillId.get(effect.getSkill().getId());
+				
+				for (Effect e : sameSkill == null ? Collections.<Effect> emptyList() : sameSkill)
 				{
 					if (!e.isInUse())
 					{
@@ -472,7 +494,7 @@ public class EffectList
 			}
 			else
 			{
-				for (Effect e : _effects)
+				for (Effect e : getStackCandidates(effect))
 				{
 					if (!e.isInUse())
 					{
@@ -506,6 +528,7 @@ public class EffectList
 			
 			if (add)
 			{
+				addToIndexes(effect);
 				effect.setInUse(true);
 			}
 		}
@@ -566,6 +589,8 @@ public class EffectList
 			{
 				return;
 			}
+			
+			removeFromIndexes(effect);
 		}
 		finally
 		{
@@ -592,38 +617,44 @@ public class EffectList
 			return;
 		}
 		
-		for (Effect e : _effects)
+		Queue<Effect> list = _effectsBySkillId.get(skillId);
+		
+		if (list == null)
+		{
+			return;
+		}
+		
+		for (Effect e : list)
 		{
-			if (e.getSkill().getId() == skillId)
+			boolean remove = false;
+			lock.lock();
+			
+			try
 			{
-				boolean remove = false;
-				lock.lock();
-				
-				try
+				if (_effects == null)
 				{
-					if (_effects == null)
-					{
-						return;
-					}
-					
-					if (!((remove = _effects.remove(e))))
-					{
-						return;
-					}
-				}
-				finally
-				{
-					lock.unlock();
+					return;
 				}
 				
-				if (!remove)
+				if (!((remove = _effects.remove(e))))
 				{
 					return;
 				}
 				
-				_actor.updateStats();
-				_actor.updateEffectIcons();
+				removeFromIndexes(e);
+			}
+			finally
+			{
+				lock.unlock();
 			}
+			
+			if (!remove)
+			{
+				return;
+			}
+			
+			_actor.updateStats();
+			_actor.updateEffectIcons();
 		}
 	}
 	
@@ -665,12 +696,16 @@ public class EffectList
 			return;
 		}
 		
-		for (Effect e : _effects)
+		Queue<Effect> list = _effectsBySkillId.get(skillId);
+		
+		if (list == null)
 		{
-			if (e.getSkill().getId() == skillId)
-			{
-				e.exit();
-			}
+			return;
+		}
+		
+		for (Effect e : list)
+		{
+			e.exit();
 		}
 	}
 	
@@ -717,12 +752,16 @@ public class EffectList
 			return;
 		}
 		
-		for (Effect e : _effects)
+		Queue<Effect> list = _effectsByType.get(type);
+		
+		if (list == null)
 		{
-			if (e.getEffectType() == type)
-			{
-				e.exit();
-			}
+			return;
+		}
+		
+		for (Effect e : list)
+		{
+			e.exit();
 		}
 	}
 	
@@ -737,14 +776,18 @@ public class EffectList
 			return;
 		}
 		
+		Queue<Effect> list = _effectsByType.get(type);
+		
+		if (list == null)
+		{
+			return;
+		}
+		
 		TIntHashSet skillIds = new TIntHashSet();
 		
-		for (Effect e : _effects)
+		for (Effect e : list)
 		{
-			if (e.getEffectType() == type)
-			{
-				skillIds.add(e.getSkill().getId());
-			}
+			skillIds.add(e.getSkill().getId());
 		}
 		
 		for (int skillId : skillIds.toArray())
@@ -752,4 +795,116 @@ public class EffectList
 			stopEffect(skillId);
 		}
 	}
+	
+	/**
+	 * Method getStackCandidates.
+	 * @param effect Effect
+	 * @return Iterable<Effect> effects that may share a stack type with the given one, in insertion order
+	 */
+	private Iterable<Effect> getStackCandidates(Effect effect)
+	{
+		List<String> stackTypes = effect.getStackType();
+		
+		if (stackTypes.size() != 1)
+		{
+			return _effects;
+		}
+		
+		Queue<Effect> list = _effectsByStackType.get(stackTypes.get(0));
+		return list == null ? Collections.<Effect> emptyList() : list;
+	}
+	
+	/**
+	 * Method addToIndexes.
+	 * @param effect Effect
+	 */
+	private void addToIndexes(Effect effect)
+	{
+		int skillId = effect.getSkill().getId();
+		Queue<Effect> list = _effectsBySkillId.get(skillId);
+		
+		if (list == null)
+		{
+			_effectsBySkillId.put(skillId, list = new ConcurrentLinkedQueue<>());
+		}
+		
+		list.add(effect);
+		list = _effectsByType.get(effect.getEffectType());
+		
+		if (list == null)
+		{
+			_effectsByType.put(effect.getEffectType(), list = new ConcurrentLinkedQueue<>());
+		}
+		
+		list.add(effect);
+		
+		for (String stackType : effect.getStackType())
+		{
+			if (stackType.equals(EffectTemplate.NO_STACK))
+			{
+				continue;
+			}
+			
+			list = _effectsByStackType.get(stackType);
+			
+			if (list == null)
+			{
+				_effectsByStackType.put(stackType, list = new ConcurrentLinkedQueue<>());
+			}
+			
+			list.add(effect);
+		}
+	}
+	
+	/**
+	 * Method removeFromIndexes.
+	 * @param effect Effect
+	 */
+	private void removeFromIndexes(Effect effect)
+	{
+		int skillId = effect.getSkill().getId();
+		Queue<Effect> list = _effectsBySkillId.get(skillId);
+		
+		if ((list != null) && list.remove(effect) && list.isEmpty())
+		{
+			_effectsBySkillId.remove(skillId);
+		}
+		
+		list = _effectsByType.get(effect.getEffectType());
+		
+		if ((list != null) && list.remove(effect) && list.isEmpty())
+		{
+			_effectsByType.remove(effect.getEffectType());
+		}
+		
+		for (String stackType : effect.getStackType())
+		{
+			list = _effectsByStackType.get(stackType);
+			
+			if ((list != null) && list.remove(effect) && list.isEmpty())
+			{
+				_effectsByStackType.remove(stackType);
+			}
+		}
+	}
+	
+	/**
+	 * Method first.
+	 * @param list Queue<Effect>
+	 * @return Effect
+	 */
+	private static Effect first(Queue<Effect> list)
+	{
+		if (list == null)
+		{
+			return null;
+		}
+		
+		for (Effect e : list)
+		{
+			return e;
+		}
+		
+		return null;
+	}
 }
@@ -16,6 +16,8 @@ import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import lineage2.commons.collections.MultiValueSet;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.model.instances.MonsterInstance;
 import lineage2.gameserver.model.instances.NpcInstance;
 import lineage2.gameserver.templates.StatsSet;
 import lineage2.gameserver.templates.spawn.SpawnNpcInfo;
@@ -50,16 +52,44 @@ public class HardSpawner extends Spawner
 	@Override
 	public void decreaseCount(NpcInstance oldNpc)
 	{
-		oldNpc.setSpawn(null);
-		oldNpc.deleteMe();
 		_spawned.remove(oldNpc);
 		SpawnNpcInfo npcInfo = getNextNpcInfo();
-		NpcInstance npc = npcInfo.getTemplate().getNewInstance();
-		npc.setSpawn(this);
+		NpcInstance npc;
+		
+		if (isRecyclable(oldNpc, npcInfo))
+		{
+			// same as SimpleSpawner, the decayed npc is spawned again under a new object id
+			npc = oldNpc;
+			npc.refreshID();
+		}
+		else
+		{
+			oldNpc.setSpawn(null);
+			oldNpc.deleteMe();
+			npc = npcInfo.getTemplate().getNewInstance();
+			npc.setSpawn(this);
+		}
+		
 		_reSpawned.add(npc);
 		decreaseCount0(npcInfo.getTemplate(), npc, oldNpc.getDeadTime());
 	}
 	
+	/**
+	 * Method isRecyclable.
+	 * @param oldNpc NpcInstance
+	 * @param npcInfo SpawnNpcInfo
+	 * @return boolean true if the decayed npc can be reused instead of creating a new one
+	 */
+	private static boolean isRecyclable(NpcInstance oldNpc, SpawnNpcInfo npcInfo)
+	{
+		if (!Config.NPC_RECYCLING || (oldNpc.getTemplate() != npcInfo.getTemplate()) || oldNpc.isRaid())
+		{
+			return false;
+		}
+		
+		return !oldNpc.isMonster() || !((MonsterInstance) oldNpc).hasMinions();
+	}
+	
 	/**
 	 * Method doSpawn.
 	 * @param spawn boolean
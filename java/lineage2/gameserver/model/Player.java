@@ -38,7 +38,6 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.Future;
@@ -67,6 +66,7 @@ import lineage2.gameserver.dao.AccountBonusDAO;
 import lineage2.gameserver.dao.CharacterDAO;
 import lineage2.gameserver.dao.CharacterGroupReuseDAO;
 import lineage2.gameserver.dao.CharacterPostFriendDAO;
+import lineage2.gameserver.dao.CharacterQuestDAO;
 import lineage2.gameserver.dao.CharacterSubclassDAO;
 import lineage2.gameserver.dao.EffectsDAO;
 import lineage2.gameserver.data.xml.holder.EventHolder;
@@ -92,6 +92,7 @@ import lineage2.gameserver.instancemanager.AwakingManager;
 import lineage2.gameserver.instancemanager.BypassManager;
 import lineage2.gameserver.instancemanager.BypassManager.BypassType;
 import lineage2.gameserver.instancemanager.BypassManager.DecodedBypass;
+import lineage2.gameserver.instancemanager.ChatChannelManager;
 import lineage2.gameserver.instancemanager.CursedWeaponsManager;
 import lineage2.gameserver.instancemanager.MatchingRoomManager;
 import lineage2.gameserver.instancemanager.QuestManager;
@@ -315,6 +316,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.napile.primitive.Containers;
 import org.napile.primitive.maps.IntObjectMap;
 import org.napile.primitive.maps.impl.CHashIntObjectMap;
+import org.napile.primitive.maps.impl.CTreeIntObjectMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -485,7 +487,7 @@ public final class Player extends Playable implements PlayerGroup
 	public Location _stablePoint = null;
 	private final int _loto[] = new int[5];
 	private final int _race[] = new int[2];
-	private final Map<Integer, String> _blockList = new ConcurrentSkipListMap<>();
+	private final IntObjectMap<String> _blockList = new CTreeIntObjectMap<>();
 	private final FriendList _friendList = new FriendList(this);
 	private boolean _hero = false;
 	private Boat _boat;
@@ -517,12 +519,14 @@ public final class Player extends Playable implements PlayerGroup
 	private final Lock _subClassOperationLock = new ReentrantLock();
 	private int _zoneMask;
 	private boolean _offline = false;
+	private boolean _hibernated = false;
 	private boolean _registeredInEvent;
 	private int _pcBangPoints;
 	final Map<Integer, Skill> _transformationSkills = new HashMap<>();
 	private int _expandInventory = 0;
 	private int _expandWarehouse = 0;
 	private int _battlefieldChatId;
+	private int _chatTile = -1;
 	private int _lectureMark;
 	private InvisibleType _invisibleType = InvisibleType.NONE;
 	private List<String> bypasses = null, bypasses_bbs = null;
@@ -1124,6 +1128,8 @@ public final class Player extends Playable implements PlayerGroup
 		{
 			_log.error("", t);
 		}
+		
+		CharacterQuestDAO.getInstance().flush(getObjectId());
 	}
 	
 	/**
@@ -4158,10 +4164,14 @@ public final class Player extends Playable implements PlayerGroup
 			return;
 		}
 		
+		List<L2GameServerPacket> resolved = new ArrayList<>(packets.size());
+		
 		for (IStaticPacket p : packets)
 		{
-			_connection.sendPacket(p.packet(this));
+			resolved.add(p.packet(this));
 		}
+		
+		_connection.sendPackets(resolved);
 	}
 	
 	/**
@@ -5533,6 +5543,7 @@ public final class Player extends Playable implements PlayerGroup
 	protected void onDelete()
 	{
 		super.onDelete();
+		ChatChannelManager.getInstance().remove(this);
 		WorldRegion observerRegion = getObserverRegion();
 		
 		if (observerRegion != null)
@@ -6255,6 +6266,18 @@ public final class Player extends Playable implements PlayerGroup
 	 * @return Player
 	 */
 	public static Player restore(final int objectId)
+	{
+		return restore(objectId, false);
+	}
+	
+	/**
+	 * Method restore.<br>
+	 * A hibernated player keeps appearance, location, inventory, store lists and the passive skills behind its stats only. Other skills, effects, quests, warehouse, friends and the rest are left in the database and the player is never stored over them.
+	 * @param objectId int
+	 * @param hibernate boolean restore a sell or buy offline store in hibernated form
+	 * @return Player
+	 */
+	public static Player restore(final int objectId, final boolean hibernate)
 	{
 		Player player = null;
 		Connection con = null;
@@ -6280,13 +6303,19 @@ public final class Player extends Playable implements PlayerGroup
 				final PlayerTemplate template = PlayerTemplateHolder.getInstance().getPlayerTemplate(defaultClassId.getRace(), classId, Sex.VALUES[rset.getInt("sex")]);
 				player = new Player(objectId, template);
 				player.loadVariables();
-				player.loadInstanceReuses();
-				player.loadPremiumItemList();
+				player._hibernated = hibernate && canHibernate(player.getVar("storemode"));
 				player.bookmarks.setCapacity(rset.getInt("bookmarks"));
-				player.bookmarks.restore();
-				player._friendList.restore();
-				player._postFriends = CharacterPostFriendDAO.getInstance().select(player);
-				CharacterGroupReuseDAO.getInstance().select(player);
+				
+				if (!player._hibernated)
+				{
+					player.loadInstanceReuses();
+					player.loadPremiumItemList();
+					player.bookmarks.restore();
+					player._friendList.restore();
+					player._postFriends = CharacterPostFriendDAO.getInstance().select(player);
+					CharacterGroupReuseDAO.getInstance().select(player);
+				}
+				
 				player._login = rset.getString("account_name");
 				player.setName(rset.getString("char_name"));
 				player.setFace(rset.getInt("face"));
@@ -6386,7 +6415,11 @@ public final class Player extends Playable implements PlayerGroup
 				player.setKeyBindings(rset.getBytes("key_bindings"));
 				player.setPcBangPoints(rset.getInt("pcBangPoints"));
 				player.setFame(rset.getInt("fame"), null);
-				player.restoreRecipeBook();
+				
+				if (!player._hibernated)
+				{
+					player.restoreRecipeBook();
+				}
 				
 				if (Config.ENABLE_OLYMPIAD)
 				{
@@ -6438,12 +6471,21 @@ public final class Player extends Playable implements PlayerGroup
 				
 				player.setReflection(reflection);
 				EventHolder.getInstance().findEvent(player);
-				Quest.restoreQuestStates(player);
+				
+				if (!player._hibernated)
+				{
+					Quest.restoreQuestStates(player);
+				}
+				
 				player.getSubClassList().restore();
 				player.setActiveSubClass(player.getActiveClassId(), false, 0);
 				player.restoreVitality();
 				player.getInventory().restore();
-				player.getMentorSystem().restore();
+				
+				if (!player._hibernated)
+				{
+					player.getMentorSystem().restore();
+				}
 				
 				try
 				{
@@ -6563,12 +6605,21 @@ public final class Player extends Playable implements PlayerGroup
 					
 					zones.clear();
 				}
-				player.restoreBlockList();
-				player._macroses.restore();
+				if (!player._hibernated)
+				{
+					player.restoreBlockList();
+					player._macroses.restore();
+				}
+				
 				player.refreshExpertisePenalty();
 				player.refreshOverloaded();
-				player.getWarehouse().restore();
-				player.getFreight().restore();
+				
+				if (!player._hibernated)
+				{
+					player.getWarehouse().restore();
+					player.getFreight().restore();
+				}
+				
 				player.restoreTradeList();
 				
 				if (player.getVar("storemode") != null)
@@ -6581,7 +6632,11 @@ public final class Player extends Playable implements PlayerGroup
 				player.updateRam();
 				player.checkRecom();
 				player.restoreVitality();
-				player.getSummonList().restore();
+				
+				if (!player._hibernated)
+				{
+					player.getSummonList().restore();
+				}
 			}
 		}
 		catch (final Exception e)
@@ -6597,6 +6652,30 @@ public final class Player extends Playable implements PlayerGroup
 		return player;
 	}
 	
+	/**
+	 * Method canHibernate.
+	 * @param storeMode String
+	 * @return boolean true for store types that need no skills or recipes to trade
+	 */
+	private static boolean canHibernate(String storeMode)
+	{
+		if (storeMode == null)
+		{
+			return false;
+		}
+		
+		switch (Integer.parseInt(storeMode))
+		{
+			case STORE_PRIVATE_SELL:
+			case STORE_PRIVATE_SELL_PACKAGE:
+			case STORE_PRIVATE_BUY:
+				return true;
+			
+			default:
+				return false;
+		}
+	}
+	
 	/**
 	 * Method loadPremiumItemList.
 	 */
@@ -6803,7 +6882,7 @@ public final class Player extends Playable implements PlayerGroup
 				statement.executeUpdate();
 				GameStats.increaseUpdatePlayerBase();
 				
-				if (!fast)
+				if (!fast && !_hibernated)
 				{
 					EffectsDAO.getInstance().insert(this);
 					CharacterGroupReuseDAO.getInstance().insert(this);
@@ -6811,8 +6890,12 @@ public final class Player extends Playable implements PlayerGroup
 					storeBlockList();
 				}
 				
-				storeCharSubClasses();
-				bookmarks.store();
+				if (!_hibernated)
+				{
+					storeCharSubClasses();
+					bookmarks.store();
+				}
+				
 				DbUtils.closeQuietly(con, statement);
 				con = DatabaseFactory.getInstance().getConnection();
 				statement = con.prepareStatement("UPDATE `vitality_points` SET `points`=? WHERE `account_name`=?");
@@ -7180,6 +7263,44 @@ public final class Player extends Playable implements PlayerGroup
 		}
 	}
 	
+	/**
+	 * Restores the passive skills of a hibernated player without checking or storing them, so stats such as the weight and inventory limits match the ones of a fully restored player.
+	 */
+	private void restorePassiveSkills()
+	{
+		Connection con = null;
+		PreparedStatement statement = null;
+		ResultSet rset = null;
+		
+		try
+		{
+			con = DatabaseFactory.getInstance().getConnection();
+			statement = con.prepareStatement("SELECT skill_id,skill_level FROM character_skills WHERE char_obj_id=? AND (class_index=? OR class_index=-1)");
+			statement.setInt(1, getObjectId());
+			statement.setInt(2, getActiveClassId());
+			rset = statement.executeQuery();
+			
+			while (rset.next())
+			{
+				final Skill skill = SkillTable.getInstance().getInfo(rset.getInt("skill_id"), rset.getInt("skill_level"));
+				
+				if ((skill != null) && skill.isPassive())
+				{
+					super.addSkill(skill);
+				}
+			}
+		}
+		catch (final Exception e)
+		{
+			_log.warn("Could not restore passive skills for player objId: " + getObjectId());
+			_log.error("", e);
+		}
+		finally
+		{
+			DbUtils.closeQuietly(con, statement, rset);
+		}
+	}
+	
 	/**
 	 * Method restoreSkills.
 	 */
@@ -8896,7 +9017,7 @@ public final class Player extends Playable implements PlayerGroup
 	{
 		int charId = 0;
 		
-		for (int blockId : _blockList.keySet())
+		for (int blockId : _blockList.keySet().toArray())
 		{
 			if (charName.equals(_blockList.get(blockId)))
 			{
@@ -8947,7 +9068,7 @@ public final class Player extends Playable implements PlayerGroup
 	 */
 	public boolean isInBlockList(final String charName)
 	{
-		for (int blockId : _blockList.keySet())
+		for (int blockId : _blockList.keySet().toArray())
 		{
 			if (charName.equals(_blockList.get(blockId)))
 			{
@@ -9022,7 +9143,7 @@ public final class Player extends Playable implements PlayerGroup
 			{
 				StringBuilder sb;
 				
-				for (Entry<Integer, String> e : _blockList.entrySet())
+				for (IntObjectMap.Entry<String> e : _blockList.entrySet())
 				{
 					sb = new StringBuilder("(");
 					sb.append(getObjectId()).append(',');
@@ -9075,9 +9196,9 @@ public final class Player extends Playable implements PlayerGroup
 	
 	/**
 	 * Method getBlockListMap.
-	 * @return Map<Integer,String>
+	 * @return IntObjectMap<String>
 	 */
-	public Map<Integer, String> getBlockListMap()
+	public IntObjectMap<String> getBlockListMap()
 	{
 		return _blockList;
 	}
@@ -10496,7 +10617,7 @@ public final class Player extends Playable implements PlayerGroup
 		{
 			SubClass oldActiveSub = getActiveSubClass();
 			
-			if (oldActiveSub != null)
+			if ((oldActiveSub != null) && !_hibernated)
 			{
 				EffectsDAO.getInstance().insert(this);
 				storeDisableSkills();
@@ -10545,9 +10666,19 @@ public final class Player extends Playable implements PlayerGroup
 			
 			getSummonList().unsummonAll(false);
 			setAgathion(0);
-			restoreSkills();
-			rewardSkills(false, false);
-			checkSkills();
+			
+			if (!_hibernated)
+			{
+				restoreSkills();
+				rewardSkills(false, false);
+				checkSkills();
+			}
+			else
+			{
+				// weight and inventory limits of a trading store
+				restorePassiveSkills();
+			}
+			
 			sendPacket(new ExStorageMaxCount(this));
 			refreshExpertisePenalty();
 			getInventory().refreshEquip();
@@ -10558,14 +10689,22 @@ public final class Player extends Playable implements PlayerGroup
 				_henna[i] = null;
 			}
 			
-			restoreHenna();
-			sendPacket(new HennaInfo(this));
-			EffectsDAO.getInstance().restoreEffects(this);
-			restoreDisableSkills();
+			if (!_hibernated)
+			{
+				restoreHenna();
+				sendPacket(new HennaInfo(this));
+				EffectsDAO.getInstance().restoreEffects(this);
+				restoreDisableSkills();
+			}
+			
 			setCurrentHpMp(newActiveSub.getHp(), newActiveSub.getMp());
 			setCurrentCp(newActiveSub.getCp());
-			_shortCuts.restore();
-			sendPacket(new ShortCutInit(this));
+			
+			if (!_hibernated)
+			{
+				_shortCuts.restore();
+				sendPacket(new ShortCutInit(this));
+			}
 			
 			for (int shotId : getAutoSoulShot())
 			{
@@ -13425,6 +13564,21 @@ public final class Player extends Playable implements PlayerGroup
 		}
 	}
 	
+	/**
+	 * Method encodeBypasses.
+	 * @param htmlCode CharSequence
+	 * @param out StringBuilder
+	 * @param bbs boolean
+	 */
+	public void encodeBypasses(CharSequence htmlCode, StringBuilder out, boolean bbs)
+	{
+		List<String> bypassStorage = getStoredBypasses(bbs);
+		synchronized (bypassStorage)
+		{
+			BypassManager.encode(htmlCode, out, bypassStorage, bbs);
+		}
+	}
+	
 	/**
 	 * Method decodeBypass.
 	 * @param bypass String
@@ -14560,9 +14714,28 @@ public final class Player extends Playable implements PlayerGroup
 	 */
 	public void setBattlefieldChatId(int battlefieldChatId)
 	{
+		ChatChannelManager.getInstance().setBattlefield(this, _battlefieldChatId, battlefieldChatId);
 		_battlefieldChatId = battlefieldChatId;
 	}
 	
+	/**
+	 * Method getChatTile.
+	 * @return int map tile the player is subscribed to for shout and trade chat, -1 if none
+	 */
+	public int getChatTile()
+	{
+		return _chatTile;
+	}
+	
+	/**
+	 * Method setChatTile.
+	 * @param chatTile int
+	 */
+	public void setChatTile(int chatTile)
+	{
+		_chatTile = chatTile;
+	}
+	
 	/**
 	 * Method broadCast.
 	 * @param packet IStaticPacket[]
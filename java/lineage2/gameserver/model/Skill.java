@@ -1336,118 +1336,15 @@ public abstract class Skill extends StatTemplate implements Cloneable
 				
 				if (isOffensive() || (!_skillHealStance && _isHealDamageSkill))
 				{
-					if (player.isInOlympiadMode() && !player.isOlympiadCompStart())
-					{
-						return SystemMsg.INVALID_TARGET;
-					}
-					
-					if (player.isInOlympiadMode() && player.isOlympiadCompStart() && (player.getOlympiadSide() == pcTarget.getOlympiadSide()) && !forceUse)
-					{
-						return SystemMsg.THAT_IS_AN_INCORRECT_TARGET;
-					}
+					final SystemMsg msg = checkPvpTarget(player, pcTarget, activeChar, target, aimingTarget, forceUse);
 					
-					if (isAoE() && (getCastRange() < Integer.MAX_VALUE) && !GeoEngine.canSeeTarget(activeChar, target, activeChar.isFlying()))
+					// geodata goes last, in a mass fight most candidates are already dropped by the checks before
+					if ((msg == null) && isAoE() && (getCastRange() < Integer.MAX_VALUE) && !GeoEngine.canSeeTarget(activeChar, target, activeChar.isFlying()))
 					{
 						return SystemMsg.CANNOT_SEE_TARGET;
 					}
 					
-					if ((activeChar.isInZoneBattle() != target.isInZoneBattle()) && !player.getPlayerAccess().PeaceAttack)
-					{
-						return SystemMsg.YOU_MAY_NOT_ATTACK_THIS_TARGET_IN_A_PEACEFUL_ZONE;
-					}
-					
-					if ((activeChar.isInZonePeace() || target.isInZonePeace()) && !player.getPlayerAccess().PeaceAttack)
-					{
-						return SystemMsg.YOU_MAY_NOT_ATTACK_THIS_TARGET_IN_A_PEACEFUL_ZONE;
-					}
-					
-					if (activeChar.isInZoneBattle())
-					{
-						if (!forceUse && !isForceUse() && (player.getParty() != null) && (player.getParty() == pcTarget.getParty()))
-						{
-							return SystemMsg.INVALID_TARGET;
-						}
-						
-						return null;
-					}
-					
-					SystemMsg msg = null;
-					
-					for (GlobalEvent e : player.getEvents())
-					{
-						if ((msg = e.checkForAttack(target, activeChar, this, forceUse)) != null)
-						{
-							return msg;
-						}
-					}
-					
-					for (GlobalEvent e : player.getEvents())
-					{
-						if (e.canAttack(target, activeChar, this, forceUse))
-						{
-							return null;
-						}
-					}
-					
-					if (isProvoke())
-					{
-						if (!forceUse && (player.getParty() != null) && (player.getParty() == pcTarget.getParty()))
-						{
-							return SystemMsg.INVALID_TARGET;
-						}
-						
-						return null;
-					}
-					
-					if (isPvpSkill() || !forceUse || isAoE())
-					{
-						if (player == pcTarget)
-						{
-							return SystemMsg.INVALID_TARGET;
-						}
-						
-						if ((player.getParty() != null) && (player.getParty() == pcTarget.getParty()))
-						{
-							return SystemMsg.INVALID_TARGET;
-						}
-						
-						if ((player.getClanId() != 0) && (player.getClanId() == pcTarget.getClanId()))
-						{
-							return SystemMsg.INVALID_TARGET;
-						}
-					}
-					
-					if (activeChar.isInZone(ZoneType.Siege) && target.isInZone(ZoneType.Siege))
-					{
-						return null;
-					}
-					
-					if (player.atMutualWarWith(pcTarget))
-					{
-						return null;
-					}
-					
-					if (isForceUse())
-					{
-						return null;
-					}
-					
-					if (pcTarget.getPvpFlag() != 0)
-					{
-						return null;
-					}
-					
-					if (pcTarget.isChaotic())
-					{
-						return null;
-					}
-					
-					if (forceUse && !isPvpSkill() && (!isAoE() || (aimingTarget == target)))
-					{
-						return null;
-					}
-					
-					return SystemMsg.INVALID_TARGET;
+					return msg;
 				}
 				
 				if ((_targetType == SkillTargetType.TARGET_MENTEE) && (pcTarget.getMentorSystem().getMentor() != player.getObjectId()))
@@ -1519,11 +1416,6 @@ public abstract class Skill extends StatTemplate implements Cloneable
 			}
 		}
 		
-		if (isAoE() && isOffensive() && (!_skillHealStance && _isHealDamageSkill) && (getCastRange() < Integer.MAX_VALUE) && !GeoEngine.canSeeTarget(activeChar, target, activeChar.isFlying()))
-		{
-			return SystemMsg.CANNOT_SEE_TARGET;
-		}
-		
 		if (!forceUse && !isForceUse() && !isOffensive() && target.isAutoAttackable(activeChar))
 		{
 			return SystemMsg.INVALID_TARGET;
@@ -1539,9 +1431,135 @@ public abstract class Skill extends StatTemplate implements Cloneable
 			return SystemMsg.INVALID_TARGET;
 		}
 		
+		if (isAoE() && isOffensive() && (!_skillHealStance && _isHealDamageSkill) && (getCastRange() < Integer.MAX_VALUE) && !GeoEngine.canSeeTarget(activeChar, target, activeChar.isFlying()))
+		{
+			return SystemMsg.CANNOT_SEE_TARGET;
+		}
+		
 		return null;
 	}
 	
+	/**
+	 * Checks an offensive skill against a player target, all but geodata.
+	 * @param player Player
+	 * @param pcTarget Player
+	 * @param activeChar Creature
+	 * @param target Creature
+	 * @param aimingTarget Creature
+	 * @param forceUse boolean
+	 * @return SystemMsg
+	 */
+	private SystemMsg checkPvpTarget(Player player, Player pcTarget, Creature activeChar, Creature target, Creature aimingTarget, boolean forceUse)
+	{
+		if (player.isInOlympiadMode() && !player.isOlympiadCompStart())
+		{
+			return SystemMsg.INVALID_TARGET;
+		}
+		
+		if (player.isInOlympiadMode() && player.isOlympiadCompStart() && (player.getOlympiadSide() == pcTarget.getOlympiadSide()) && !forceUse)
+		{
+			return SystemMsg.THAT_IS_AN_INCORRECT_TARGET;
+		}
+		
+		if ((activeChar.isInZoneBattle() != target.isInZoneBattle()) && !player.getPlayerAccess().PeaceAttack)
+		{
+			return SystemMsg.YOU_MAY_NOT_ATTACK_THIS_TARGET_IN_A_PEACEFUL_ZONE;
+		}
+		
+		if ((activeChar.isInZonePeace() || target.isInZonePeace()) && !player.getPlayerAccess().PeaceAttack)
+		{
+			return SystemMsg.YOU_MAY_NOT_ATTACK_THIS_TARGET_IN_A_PEACEFUL_ZONE;
+		}
+		
+		if (activeChar.isInZoneBattle())
+		{
+			if (!forceUse && !isForceUse() && (player.getParty() != null) && (player.getParty() == pcTarget.getParty()))
+			{
+				return SystemMsg.INVALID_TARGET;
+			}
+			
+			return null;
+		}
+		
+		SystemMsg msg = null;
+		
+		for (GlobalEvent e : player.getEvents())
+		{
+			if ((msg = e.checkForAttack(target, activeChar, this, forceUse)) != null)
+			{
+				return msg;
+			}
+		}
+		
+		for (GlobalEvent e : player.getEvents())
+		{
+			if (e.canAttack(target, activeChar, this, forceUse))
+			{
+				return null;
+			}
+		}
+		
+		if (isProvoke())
+		{
+			if (!forceUse && (player.getParty() != null) && (player.getParty() == pcTarget.getParty()))
+			{
+				return SystemMsg.INVALID_TARGET;
+			}
+			
+			return null;
+		}
+		
+		if (isPvpSkill() || !forceUse || isAoE())
+		{
+			if (player == pcTarget)
+			{
+				return SystemMsg.INVALID_TARGET;
+			}
+			
+			if ((player.getParty() != null) && (player.getParty() == pcTarget.getParty()))
+			{
+				return SystemMsg.INVALID_TARGET;
+			}
+			
+			if ((player.getClanId() != 0) && (player.getClanId() == pcTarget.getClanId()))
+			{
+				return SystemMsg.INVALID_TARGET;
+			}
+		}
+		
+		if (activeChar.isInZone(ZoneType.Siege) && target.isInZone(ZoneType.Siege))
+		{
+			return null;
+		}
+		
+		if (player.atMutualWarWith(pcTarget))
+		{
+			return null;
+		}
+		
+		if (isForceUse())
+		{
+			return null;
+		}
+		
+		if (pcTarget.getPvpFlag() != 0)
+		{
+			return null;
+		}
+		
+		if (pcTarget.isChaotic())
+		{
+			return null;
+		}
+		
+		if (forceUse && !isPvpSkill() && (!isAoE() || (aimingTarget == target)))
+		{
+			return null;
+		}
+		
+		return SystemMsg.INVALID_TARGET;
+	}
+	
 	/**
 	 * Method getAimingTarget.
 	 * @param activeChar Creature
@@ -1991,41 +2009,49 @@ public abstract class Skill extends StatTemplate implements Cloneable
 			terr = new Polygon().add(activeChar.getX() + (int) (Math.cos(radian1) * radius), activeChar.getY() + (int) (Math.sin(radian1) * radius)).add(activeChar.getX() + (int) (Math.cos(radian2) * radius), activeChar.getY() + (int) (Math.sin(radian2) * radius)).add(aimingTarget.getX() + (int) (Math.cos(radian2) * radius), aimingTarget.getY() + (int) (Math.sin(radian2) * radius)).add(aimingTarget.getX() + (int) (Math.cos(radian1) * radius), aimingTarget.getY() + (int) (Math.sin(radian1) * radius)).setZmin(Math.min(zmin1, zmin2)).setZmax(Math.max(zmax1, zmax2));
 		}
 		
-		for (Creature target : aimingTarget.getAroundCharacters(_skillRadius, 300))
+		final Player player = activeChar.getPlayer();
+		final boolean npcCaster = !(activeChar instanceof DecoyInstance) && activeChar.isNpc();
+		final LazyArrayList<Creature> around = LazyArrayList.newInstance();
+		
+		try
 		{
-			if ((terr != null) && !terr.isInside(target.getX(), target.getY(), target.getZ()))
-			{
-				continue;
-			}
-			
-			if ((target == null) || (activeChar == target) || ((activeChar.getPlayer() != null) && (activeChar.getPlayer() == target.getPlayer())))
-			{
-				continue;
-			}
-			
-			if (getId() == SKILL_DETECTION)
-			{
-				target.checkAndRemoveInvisible();
-			}
-			
-			if (checkTarget(activeChar, target, aimingTarget, forceUse, false) != null)
-			{
-				continue;
-			}
-			
-			if (!(activeChar instanceof DecoyInstance) && activeChar.isNpc() && target.isNpc())
-			{
-				continue;
-			}
-			
-			targets.add(target);
-			count++;
+			aimingTarget.getAroundCharacters(_skillRadius, 300, around);
 			
-			if (isOffensive() && (count >= 20) && !activeChar.isRaid())
+			for (Creature target : around)
 			{
-				break;
+				if ((terr != null) && !terr.isInside(target.getX(), target.getY(), target.getZ()))
+				{
+					continue;
+				}
+				
+				if ((activeChar == target) || ((player != null) && (player == target.getPlayer())) || (npcCaster && target.isNpc()))
+				{
+					continue;
+				}
+				
+				if (getId() == SKILL_DETECTION)
+				{
+					target.checkAndRemoveInvisible();
+				}
+				
+				if (checkTarget(activeChar, target, aimingTarget, forceUse, false) != null)
+				{
+					continue;
+				}
+				
+				targets.add(target);
+				count++;
+				
+				if (isOffensive() && (count >= 20) && !activeChar.isRaid())
+				{
+					break;
+				}
 			}
 		}
+		finally
+		{
+			LazyArrayList.recycle(around);
+		}
 	}
 	
 	/**
@@ -2039,36 +2065,39 @@ public abstract class Skill extends StatTemplate implements Cloneable
 		_skillHealStance = isHealTask;
 		int count = 0;
 		
-		// Polygon terr = null;
-		for (Creature target : activeChar.getAroundCharacters(_skillRadius, 300))
+		final Player player = activeChar.getPlayer();
+		final boolean npcCaster = !(activeChar instanceof DecoyInstance) && activeChar.isNpc();
+		final LazyArrayList<Creature> around = LazyArrayList.newInstance();
+		
+		try
 		{
-			// if ((terr != null) && !terr.isInside(target.getX(), target.getY(), target.getZ()))
-			// {
-			// continue;
-			// }
-			if ((target == null) || (activeChar == target) || ((activeChar.getPlayer() != null) && (activeChar.getPlayer() == target.getPlayer())))
-			{
-				continue;
-			}
-			
-			if (checkTarget(activeChar, target, activeChar, false, false) != null)
-			{
-				continue;
-			}
+			activeChar.getAroundCharacters(_skillRadius, 300, around);
 			
-			if (!(activeChar instanceof DecoyInstance) && activeChar.isNpc() && target.isNpc())
+			for (Creature target : around)
 			{
-				continue;
-			}
-			
-			targets.add(target);
-			count++;
-			
-			if (isOffensive() && (count >= 20) && !activeChar.isRaid())
-			{
-				break;
+				if ((activeChar == target) || ((player != null) && (player == target.getPlayer())) || (npcCaster && target.isNpc()))
+				{
+					continue;
+				}
+				
+				if (checkTarget(activeChar, target, activeChar, false, false) != null)
+				{
+					continue;
+				}
+				
+				targets.add(target);
+				count++;
+				
+				if (isOffensive() && (count >= 20) && !activeChar.isRaid())
+				{
+					break;
+				}
 			}
 		}
+		finally
+		{
+			LazyArrayList.recycle(around);
+		}
 	}
 	
 	/**
@@ -2081,36 +2110,43 @@ public abstract class Skill extends StatTemplate implements Cloneable
 	private void addTargetsToList(List<Creature> targets, Location loc, Creature activeChar, boolean forceUse)
 	{
 		int count = 0;
+		final Player player = activeChar.getPlayer();
+		final boolean npcCaster = !(activeChar instanceof DecoyInstance) && activeChar.isNpc();
+		final LazyArrayList<Creature> around = LazyArrayList.newInstance();
 		
-		for (Creature target : activeChar.getAroundCharacters(1600, 300))
+		try
 		{
-			if ((target == null) || (activeChar == target) || ((activeChar.getPlayer() != null) && (activeChar.getPlayer() == target.getPlayer())))
-			{
-				continue;
-			}
+			activeChar.getAroundCharacters(1600, 300, around);
 			
-			if (target.getDistance(loc) < getSkillRadius())
+			for (Creature target : around)
 			{
-				if (checkTarget(activeChar, target, target, forceUse, false) != null)
+				if ((activeChar == target) || ((player != null) && (player == target.getPlayer())))
 				{
 					continue;
 				}
 				
-				if (!(activeChar instanceof DecoyInstance) && activeChar.isNpc() && target.isNpc())
+				if (target.getDistance(loc) < getSkillRadius())
 				{
-					continue;
+					if ((npcCaster && target.isNpc()) || (checkTarget(activeChar, target, target, forceUse, false) != null))
+					{
+						continue;
+					}
+					
+					targets.add(target);
 				}
 				
-				targets.add(target);
-			}
-			
-			count++;
-			
-			if (isOffensive() && (count >= 20) && !activeChar.isRaid())
-			{
-				break;
+				count++;
+				
+				if (isOffensive() && (count >= 20) && !activeChar.isRaid())
+				{
+					break;
+				}
 			}
 		}
+		finally
+		{
+			LazyArrayList.recycle(around);
+		}
 	}
 	
 	/**
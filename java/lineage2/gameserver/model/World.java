@@ -18,6 +18,7 @@ import java.util.List;
 
 import lineage2.commons.collections.LazyArrayList;
 import lineage2.gameserver.Config;
+import lineage2.gameserver.instancemanager.ChatChannelManager;
 import lineage2.gameserver.model.Zone.ZoneType;
 import lineage2.gameserver.model.entity.Reflection;
 import lineage2.gameserver.model.instances.NpcInstance;
@@ -233,7 +234,7 @@ public class World
 	 * @param loc Location
 	 * @return WorldRegion
 	 */
-	static WorldRegion getRegion(Location loc)
+	public static WorldRegion getRegion(Location loc)
 	{
 		return getRegion(validX(regionX(loc.getX())), validY(regionY(loc.getY())), validZ(regionZ(loc.getZ())));
 	}
@@ -304,7 +305,17 @@ public class World
 	 */
 	static void addVisibleObject(GameObject object, Creature dropper)
 	{
-		if ((object == null) || !object.isVisible() || object.isInObserverMode())
+		if (object == null)
+		{
+			return;
+		}
+		
+		if (object.isPlayer())
+		{
+			ChatChannelManager.getInstance().updateTile((Player) object);
+		}
+		
+		if (!object.isVisible() || object.isInObserverMode())
 		{
 			return;
 		}
@@ -595,12 +606,31 @@ public class World
 	 * @return List<Creature>
 	 */
 	public static List<Creature> getAroundCharacters(GameObject object, int radius, int height)
+	{
+		if (object.getCurrentRegion() == null)
+		{
+			return Collections.emptyList();
+		}
+		
+		List<Creature> result = new LazyArrayList<>(64);
+		getAroundCharacters(object, radius, height, result);
+		return result;
+	}
+	
+	/**
+	 * Adds the characters around the object to a list of the caller, so that a reused list can be passed.
+	 * @param object GameObject
+	 * @param radius int
+	 * @param height int
+	 * @param result List<Creature>
+	 */
+	public static void getAroundCharacters(GameObject object, int radius, int height, List<Creature> result)
 	{
 		WorldRegion currentRegion = object.getCurrentRegion();
 		
 		if (currentRegion == null)
 		{
-			return Collections.emptyList();
+			return;
 		}
 		
 		int oid = object.getObjectId();
@@ -609,7 +639,6 @@ public class World
 		int oy = object.getY();
 		int oz = object.getZ();
 		int sqrad = radius * radius;
-		List<Creature> result = new LazyArrayList<>(64);
 		
 		for (int x = validX(currentRegion.getX() - 1); x <= validX(currentRegion.getX() + 1); x++)
 		{
@@ -653,8 +682,6 @@ public class World
 				}
 			}
 		}
-		
-		return result;
 	}
 	
 	/**
@@ -33,6 +33,7 @@ import lineage2.gameserver.database.mysql;
 import lineage2.gameserver.geodata.GeoEngine;
 import lineage2.gameserver.idfactory.IdFactory;
 import lineage2.gameserver.instancemanager.ReflectionManager;
+import lineage2.gameserver.instancemanager.ReflectionPool;
 import lineage2.gameserver.listener.actor.door.impl.MasterOnOpenCloseListenerImpl;
 import lineage2.gameserver.listener.reflection.OnReflectionCollapseListener;
 import lineage2.gameserver.listener.zone.impl.AirshipControllerZoneListener;
@@ -473,6 +474,7 @@ public class Reflection
 			lock.unlock();
 		}
 		listeners.onCollapse();
+		final boolean keepGeo = ReflectionPool.getInstance().isRecyclable(this);
 		
 		try
 		{
@@ -497,6 +499,11 @@ public class Reflection
 			for (DoorInstance d : _doors.values())
 			{
 				d.deleteMe();
+				
+				if (keepGeo)
+				{
+					d.removeGeoCollision();
+				}
 			}
 			
 			_doors.clear();
@@ -587,7 +594,11 @@ public class Reflection
 		finally
 		{
 			ReflectionManager.getInstance().remove(this);
-			GeoEngine.FreeGeoIndex(getGeoIndex());
+			
+			if (!keepGeo || !ReflectionPool.getInstance().release(this))
+			{
+				GeoEngine.FreeGeoIndex(getGeoIndex());
+			}
 		}
 	}
 	
@@ -1255,14 +1266,24 @@ public class Reflection
 	 * @param instantZone InstantZone
 	 */
 	public void init(InstantZone instantZone)
+	{
+		prepare(instantZone, -1);
+		activate();
+	}
+	
+	/**
+	 * Builds the reflection with its spawns, doors and zones without starting it.
+	 * @param instantZone InstantZone
+	 * @param geoIndex int geodata kept from a collapsed reflection of the same zone, -1 to load it
+	 */
+	public void prepare(InstantZone instantZone, int geoIndex)
 	{
 		setName(instantZone.getName());
 		setInstancedZone(instantZone);
 		
 		if (instantZone.getMapX() >= 0)
 		{
-			int geoIndex = GeoEngine.NextGeoIndex(instantZone.getMapX(), instantZone.getMapY(), getId());
-			setGeoIndex(geoIndex);
+			setGeoIndex(geoIndex != -1 ? geoIndex : GeoEngine.NextGeoIndex(instantZone.getMapX(), instantZone.getMapY(), getId()));
 		}
 		
 		setTeleportLoc(instantZone.getTeleportCoord());
@@ -1301,8 +1322,15 @@ public class Reflection
 		}
 		
 		init0(instantZone.getDoors(), instantZone.getZones());
-		setCollapseIfEmptyTime(instantZone.getCollapseIfEmpty());
-		startCollapseTimer(instantZone.getTimelimit() * 60 * 1000L);
+	}
+	
+	/**
+	 * Starts a prepared reflection: the collapse timers run and it is registered.
+	 */
+	public void activate()
+	{
+		setCollapseIfEmptyTime(_instance.getCollapseIfEmpty());
+		startCollapseTimer(_instance.getTimelimit() * 60 * 1000L);
 		onCreate();
 	}
 	
@@ -17,6 +17,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -44,40 +46,52 @@ public class OlympiadDatabase
 	private static final Logger _log = LoggerFactory.getLogger(OlympiadDatabase.class);
 	
 	/**
-	 * Method loadNoblesRank.
+	 * Orders the nobles by the points of the last period, the same order GET_ALL_CLASSIFIED_NOBLESS gives.
 	 */
-	public static synchronized void loadNoblesRank()
+	private static final Comparator<Map.Entry<Integer, StatsSet>> PAST_POINTS_ORDER = new Comparator<Map.Entry<Integer, StatsSet>>()
 	{
-		Olympiad._noblesRank = new ConcurrentHashMap<>();
-		Map<Integer, Integer> tmpPlace = new HashMap<>();
-		Connection con = null;
-		PreparedStatement statement = null;
-		ResultSet rset = null;
-		
-		try
+		@Override
+		public int compare(Map.Entry<Integer, StatsSet> o1, Map.Entry<Integer, StatsSet> o2)
 		{
-			con = DatabaseFactory.getInstance().getConnection();
-			statement = con.prepareStatement(OlympiadNobleDAO.GET_ALL_CLASSIFIED_NOBLESS);
-			rset = statement.executeQuery();
-			int place = 1;
+			return Integer.compare(o2.getValue().getInteger(Olympiad.POINTS_PAST_STATIC), o1.getValue().getInteger(Olympiad.POINTS_PAST_STATIC));
+		}
+	};
+	/**
+	 * Orders the hero candidates of a class, the same order OLYMPIAD_GET_HEROS gives.
+	 */
+	private static final Comparator<StatsSet> HERO_ORDER = new Comparator<StatsSet>()
+	{
+		@Override
+		public int compare(StatsSet o1, StatsSet o2)
+		{
+			int diff = Integer.compare(o2.getInteger(Olympiad.POINTS), o1.getInteger(Olympiad.POINTS));
 			
-			while (rset.next())
+			if (diff == 0)
 			{
-				tmpPlace.put(rset.getInt(Olympiad.CHAR_ID), place++);
+				diff = Integer.compare(o2.getInteger(Olympiad.COMP_WIN), o1.getInteger(Olympiad.COMP_WIN));
 			}
+			
+			if (diff == 0)
+			{
+				diff = Integer.compare(o2.getInteger(Olympiad.COMP_DONE), o1.getInteger(Olympiad.COMP_DONE));
+			}
+			
+			return diff;
 		}
-		catch (Exception e)
-		{
-			_log.error("Olympiad System: Error!", e);
-		}
-		finally
-		{
-			DbUtils.closeQuietly(con, statement, rset);
-		}
-		int rank1 = (int) Math.round(tmpPlace.size() * 0.01);
-		int rank2 = (int) Math.round(tmpPlace.size() * 0.10);
-		int rank3 = (int) Math.round(tmpPlace.size() * 0.25);
-		int rank4 = (int) Math.round(tmpPlace.size() * 0.50);
+	};
+	
+	/**
+	 * Method loadNoblesRank.
+	 */
+	public static synchronized void loadNoblesRank()
+	{
+		Olympiad._noblesRank = new ConcurrentHashMap<>();
+		List<Map.Entry<Integer, StatsSet>> nobles = new ArrayList<>(Olympiad._nobles.entrySet());
+		Collections.sort(nobles, PAST_POINTS_ORDER);
+		int rank1 = (int) Math.round(nobles.size() * 0.01);
+		int rank2 = (int) Math.round(nobles.size() * 0.10);
+		int rank3 = (int) Math.round(nobles.size() * 0.25);
+		int rank4 = (int) Math.round(nobles.size() * 0.50);
 		
 		if (rank1 == 0)
 		{
@@ -87,21 +101,25 @@ public class OlympiadDatabase
 			rank4++;
 		}
 		
-		for (int charId : tmpPlace.keySet())
+		int place = 1;
+		
+		for (Map.Entry<Integer, StatsSet> noble : nobles)
 		{
-			if (tmpPlace.get(charId) <= rank1)
+			int charId = noble.getKey();
+			
+			if (place <= rank1)
 			{
 				Olympiad._noblesRank.put(charId, 1);
 			}
-			else if (tmpPlace.get(charId) <= rank2)
+			else if (place <= rank2)
 			{
 				Olympiad._noblesRank.put(charId, 2);
 			}
-			else if (tmpPlace.get(charId) <= rank3)
+			else if (place <= rank3)
 			{
 				Olympiad._noblesRank.put(charId, 3);
 			}
-			else if (tmpPlace.get(charId) <= rank4)
+			else if (place <= rank4)
 			{
 				Olympiad._noblesRank.put(charId, 4);
 			}
@@ -109,6 +127,8 @@ public class OlympiadDatabase
 			{
 				Olympiad._noblesRank.put(charId, 5);
 			}
+			
+			place++;
 		}
 	}
 	
@@ -118,53 +138,7 @@ public class OlympiadDatabase
 	public static synchronized void cleanupNobles()
 	{
 		_log.info("Olympiad: Calculating last period...");
-		Connection con = null;
-		PreparedStatement statement = null;
-		
-		try
-		{
-			con = DatabaseFactory.getInstance().getConnection();
-			statement = con.prepareStatement(OlympiadNobleDAO.OLYMPIAD_CALCULATE_LAST_PERIOD);
-			statement.setInt(1, Config.OLYMPIAD_BATTLES_FOR_REWARD);
-			statement.execute();
-			DbUtils.close(statement);
-			statement = con.prepareStatement(OlympiadNobleDAO.OLYMPIAD_CLEANUP_NOBLES);
-			statement.setInt(1, Config.OLYMPIAD_POINTS_DEFAULT);
-			statement.execute();
-		}
-		catch (Exception e)
-		{
-			_log.error("Olympiad System: Couldn't calculate last period!", e);
-		}
-		finally
-		{
-			DbUtils.closeQuietly(con, statement);
-		}
-		
-		for (Integer nobleId : Olympiad._nobles.keySet())
-		{
-			StatsSet nobleInfo = Olympiad._nobles.get(nobleId);
-			int points = nobleInfo.getInteger(Olympiad.POINTS);
-			int compDone = nobleInfo.getInteger(Olympiad.COMP_DONE);
-			nobleInfo.set(Olympiad.POINTS, Config.OLYMPIAD_POINTS_DEFAULT);
-			
-			if (compDone >= Config.OLYMPIAD_BATTLES_FOR_REWARD)
-			{
-				nobleInfo.set(Olympiad.POINTS_PAST, points);
-				nobleInfo.set(Olympiad.POINTS_PAST_STATIC, points);
-			}
-			else
-			{
-				nobleInfo.set(Olympiad.POINTS_PAST, 0);
-				nobleInfo.set(Olympiad.POINTS_PAST_STATIC, 0);
-			}
-			
-			nobleInfo.set(Olympiad.COMP_DONE, 0);
-			nobleInfo.set(Olympiad.COMP_WIN, 0);
-			nobleInfo.set(Olympiad.COMP_LOOSE, 0);
-			nobleInfo.set(Olympiad.GAME_CLASSES_COUNT, 0);
-			nobleInfo.set(Olympiad.GAME_NOCLASSES_COUNT, 0);
-		}
+		OlympiadNobleDAO.getInstance().cleanupNobles();
 	}
 	
 	/**
@@ -213,44 +187,38 @@ public class OlympiadDatabase
 		}
 		
 		Olympiad._heroesToBe = new ArrayList<>();
-		Connection con = null;
-		PreparedStatement statement = null;
-		ResultSet rset = null;
+		Map<Integer, Map.Entry<Integer, StatsSet>> best = new HashMap<>();
 		
-		try
+		for (Map.Entry<Integer, StatsSet> noble : Olympiad._nobles.entrySet())
 		{
-			con = DatabaseFactory.getInstance().getConnection();
-			StatsSet hero;
+			StatsSet nobleInfo = noble.getValue();
+			int classId = nobleInfo.getInteger(Olympiad.CLASS_ID);
 			
-			for (ClassId id : ClassId.VALUES)
+			if ((classId <= 138) || (nobleInfo.getInteger(Olympiad.COMP_DONE) < Config.OLYMPIAD_BATTLES_FOR_REWARD) || (nobleInfo.getInteger(Olympiad.COMP_WIN) <= 0))
 			{
-				if (id.getId() > 138)
-				{
-					statement = con.prepareStatement(OlympiadNobleDAO.OLYMPIAD_GET_HEROS);
-					statement.setInt(1, id.getId());
-					statement.setInt(2, Config.OLYMPIAD_BATTLES_FOR_REWARD);
-					rset = statement.executeQuery();
-					
-					if (rset.next())
-					{
-						hero = new StatsSet();
-						hero.set(Olympiad.CLASS_ID, id.getId());
-						hero.set(Olympiad.CHAR_ID, rset.getInt(Olympiad.CHAR_ID));
-						hero.set(Olympiad.CHAR_NAME, rset.getString(Olympiad.CHAR_NAME));
-						Olympiad._heroesToBe.add(hero);
-					}
-					
-					DbUtils.close(statement, rset);
-				}
+				continue;
+			}
+			
+			Map.Entry<Integer, StatsSet> current = best.get(classId);
+			
+			if ((current == null) || (HERO_ORDER.compare(nobleInfo, current.getValue()) < 0))
+			{
+				best.put(classId, noble);
 			}
 		}
-		catch (Exception e)
-		{
-			_log.error("Olympiad System: Couldnt get heroes from db!", e);
-		}
-		finally
+		
+		for (ClassId id : ClassId.VALUES)
 		{
-			DbUtils.closeQuietly(con, statement, rset);
+			Map.Entry<Integer, StatsSet> noble = best.get(id.getId());
+			
+			if (noble != null)
+			{
+				StatsSet hero = new StatsSet();
+				hero.set(Olympiad.CLASS_ID, id.getId());
+				hero.set(Olympiad.CHAR_ID, noble.getKey());
+				hero.set(Olympiad.CHAR_NAME, noble.getValue().getString(Olympiad.CHAR_NAME, null));
+				Olympiad._heroesToBe.add(hero);
+			}
 		}
 	}
 	
@@ -258,27 +226,45 @@ public class OlympiadDatabase
 	 * Method saveNobleData.
 	 * @param nobleId int
 	 */
-	public static synchronized void saveNobleData(int nobleId)
+	public static void saveNobleData(int nobleId)
 	{
-		OlympiadNobleDAO.getInstance().replace(nobleId);
+		if (OlympiadNobleDAO.getInstance().queue(nobleId))
+		{
+			OlympiadNobleDAO.getInstance().scheduleFlush();
+		}
 	}
 	
 	/**
-	 * Method saveNobleData.
+	 * Queues every noble changed since the last save and stores them in one batch off the calling thread.
 	 */
-	public static synchronized void saveNobleData()
+	public static void saveNobleData()
 	{
 		if (Olympiad._nobles == null)
 		{
 			return;
 		}
 		
+		boolean queued = false;
+		
 		for (Integer nobleId : Olympiad._nobles.keySet())
 		{
-			saveNobleData(nobleId);
+			queued |= OlympiadNobleDAO.getInstance().queue(nobleId);
+		}
+		
+		if (queued)
+		{
+			OlympiadNobleDAO.getInstance().scheduleFlush();
 		}
 	}
 	
+	/**
+	 * Stores the queued noble data on the calling thread.
+	 */
+	public static void flush()
+	{
+		OlympiadNobleDAO.getInstance().flush();
+	}
+	
 	/**
 	 * Method setNewOlympiadEnd.
 	 */
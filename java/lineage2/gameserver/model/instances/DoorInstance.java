@@ -600,6 +600,23 @@ public final class DoorInstance extends Creature implements GeoCollision
 		return super.isInvul();
 	}
 	
+	/**
+	 * Takes the collision of a closed door out of the geodata, for a deleted door whose reflection geodata is used again.
+	 */
+	public void removeGeoCollision()
+	{
+		_openLock.lock();
+		
+		try
+		{
+			setGeoOpen(true);
+		}
+		finally
+		{
+			_openLock.unlock();
+		}
+	}
+	
 	/**
 	 * Method setGeoOpen.
 	 * @param open boolean
@@ -98,26 +98,45 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	private int enchantLevel = -1;
 	private ItemLocation loc;
 	private int locData;
-	private int customType1;
-	private int customType2;
-	private int lifeTime;
 	private int customFlags;
-	private ItemAttributes attrs = new ItemAttributes();
-	private int[] _enchantOptions = EMPTY_ENCHANT_OPTIONS;
 	private ItemTemplate template;
 	private boolean isEquipped;
-	private long _dropTime;
-	private IntSet _dropPlayers = Containers.EMPTY_INT_SET;
-	private long _dropTimeOwner;
 	private int _chargedSoulshot = CHARGED_NONE;
 	private int _chargedSpiritshot = CHARGED_NONE;
 	private boolean _chargedFishtshot = false;
-	private int _visualId;
-	private int _augmentationId;
-	private int _agathionEnergy;
+	private volatile ExtendedData _extended;
+	private volatile DropData _drop;
 	private ItemAttachment _attachment;
 	private JdbcEntityState _state = JdbcEntityState.CREATED;
 	
+	/**
+	 * Attributes most items never use (stackables such as adena or arrows in particular), allocated on first non-default write.
+	 * @author Mobius
+	 */
+	private static final class ExtendedData
+	{
+		int customType1;
+		int customType2;
+		int lifeTime;
+		ItemAttributes attrs;
+		int[] enchantOptions = EMPTY_ENCHANT_OPTIONS;
+		int visualId;
+		int augmentationId;
+		int agathionEnergy;
+		ScheduledFuture<?> timerTask;
+	}
+	
+	/**
+	 * Ground state of a dropped item.
+	 * @author Mobius
+	 */
+	private static final class DropData
+	{
+		long dropTime;
+		IntSet dropPlayers = Containers.EMPTY_INT_SET;
+		long dropTimeOwner;
+	}
+	
 	/**
 	 * Constructor for ItemInstance.
 	 * @param objectId int
@@ -142,6 +161,50 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 		setEnchantLevel(0);
 	}
 	
+	/**
+	 * Method extended.
+	 * @return ExtendedData, allocated on first use
+	 */
+	private ExtendedData extended()
+	{
+		ExtendedData extended = _extended;
+		
+		if (extended == null)
+		{
+			synchronized (this)
+			{
+				if ((extended = _extended) == null)
+				{
+					_extended = extended = new ExtendedData();
+				}
+			}
+		}
+		
+		return extended;
+	}
+	
+	/**
+	 * Method drop.
+	 * @return DropData, allocated on first use
+	 */
+	private DropData drop()
+	{
+		DropData drop = _drop;
+		
+		if (drop == null)
+		{
+			synchronized (this)
+			{
+				if ((drop = _drop) == null)
+				{
+					_drop = drop = new DropData();
+				}
+			}
+		}
+		
+		return drop;
+	}
+	
 	/**
 	 * Method getOwnerId.
 	 * @return int
@@ -237,7 +300,11 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 			}
 			
 			int[] enchantOptions = getTemplate().getEnchantOptions().get(this.enchantLevel);
-			_enchantOptions = enchantOptions == null ? EMPTY_ENCHANT_OPTIONS : enchantOptions;
+			
+			if ((enchantOptions != null) || (_extended != null))
+			{
+				extended().enchantOptions = enchantOptions == null ? EMPTY_ENCHANT_OPTIONS : enchantOptions;
+			}
 			
 			if (isEquipped() && (player != null))
 			{
@@ -306,7 +373,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getCustomType1()
 	{
-		return customType1;
+		final ExtendedData extended = _extended;
+		return extended == null ? 0 : extended.customType1;
 	}
 	
 	/**
@@ -315,7 +383,10 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setCustomType1(int newtype)
 	{
-		customType1 = newtype;
+		if ((newtype != 0) || (_extended != null))
+		{
+			extended().customType1 = newtype;
+		}
 	}
 	
 	/**
@@ -324,7 +395,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getCustomType2()
 	{
-		return customType2;
+		final ExtendedData extended = _extended;
+		return extended == null ? 0 : extended.customType2;
 	}
 	
 	/**
@@ -333,7 +405,10 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setCustomType2(int newtype)
 	{
-		customType2 = newtype;
+		if ((newtype != 0) || (_extended != null))
+		{
+			extended().customType2 = newtype;
+		}
 	}
 	
 	/**
@@ -342,7 +417,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getLifeTime()
 	{
-		return lifeTime;
+		final ExtendedData extended = _extended;
+		return extended == null ? 0 : extended.lifeTime;
 	}
 	
 	/**
@@ -351,7 +427,10 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setLifeTime(int lifeTime)
 	{
-		this.lifeTime = Math.max(0, lifeTime);
+		if ((lifeTime > 0) || (_extended != null))
+		{
+			extended().lifeTime = Math.max(0, lifeTime);
+		}
 	}
 	
 	/**
@@ -373,12 +452,38 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	}
 	
 	/**
-	 * Method getAttributes.
+	 * Method getAttributes. Creates the attribute holder on first use; read-only callers should use getAttributesIfSet().
 	 * @return ItemAttributes
 	 */
 	public ItemAttributes getAttributes()
 	{
-		return attrs;
+		final ExtendedData extended = extended();
+		
+		if (extended.attrs == null)
+		{
+			extended.attrs = new ItemAttributes();
+		}
+		
+		return extended.attrs;
+	}
+	
+	/**
+	 * Method hasAttributes.
+	 * @return boolean false if no attribute was ever set, in which case all element values are zero
+	 */
+	public boolean hasAttributes()
+	{
+		return getAttributesIfSet() != null;
+	}
+	
+	/**
+	 * Method getAttributesIfSet.
+	 * @return ItemAttributes or null if no attribute was ever set
+	 */
+	public ItemAttributes getAttributesIfSet()
+	{
+		final ExtendedData extended = _extended;
+		return extended == null ? null : extended.attrs;
 	}
 	
 	/**
@@ -387,7 +492,7 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setAttributes(ItemAttributes attrs)
 	{
-		this.attrs = attrs;
+		extended().attrs = attrs;
 	}
 	
 	/**
@@ -418,15 +523,13 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 		return getLifeTime() - (int) (System.currentTimeMillis() / 1000L);
 	}
 	
-	private ScheduledFuture<?> _timerTask;
-	
 	/**
 	 * Method startTimer.
 	 * @param r Runnable
 	 */
 	public void startTimer(Runnable r)
 	{
-		_timerTask = LazyPrecisionTaskManager.getInstance().scheduleAtFixedRate(r, 0, 60000L);
+		extended().timerTask = LazyPrecisionTaskManager.getInstance().scheduleAtFixedRate(r, 0, 60000L);
 	}
 	
 	/**
@@ -434,10 +537,12 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void stopTimer()
 	{
-		if (_timerTask != null)
+		final ExtendedData extended = _extended;
+		
+		if ((extended != null) && (extended.timerTask != null))
 		{
-			_timerTask.cancel(false);
-			_timerTask = null;
+			extended.timerTask.cancel(false);
+			extended.timerTask = null;
 		}
 	}
 	
@@ -501,7 +606,10 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setDropTime(long time)
 	{
-		_dropTime = time;
+		if ((time != 0) || (_drop != null))
+		{
+			drop().dropTime = time;
+		}
 	}
 	
 	/**
@@ -510,7 +618,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public long getLastDropTime()
 	{
-		return _dropTime;
+		final DropData drop = _drop;
+		return drop == null ? 0 : drop.dropTime;
 	}
 	
 	/**
@@ -519,7 +628,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public long getDropTimeOwner()
 	{
-		return _dropTimeOwner;
+		final DropData drop = _drop;
+		return drop == null ? 0 : drop.dropTimeOwner;
 	}
 	
 	/**
@@ -617,7 +727,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getAugmentationId()
 	{
-		return _augmentationId;
+		final ExtendedData extended = _extended;
+		return extended == null ? 0 : extended.augmentationId;
 	}
 	
 	/**
@@ -626,7 +737,10 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setAugmentationId(int val)
 	{
-		_augmentationId = val;
+		if ((val != 0) || (_extended != null))
+		{
+			extended().augmentationId = val;
+		}
 	}
 	
 	/**
@@ -1215,14 +1329,15 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 		
 		if (lastAttacker != null)
 		{
-			_dropPlayers = new HashIntSet(1, 2);
+			final DropData drop = drop();
+			drop.dropPlayers = new HashIntSet(1, 2);
 			
 			for (Player $member : lastAttacker.getPlayerGroup())
 			{
-				_dropPlayers.add($member.getObjectId());
+				drop.dropPlayers.add($member.getObjectId());
 			}
 			
-			_dropTimeOwner = System.currentTimeMillis() + Config.NONOWNER_ITEM_PICKUP_DELAY + ((fromNpc != null) && fromNpc.isRaid() ? 285000 : 0);
+			drop.dropTimeOwner = System.currentTimeMillis() + Config.NONOWNER_ITEM_PICKUP_DELAY + ((fromNpc != null) && fromNpc.isRaid() ? 285000 : 0);
 		}
 		
 		dropMe(dropper, pos);
@@ -1384,7 +1499,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getAttributeElementValue(Element element, boolean withBase)
 	{
-		return attrs.getValue(element) + (withBase ? template.getBaseAttributeValue(element) : 0);
+		final ItemAttributes attrs = getAttributesIfSet();
+		return (attrs == null ? 0 : attrs.getValue(element)) + (withBase ? template.getBaseAttributeValue(element) : 0);
 	}
 	
 	/**
@@ -1393,7 +1509,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public Element getAttributeElement()
 	{
-		return attrs.getElement();
+		final ItemAttributes attrs = getAttributesIfSet();
+		return attrs == null ? Element.NONE : attrs.getElement();
 	}
 	
 	/**
@@ -1402,7 +1519,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getAttributeElementValue()
 	{
-		return attrs.getValue();
+		final ItemAttributes attrs = getAttributesIfSet();
+		return attrs == null ? 0 : attrs.getValue();
 	}
 	
 	/**
@@ -1443,7 +1561,12 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setAttributeElement(Element element, int value)
 	{
-		attrs.setValue(element, value);
+		if ((value == 0) && !hasAttributes())
+		{
+			return;
+		}
+		
+		getAttributes().setValue(element, value);
 	}
 	
 	/**
@@ -1629,7 +1752,8 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int getAgathionEnergy()
 	{
-		return _agathionEnergy;
+		final ExtendedData extended = _extended;
+		return extended == null ? 0 : extended.agathionEnergy;
 	}
 	
 	/**
@@ -1638,7 +1762,10 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public void setAgathionEnergy(int agathionEnergy)
 	{
-		_agathionEnergy = agathionEnergy;
+		if ((agathionEnergy != 0) || (_extended != null))
+		{
+			extended().agathionEnergy = agathionEnergy;
+		}
 	}
 	
 	/**
@@ -1647,22 +1774,28 @@ public final class ItemInstance extends GameObject implements JdbcEntity
 	 */
 	public int[] getEnchantOptions()
 	{
-		return _enchantOptions;
+		final ExtendedData extended = _extended;
+		return extended == null ? EMPTY_ENCHANT_OPTIONS : extended.enchantOptions;
 	}
 	
 	public int getVisualId()
 	{
-		return _visualId;
+		final ExtendedData extended = _extended;
+		return extended == null ? 0 : extended.visualId;
 	}
 	
 	public void setVisualId(int val)
 	{
-		_visualId = val;
+		if ((val != 0) || (_extended != null))
+		{
+			extended().visualId = val;
+		}
 	}
 	
 	public IntSet getDropPlayers()
 	{
-		return _dropPlayers;
+		final DropData drop = _drop;
+		return drop == null ? Containers.EMPTY_INT_SET : drop.dropPlayers;
 	}
 	
 	public boolean isOther()
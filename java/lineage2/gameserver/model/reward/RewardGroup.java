@@ -17,21 +17,26 @@ import java.util.Collections;
 import java.util.List;
 
 import lineage2.commons.math.SafeMath;
+import lineage2.commons.math.random.AliasTable;
+import lineage2.commons.math.random.BinomialDistribution;
 import lineage2.commons.util.Rnd;
 import lineage2.gameserver.Config;
 import lineage2.gameserver.model.Player;
 
 /**
+ * Drop group. A roll draws how many of the rate multiplied tries succeed from the binomial distribution and picks the items with an alias table, instead of running every try and scanning the items for each.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
 public class RewardGroup implements Cloneable
 {
+	private static final int DIRECT_ROLLS = 16;
 	private double _chance;
 	private boolean _isAdena = false;
 	private boolean _notRate = false;
 	private final List<RewardData> _items = new ArrayList<>();
 	private double _chanceSum;
+	private volatile AliasTable _table;
 	
 	/**
 	 * Constructor for RewardGroup.
@@ -110,6 +115,63 @@ public class RewardGroup implements Cloneable
 		_chanceSum += item.getChance();
 		item.setChanceInGroup(_chanceSum);
 		_items.add(item);
+		_table = null;
+	}
+	
+	/**
+	 * Builds the item table of the group, otherwise it is built by the first roll. Call once the items and their chances are final.
+	 */
+	public void prepare()
+	{
+		_table = createTable();
+	}
+	
+	/**
+	 * Method getTable.
+	 * @return AliasTable
+	 */
+	private AliasTable getTable()
+	{
+		AliasTable table = _table;
+		
+		if (table == null)
+		{
+			_table = table = createTable();
+		}
+		
+		return table;
+	}
+	
+	/**
+	 * Weighs the items the way they were always picked: a whole number from 0 to the chance sum matches an item when it lies strictly inside the item range, the first item wins and a number matching no item gives nothing. The last outcome of the table is that nothing.
+	 * @return AliasTable
+	 */
+	private AliasTable createTable()
+	{
+		final long max = (int) Math.max(_chanceSum, RewardList.MAX_CHANCE);
+		final int size = _items.size();
+		final double[] weights = new double[size + 1];
+		long taken = 0;
+		long last = -1;
+		
+		for (int i = 0; i < size; i++)
+		{
+			final RewardData item = _items.get(i);
+			final double high = item.getChanceInGroup();
+			final double low = high - item.getChance();
+			final long first = Math.max((long) Math.floor(low) + 1, last + 1);
+			final long end = Math.min((long) Math.ceil(high) - 1, max);
+			
+			if (end >= first)
+			{
+				weights[i] = (end - first) + 1;
+				taken += (end - first) + 1;
+				last = end;
+			}
+		}
+		
+		weights[size] = (max + 1) - taken;
+		return new AliasTable(weights);
 	}
 	
 	/**
@@ -206,20 +268,74 @@ public class RewardGroup implements Cloneable
 			rate = baseRate * playerRate * mod;
 		}
 		
-		double mult = Math.ceil(rate);
-		List<RewardItem> ret = new ArrayList<>((int) (mult * _items.size()));
+		if (rate <= 0)
+		{
+			return Collections.emptyList();
+		}
+		
+		final long tries = (long) rate;
+		final double partial = rate - tries;
+		long successes = BinomialDistribution.next(tries, getSuccessChance(_chance));
+		
+		if ((partial > 0) && (Rnd.nextDouble() < getSuccessChance(_chance * partial)))
+		{
+			successes++;
+		}
+		
+		if (successes == 0)
+		{
+			return Collections.emptyList();
+		}
+		
+		final AliasTable table = getTable();
+		final int size = _items.size();
+		List<RewardItem> ret = new ArrayList<>((int) Math.min(successes, size));
 		
-		for (long n = 0; n < mult; n++)
+		if (successes <= DIRECT_ROLLS)
 		{
-			if (Rnd.get(1, RewardList.MAX_CHANCE) <= (_chance * Math.min(rate - n, 1.0)))
+			for (long n = 0; n < successes; n++)
 			{
-				rollFinal(_items, ret, 1., Math.max(_chanceSum, RewardList.MAX_CHANCE));
+				final int i = table.next();
+				
+				if (i < size)
+				{
+					addReward(ret, _items.get(i), 1, 1.);
+				}
+			}
+			
+			return ret;
+		}
+		
+		// split the successes over the items one conditional binomial at a time
+		long remaining = successes;
+		double remainingChance = 1;
+		
+		for (int i = 0; (i < size) && (remaining > 0); i++)
+		{
+			final double chance = table.getProbability(i);
+			final long hits = remainingChance > chance ? BinomialDistribution.next(remaining, chance / remainingChance) : remaining;
+			remaining -= hits;
+			remainingChance -= chance;
+			
+			if (hits > 0)
+			{
+				addReward(ret, _items.get(i), hits, 1.);
 			}
 		}
 		
 		return ret;
 	}
 	
+	/**
+	 * Method getSuccessChance.
+	 * @param chance double
+	 * @return double chance that a whole number from 1 to MAX_CHANCE is not above the given chance
+	 */
+	private static double getSuccessChance(double chance)
+	{
+		return Math.min(Math.max(Math.floor(chance), 0), RewardList.MAX_CHANCE) / RewardList.MAX_CHANCE;
+	}
+	
 	/**
 	 * Method rollAdena.
 	 * @param mod double
@@ -248,8 +364,13 @@ public class RewardGroup implements Cloneable
 		}
 		
 		double rate = baseRate * playerRate * mod;
-		List<RewardItem> ret = new ArrayList<>(_items.size());
-		rollFinal(_items, ret, rate, Math.max(_chanceSum, RewardList.MAX_CHANCE));
+		List<RewardItem> ret = new ArrayList<>(1);
+		final int pick = getTable().next();
+		
+		if (pick < _items.size())
+		{
+			addReward(ret, _items.get(pick), 1, rate);
+		}
 		
 		for (RewardItem i : ret)
 		{
@@ -260,54 +381,73 @@ public class RewardGroup implements Cloneable
 	}
 	
 	/**
-	 * Method rollFinal.
-	 * @param items List<RewardData>
+	 * Adds the items of the given number of successful tries that picked the same reward.
 	 * @param ret List<RewardItem>
+	 * @param item RewardData
+	 * @param hits long
 	 * @param mult double
-	 * @param chanceSum double
 	 */
-	private void rollFinal(List<RewardData> items, List<RewardItem> ret, double mult, double chanceSum)
+	private static void addReward(List<RewardItem> ret, RewardData item, long hits, double mult)
 	{
-		int chance = Rnd.get(0, (int) chanceSum);
-		long count;
+		final double imult = item.notRate() ? 1.0 : mult;
+		final boolean fixed = item.getMinDrop() >= item.getMaxDrop();
+		final long min = Math.round(item.getMinDrop() * imult);
+		final long max = fixed ? min : Math.round(item.getMaxDrop() * imult);
+		long count = hits;
+		RewardItem t = null;
 		
-		for (RewardData i : items)
+		for (RewardItem r : ret)
 		{
-			if ((chance < i.getChanceInGroup()) && (chance > (i.getChanceInGroup() - i.getChance())))
+			if (item.getId() == r.itemId)
 			{
-				double imult = i.notRate() ? 1.0 : mult;
-				
-				if (i.getMinDrop() >= i.getMaxDrop())
-				{
-					count = Math.round(i.getMinDrop() * imult);
-				}
-				else
-				{
-					count = Rnd.get(Math.round(i.getMinDrop() * imult), Math.round(i.getMaxDrop() * imult));
-				}
-				
-				RewardItem t = null;
-				
-				for (RewardItem r : ret)
-				{
-					if (i.getId() == r.itemId)
-					{
-						t = r;
-						break;
-					}
-				}
-				
-				if (t == null)
-				{
-					ret.add(t = new RewardItem(i.getId()));
-					t.count = count;
-				}
-				else if (!i.notRate())
-				{
-					t.count = SafeMath.addAndLimit(t.count, count);
-				}
+				t = r;
 				break;
 			}
 		}
+		
+		if (t == null)
+		{
+			ret.add(t = new RewardItem(item.getId()));
+			t.count = fixed ? min : Rnd.get(min, max);
+			count--;
+		}
+		
+		if ((count > 0) && !item.notRate())
+		{
+			t.count = SafeMath.addAndLimit(t.count, getCountSum(min, max, count));
+		}
+	}
+	
+	/**
+	 * Sum of the given number of counts each drawn uniformly from min to max. Many counts are drawn at once from the normal distribution with the same mean and variance.
+	 * @param min long
+	 * @param max long
+	 * @param count long
+	 * @return long
+	 */
+	private static long getCountSum(long min, long max, long count)
+	{
+		if (min >= max)
+		{
+			return SafeMath.mulAndLimit(min, count);
+		}
+		
+		if (count <= DIRECT_ROLLS)
+		{
+			long sum = 0;
+			
+			for (long n = 0; n < count; n++)
+			{
+				sum = SafeMath.addAndLimit(sum, Rnd.get(min, max));
+			}
+			
+			return sum;
+		}
+		
+		final double width = (max - min) + 1.;
+		final double mean = (count * (min + max)) / 2.;
+		final double deviation = Math.sqrt((count * ((width * width) - 1)) / 12.);
+		final double sum = Math.round(mean + (deviation * Rnd.nextGaussian()));
+		return (long) Math.min(Math.max(sum, (double) count * min), (double) count * max);
 	}
 }
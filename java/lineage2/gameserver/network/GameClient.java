@@ -406,7 +406,7 @@ public final class GameClient extends MMOClient<MMOConnection<GameClient>>
 	@Override
 	public boolean encrypt(final ByteBuffer buf, final int size)
 	{
-		_crypt.encrypt(buf.array(), buf.position(), size);
+		_crypt.encrypt(buf, buf.position(), size);
 		buf.position(buf.position() + size);
 		return true;
 	}
@@ -420,7 +420,7 @@ public final class GameClient extends MMOClient<MMOConnection<GameClient>>
 	@Override
 	public boolean decrypt(ByteBuffer buf, int size)
 	{
-		boolean ret = _crypt.decrypt(buf.array(), buf.position(), size);
+		boolean ret = _crypt.decrypt(buf, buf.position(), size);
 		return ret;
 	}
 	
@@ -546,6 +546,17 @@ public final class GameClient extends MMOClient<MMOConnection<GameClient>>
 		_state = state;
 	}
 	
+	/**
+	 * Method isRateLimited.
+	 * @return boolean
+	 * @see lineage2.commons.net.nio.impl.MMOClient#isRateLimited()
+	 */
+	@Override
+	public boolean isRateLimited()
+	{
+		return _state == GameClientState.IN_GAME;
+	}
+	
 	private int _failedPackets = 0;
 	private int _unknownPackets = 0;
 	
@@ -12,13 +12,19 @@
  */
 package lineage2.gameserver.network;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
 /**
+ * XOR chained game cipher processed eight bytes at a time.<br>
+ * Both 64-bit halves of the 16 byte key are kept in little-endian order, so a word read from the packet lines up byte by byte with the key.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
 public class GameCrypt
 {
-	private final byte[] _inKey = new byte[16], _outKey = new byte[16];
+	private static final long BYTE_BROADCAST = 0x0101010101010101L;
+	private long _inKeyLo, _inKeyHi, _outKeyLo, _outKeyHi;
 	private boolean _isEnabled = false;
 	
 	/**
@@ -27,8 +33,9 @@ public class GameCrypt
 	 */
 	public void setKey(byte[] key)
 	{
-		System.arraycopy(key, 0, _inKey, 0, 16);
-		System.arraycopy(key, 0, _outKey, 0, 16);
+		final ByteBuffer buf = ByteBuffer.wrap(key, 0, 16).order(ByteOrder.LITTLE_ENDIAN);
+		_inKeyLo = _outKeyLo = buf.getLong(0);
+		_inKeyHi = _outKeyHi = buf.getLong(8);
 	}
 	
 	/**
@@ -43,46 +50,54 @@ public class GameCrypt
 	
 	/**
 	 * Method decrypt.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @return boolean
 	 */
-	boolean decrypt(byte[] raw, final int offset, final int size)
+	boolean decrypt(ByteBuffer buf, final int offset, final int size)
 	{
 		if (!_isEnabled)
 		{
 			return true;
 		}
 		
-		int temp = 0;
+		final boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+		long prev = 0;
+		int i = 0;
 		
-		for (int i = 0; i < size; i++)
+		for (; (i + 8) <= size; i += 8)
 		{
-			int temp2 = raw[offset + i] & 0xFF;
-			raw[offset + i] = (byte) (temp2 ^ _inKey[i & 15] ^ temp);
-			temp = temp2;
+			long cipher = buf.getLong(offset + i);
+			
+			if (bigEndian)
+			{
+				cipher = Long.reverseBytes(cipher);
+			}
+			
+			final long plain = cipher ^ ((i & 8) == 0 ? _inKeyLo : _inKeyHi) ^ ((cipher << 8) | prev);
+			prev = cipher >>> 56;
+			buf.putLong(offset + i, bigEndian ? Long.reverseBytes(plain) : plain);
 		}
 		
-		int old = _inKey[8] & 0xff;
-		old |= (_inKey[9] << 8) & 0xff00;
-		old |= (_inKey[10] << 0x10) & 0xff0000;
-		old |= (_inKey[11] << 0x18) & 0xff000000;
-		old += size;
-		_inKey[8] = (byte) (old & 0xff);
-		_inKey[9] = (byte) ((old >> 0x08) & 0xff);
-		_inKey[10] = (byte) ((old >> 0x10) & 0xff);
-		_inKey[11] = (byte) ((old >> 0x18) & 0xff);
+		for (; i < size; i++)
+		{
+			final int cipher = buf.get(offset + i) & 0xFF;
+			buf.put(offset + i, (byte) (cipher ^ keyByte(_inKeyLo, _inKeyHi, i) ^ prev));
+			prev = cipher;
+		}
+		
+		_inKeyHi = shiftKey(_inKeyHi, size);
 		return true;
 	}
 	
 	/**
 	 * Method encrypt.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 */
-	void encrypt(byte[] raw, final int offset, final int size)
+	void encrypt(ByteBuffer buf, final int offset, final int size)
 	{
 		if (!_isEnabled)
 		{
@@ -90,23 +105,58 @@ public class GameCrypt
 			return;
 		}
 		
-		int temp = 0;
+		final boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+		long prev = 0;
+		int i = 0;
 		
-		for (int i = 0; i < size; i++)
+		for (; (i + 8) <= size; i += 8)
 		{
-			int temp2 = raw[offset + i] & 0xFF;
-			temp = temp2 ^ _outKey[i & 15] ^ temp;
-			raw[offset + i] = (byte) temp;
+			long word = buf.getLong(offset + i);
+			
+			if (bigEndian)
+			{
+				word = Long.reverseBytes(word);
+			}
+			
+			word ^= (i & 8) == 0 ? _outKeyLo : _outKeyHi;
+			// prefix XOR over the eight bytes resolves the byte to byte chaining inside the word
+			word ^= word << 8;
+			word ^= word << 16;
+			word ^= word << 32;
+			word ^= prev * BYTE_BROADCAST;
+			prev = word >>> 56;
+			buf.putLong(offset + i, bigEndian ? Long.reverseBytes(word) : word);
 		}
 		
-		int old = _outKey[8] & 0xff;
-		old |= (_outKey[9] << 8) & 0xff00;
-		old |= (_outKey[10] << 0x10) & 0xff0000;
-		old |= (_outKey[11] << 0x18) & 0xff000000;
-		old += size;
-		_outKey[8] = (byte) (old & 0xff);
-		_outKey[9] = (byte) ((old >> 0x08) & 0xff);
-		_outKey[10] = (byte) ((old >> 0x10) & 0xff);
-		_outKey[11] = (byte) ((old >> 0x18) & 0xff);
+		for (; i < size; i++)
+		{
+			prev = (buf.get(offset + i) & 0xFF) ^ keyByte(_outKeyLo, _outKeyHi, i) ^ prev;
+			buf.put(offset + i, (byte) prev);
+		}
+		
+		_outKeyHi = shiftKey(_outKeyHi, size);
+	}
+	
+	/**
+	 * Method keyByte.
+	 * @param lo long
+	 * @param hi long
+	 * @param index int
+	 * @return int
+	 */
+	private static int keyByte(long lo, long hi, int index)
+	{
+		return (int) (((index & 8) == 0 ? lo : hi) >>> ((index & 7) << 3)) & 0xFF;
+	}
+	
+	/**
+	 * Adds the packet size to the 32-bit counter stored in key bytes 8..11.
+	 * @param hi long
+	 * @param size int
+	 * @return long
+	 */
+	private static long shiftKey(long hi, int size)
+	{
+		return (hi & 0xFFFFFFFF00000000L) | ((((int) hi) + size) & 0xFFFFFFFFL);
 	}
 }
@@ -30,6 +30,9 @@ import org.slf4j.LoggerFactory;
 public abstract class L2GameClientPacket extends ReceivablePacket<GameClient>
 {
 	private static final Logger _log = LoggerFactory.getLogger(L2GameClientPacket.class);
+	protected static final int COALESCE_MOVE = 1;
+	protected static final int COALESCE_VALIDATE_POSITION = 2;
+	protected static final int COALESCE_MOVE_WITH_DELTA = 3;
 	
 	/**
 	 * Method read.
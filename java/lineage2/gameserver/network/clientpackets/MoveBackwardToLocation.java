@@ -29,6 +29,16 @@ public class MoveBackwardToLocation extends L2GameClientPacket
 	private final Location _originLoc = new Location();
 	private int _moveMovement;
 	
+	/**
+	 * Method getCoalesceKey.
+	 * @return int
+	 */
+	@Override
+	public int getCoalesceKey()
+	{
+		return COALESCE_MOVE;
+	}
+	
 	/**
 	 * Method readImpl.
 	 */
@@ -21,6 +21,16 @@ public class MoveWithDelta extends L2GameClientPacket
 	@SuppressWarnings("unused")
 	private int _dx, _dy, _dz;
 	
+	/**
+	 * Method getCoalesceKey.
+	 * @return int
+	 */
+	@Override
+	public int getCoalesceKey()
+	{
+		return COALESCE_MOVE_WITH_DELTA;
+	}
+	
 	/**
 	 * Method readImpl.
 	 */
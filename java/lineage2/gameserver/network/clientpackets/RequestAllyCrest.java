@@ -13,7 +13,7 @@
 package lineage2.gameserver.network.clientpackets;
 
 import lineage2.gameserver.cache.CrestCache;
-import lineage2.gameserver.network.serverpackets.AllianceCrest;
+import lineage2.gameserver.network.serverpackets.L2GameServerPacket;
 
 /**
  * @author Mobius
@@ -43,11 +43,10 @@ public class RequestAllyCrest extends L2GameClientPacket
 			return;
 		}
 		
-		byte[] data = CrestCache.getInstance().getAllyCrest(_crestId);
+		L2GameServerPacket ac = CrestCache.getInstance().getAllyCrestPacket(_crestId);
 		
-		if (data != null)
+		if (ac != null)
 		{
-			AllianceCrest ac = new AllianceCrest(_crestId, data);
 			sendPacket(ac);
 		}
 	}
@@ -15,7 +15,6 @@ package lineage2.gameserver.network.clientpackets;
 import lineage2.commons.dao.JdbcEntityState;
 import lineage2.gameserver.model.Player;
 import lineage2.gameserver.model.base.Element;
-import lineage2.gameserver.model.items.ItemAttributes;
 import lineage2.gameserver.model.items.ItemInstance;
 import lineage2.gameserver.model.items.PcInventory;
 import lineage2.gameserver.network.serverpackets.ActionFail;
@@ -71,10 +70,9 @@ public class RequestExRemoveItemAttribute extends L2GameClientPacket
 			return;
 		}
 		
-		ItemAttributes set = itemToUnnchant.getAttributes();
 		Element element = Element.getElementById(_attributeId);
 		
-		if ((element == Element.NONE) || (set.getValue(element) <= 0))
+		if ((element == Element.NONE) || (itemToUnnchant.getAttributeElementValue(element, false) <= 0))
 		{
 			activeChar.sendPacket(new ExBaseAttributeCancelResult(false, itemToUnnchant, element), ActionFail.STATIC);
 			return;
@@ -425,7 +425,7 @@ public class RequestMultiSellChoose extends L2GameClientPacket
 							if (keepenchant && id.getItem().canBeEnchanted())
 							{
 								enchantLevel = id.getItem().getEnchantLevel();
-								attributes = id.getItem().getAttributes();
+								attributes = id.getItem().getAttributesIfSet();
 								augmentationId = id.getItem().getAugmentationId();
 							}
 							
@@ -14,7 +14,7 @@ package lineage2.gameserver.network.clientpackets;
 
 import lineage2.gameserver.cache.CrestCache;
 import lineage2.gameserver.model.Player;
-import lineage2.gameserver.network.serverpackets.PledgeCrest;
+import lineage2.gameserver.network.serverpackets.L2GameServerPacket;
 
 /**
  * @author Mobius
@@ -48,14 +48,13 @@ public class RequestPledgeCrest extends L2GameClientPacket
 			return;
 		}
 		
-		byte[] data = CrestCache.getInstance().getPledgeCrest(_crestId);
+		L2GameServerPacket pc = CrestCache.getInstance().getPledgeCrestPacket(_crestId);
 		
-		if (data == null)
+		if (pc == null)
 		{
 			return;
 		}
 		
-		PledgeCrest pc = new PledgeCrest(_crestId, data);
 		sendPacket(pc);
 	}
 }
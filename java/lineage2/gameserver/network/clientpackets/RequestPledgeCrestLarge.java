@@ -14,7 +14,7 @@ package lineage2.gameserver.network.clientpackets;
 
 import lineage2.gameserver.cache.CrestCache;
 import lineage2.gameserver.model.Player;
-import lineage2.gameserver.network.serverpackets.ExPledgeCrestLarge;
+import lineage2.gameserver.network.serverpackets.L2GameServerPacket;
 
 public class RequestPledgeCrestLarge extends L2GameClientPacket
 {
@@ -47,28 +47,11 @@ public class RequestPledgeCrestLarge extends L2GameClientPacket
 			return;
 		}
 		
-		byte[] data = CrestCache.getInstance().getPledgeCrestLarge(_crestId);
+		L2GameServerPacket[] packets = CrestCache.getInstance().getPledgeCrestLargePackets(_crestId);
 		
-		if (data != null)
+		if (packets != null)
 		{
-			for (int i = 0; i <= 4; i++)
-			{
-				byte[] dest1 = new byte[14336];
-				byte[] dest2 = new byte[8320];
-				
-				if (i < 4)
-				{
-					System.arraycopy(data, (14336 * i), dest1, 0, 14336);
-					ExPledgeCrestLarge pcl = new ExPledgeCrestLarge(_crestId, dest1, i);
-					sendPacket(pcl);
-				}
-				else
-				{
-					System.arraycopy(data, (14336 * i), dest2, 0, 8320);
-					ExPledgeCrestLarge pcl = new ExPledgeCrestLarge(_crestId, dest2, i);
-					sendPacket(pcl);
-				}
-			}
+			sendPacket(packets);
 		}
 	}
 }
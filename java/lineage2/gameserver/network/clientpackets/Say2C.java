@@ -20,8 +20,8 @@ import lineage2.gameserver.Config;
 import lineage2.gameserver.cache.ItemInfoCache;
 import lineage2.gameserver.handlers.IVoicedCommandHandler;
 import lineage2.gameserver.handlers.VoicedCommandHandler;
+import lineage2.gameserver.instancemanager.ChatChannelManager;
 import lineage2.gameserver.instancemanager.PetitionManager;
-import lineage2.gameserver.model.GameObjectsStorage;
 import lineage2.gameserver.model.Player;
 import lineage2.gameserver.model.World;
 import lineage2.gameserver.model.entity.olympiad.OlympiadGame;
@@ -33,7 +33,6 @@ import lineage2.gameserver.network.serverpackets.SystemMessage;
 import lineage2.gameserver.network.serverpackets.components.ChatType;
 import lineage2.gameserver.tables.FakePlayersTable;
 import lineage2.gameserver.utils.Log;
-import lineage2.gameserver.utils.MapUtils;
 import lineage2.gameserver.utils.Util;
 
 import org.apache.commons.lang3.StringUtils;
@@ -82,7 +81,7 @@ public class Say2C extends L2GameClientPacket
 			return;
 		}
 		
-		_text = _text.replaceAll("\\\\n", "\n");
+		_text = _text.replace("\\n", "\n");
 		
 		if (_text.contains("\n"))
 		{
@@ -190,11 +189,12 @@ public class Say2C extends L2GameClientPacket
 			}
 		}
 		
-		Matcher m = EX_ITEM_LINK_PATTERN.matcher(_text);
+		// item links always start with a backspace, most lines have none and skip the regex
+		Matcher m = _text.indexOf('\b') < 0 ? null : EX_ITEM_LINK_PATTERN.matcher(_text);
 		ItemInstance item;
 		int objectId;
 		
-		while (m.find())
+		while ((m != null) && m.find())
 		{
 			objectId = Integer.parseInt(m.group(1));
 			item = activeChar.getInventory().getItemByObjectId(objectId);
@@ -275,11 +275,11 @@ public class Say2C extends L2GameClientPacket
 				
 				if (Config.GLOBAL_SHOUT)
 				{
-					announce(activeChar, cs);
+					ChatChannelManager.getInstance().announce(activeChar, cs);
 				}
 				else
 				{
-					shout(activeChar, cs);
+					ChatChannelManager.getInstance().shout(activeChar, cs);
 				}
 				
 				activeChar.sendPacket(cs);
@@ -306,11 +306,11 @@ public class Say2C extends L2GameClientPacket
 				
 				if (Config.GLOBAL_TRADE_CHAT)
 				{
-					announce(activeChar, cs);
+					ChatChannelManager.getInstance().announce(activeChar, cs);
 				}
 				else
 				{
-					shout(activeChar, cs);
+					ChatChannelManager.getInstance().shout(activeChar, cs);
 				}
 				
 				activeChar.sendPacket(cs);
@@ -451,13 +451,7 @@ public class Say2C extends L2GameClientPacket
 						}
 					}
 					
-					for (Player player : GameObjectsStorage.getAllPlayersForIterate())
-					{
-						if (!player.isInBlockList(activeChar) && !player.isBlockAll())
-						{
-							player.sendPacket(cs);
-						}
-					}
+					ChatChannelManager.getInstance().heroVoice(activeChar, cs);
 				}
 				break;
 			
@@ -478,13 +472,7 @@ public class Say2C extends L2GameClientPacket
 					return;
 				}
 				
-				for (Player player : GameObjectsStorage.getAllPlayersForIterate())
-				{
-					if (!player.isInBlockList(activeChar) && !player.isBlockAll() && (player.getBattlefieldChatId() == activeChar.getBattlefieldChatId()))
-					{
-						player.sendPacket(cs);
-					}
-				}
+				ChatChannelManager.getInstance().battlefield(activeChar, cs);
 				break;
 			
 			case MPCC_ROOM:
@@ -500,50 +488,4 @@ public class Say2C extends L2GameClientPacket
 				_log.warn("Character " + activeChar.getName() + " used unknown chat type: " + _type.ordinal() + ".");
 		}
 	}
-	
-	/**
-	 * Method shout.
-	 * @param activeChar Player
-	 * @param cs Say2
-	 */
-	private static void shout(Player activeChar, Say2 cs)
-	{
-		int rx = MapUtils.regionX(activeChar);
-		int ry = MapUtils.regionY(activeChar);
-		int offset = Config.SHOUT_OFFSET;
-		
-		for (Player player : GameObjectsStorage.getAllPlayersForIterate())
-		{
-			if ((player == activeChar) || (activeChar.getReflection() != player.getReflection()) || player.isBlockAll() || player.isInBlockList(activeChar))
-			{
-				continue;
-			}
-			
-			int tx = MapUtils.regionX(player);
-			int ty = MapUtils.regionY(player);
-			
-			if (((tx >= (rx - offset)) && (tx <= (rx + offset)) && (ty >= (ry - offset)) && (ty <= (ry + offset))) || activeChar.isInRangeZ(player, Config.CHAT_RANGE))
-			{
-				player.sendPacket(cs);
-			}
-		}
-	}
-	
-	/**
-	 * Method announce.
-	 * @param activeChar Player
-	 * @param cs Say2
-	 */
-	private static void announce(Player activeChar, Say2 cs)
-	{
-		for (Player player : GameObjectsStorage.getAllPlayersForIterate())
-		{
-			if ((player == activeChar) || (activeChar.getReflection() != player.getReflection()) || player.isBlockAll() || player.isInBlockList(activeChar))
-			{
-				continue;
-			}
-			
-			player.sendPacket(cs);
-		}
-	}
 }
@@ -29,6 +29,16 @@ public class ValidatePosition extends L2GameClientPacket
 	private Location _lastClientPosition;
 	private Location _lastServerPosition;
 	
+	/**
+	 * Method getCoalesceKey.
+	 * @return int
+	 */
+	@Override
+	public int getCoalesceKey()
+	{
+		return COALESCE_VALIDATE_POSITION;
+	}
+	
 	/**
 	 * Method readImpl.
 	 */
@@ -36,4 +36,14 @@ public class ExPledgeCrestLarge extends L2GameServerPacket
 		writeD(_data.length); // split size
 		writeB(_data); // split data
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Method isSerializedOnce.
+	 * @return boolean
+	 */
+	@Override
+	protected boolean isSerializedOnce()
+	{
+		return true;
+	}
+}
@@ -12,6 +12,8 @@
  */
 package lineage2.gameserver.network.serverpackets;
 
+import java.nio.ByteBuffer;
+
 import lineage2.commons.net.nio.impl.SendablePacket;
 import lineage2.gameserver.data.xml.holder.ItemHolder;
 import lineage2.gameserver.model.Player;
@@ -29,13 +31,35 @@ import org.slf4j.LoggerFactory;
 public abstract class L2GameServerPacket extends SendablePacket<GameClient> implements IStaticPacket
 {
 	private static final Logger _log = LoggerFactory.getLogger(L2GameServerPacket.class);
+	private volatile byte[] _serialized;
 	
 	@Override
 	public final boolean write()
 	{
 		try
 		{
+			if (!isSerializedOnce())
+			{
+				writeImpl();
+				return true;
+			}
+			
+			final ByteBuffer buf = getByteBuffer();
+			final byte[] serialized = _serialized;
+			
+			if (serialized != null)
+			{
+				buf.put(serialized);
+				return true;
+			}
+			
+			final int start = buf.position();
 			writeImpl();
+			final byte[] data = new byte[buf.position() - start];
+			final ByteBuffer view = buf.duplicate();
+			view.position(start);
+			view.get(data);
+			_serialized = data;
 			return true;
 		}
 		catch (Exception e)
@@ -48,6 +72,15 @@ public abstract class L2GameServerPacket extends SendablePacket<GameClient> impl
 	
 	protected abstract void writeImpl();
 	
+	/**
+	 * Packets whose content does not depend on the receiving client may be serialized once and copied to every further recipient.
+	 * @return boolean
+	 */
+	protected boolean isSerializedOnce()
+	{
+		return false;
+	}
+	
 	protected void writeEx(int value)
 	{
 		writeC(0xFE);
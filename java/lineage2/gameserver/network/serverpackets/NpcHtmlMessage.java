@@ -14,11 +14,11 @@ package lineage2.gameserver.network.serverpackets;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import lineage2.gameserver.Config;
 import lineage2.gameserver.data.htm.HtmCache;
+import lineage2.gameserver.data.htm.HtmTemplate;
 import lineage2.gameserver.model.Player;
 import lineage2.gameserver.model.instances.NpcInstance;
 import lineage2.gameserver.network.serverpackets.components.NpcString;
@@ -185,6 +185,8 @@ public class NpcHtmlMessage extends L2GameServerPacket
 			return;
 		}
 		
+		HtmTemplate template = null;
+		
 		if (_file != null) // TODO may not be very good to do it here...
 		{
 			if (Config.HTM_DEBUG_MODE && player.isGM())
@@ -192,42 +194,59 @@ public class NpcHtmlMessage extends L2GameServerPacket
 				Functions.sendDebugMessage(player, "HTML: " + _file);
 			}
 			
-			String content = HtmCache.getInstance().getNotNull(_file, player);
-			String content2 = HtmCache.getInstance().getNullable(_file, player);
+			template = HtmCache.getInstance().getTemplate(_file, player);
 			
-			if (content2 == null)
+			if (template == null)
 			{
-				setHtml(have_appends && _file.endsWith(".htm") ? "" : content);
+				setHtml(have_appends && _file.endsWith(".htm") ? "" : HtmCache.getInstance().getNotNull(_file, player));
 			}
-			else
+		}
+		
+		if (template == null)
+		{
+			if (_html == null)
 			{
-				setHtml(content);
+				return;
 			}
+			
+			template = HtmTemplate.compile(_html);
 		}
 		
-		for (int i = 0; i < _replaces.size(); i += 2)
+		final String npcObjId = String.valueOf(_npcObjId);
+		final boolean wrap = !template.isDocument();
+		final StringBuilder html = new StringBuilder(template.getHtml().length() + 256);
+		
+		if (wrap)
 		{
-			_html = _html.replace(_replaces.get(i), _replaces.get(i + 1));
+			html.append("<html><body>");
 		}
 		
-		if (_html == null)
+		if (template.render(html, _replaces, npcObjId, player.getName()))
 		{
-			return;
+			if (wrap)
+			{
+				html.append("</body></html>");
+			}
 		}
-		
-		Matcher m = objectId.matcher(_html);
-		
-		if (m != null)
+		else
 		{
-			_html = m.replaceAll(String.valueOf(_npcObjId));
+			String text = wrap ? "<html><body>" + template.getHtml() + "</body></html>" : template.getHtml();
+			
+			for (int i = 0; i < _replaces.size(); i += 2)
+			{
+				text = text.replace(_replaces.get(i), _replaces.get(i + 1));
+			}
+			
+			html.setLength(0);
+			html.append(text.replace(HtmTemplate.OBJECT_ID, npcObjId).replace(HtmTemplate.PLAYER_NAME, player.getName()));
 		}
 		
-		_html = playername.matcher(_html).replaceAll(player.getName());
+		final StringBuilder encoded = new StringBuilder(html.length() + 64);
 		player.cleanBypasses(false);
-		_html = player.encodeBypasses(_html, false);
+		player.encodeBypasses(html, encoded, false);
 		writeC(0x19);
 		writeD(_npcObjId);
-		writeS(_html);
+		writeS(encoded);
 		writeD(0x00);
 	}
-}
\ No newline at end of file
+}
@@ -32,4 +32,14 @@ public class PledgeCrest extends L2GameServerPacket
 		writeD(_data.length);
 		writeB(_data);
 	}
-}
\ No newline at end of file
+	
+	/**
+	 * Method isSerializedOnce.
+	 * @return boolean
+	 */
+	@Override
+	protected boolean isSerializedOnce()
+	{
+		return true;
+	}
+}
@@ -47,6 +47,16 @@ public class Say2 extends NpcStringContainer
 		_charName = charName;
 	}
 	
+	/**
+	 * Chat lines are fanned out to many players with the same content.
+	 * @return boolean
+	 */
+	@Override
+	protected boolean isSerializedOnce()
+	{
+		return true;
+	}
+	
 	@Override
 	protected final void writeImpl()
 	{
@@ -0,0 +1,252 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.taskmanager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lineage2.commons.threading.RunnableImpl;
+import lineage2.commons.util.Rnd;
+import lineage2.gameserver.Config;
+import lineage2.gameserver.ThreadPoolManager;
+import lineage2.gameserver.model.Creature;
+import lineage2.gameserver.model.Player;
+import lineage2.gameserver.model.World;
+import lineage2.gameserver.network.serverpackets.L2GameServerPacket;
+
+/**
+ * Central movement engine. Every moving creature is attached to one manager, chosen by the map tile it starts moving in, and all its movers are advanced in a single pass per tick.<br>
+ * Move and stop packets produced during the pass are collected and delivered once per viewer at the end of the tick.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class MoveTaskManager extends RunnableImpl
+{
+	private final static int TILE_SHIFT = 15;
+	private final static MoveTaskManager[] _instances = new MoveTaskManager[Config.MOVE_TASK_MANAGER_COUNT];
+	static
+	{
+		for (int i = 0; i < _instances.length; i++)
+		{
+			_instances[i] = new MoveTaskManager();
+		}
+	}
+	private static final ThreadLocal<MoveTaskManager> _current = new ThreadLocal<>();
+	private final Set<Creature> _movers = ConcurrentHashMap.newKeySet();
+	private final List<PendingBroadcast> _pending = new ArrayList<>();
+	private final AtomicLong _ticks = new AtomicLong();
+	private final AtomicLong _steps = new AtomicLong();
+	private final AtomicLong _batchedPackets = new AtomicLong();
+	private final AtomicLong _batchedSends = new AtomicLong();
+	
+	/**
+	 * @author Mobius
+	 */
+	private static class PendingBroadcast
+	{
+		final Creature actor;
+		final L2GameServerPacket othersOnly;
+		final L2GameServerPacket all;
+		
+		/**
+		 * Constructor for PendingBroadcast.
+		 * @param actor Creature
+		 * @param othersOnly L2GameServerPacket
+		 * @param all L2GameServerPacket
+		 */
+		PendingBroadcast(Creature actor, L2GameServerPacket othersOnly, L2GameServerPacket all)
+		{
+			this.actor = actor;
+			this.othersOnly = othersOnly;
+			this.all = all;
+		}
+	}
+	
+	/**
+	 * Method getInstance.
+	 * @param actor Creature
+	 * @return MoveTaskManager responsible for the map tile the creature stands in
+	 */
+	public static MoveTaskManager getInstance(Creature actor)
+	{
+		final int tile = ((actor.getX() >> TILE_SHIFT) * 31) + (actor.getY() >> TILE_SHIFT);
+		return _instances[tile & (_instances.length - 1)];
+	}
+	
+	/**
+	 * Constructor for MoveTaskManager.
+	 */
+	private MoveTaskManager()
+	{
+		ThreadPoolManager.getInstance().scheduleAtFixedRate(this, Rnd.get(Config.MOVE_TASK_TICK), Config.MOVE_TASK_TICK);
+	}
+	
+	/**
+	 * Method add.
+	 * @param actor Creature
+	 */
+	public void add(Creature actor)
+	{
+		_movers.add(actor);
+	}
+	
+	/**
+	 * Method remove.
+	 * @param actor Creature
+	 */
+	public void remove(Creature actor)
+	{
+		_movers.remove(actor);
+	}
+	
+	/**
+	 * Queues a movement broadcast when called from inside a movement tick.
+	 * @param actor Creature
+	 * @param othersOnly L2GameServerPacket sent to surrounding players only, may be null
+	 * @param all L2GameServerPacket sent to the actor and surrounding players
+	 * @return boolean false if the caller is not a movement tick and must broadcast by itself
+	 */
+	public static boolean queueBroadcast(Creature actor, L2GameServerPacket othersOnly, L2GameServerPacket all)
+	{
+		final MoveTaskManager manager = _current.get();
+		
+		if (manager == null)
+		{
+			return false;
+		}
+		
+		manager._pending.add(new PendingBroadcast(actor, othersOnly, all));
+		return true;
+	}
+	
+	/**
+	 * Method runImpl.
+	 */
+	@Override
+	public void runImpl()
+	{
+		if (_movers.isEmpty())
+		{
+			return;
+		}
+		
+		final long now = System.currentTimeMillis();
+		_ticks.incrementAndGet();
+		_current.set(this);
+		
+		try
+		{
+			for (Creature actor : _movers)
+			{
+				if (actor.onMoveTick(now))
+				{
+					_steps.incrementAndGet();
+				}
+			}
+		}
+		finally
+		{
+			_current.remove();
+			flush();
+		}
+	}
+	
+	/**
+	 * Delivers the broadcasts collected during the tick, one packet list per viewer.
+	 */
+	private void flush()
+	{
+		if (_pending.isEmpty())
+		{
+			return;
+		}
+		
+		final Map<Player, List<L2GameServerPacket>> byViewer = new HashMap<>();
+		
+		for (PendingBroadcast pb : _pending)
+		{
+			if (pb.actor.isPlayer())
+			{
+				addPacket(byViewer, pb.actor.getPlayer(), pb.all);
+			}
+			
+			if (!pb.actor.isVisible())
+			{
+				continue;
+			}
+			
+			final List<Player> players = World.getAroundPlayers(pb.actor);
+			
+			for (int i = 0; i < players.size(); i++)
+			{
+				final Player viewer = players.get(i);
+				
+				if (pb.othersOnly != null)
+				{
+					addPacket(byViewer, viewer, pb.othersOnly);
+				}
+				
+				addPacket(byViewer, viewer, pb.all);
+			}
+		}
+		
+		_pending.clear();
+		
+		for (Map.Entry<Player, List<L2GameServerPacket>> e : byViewer.entrySet())
+		{
+			_batchedPackets.addAndGet(e.getValue().size());
+			_batchedSends.incrementAndGet();
+			e.getKey().sendPacket(e.getValue());
+		}
+	}
+	
+	/**
+	 * Method addPacket.
+	 * @param byViewer Map<Player,List<L2GameServerPacket>>
+	 * @param viewer Player
+	 * @param packet L2GameServerPacket
+	 */
+	private static void addPacket(Map<Player, List<L2GameServerPacket>> byViewer, Player viewer, L2GameServerPacket packet)
+	{
+		List<L2GameServerPacket> packets = byViewer.get(viewer);
+		
+		if (packets == null)
+		{
+			byViewer.put(viewer, packets = new ArrayList<>(4));
+		}
+		
+		packets.add(packet);
+	}
+	
+	/**
+	 * Method getStats.
+	 * @param num int
+	 * @return CharSequence
+	 */
+	public static CharSequence getStats(int num)
+	{
+		final MoveTaskManager manager = _instances[num];
+		final StringBuilder list = new StringBuilder();
+		list.append("Movers: .......... ").append(manager._movers.size()).append('\n');
+		list.append("Ticks: ........... ").append(manager._ticks.get()).append('\n');
+		list.append("Steps: ........... ").append(manager._steps.get()).append('\n');
+		list.append("Batched packets: . ").append(manager._batchedPackets.get()).append('\n');
+		list.append("Batched sends: ... ").append(manager._batchedSends.get()).append('\n');
+		return list;
+	}
+}
@@ -13,24 +13,47 @@
 package lineage2.gameserver.taskmanager;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lineage2.commons.lang.reference.HardReference;
 import lineage2.commons.threading.RunnableImpl;
 import lineage2.gameserver.ThreadPoolManager;
 import lineage2.gameserver.model.Spawner;
+import lineage2.gameserver.model.World;
+import lineage2.gameserver.model.WorldRegion;
 import lineage2.gameserver.model.instances.NpcInstance;
 import lineage2.gameserver.utils.Util;
 
 /**
+ * Respawn tasks are kept in a queue ordered by respawn time, so a tick only takes the due ones. Due respawns are handed to the thread pool in one job per world region.<br>
+ * A task replaced by a new one for the same npc stays in the queue, marked cancelled, until it is due.
  * @author Mobius
  * @version $Revision: 1.0 $
  */
 public class SpawnTaskManager
 {
-	SpawnTask[] _spawnTasks = new SpawnTask[500];
-	int _spawnTasksSize = 0;
+	private static final long TICK = 2000L;
+	private static final int RATE_TICKS = 30;
+	private static final Comparator<SpawnTask> RESPAWN_ORDER = new Comparator<SpawnTask>()
+	{
+		@Override
+		public int compare(SpawnTask o1, SpawnTask o2)
+		{
+			return Long.compare(o1.endtime, o2.endtime);
+		}
+	};
+	final PriorityQueue<SpawnTask> _spawnQueue = new PriorityQueue<>(500, RESPAWN_ORDER);
+	final Map<Integer, SpawnTask> _spawnTasks = new HashMap<>();
 	final Object spawnTasks_lock = new Object();
+	final AtomicLong _respawnsTotal = new AtomicLong();
+	final int[] _respawnsPerTick = new int[RATE_TICKS];
+	int _tick = 0;
 	private static SpawnTaskManager _instance;
 	
 	/**
@@ -38,7 +61,7 @@ public class SpawnTaskManager
 	 */
 	public SpawnTaskManager()
 	{
-		ThreadPoolManager.getInstance().scheduleAtFixedRate(new SpawnScheduler(), 2000, 2000);
+		ThreadPoolManager.getInstance().scheduleAtFixedRate(new SpawnScheduler(), TICK, TICK);
 	}
 	
 	/**
@@ -62,8 +85,69 @@ public class SpawnTaskManager
 	 */
 	public void addSpawnTask(NpcInstance actor, long interval)
 	{
-		removeObject(actor);
-		addObject(new SpawnTask(actor, System.currentTimeMillis() + interval));
+		final SpawnTask task = new SpawnTask(actor, System.currentTimeMillis() + interval);
+		
+		synchronized (spawnTasks_lock)
+		{
+			final SpawnTask old = _spawnTasks.put(actor.getObjectId(), task);
+			
+			if (old != null)
+			{
+				old.cancelled = true;
+			}
+			
+			_spawnQueue.add(task);
+		}
+	}
+	
+	/**
+	 * Method getQueueSize.
+	 * @return int number of npcs waiting for respawn
+	 */
+	public int getQueueSize()
+	{
+		synchronized (spawnTasks_lock)
+		{
+			return _spawnTasks.size();
+		}
+	}
+	
+	/**
+	 * Method getRespawnsPerSecond.
+	 * @return double average over the last minute
+	 */
+	public double getRespawnsPerSecond()
+	{
+		long sum = 0;
+		
+		synchronized (_respawnsPerTick)
+		{
+			for (int respawns : _respawnsPerTick)
+			{
+				sum += respawns;
+			}
+		}
+		
+		return (sum * 1000.) / (RATE_TICKS * TICK);
+	}
+	
+	/**
+	 * Method getStats.
+	 * @return CharSequence
+	 */
+	public CharSequence getStats()
+	{
+		final StringBuilder list = new StringBuilder();
+		
+		synchronized (spawnTasks_lock)
+		{
+			list.append("Queue depth: ").append(_spawnTasks.size()).append('\n');
+			list.append("Queued entries: ").append(_spawnQueue.size()).append('\n');
+		}
+		
+		list.append("Respawns total: ").append(_respawnsTotal.get()).append('\n');
+		list.append("Respawns per second: ").append(String.format("%.2f", getRespawnsPerSecond())).append('\n');
+		return list;
 	}
 	
 	/**
@@ -81,74 +165,121 @@ public class SpawnTaskManager
 		@Override
 		public void runImpl()
 		{
-			if (_spawnTasksSize > 0)
+			List<NpcInstance> works = null;
+			
+			synchronized (spawnTasks_lock)
 			{
-				try
+				final long current = System.currentTimeMillis();
+				SpawnTask container;
+				
+				while (((container = _spawnQueue.peek()) != null) && (current > container.endtime))
 				{
-					List<NpcInstance> works = new ArrayList<>();
-					synchronized (spawnTasks_lock)
+					_spawnQueue.poll();
+					
+					if (container.cancelled)
 					{
-						long current = System.currentTimeMillis();
-						int size = _spawnTasksSize;
-						
-						for (int i = size - 1; i >= 0; i--)
-						{
-							try
-							{
-								SpawnTask container = _spawnTasks[i];
-								
-								if ((container != null) && (container.endtime > 0) && (current > container.endtime))
-								{
-									NpcInstance actor = container.getActor();
-									
-									if ((actor != null) && (actor.getSpawn() != null))
-									{
-										works.add(actor);
-									}
-									
-									container.endtime = -1;
-								}
-								
-								if ((container == null) || (container.getActor() == null) || (container.endtime < 0))
-								{
-									if (i == (_spawnTasksSize - 1))
-									{
-										_spawnTasks[i] = null;
-									}
-									else
-									{
-										_spawnTasks[i] = _spawnTasks[_spawnTasksSize - 1];
-										_spawnTasks[_spawnTasksSize - 1] = null;
-									}
-									
-									if (_spawnTasksSize > 0)
-									{
-										_spawnTasksSize--;
-									}
-								}
-							}
-							catch (Exception e)
-							{
-								_log.error("", e);
-							}
-						}
+						continue;
 					}
 					
-					for (NpcInstance work : works)
+					_spawnTasks.remove(container.objectId);
+					NpcInstance actor = container.getActor();
+					
+					if ((actor != null) && (actor.getSpawn() != null))
 					{
-						Spawner spawn = work.getSpawn();
-						
-						if (spawn == null)
+						if (works == null)
 						{
-							continue;
+							works = new ArrayList<>();
 						}
 						
-						spawn.decreaseScheduledCount();
-						
-						if (spawn.isDoRespawn())
-						{
-							spawn.respawnNpc(work);
-						}
+						works.add(actor);
+					}
+				}
+			}
+			
+			synchronized (_respawnsPerTick)
+			{
+				_tick = (_tick + 1) % RATE_TICKS;
+				_respawnsPerTick[_tick] = works == null ? 0 : works.size();
+			}
+			
+			if (works == null)
+			{
+				return;
+			}
+			
+			_respawnsTotal.addAndGet(works.size());
+			
+			// all npcs of one spawner go to the job of the region its first npc is in
+			final Map<WorldRegion, List<NpcInstance>> regions = new HashMap<>();
+			final Map<Spawner, List<NpcInstance>> spawners = new IdentityHashMap<>();
+			
+			for (NpcInstance work : works)
+			{
+				final Spawner spawn = work.getSpawn();
+				List<NpcInstance> list = spawners.get(spawn);
+				
+				if (list == null)
+				{
+					final WorldRegion region = World.getRegion(work.getLoc());
+					list = regions.get(region);
+					
+					if (list == null)
+					{
+						regions.put(region, list = new ArrayList<>());
+					}
+					
+					spawners.put(spawn, list);
+				}
+				
+				list.add(work);
+			}
+			
+			for (List<NpcInstance> list : regions.values())
+			{
+				ThreadPoolManager.getInstance().execute(new RespawnTask(list));
+			}
+		}
+	}
+	
+	/**
+	 * Respawns the due npcs of one region.
+	 * @author Mobius
+	 */
+	private static class RespawnTask extends RunnableImpl
+	{
+		private final List<NpcInstance> _works;
+		
+		/**
+		 * Constructor for RespawnTask.
+		 * @param works List<NpcInstance>
+		 */
+		RespawnTask(List<NpcInstance> works)
+		{
+			_works = works;
+		}
+		
+		/**
+		 * Method runImpl.
+		 */
+		@Override
+		public void runImpl()
+		{
+			for (NpcInstance work : _works)
+			{
+				try
+				{
+					Spawner spawn = work.getSpawn();
+					
+					if (spawn == null)
+					{
+						continue;
+					}
+					
+					spawn.decreaseScheduledCount();
+					
+					if (spawn.isDoRespawn())
+					{
+						spawn.respawnNpc(work);
 					}
 				}
 				catch (Exception e)
@@ -167,14 +298,18 @@ public class SpawnTaskManager
 	public String toString()
 	{
 		StringBuilder sb = new StringBuilder("============= SpawnTask Manager Report ============\n\r");
-		sb.append("Tasks count: ").append(_spawnTasksSize).append("\n\r");
+		sb.append("Tasks count: ").append(getQueueSize()).append("\n\r");
+		sb.append("Respawns per second: ").append(String.format("%.2f", getRespawnsPerSecond())).append("\n\r");
 		sb.append("Tasks dump:\n\r");
 		long current = System.currentTimeMillis();
 		
-		for (SpawnTask container : _spawnTasks)
+		synchronized (spawnTasks_lock)
 		{
-			sb.append("Class/Name: ").append(container.getClass().getSimpleName()).append('/').append(container.getActor());
-			sb.append(" spawn timer: ").append(Util.formatTime((int) (container.endtime - current))).append("\n\r");
+			for (SpawnTask container : _spawnTasks.values())
+			{
+				sb.append("Class/Name: ").append(container.getClass().getSimpleName()).append('/').append(container.getActor());
+				sb.append(" spawn timer: ").append(Util.formatTime((int) ((container.endtime - current) / 1000L))).append("\n\r");
+			}
 		}
 		
 		return sb.toString();
@@ -186,7 +321,9 @@ public class SpawnTaskManager
 	private class SpawnTask
 	{
 		private final HardReference<NpcInstance> _npcRef;
-		public long endtime;
+		public final int objectId;
+		public final long endtime;
+		public boolean cancelled;
 		
 		/**
 		 * Constructor for SpawnTask.
@@ -196,6 +333,7 @@ public class SpawnTaskManager
 		SpawnTask(NpcInstance cha, long delay)
 		{
 			_npcRef = cha.getRef();
+			objectId = cha.getObjectId();
 			endtime = delay;
 		}
 		
@@ -208,59 +346,4 @@ public class SpawnTaskManager
 			return _npcRef.get();
 		}
 	}
-	
-	/**
-	 * Method addObject.
-	 * @param decay SpawnTask
-	 */
-	private void addObject(SpawnTask decay)
-	{
-		synchronized (spawnTasks_lock)
-		{
-			if (_spawnTasksSize >= _spawnTasks.length)
-			{
-				SpawnTask[] temp = new SpawnTask[_spawnTasks.length * 2];
-				System.arraycopy(_spawnTasks, 0, temp, 0, _spawnTasksSize);
-				_spawnTasks = temp;
-			}
-			
-			_spawnTasks[_spawnTasksSize] = decay;
-			_spawnTasksSize++;
-		}
-	}
-	
-	/**
-	 * Method removeObject.
-	 * @param actor NpcInstance
-	 */
-	private void removeObject(NpcInstance actor)
-	{
-		synchronized (spawnTasks_lock)
-		{
-			if (_spawnTasksSize > 1)
-			{
-				int k = -1;
-				
-				for (int i = 0; i < _spawnTasksSize; i++)
-				{
-					if (_spawnTasks[i].getActor() == actor)
-					{
-						k = i;
-					}
-				}
-				
-				if (k > -1)
-				{
-					_spawnTasks[k] = _spawnTasks[_spawnTasksSize - 1];
-					_spawnTasks[_spawnTasksSize - 1] = null;
-					_spawnTasksSize--;
-				}
-			}
-			else if ((_spawnTasksSize == 1) && (_spawnTasks[0].getActor() == actor))
-			{
-				_spawnTasks[0] = null;
-				_spawnTasksSize = 0;
-			}
-		}
-	}
 }
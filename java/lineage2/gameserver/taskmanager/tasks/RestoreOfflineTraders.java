@@ -71,7 +71,7 @@ public class RestoreOfflineTraders extends RunnableImpl
 			{
 				objectId = rset.getInt("obj_id");
 				expireTimeSecs = rset.getInt("value");
-				p = Player.restore(objectId);
+				p = Player.restore(objectId, Config.SERVICES_OFFLINE_TRADE_HIBERNATE);
 				
 				if (p == null)
 				{
@@ -12,6 +12,9 @@
  */
 package lineage2.gameserver.templates.npc;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,6 +33,7 @@ import lineage2.gameserver.model.instances.RaidBossInstance;
 import lineage2.gameserver.model.instances.ReflectionBossInstance;
 import lineage2.gameserver.model.quest.Quest;
 import lineage2.gameserver.model.quest.QuestEventType;
+import lineage2.gameserver.model.reward.RewardGroup;
 import lineage2.gameserver.model.reward.RewardList;
 import lineage2.gameserver.model.reward.RewardType;
 import lineage2.gameserver.scripts.Scripts;
@@ -54,6 +58,10 @@ public final class NpcTemplate extends CharTemplate
 	public static final Constructor<NpcInstance> DEFAULT_TYPE_CONSTRUCTOR = (Constructor<NpcInstance>) NpcInstance.class.getConstructors()[0];
 	@SuppressWarnings("unchecked")
 	public static final Constructor<CharacterAI> DEFAULT_AI_CONSTRUCTOR = (Constructor<CharacterAI>) CharacterAI.class.getConstructors()[0];
+	private static final MethodType TYPE_FACTORY_TYPE = MethodType.methodType(NpcInstance.class, int.class, NpcTemplate.class);
+	private static final MethodType AI_FACTORY_TYPE = MethodType.methodType(CharacterAI.class, NpcInstance.class);
+	private static final MethodHandle DEFAULT_TYPE_FACTORY = getFactory(DEFAULT_TYPE_CONSTRUCTOR, TYPE_FACTORY_TYPE);
+	private static final MethodHandle DEFAULT_AI_FACTORY = getFactory(DEFAULT_AI_CONSTRUCTOR, AI_FACTORY_TYPE);
 	
 	/**
 	 * @author Mobius
@@ -102,8 +110,10 @@ public final class NpcTemplate extends CharTemplate
 	private Skill[] _healSkills = Skill.EMPTY_ARRAY;
 	private Class<NpcInstance> _classType = NpcInstance.class;
 	private Constructor<NpcInstance> _constructorType = DEFAULT_TYPE_CONSTRUCTOR;
+	private MethodHandle _typeFactory = DEFAULT_TYPE_FACTORY;
 	private Class<CharacterAI> _classAI = CharacterAI.class;
 	private Constructor<CharacterAI> _constructorAI = DEFAULT_AI_CONSTRUCTOR;
+	private MethodHandle _aiFactory = DEFAULT_AI_FACTORY;
 	private final String _htmRoot;
 	private int summonPoints = 1;
 	private RandomActions _randomActions = null;
@@ -179,9 +189,14 @@ public final class NpcTemplate extends CharTemplate
 	{
 		try
 		{
+			if (_typeFactory != null)
+			{
+				return (NpcInstance) _typeFactory.invokeExact(IdFactory.getInstance().getNextId(), this);
+			}
+			
 			return _constructorType.newInstance(IdFactory.getInstance().getNextId(), this);
 		}
-		catch (Exception e)
+		catch (Throwable e)
 		{
 			_log.error("Unable to create instance of NPC " + npcId, e);
 		}
@@ -198,9 +213,14 @@ public final class NpcTemplate extends CharTemplate
 	{
 		try
 		{
+			if (_aiFactory != null)
+			{
+				return (CharacterAI) _aiFactory.invokeExact(npc);
+			}
+			
 			return _constructorAI.newInstance(npc);
 		}
-		catch (Exception e)
+		catch (Throwable e)
 		{
 			_log.error("Unable to create ai of NPC " + npcId, e);
 		}
@@ -208,6 +228,26 @@ public final class NpcTemplate extends CharTemplate
 		return new CharacterAI(npc);
 	}
 	
+	/**
+	 * Resolves a constructor once into a method handle of the given type.
+	 * @param constructor Constructor<?>
+	 * @param type MethodType
+	 * @return MethodHandle or null if the constructor is not accessible, it is then called through reflection
+	 */
+	private static MethodHandle getFactory(Constructor<?> constructor, MethodType type)
+	{
+		try
+		{
+			return MethodHandles.publicLookup().unreflectConstructor(constructor).asType(type);
+		}
+		catch (Exception e)
+		{
+			_log.warn("Unable to resolve constructor " + constructor + ": " + e.getMessage());
+		}
+		
+		return null;
+	}
+	
 	/**
 	 * Method setType.
 	 * @param type String
@@ -234,6 +274,7 @@ public final class NpcTemplate extends CharTemplate
 		{
 			_classType = classType;
 			_constructorType = (Constructor<NpcInstance>) _classType.getConstructors()[0];
+			_typeFactory = getFactory(_constructorType, TYPE_FACTORY_TYPE);
 		}
 		
 		if (_classType.isAnnotationPresent(Deprecated.class))
@@ -270,6 +311,7 @@ public final class NpcTemplate extends CharTemplate
 		{
 			_classAI = classAI;
 			_constructorAI = (Constructor<CharacterAI>) _classAI.getConstructors()[0];
+			_aiFactory = getFactory(_constructorAI, AI_FACTORY_TYPE);
 		}
 		
 		if (_classAI.isAnnotationPresent(Deprecated.class))
@@ -357,6 +399,11 @@ public final class NpcTemplate extends CharTemplate
 			_rewards = new HashMap<>(RewardType.values().length);
 		}
 		
+		for (RewardGroup group : list)
+		{
+			group.prepare();
+		}
+		
 		_rewards.put(rewardType, list);
 	}
 	
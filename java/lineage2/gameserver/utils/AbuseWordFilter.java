@@ -0,0 +1,228 @@
+/*
+ * This program is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free Software
+ * Foundation, either version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package lineage2.gameserver.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Abuse word list compiled into a single automaton.<br>
+ * The words are joined into one alternation, and the characters a match can start with are collected once at load time, so a chat line is scanned once and the regex only runs where a word may begin.
+ * @author Mobius
+ * @version $Revision: 1.0 $
+ */
+public class AbuseWordFilter
+{
+	public static final AbuseWordFilter EMPTY = new AbuseWordFilter(new ArrayList<String>());
+	private static final int FLAGS = Pattern.DOTALL | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+	private static final Pattern BACK_REFERENCE = Pattern.compile("\\\\([1-9]|k<)");
+	private static final Pattern LINE_START = Pattern.compile("(?<!\\[)\\^");
+	private final Pattern[] _patterns;
+	private final BitSet _starts;
+	private final int _size;
+	
+	/**
+	 * Constructor for AbuseWordFilter.
+	 * @param words List<String> regular expressions, one per abuse word
+	 */
+	public AbuseWordFilter(List<String> words)
+	{
+		final List<Pattern> patterns = new ArrayList<>();
+		final StringBuilder combined = new StringBuilder();
+		boolean anyStart = false;
+		
+		for (String word : words)
+		{
+			final Pattern pattern = Pattern.compile(word, FLAGS);
+			anyStart |= word.contains("(?<") || word.contains("\\B") || word.contains("\\G") || LINE_START.matcher(word).find() || pattern.matcher("").lookingAt();
+			
+			// numbered back references only stay valid in a pattern of their own
+			if (BACK_REFERENCE.matcher(word).find())
+			{
+				patterns.add(pattern);
+				continue;
+			}
+			
+			if (combined.length() > 0)
+			{
+				combined.append('|');
+			}
+			
+			combined.append("(?:").append(word).append(')');
+		}
+		
+		if (combined.length() > 0)
+		{
+			patterns.add(0, Pattern.compile(combined.toString(), FLAGS));
+		}
+		
+		_patterns = patterns.toArray(new Pattern[patterns.size()]);
+		_starts = anyStart ? null : collectStarts(_patterns);
+		_size = words.size();
+	}
+	
+	/**
+	 * Collects every character a match can begin with, probed after a word and after a non word character.
+	 * @param patterns Pattern[]
+	 * @return BitSet
+	 */
+	private static BitSet collectStarts(Pattern[] patterns)
+	{
+		final BitSet starts = new BitSet(Character.MAX_VALUE + 1);
+		starts.set(Character.MIN_SURROGATE, Character.MAX_SURROGATE + 1);
+		final char[] probe = new char[2];
+		
+		for (Pattern pattern : patterns)
+		{
+			final Matcher matcher = pattern.matcher(new CharArraySequence(probe));
+			matcher.useTransparentBounds(true);
+			matcher.useAnchoringBounds(false);
+			
+			for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++)
+			{
+				if (starts.get(c))
+				{
+					continue;
+				}
+				
+				probe[1] = (char) c;
+				probe[0] = ' ';
+				matcher.region(1, 2);
+				
+				if (matcher.lookingAt() || matcher.hitEnd())
+				{
+					starts.set(c);
+					continue;
+				}
+				
+				probe[0] = 'a';
+				matcher.region(1, 2);
+				
+				if (matcher.lookingAt() || matcher.hitEnd())
+				{
+					starts.set(c);
+				}
+			}
+		}
+		
+		return starts;
+	}
+	
+	/**
+	 * Method size.
+	 * @return int number of loaded words
+	 */
+	public int size()
+	{
+		return _size;
+	}
+	
+	/**
+	 * Method matches.
+	 * @param text CharSequence
+	 * @return boolean true if any word occurs in the text
+	 */
+	public boolean matches(CharSequence text)
+	{
+		for (Pattern pattern : _patterns)
+		{
+			final Matcher matcher = pattern.matcher(text);
+			
+			if (_starts == null)
+			{
+				if (matcher.find())
+				{
+					return true;
+				}
+				
+				continue;
+			}
+			
+			matcher.useTransparentBounds(true);
+			matcher.useAnchoringBounds(false);
+			final int length = text.length();
+			
+			for (int i = 0; i < length; i++)
+			{
+				if (_starts.get(text.charAt(i)))
+				{
+					matcher.region(i, length);
+					
+					if (matcher.lookingAt())
+					{
+						return true;
+					}
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Mutable two character input for probing.
+	 * @author Mobius
+	 */
+	private static class CharArraySequence implements CharSequence
+	{
+		private final char[] _chars;
+		
+		/**
+		 * Constructor for CharArraySequence.
+		 * @param chars char[]
+		 */
+		CharArraySequence(char[] chars)
+		{
+			_chars = chars;
+		}
+		
+		/**
+		 * Method length.
+		 * @return int
+		 * @see java.lang.CharSequence#length()
+		 */
+		@Override
+		public int length()
+		{
+			return _chars.length;
+		}
+		
+		/**
+		 * Method charAt.
+		 * @param index int
+		 * @return char
+		 * @see java.lang.CharSequence#charAt(int)
+		 */
+		@Override
+		public char charAt(int index)
+		{
+			return _chars[index];
+		}
+		
+		/**
+		 * Method subSequence.
+		 * @param start int
+		 * @param end int
+		 * @return CharSequence
+		 * @see java.lang.CharSequence#subSequence(int, int)
+		 */
+		@Override
+		public CharSequence subSequence(int start, int end)
+		{
+			return new String(_chars, start, end - start);
+		}
+	}
+}
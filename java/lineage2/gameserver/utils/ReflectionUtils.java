@@ -19,6 +19,7 @@ import java.util.List;
 
 import lineage2.gameserver.data.xml.holder.InstantZoneHolder;
 import lineage2.gameserver.instancemanager.ReflectionManager;
+import lineage2.gameserver.instancemanager.ReflectionPool;
 import lineage2.gameserver.model.CommandChannel;
 import lineage2.gameserver.model.Party;
 import lineage2.gameserver.model.Player;
@@ -95,7 +96,15 @@ public class ReflectionUtils
 	public static Reflection enterReflection(Player invoker, int instancedZoneId)
 	{
 		InstantZone iz = InstantZoneHolder.getInstance().getInstantZone(instancedZoneId);
-		return enterReflection(invoker, new Reflection(), iz);
+		Reflection r = ReflectionPool.getInstance().take(instancedZoneId);
+		
+		if (r == null)
+		{
+			return enterReflection(invoker, new Reflection(), iz);
+		}
+		
+		r.activate();
+		return enterActiveReflection(invoker, r, iz);
 	}
 	
 	/**
@@ -121,6 +130,18 @@ public class ReflectionUtils
 	private static Reflection enterReflection(Player invoker, Reflection r, InstantZone iz)
 	{
 		r.init(iz);
+		return enterActiveReflection(invoker, r, iz);
+	}
+	
+	/**
+	 * Method enterActiveReflection.
+	 * @param invoker Player
+	 * @param r Reflection started reflection
+	 * @param iz InstantZone
+	 * @return Reflection
+	 */
+	private static Reflection enterActiveReflection(Player invoker, Reflection r, InstantZone iz)
+	{
 		_log.info("Player: " + invoker.getName() + " started instance " + r.getName() + " id:" + r.getId());
 		
 		if (r.getReturnLoc() == null)
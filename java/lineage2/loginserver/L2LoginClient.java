@@ -88,7 +88,7 @@ public final class L2LoginClient extends MMOClient<MMOConnection<L2LoginClient>>
 		
 		try
 		{
-			ret = _loginCrypt.decrypt(buf.array(), buf.position(), size);
+			ret = _loginCrypt.decrypt(buf, buf.position(), size);
 		}
 		catch (IOException e)
 		{
@@ -118,7 +118,7 @@ public final class L2LoginClient extends MMOClient<MMOConnection<L2LoginClient>>
 		
 		try
 		{
-			size = _loginCrypt.encrypt(buf.array(), offset, size);
+			size = _loginCrypt.encrypt(buf, offset, size);
 		}
 		catch (IOException e)
 		{
@@ -13,6 +13,8 @@
 package lineage2.loginserver.crypt;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * @author Mobius
@@ -1141,14 +1143,42 @@ public class BlowfishEngine
 			throw new IOException("output buffer too short");
 		}
 		
-		if (encrypting)
+		final long block = (BytesTo32bits(in, inOff) & 0xFFFFFFFFL) | ((long) BytesTo32bits(in, inOff + 4) << 32);
+		final long result = encrypting ? encryptBlock(block) : decryptBlock(block);
+		Bits32ToBytes((int) result, out, outOff);
+		Bits32ToBytes((int) (result >>> 32), out, outOff + 4);
+		return BLOCK_SIZE;
+	}
+	
+	/**
+	 * Processes one block in place, reading and writing it as a single little-endian word.
+	 * @param buf ByteBuffer
+	 * @param off int
+	 * @return int
+	 * @throws IOException
+	 */
+	final int processBlock(ByteBuffer buf, int off) throws IOException
+	{
+		if (workingKey == null)
+		{
+			throw new IllegalStateException("Blowfish not initialised");
+		}
+		
+		if ((off + BLOCK_SIZE) > buf.limit())
 		{
-			encryptBlock(in, inOff, out, outOff);
+			throw new IOException("buffer too short");
 		}
-		else
+		
+		final boolean bigEndian = buf.order() == ByteOrder.BIG_ENDIAN;
+		long block = buf.getLong(off);
+		
+		if (bigEndian)
 		{
-			decryptBlock(in, inOff, out, outOff);
+			block = Long.reverseBytes(block);
 		}
+		
+		block = encrypting ? encryptBlock(block) : decryptBlock(block);
+		buf.putLong(off, bigEndian ? Long.reverseBytes(block) : block);
 		return BLOCK_SIZE;
 	}
 	
@@ -1246,15 +1276,13 @@ public class BlowfishEngine
 	
 	/**
 	 * Method encryptBlock.
-	 * @param src byte[]
-	 * @param srcIndex int
-	 * @param dst byte[]
-	 * @param dstIndex int
+	 * @param block long little-endian block, left half in the low 32 bits
+	 * @return long
 	 */
-	private void encryptBlock(byte[] src, int srcIndex, byte[] dst, int dstIndex)
+	private long encryptBlock(long block)
 	{
-		int xl = BytesTo32bits(src, srcIndex);
-		int xr = BytesTo32bits(src, srcIndex + 4);
+		int xl = (int) block;
+		int xr = (int) (block >>> 32);
 		xl ^= P[0];
 		
 		for (int i = 1; i < ROUNDS; i += 2)
@@ -1264,21 +1292,18 @@ public class BlowfishEngine
 		}
 		
 		xr ^= P[ROUNDS + 1];
-		Bits32ToBytes(xr, dst, dstIndex);
-		Bits32ToBytes(xl, dst, dstIndex + 4);
+		return (xr & 0xFFFFFFFFL) | ((long) xl << 32);
 	}
 	
 	/**
 	 * Method decryptBlock.
-	 * @param src byte[]
-	 * @param srcIndex int
-	 * @param dst byte[]
-	 * @param dstIndex int
+	 * @param block long little-endian block, left half in the low 32 bits
+	 * @return long
 	 */
-	private void decryptBlock(byte[] src, int srcIndex, byte[] dst, int dstIndex)
+	private long decryptBlock(long block)
 	{
-		int xl = BytesTo32bits(src, srcIndex);
-		int xr = BytesTo32bits(src, srcIndex + 4);
+		int xl = (int) block;
+		int xr = (int) (block >>> 32);
 		xl ^= P[ROUNDS + 1];
 		
 		for (int i = ROUNDS; i > 0; i -= 2)
@@ -1288,8 +1313,7 @@ public class BlowfishEngine
 		}
 		
 		xr ^= P[0];
-		Bits32ToBytes(xr, dst, dstIndex);
-		Bits32ToBytes(xl, dst, dstIndex + 4);
+		return (xr & 0xFFFFFFFFL) | ((long) xl << 32);
 	}
 	
 	/**
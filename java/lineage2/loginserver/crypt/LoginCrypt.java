@@ -13,6 +13,7 @@
 package lineage2.loginserver.crypt;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import lineage2.commons.util.Rnd;
 
@@ -57,27 +58,27 @@ public class LoginCrypt
 	
 	/**
 	 * Method decrypt.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @return boolean
 	 * @throws IOException
 	 */
-	public boolean decrypt(byte[] raw, final int offset, final int size) throws IOException
+	public boolean decrypt(ByteBuffer buf, final int offset, final int size) throws IOException
 	{
-		_crypt.decrypt(raw, offset, size);
-		return NewCrypt.verifyChecksum(raw, offset, size);
+		_crypt.decrypt(buf, offset, size);
+		return NewCrypt.verifyChecksum(buf, offset, size);
 	}
 	
 	/**
 	 * Method encrypt.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @return int
 	 * @throws IOException
 	 */
-	public int encrypt(byte[] raw, final int offset, int size) throws IOException
+	public int encrypt(ByteBuffer buf, final int offset, int size) throws IOException
 	{
 		size += 4;
 		
@@ -85,15 +86,15 @@ public class LoginCrypt
 		{
 			size += 4;
 			size += 8 - (size % 8);
-			NewCrypt.encXORPass(raw, offset, size, Rnd.nextInt());
-			_staticCrypt.crypt(raw, offset, size);
+			NewCrypt.encXORPass(buf, offset, size, Rnd.nextInt());
+			_staticCrypt.crypt(buf, offset, size);
 			_static = false;
 		}
 		else
 		{
 			size += 8 - (size % 8);
-			NewCrypt.appendChecksum(raw, offset, size);
-			_crypt.crypt(raw, offset, size);
+			NewCrypt.appendChecksum(buf, offset, size);
+			_crypt.crypt(buf, offset, size);
 		}
 		return size;
 	}
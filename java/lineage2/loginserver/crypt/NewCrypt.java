@@ -13,6 +13,8 @@
 package lineage2.loginserver.crypt;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 /**
  * @author Mobius
@@ -51,42 +53,33 @@ public class NewCrypt
 	 */
 	public static boolean verifyChecksum(byte[] raw)
 	{
-		return NewCrypt.verifyChecksum(raw, 0, raw.length);
+		return NewCrypt.verifyChecksum(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN), 0, raw.length);
 	}
 	
 	/**
 	 * Method verifyChecksum.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @return boolean
 	 */
-	static boolean verifyChecksum(byte[] raw, final int offset, final int size)
+	static boolean verifyChecksum(ByteBuffer buf, final int offset, final int size)
 	{
 		if (((size & 3) != 0) || (size <= 4))
 		{
 			return false;
 		}
 		
-		long chksum = 0;
+		int chksum = 0;
 		int count = size - 4;
-		long check = -1;
 		int i;
 		
 		for (i = offset; i < count; i += 4)
 		{
-			check = raw[i] & 0xff;
-			check |= (raw[i + 1] << 8) & 0xff00;
-			check |= (raw[i + 2] << 0x10) & 0xff0000;
-			check |= (raw[i + 3] << 0x18) & 0xff000000;
-			chksum ^= check;
+			chksum ^= getInt(buf, i);
 		}
 		
-		check = raw[i] & 0xff;
-		check |= (raw[i + 1] << 8) & 0xff00;
-		check |= (raw[i + 2] << 0x10) & 0xff0000;
-		check |= (raw[i + 3] << 0x18) & 0xff000000;
-		return check == chksum;
+		return getInt(buf, i) == chksum;
 	}
 	
 	/**
@@ -95,39 +88,27 @@ public class NewCrypt
 	 */
 	public static void appendChecksum(byte[] raw)
 	{
-		NewCrypt.appendChecksum(raw, 0, raw.length);
+		NewCrypt.appendChecksum(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN), 0, raw.length);
 	}
 	
 	/**
 	 * Method appendChecksum.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 */
-	static void appendChecksum(byte[] raw, final int offset, final int size)
+	static void appendChecksum(ByteBuffer buf, final int offset, final int size)
 	{
-		long chksum = 0;
+		int chksum = 0;
 		int count = size - 4;
-		long ecx;
 		int i;
 		
 		for (i = offset; i < count; i += 4)
 		{
-			ecx = raw[i] & 0xff;
-			ecx |= (raw[i + 1] << 8) & 0xff00;
-			ecx |= (raw[i + 2] << 0x10) & 0xff0000;
-			ecx |= (raw[i + 3] << 0x18) & 0xff000000;
-			chksum ^= ecx;
+			chksum ^= getInt(buf, i);
 		}
 		
-		ecx = raw[i] & 0xff;
-		ecx |= (raw[i + 1] << 8) & 0xff00;
-		ecx |= (raw[i + 2] << 0x10) & 0xff0000;
-		ecx |= (raw[i + 3] << 0x18) & 0xff000000;
-		raw[i] = (byte) (chksum & 0xff);
-		raw[i + 1] = (byte) ((chksum >> 0x08) & 0xff);
-		raw[i + 2] = (byte) ((chksum >> 0x10) & 0xff);
-		raw[i + 3] = (byte) ((chksum >> 0x18) & 0xff);
+		putInt(buf, i, chksum);
 	}
 	
 	/**
@@ -137,41 +118,31 @@ public class NewCrypt
 	 */
 	public static void encXORPass(byte[] raw, int key)
 	{
-		NewCrypt.encXORPass(raw, 0, raw.length, key);
+		NewCrypt.encXORPass(ByteBuffer.wrap(raw).order(ByteOrder.LITTLE_ENDIAN), 0, raw.length, key);
 	}
 	
 	/**
 	 * Method encXORPass.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @param key int
 	 */
-	static void encXORPass(byte[] raw, final int offset, final int size, int key)
+	static void encXORPass(ByteBuffer buf, final int offset, final int size, int key)
 	{
 		int stop = size - 8;
 		int pos = 4 + offset;
 		int edx;
 		int ecx = key;
 		
-		while (pos < stop)
+		for (; pos < stop; pos += 4)
 		{
-			edx = raw[pos] & 0xFF;
-			edx |= (raw[pos + 1] & 0xFF) << 8;
-			edx |= (raw[pos + 2] & 0xFF) << 16;
-			edx |= (raw[pos + 3] & 0xFF) << 24;
+			edx = getInt(buf, pos);
 			ecx += edx;
-			edx ^= ecx;
-			raw[pos++] = (byte) (edx & 0xFF);
-			raw[pos++] = (byte) ((edx >> 8) & 0xFF);
-			raw[pos++] = (byte) ((edx >> 16) & 0xFF);
-			raw[pos++] = (byte) ((edx >> 24) & 0xFF);
+			putInt(buf, pos, edx ^ ecx);
 		}
 		
-		raw[pos++] = (byte) (ecx & 0xFF);
-		raw[pos++] = (byte) ((ecx >> 8) & 0xFF);
-		raw[pos++] = (byte) ((ecx >> 16) & 0xFF);
-		raw[pos] = (byte) ((ecx >> 24) & 0xFF);
+		putInt(buf, pos, ecx);
 	}
 	
 	/**
@@ -183,34 +154,26 @@ public class NewCrypt
 	public byte[] decrypt(byte[] raw) throws IOException
 	{
 		byte[] result = new byte[raw.length];
-		int count = raw.length / 8;
-		
-		for (int i = 0; i < count; i++)
-		{
-			_decrypt.processBlock(raw, i * 8, result, i * 8);
-		}
-		
+		System.arraycopy(raw, 0, result, 0, raw.length & ~7);
+		decrypt(ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN), 0, result.length);
 		return result;
 	}
 	
 	/**
 	 * Method decrypt.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @throws IOException
 	 */
-	void decrypt(byte[] raw, final int offset, final int size) throws IOException
+	void decrypt(ByteBuffer buf, final int offset, final int size) throws IOException
 	{
-		byte[] result = new byte[size];
 		int count = size / 8;
 		
 		for (int i = 0; i < count; i++)
 		{
-			_decrypt.processBlock(raw, offset + (i * 8), result, i * 8);
+			_decrypt.processBlock(buf, offset + (i * 8));
 		}
-		
-		System.arraycopy(result, 0, raw, offset, size);
 	}
 	
 	/**
@@ -221,34 +184,49 @@ public class NewCrypt
 	 */
 	public byte[] crypt(byte[] raw) throws IOException
 	{
-		int count = raw.length / 8;
 		byte[] result = new byte[raw.length];
-		
-		for (int i = 0; i < count; i++)
-		{
-			_crypt.processBlock(raw, i * 8, result, i * 8);
-		}
-		
+		System.arraycopy(raw, 0, result, 0, raw.length & ~7);
+		crypt(ByteBuffer.wrap(result).order(ByteOrder.LITTLE_ENDIAN), 0, result.length);
 		return result;
 	}
 	
 	/**
 	 * Method crypt.
-	 * @param raw byte[]
+	 * @param buf ByteBuffer
 	 * @param offset int
 	 * @param size int
 	 * @throws IOException
 	 */
-	void crypt(byte[] raw, final int offset, final int size) throws IOException
+	void crypt(ByteBuffer buf, final int offset, final int size) throws IOException
 	{
 		int count = size / 8;
-		byte[] result = new byte[size];
 		
 		for (int i = 0; i < count; i++)
 		{
-			_crypt.processBlock(raw, offset + (i * 8), result, i * 8);
+			_crypt.processBlock(buf, offset + (i * 8));
 		}
-		
-		System.arraycopy(result, 0, raw, offset, size);
+	}
+	
+	/**
+	 * Method getInt.
+	 * @param buf ByteBuffer
+	 * @param index int
+	 * @return int little-endian value at index
+	 */
+	private static int getInt(ByteBuffer buf, int index)
+	{
+		final int value = buf.getInt(index);
+		return buf.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value);
+	}
+	
+	/**
+	 * Method putInt.
+	 * @param buf ByteBuffer
+	 * @param index int
+	 * @param value int stored little-endian at index
+	 */
+	private static void putInt(ByteBuffer buf, int index, int value)
+	{
+		buf.putInt(index, buf.order() == ByteOrder.LITTLE_ENDIAN ? value : Integer.reverseBytes(value));
 	}
 }